@@ -1,9 +1,14 @@
 package monitoramento;
 
 import monitoramento.comum.ConfiguradorSistema;
+import monitoramento.comum.FiltroEpocas;
 import monitoramento.grupoa.NoGrupoA;
 import monitoramento.grupob.NoGrupoB;
+import monitoramento.coordenacao.EmissorMulticast;
+import monitoramento.coordenacao.FiltroEnvelope;
+import monitoramento.coordenacao.HubMulticast;
 import monitoramento.coordenacao.OuvinteMulticast;
+import monitoramento.coordenacao.TipoMensagem;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
@@ -16,29 +21,41 @@ import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class Simulador {
     private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
     private static OuvinteMulticast ouvinteCliente;
+    private static final FiltroEpocas filtroEpocas = new FiltroEpocas();
     private static volatile boolean simulacaoAtiva = true;
 
+    // Grupos além de A e B (-Dsimulador.grupos=N); alternam gRPC e RMI e seguem os mesmos cenários de descoberta
+    private static final Map<String, List<NoGrupoA>> gruposExtrasGrpc = new LinkedHashMap<>();
+    private static final Map<String, List<NoGrupoB>> gruposExtrasRmi = new LinkedHashMap<>();
+    // 50050 + pid (gRPC) não pode alcançar 50200 + pid (canal entre líderes)
+    private static final int MAXIMO_PIDS = 149;
+
     public static void main(String[] args) {
         ConfiguradorSistema.inicializar();
 
-        List<Integer> pidsGrupoA = Arrays.asList(1, 2, 3);
-        List<Integer> pidsGrupoB = Arrays.asList(4, 5, 6);
+        int nosPorGrupo = Math.max(2, Integer.getInteger("simulador.nosPorGrupo", 3));
+        int quantidadeGrupos = Math.max(2, Integer.getInteger("simulador.grupos", 2));
+        if (quantidadeGrupos * nosPorGrupo > MAXIMO_PIDS) {
+            quantidadeGrupos = MAXIMO_PIDS / nosPorGrupo;
+            System.out.printf("[SIMULADOR] Limitando a simulação a %d grupos de %d nós%n", quantidadeGrupos, nosPorGrupo);
+        }
+
+        List<Integer> pidsGrupoA = pidsDoGrupo(0, nosPorGrupo);
+        List<Integer> pidsGrupoB = pidsDoGrupo(1, nosPorGrupo);
         Map<Integer, Integer> portasHeartbeat = new HashMap<>();
         Map<Integer, Integer> portasGrpc = new HashMap<>();
 
-        // Configurar portas para Grupo A (gRPC)
-        for(int pid : pidsGrupoA) {
-            portasHeartbeat.put(pid, 1100 + pid);
-            portasGrpc.put(pid, 50050 + pid);
-        }
-
-        // Configurar portas para Grupo B (RMI)
-        for(int pid : pidsGrupoB) {
+        // Portas de todos os grupos: heartbeat para todos, gRPC para os de índice par (gRPC)
+        for (int pid = 1; pid <= quantidadeGrupos * nosPorGrupo; pid++) {
             portasHeartbeat.put(pid, 1100 + pid);
+            if (((pid - 1) / nosPorGrupo) % 2 == 0) {
+                portasGrpc.put(pid, 50050 + pid);
+            }
         }
 
         try {
@@ -77,13 +94,22 @@ public class Simulador {
                 }
             }
 
+            // Grupos adicionais
+            for (int g = 2; g < quantidadeGrupos; g++) {
+                iniciarGrupoExtra(g, pidsDoGrupo(g, nosPorGrupo), portasHeartbeat, portasGrpc, registry);
+            }
+
             System.out.println("\n" + "=".repeat(80));
             System.out.println("           SIMULAÇÃO DO SISTEMA DISTRIBUÍDO INICIADA");
             System.out.println("=".repeat(80));
             System.out.printf("Grupo A (gRPC): %s%n", pidsGrupoA);
             System.out.printf("Grupo B (RMI):  %s%n", pidsGrupoB);
-            System.out.println("Líder inicial Grupo A: P3");
-            System.out.println("Líder inicial Grupo B: P6");
+            gruposExtrasGrpc.forEach((nome, nos) -> System.out.printf("Grupo %s (gRPC): %s%n", nome,
+                    nos.stream().map(NoGrupoA::getId).collect(Collectors.toList())));
+            gruposExtrasRmi.forEach((nome, nos) -> System.out.printf("Grupo %s (RMI):  %s%n", nome,
+                    nos.stream().map(NoGrupoB::getId).collect(Collectors.toList())));
+            System.out.printf("Líder inicial Grupo A: P%d%n", pidsGrupoA.get(pidsGrupoA.size() - 1));
+            System.out.printf("Líder inicial Grupo B: P%d%n", pidsGrupoB.get(pidsGrupoB.size() - 1));
             System.out.println("=".repeat(80));
 
             // Aguardar inicialização completa
@@ -99,7 +125,7 @@ public class Simulador {
 
             // ===== CENÁRIO DE TESTE: FALHA DO LÍDER GRUPO A =====
             System.out.println("\n" + "=".repeat(60));
-            System.out.println("  CENÁRIO 1: FALHA DO LÍDER DO GRUPO A (P3)");
+            System.out.println("  CENÁRIO 1: FALHA DO LÍDER DO GRUPO A");
             System.out.println("=".repeat(60));
             System.out.println("[SIMULADOR] Aguardando 25s antes de simular falha...");
             Thread.sleep(35000);
@@ -108,7 +134,7 @@ public class Simulador {
             NoGrupoA liderGrupoA = encontrarLiderGrupoA(nosGrupoA);
             if (liderGrupoA != null) {
                 System.out.printf("\n[SIMULADOR] *** SIMULANDO FALHA DO LÍDER P%d (GRUPO A) ***%n", liderGrupoA.getId());
-                liderGrupoA.setAtivo(false);
+                liderGrupoA.simularFalha();
 
                 // Aguardar nova eleição
                 System.out.println("[SIMULADOR] Aguardando nova eleição no Grupo A...");
@@ -118,7 +144,7 @@ public class Simulador {
 
             // ===== CENÁRIO DE TESTE: FALHA DO LÍDER GRUPO B =====
             System.out.println("\n" + "=".repeat(60));
-            System.out.println("  CENÁRIO 2: FALHA DO LÍDER DO GRUPO B (P6)");
+            System.out.println("  CENÁRIO 2: FALHA DO LÍDER DO GRUPO B");
             System.out.println("=".repeat(60));
             System.out.println("[SIMULADOR] Aguardando 25s antes de simular falha...");
             Thread.sleep(35000);
@@ -127,7 +153,7 @@ public class Simulador {
             NoGrupoB liderGrupoB = encontrarLiderGrupoB(nosGrupoB);
             if (liderGrupoB != null) {
                 System.out.printf("\n[SIMULADOR] *** SIMULANDO FALHA DO LÍDER P%d (GRUPO B) ***%n", liderGrupoB.getId());
-                liderGrupoB.setAtivo(false);
+                liderGrupoB.simularFalha();
 
                 try {
                     registry.unbind("NoRMI" + liderGrupoB.getId());
@@ -188,17 +214,76 @@ public class Simulador {
         }
     }
 
+    /**
+     * Pids do grupo de índice g: blocos contíguos de nosPorGrupo a partir de 1
+     */
+    private static List<Integer> pidsDoGrupo(int g, int nosPorGrupo) {
+        List<Integer> pids = new ArrayList<>();
+        for (int i = 1; i <= nosPorGrupo; i++) {
+            pids.add(g * nosPorGrupo + i);
+        }
+        return pids;
+    }
+
+    /**
+     * Nome do grupo de índice g: A..Z e, a partir do 27º, letra seguida do número da volta (A1, B1, ...)
+     */
+    private static String nomeGrupo(int g) {
+        char letra = (char) ('A' + g % 26);
+        return g < 26 ? String.valueOf(letra) : letra + String.valueOf(g / 26);
+    }
+
+    private static void iniciarGrupoExtra(int g, List<Integer> pids, Map<Integer, Integer> portasHeartbeat,
+                                          Map<Integer, Integer> portasGrpc, Registry registry) {
+        String nome = nomeGrupo(g);
+        boolean grpc = g % 2 == 0;
+        System.out.printf("[SIMULADOR] Inicializando nós do Grupo %s (%s)...%n", nome, grpc ? "gRPC" : "RMI");
+        List<NoGrupoA> nosGrpc = new ArrayList<>();
+        List<NoGrupoB> nosRmi = new ArrayList<>();
+        for (int pid : pids) {
+            try {
+                if (grpc) {
+                    nosGrpc.add(new NoGrupoA(pid, nome, pids, portasHeartbeat, portasGrpc));
+                } else {
+                    NoGrupoB no = new NoGrupoB(pid, nome, pids, portasHeartbeat);
+                    registry.bind("NoRMI" + pid, no.getServidorRMI());
+                    nosRmi.add(no);
+                }
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.printf("[ERRO SIMULADOR] Falha ao inicializar P%d (Grupo %s): %s%n", pid, nome, e.getMessage());
+            }
+        }
+        if (grpc) {
+            gruposExtrasGrpc.put(nome, nosGrpc);
+        } else {
+            gruposExtrasRmi.put(nome, nosRmi);
+        }
+    }
+
     private static void iniciarClienteRelatorios() {
-        ouvinteCliente = new OuvinteMulticast(12345, "239.0.0.1", (mensagem) -> {
-            if (mensagem.contains("RELATÓRIO") || mensagem.contains("RELATORIO")) {
-                System.out.println("\n" + "▼".repeat(50));
-                System.out.println("           RELATÓRIO RECEBIDO");
-                System.out.println("▼".repeat(50));
-                System.out.println(mensagem);
-                System.out.println("▲".repeat(50));
-            } else if (mensagem.contains("NOTIFICAÇÃO") || mensagem.contains("[NOTIFICAÇÃO]")) {
-                System.out.println("\n🔔 " + mensagem.trim());
+        // O filtro de tipo descarta no hub o tráfego que não é para clientes (ex.: marcadores de snapshot)
+        FiltroEnvelope filtro = FiltroEnvelope.porTipo(
+                TipoMensagem.RELATORIO, TipoMensagem.RELATORIO_SISTEMA, TipoMensagem.NOTIFICACAO);
+
+        ouvinteCliente = new OuvinteMulticast(12345, "239.0.0.1", filtro, (mensagem) -> {
+            if (mensagem.getTipo() == TipoMensagem.NOTIFICACAO) {
+                System.out.println("\n🔔 " + mensagem.getCorpoTexto().trim());
+                return;
+            }
+            if (mensagem.getTipo() == TipoMensagem.RELATORIO
+                    && !filtroEpocas.aceitar(mensagem.getGrupo(), mensagem.getEpoca())) {
+                System.out.println("[SIMULADOR] Relatório de líder com época obsoleta descartado");
+                return;
             }
+            System.out.println("\n" + "▼".repeat(50));
+            System.out.println("           RELATÓRIO RECEBIDO");
+            System.out.println("▼".repeat(50));
+            System.out.println(mensagem.getCorpoTexto());
+            System.out.println("▲".repeat(50));
         });
 
         new Thread(ouvinteCliente).start();
@@ -225,18 +310,32 @@ public class Simulador {
                     ativosB, nosGrupoB.size(),
                     liderB != null ? liderB.getId() : "NENHUM");
 
+            // Grupos adicionais
+            gruposExtrasGrpc.forEach((nome, nos) -> {
+                NoGrupoA lider = encontrarLiderGrupoA(nos);
+                System.out.printf("   Grupo %s: %d/%d ativos | Líder: P%s%n", nome,
+                        nos.stream().filter(NoGrupoA::isAtivo).count(), nos.size(),
+                        lider != null ? lider.getId() : "NENHUM");
+            });
+            gruposExtrasRmi.forEach((nome, nos) -> {
+                NoGrupoB lider = encontrarLiderGrupoB(nos);
+                System.out.printf("   Grupo %s: %d/%d ativos | Líder: P%s%n", nome,
+                        nos.stream().filter(NoGrupoB::isAtivo).count(), nos.size(),
+                        lider != null ? lider.getId() : "NENHUM");
+            });
+
             // Verificar supercoordenador - só deve haver UM
             List<String> supercoordenadores = new ArrayList<>();
 
-            for (NoGrupoA no : nosGrupoA) {
+            for (NoGrupoA no : todosNosGrpc(nosGrupoA)) {
                 if (no.isAtivo() && no.isSupercoordenador()) {
-                    supercoordenadores.add("P" + no.getId() + " (Grupo A)");
+                    supercoordenadores.add("P" + no.getId() + " (Grupo " + no.getNomeGrupo() + ")");
                 }
             }
 
-            for (NoGrupoB no : nosGrupoB) {
+            for (NoGrupoB no : todosNosRmi(nosGrupoB)) {
                 if (no.isAtivo() && no.isSupercoordenador()) {
-                    supercoordenadores.add("P" + no.getId() + " (Grupo B)");
+                    supercoordenadores.add("P" + no.getId() + " (Grupo " + no.getNomeGrupo() + ")");
                 }
             }
 
@@ -260,7 +359,7 @@ public class Simulador {
         NoGrupoA superA = null;
         NoGrupoB superB = null;
 
-        for (NoGrupoA no : nosGrupoA) {
+        for (NoGrupoA no : todosNosGrpc(nosGrupoA)) {
             if (no.isAtivo() && no.isSupercoordenador() && no.getId() > maiorId) {
                 if (superA != null) superA.getSuperCoordenador().desativar();
                 maiorId = no.getId();
@@ -268,7 +367,7 @@ public class Simulador {
             }
         }
 
-        for (NoGrupoB no : nosGrupoB) {
+        for (NoGrupoB no : todosNosRmi(nosGrupoB)) {
             if (no.isAtivo() && no.isSupercoordenador() && no.getId() > maiorId) {
                 if (superA != null) superA.getSuperCoordenador().desativar();
                 if (superB != null) superB.getSuperCoordenador().desativar();
@@ -281,6 +380,24 @@ public class Simulador {
         System.out.printf(" [SIMULADOR] Conflito resolvido. Supercoordenador único: P%d%n", maiorId);
     }
 
+    /**
+     * Nós gRPC do Grupo A e dos grupos adicionais gRPC
+     */
+    private static List<NoGrupoA> todosNosGrpc(List<NoGrupoA> nosGrupoA) {
+        List<NoGrupoA> todos = new ArrayList<>(nosGrupoA);
+        gruposExtrasGrpc.values().forEach(todos::addAll);
+        return todos;
+    }
+
+    /**
+     * Nós RMI do Grupo B e dos grupos adicionais RMI
+     */
+    private static List<NoGrupoB> todosNosRmi(List<NoGrupoB> nosGrupoB) {
+        List<NoGrupoB> todos = new ArrayList<>(nosGrupoB);
+        gruposExtrasRmi.values().forEach(todos::addAll);
+        return todos;
+    }
+
     private static void verificarStatusSistema(List<NoGrupoA> nosGrupoA, List<NoGrupoB> nosGrupoB) {
         System.out.println("\n [SIMULADOR] Verificação de Status Inicial:");
 
@@ -341,17 +458,17 @@ public class Simulador {
     }
 
     private static String identificarSupercoordenador(List<NoGrupoA> nosGrupoA, List<NoGrupoB> nosGrupoB) {
-        // Verificar nos do Grupo A
-        for (NoGrupoA no : nosGrupoA) {
+        // Verificar nos dos grupos gRPC
+        for (NoGrupoA no : todosNosGrpc(nosGrupoA)) {
             if (no.isAtivo() && no.isSupercoordenador()) {
-                return String.format("P%d (Grupo A)", no.getId());
+                return String.format("P%d (Grupo %s)", no.getId(), no.getNomeGrupo());
             }
         }
 
-        // Verificar nos do Grupo B
-        for (NoGrupoB no : nosGrupoB) {
+        // Verificar nos dos grupos RMI
+        for (NoGrupoB no : todosNosRmi(nosGrupoB)) {
             if (no.isAtivo() && no.isSupercoordenador()) {
-                return String.format("P%d (Grupo B)", no.getId());
+                return String.format("P%d (Grupo %s)", no.getId(), no.getNomeGrupo());
             }
         }
 
@@ -376,6 +493,22 @@ public class Simulador {
             System.out.printf("   Líder Grupo B (P%d): %d grupos remotos conhecidos%n",
                     liderB.getId(), gruposConhecidos);
         }
+
+        // Todos os líderes devem ter descoberto os demais grupos
+        gruposExtrasGrpc.forEach((nome, nos) -> {
+            NoGrupoA lider = encontrarLiderGrupoA(nos);
+            if (lider != null) {
+                System.out.printf("   Líder Grupo %s (P%d): %d grupos no registro%n", nome, lider.getId(),
+                        lider.getComunicacaoIntergrupos().getRegistroGrupos().getQuantidade());
+            }
+        });
+        gruposExtrasRmi.forEach((nome, nos) -> {
+            NoGrupoB lider = encontrarLiderGrupoB(nos);
+            if (lider != null) {
+                System.out.printf("   Líder Grupo %s (P%d): %d grupos no registro%n", nome, lider.getId(),
+                        lider.getComunicacaoIntergrupos().getRegistroGrupos().getQuantidade());
+            }
+        });
     }
 
     private static void gerarRelatorioFinal(List<NoGrupoA> nosGrupoA, List<NoGrupoB> nosGrupoB) {
@@ -411,11 +544,33 @@ public class Simulador {
                     mensagensEnviadas, mensagensRecebidas);
         }
 
+        // Grupos adicionais
+        if (!gruposExtrasGrpc.isEmpty() || !gruposExtrasRmi.isEmpty()) {
+            System.out.println("\nGRUPOS ADICIONAIS:");
+            gruposExtrasGrpc.forEach((nome, nos) -> {
+                NoGrupoA lider = encontrarLiderGrupoA(nos);
+                System.out.printf("  • Grupo %s (gRPC): %d/%d ativos | Líder: %s%n", nome,
+                        nos.stream().filter(NoGrupoA::isAtivo).count(), nos.size(),
+                        lider != null ? "P" + lider.getId() : "NENHUM");
+            });
+            gruposExtrasRmi.forEach((nome, nos) -> {
+                NoGrupoB lider = encontrarLiderGrupoB(nos);
+                System.out.printf("  • Grupo %s (RMI): %d/%d ativos | Líder: %s%n", nome,
+                        nos.stream().filter(NoGrupoB::isAtivo).count(), nos.size(),
+                        lider != null ? "P" + lider.getId() : "NENHUM");
+            });
+        }
+
         // Supercoordenação
         System.out.println("\nSUPERCOORDENAÇÃO GLOBAL:");
         String supercoordenador = identificarSupercoordenador(nosGrupoA, nosGrupoB);
         System.out.printf("  • Supercoordenador: %s%n", supercoordenador);
 
+        // Envio multicast (emissor compartilhado pelo processo)
+        System.out.println("\nENVIO MULTICAST:");
+        System.out.println("  • " + EmissorMulticast.getInstancia().gerarEstatisticas());
+        System.out.print(HubMulticast.gerarEstatisticas());
+
         // Status de snapshots
         System.out.println("\nSNAPSHOTS GLOBAIS:");
         boolean temSnapshotAtivo = false;
@@ -21,19 +21,25 @@ public class ServidorAutenticacao implements Runnable {
 
     // Fornecedores e callbacks para integração com o sistema principal
     private final Supplier<Integer> idSupplier; // Fornece o ID do processo atual
-    private final Supplier<Integer> coordenadorIdSupplier; // Fornece o ID do coordenador
+    private final Supplier<Boolean> isLiderSupplier; // Indica se o processo é líder com arrendamento válido
+    private final String grupo; // Grupo do líder (escopo da época)
+    private final Supplier<Long> epocaSupplier; // Fornece a época de liderança corrente
     private final Supplier<Boolean> isAtivoSupplier; // Indica se o processo está ativo
     private final Runnable registrarClienteCallback; // Callback para registrar cliente autenticado
     private final Consumer<ServerSocket> socketCallback; // Callback ao iniciar o socket
 
     // Construtor recebe dependências externas para integração
     public ServidorAutenticacao(Supplier<Integer> idSupplier,
-                                Supplier<Integer> coordenadorIdSupplier,
+                                Supplier<Boolean> isLiderSupplier,
+                                String grupo,
+                                Supplier<Long> epocaSupplier,
                                 Supplier<Boolean> isAtivoSupplier,
                                 Runnable registrarClienteCallback,
                                 Consumer<ServerSocket> socketCallback) {
         this.idSupplier = idSupplier;
-        this.coordenadorIdSupplier = coordenadorIdSupplier;
+        this.isLiderSupplier = isLiderSupplier;
+        this.grupo = grupo;
+        this.epocaSupplier = epocaSupplier;
         this.isAtivoSupplier = isAtivoSupplier;
         this.registrarClienteCallback = registrarClienteCallback;
         this.socketCallback = socketCallback;
@@ -69,8 +75,8 @@ public class ServidorAutenticacao implements Runnable {
             System.out.printf("[AUTH] Lider P%d: Servidor de Autenticacao iniciado na porta %d.%n",
                     idSupplier.get(), portaFinal);
 
-            // O servidor de autenticação só roda enquanto o processo for ativo e for o coordenador
-            while (isAtivoSupplier.get() && idSupplier.get().equals(coordenadorIdSupplier.get())) {
+            // O servidor de autenticação só roda enquanto o processo for ativo e mantiver o arrendamento de líder
+            while (isAtivoSupplier.get() && isLiderSupplier.get()) {
                 try (Socket clientSocket = serverSocket.accept()) {
                     // Processa a requisição recebida do cliente
                     processarRequisicaoCliente(clientSocket);
@@ -139,8 +145,8 @@ public class ServidorAutenticacao implements Runnable {
     private void processarLogin(String credenciais, PrintWriter out) {
         // Exemplo fixo de autenticação: admin;admin
         if ("admin;admin".equals(credenciais)) {
-            // Gera um token único e registra com a hora de criação
-            String token = UUID.randomUUID().toString();
+            // Gera um token único marcado com grupo e época do líder que o emitiu (fencing)
+            String token = grupo + "." + epocaSupplier.get() + "." + UUID.randomUUID();
             sessoesAtivas.put(token, System.currentTimeMillis());
             out.println("TOKEN:" + token);
 
@@ -164,6 +170,15 @@ public class ServidorAutenticacao implements Runnable {
 
     // Valida se um token ainda é válido ou se expirou
     private void processarValidacao(String token, PrintWriter out) {
+        // Tokens emitidos por um líder anterior do mesmo grupo são recusados
+        if (isEpocaObsoleta(token)) {
+            sessoesAtivas.remove(token);
+            out.println("EXPIRADO");
+            System.out.printf("[AUTH] Token de época anterior recusado (P%d, época %d)%n",
+                    idSupplier.get(), epocaSupplier.get());
+            return;
+        }
+
         Long tempoCriacao = sessoesAtivas.get(token);
 
         // Se o token existe e não passou do tempo de expiração
@@ -175,4 +190,17 @@ public class ServidorAutenticacao implements Runnable {
             out.println("EXPIRADO");
         }
     }
+
+    // Verifica se o token pertence a este grupo e foi emitido numa época anterior à corrente
+    private boolean isEpocaObsoleta(String token) {
+        String[] partes = token.split("\\.", 3);
+        if (partes.length < 3 || !partes[0].equals(grupo)) {
+            return false;
+        }
+        try {
+            return Long.parseLong(partes[1]) < epocaSupplier.get();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 }
@@ -1,7 +1,16 @@
 package monitoramento.cliente;
 
+import monitoramento.comum.CacheIdsRecentes;
+import monitoramento.comum.FiltroEpocas;
+import monitoramento.coordenacao.EnvelopeMulticast;
+import monitoramento.coordenacao.FiltroEnvelope;
+import monitoramento.coordenacao.FragmentadorMulticast;
+import monitoramento.coordenacao.RemontadorMulticast;
+import monitoramento.coordenacao.TipoMensagem;
+
 import java.io.IOException;
 import java.net.*;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -12,6 +21,19 @@ public class ClienteMonitor {
     private static final int PORTA_MULTICAST = 12345;
     private static final int TIMEOUT_RECEPCAO_MS = 25000;
 
+    // Descarta relatórios atrasados de líderes de épocas anteriores
+    private static final FiltroEpocas filtroEpocas = new FiltroEpocas();
+
+    // Apenas relatórios e notificações; o resto do tráfego na porta é de controle
+    private static final FiltroEnvelope FILTRO_CLIENTE = FiltroEnvelope.porTipo(
+            TipoMensagem.RELATORIO, TipoMensagem.RELATORIO_SISTEMA, TipoMensagem.NOTIFICACAO);
+
+    // O mesmo relatório pode chegar por multicast e pelo fallback UDP
+    private static final CacheIdsRecentes idsRecentes = new CacheIdsRecentes(1024);
+
+    // Relatórios grandes chegam em fragmentos de até 8 KiB
+    private static final RemontadorMulticast remontador = new RemontadorMulticast();
+
     public static void main(String[] args) throws SocketTimeoutException {
         System.out.println("==========================================================");
         System.out.println("Cliente de Monitorização iniciado. Configurando multicast...");
@@ -122,7 +144,7 @@ public class ClienteMonitor {
     private static void receberPacotes(DatagramSocket socket, String modo) throws IOException {
         System.out.printf("[CLIENTE] 🎧 [%s] Aguardando relatórios...%n", modo);
 
-        byte[] buffer = new byte[8192];
+        byte[] buffer = new byte[FragmentadorMulticast.TAMANHO_MAXIMO_QUADRO];
         int contadorPacotes = 0;
 
         // Mostrar progresso a cada 5 segundos
@@ -139,15 +161,36 @@ public class ClienteMonitor {
 
                 try {
                     socket.receive(pacote);
-                    contadorPacotes++;
 
                     progressTimer.shutdown(); // Parar timer de progresso
 
-                    String relatorio = new String(pacote.getData(), 0, pacote.getLength(), "UTF-8");
+                    byte[] dados = remontador.receber(
+                            Arrays.copyOfRange(pacote.getData(), pacote.getOffset(), pacote.getOffset() + pacote.getLength()));
+                    if (dados == null) {
+                        continue; // Aguardando os demais fragmentos
+                    }
+
+                    // Filtra pelo cabeçalho antes de decodificar o corpo
+                    if (!FILTRO_CLIENTE.aceitar(dados)) {
+                        continue; // Tráfego de controle que não é para clientes
+                    }
+                    if (EnvelopeMulticast.isEnvelope(dados)
+                            && !idsRecentes.registrar(EnvelopeMulticast.lerIdMensagem(dados))) {
+                        continue; // Cópia repetida
+                    }
+                    EnvelopeMulticast envelope = EnvelopeMulticast.decodificar(dados);
+                    if (envelope.getTipo() == TipoMensagem.RELATORIO
+                            && !filtroEpocas.aceitar(envelope.getGrupo(), envelope.getEpoca())) {
+                        System.out.printf("[CLIENTE] Relatório de época obsoleta descartado (%s)%n", modo);
+                        continue;
+                    }
+                    contadorPacotes++;
+
+                    String relatorio = envelope.getCorpoTexto();
 
                     System.out.printf("\n🎉 [%s] RELATÓRIO #%d RECEBIDO! 🎉%n", modo, contadorPacotes);
                     System.out.printf("[CLIENTE] 📊 %d bytes de %s:%d%n",
-                            pacote.getLength(),
+                            dados.length,
                             pacote.getAddress().getHostAddress(),
                             pacote.getPort());
                     System.out.println(relatorio);
@@ -161,6 +204,8 @@ public class ClienteMonitor {
                         }, 30, 30, TimeUnit.SECONDS);
                     }
 
+                } catch (IllegalArgumentException e) {
+                    System.err.printf("[CLIENTE] Mensagem inválida descartada (%s): %s%n", modo, e.getMessage());
                 } catch (IOException e) {
                     progressTimer.shutdown();
                     System.err.printf("%n⏰ [%s] TIMEOUT após %d segundos%n", modo, TIMEOUT_RECEPCAO_MS / 1000);
@@ -0,0 +1,111 @@
+package monitoramento.comum;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Arrendamento (lease) de liderança de um grupo com época de fencing.
+ * A época cresce monotonicamente a cada novo líder; anúncios e trabalhos de
+ * épocas antigas são descartados. O líder só age enquanto o arrendamento
+ * estiver válido, e ele é renovado quando a maioria do grupo responde aos
+ * heartbeats confirmando este líder nesta época.
+ */
+public class ArrendamentoLideranca {
+    private final int idNo;
+    private final int tamanhoGrupo;
+    private final long duracaoMs;
+
+    // Líder reconhecido e época corrente (protegidos por this)
+    private int liderId;
+    private long epoca = 0;
+    private volatile long expiraEm;
+
+    // Última confirmação de cada nó do grupo para o líder e a época correntes
+    private final Map<Integer, Long> ultimasRespostas = new ConcurrentHashMap<>();
+
+    /**
+     * @param carenciaInicialMs validade extra do primeiro arrendamento,
+     *                          enquanto os heartbeats ainda não começaram
+     */
+    public ArrendamentoLideranca(int idNo, int tamanhoGrupo, int liderInicial,
+                                 long duracaoMs, long carenciaInicialMs) {
+        this.idNo = idNo;
+        this.tamanhoGrupo = tamanhoGrupo;
+        this.duracaoMs = duracaoMs;
+        this.liderId = liderInicial;
+        this.expiraEm = System.currentTimeMillis() + duracaoMs + carenciaInicialMs;
+    }
+
+    /**
+     * Reconhece um líder anunciado com a época informada.
+     * @return true se o anúncio mudou o estado (novo líder ou nova época);
+     *         false se é repetido ou de época obsoleta
+     */
+    public synchronized boolean aceitar(int lider, long epocaAnunciada) {
+        if (epocaAnunciada < epoca) {
+            return false;
+        }
+        if (epocaAnunciada == epoca) {
+            // Mesma época: anúncio repetido, ou empate resolvido pelo maior ID
+            if (lider == liderId || lider < liderId) {
+                return false;
+            }
+        }
+
+        this.liderId = lider;
+        this.epoca = epocaAnunciada;
+        ultimasRespostas.clear(); // confirmações da época anterior não valem mais
+        if (lider == idNo) {
+            this.expiraEm = System.currentTimeMillis() + duracaoMs;
+        }
+        return true;
+    }
+
+    /**
+     * Época a ser usada por um novo líder
+     */
+    public synchronized long proximaEpoca() {
+        return epoca + 1;
+    }
+
+    /**
+     * Registra um heartbeat respondido com o líder e a época que o remetente reconhece.
+     * Só conta a confirmação deste nó como líder na época corrente; se a maioria do
+     * grupo confirmou dentro da duração do arrendamento, renova o arrendamento.
+     */
+    public void registrarResposta(int idRemetente, int liderReconhecido, long epocaReconhecida) {
+        long agora = System.currentTimeMillis();
+
+        synchronized (this) {
+            if (liderId != idNo || liderReconhecido != idNo || epocaReconhecida != epoca) return;
+            ultimasRespostas.put(idRemetente, agora);
+        }
+
+        long recentes = ultimasRespostas.entrySet().stream()
+                .filter(e -> e.getKey() != idNo && agora - e.getValue() < duracaoMs)
+                .count();
+
+        // Conta o próprio líder na maioria
+        if ((recentes + 1) * 2 > tamanhoGrupo) {
+            expiraEm = agora + duracaoMs;
+        }
+    }
+
+    /**
+     * Indica se este nó é o líder e seu arrendamento ainda é válido
+     */
+    public synchronized boolean isLiderValido() {
+        return liderId == idNo && System.currentTimeMillis() < expiraEm;
+    }
+
+    /**
+     * Indica se uma época recebida é anterior à conhecida (trabalho obsoleto)
+     */
+    public synchronized boolean isObsoleta(long epocaRecebida) {
+        return epocaRecebida < epoca;
+    }
+
+    public synchronized int getLiderId() { return liderId; }
+    public synchronized long getEpoca() { return epoca; }
+    public long getExpiraEm() { return expiraEm; }
+}
@@ -0,0 +1,68 @@
+package monitoramento.comum;
+
+/**
+ * Balde de tokens (token bucket) medido em bytes. Enche continuamente à taxa
+ * configurada até a capacidade; um envio consome tantos tokens quanto bytes.
+ * O consumo forçado pode deixar o balde negativo (dívida), o que atrasa os
+ * envios não forçados até a dívida ser paga.
+ */
+public class BaldeTokens {
+    private final double capacidade;
+    private final double taxaPorNano;
+
+    private double tokens;
+    private long ultimoAbastecimento;
+
+    public BaldeTokens(long bytesPorSegundo, long capacidadeBytes) {
+        this.capacidade = capacidadeBytes;
+        this.taxaPorNano = bytesPorSegundo / 1e9;
+        this.tokens = capacidadeBytes;
+        this.ultimoAbastecimento = System.nanoTime();
+    }
+
+    /**
+     * Consome os tokens se, depois do consumo, o balde ficar com pelo menos a reserva
+     * @return false se não há tokens suficientes (nada é consumido)
+     */
+    public synchronized boolean consumir(long bytes, double reserva) {
+        abastecer();
+        if (tokens - bytes < reserva) {
+            return false;
+        }
+        tokens -= bytes;
+        return true;
+    }
+
+    /**
+     * Consome sem verificar; a dívida é limitada a uma capacidade
+     */
+    public synchronized void forcarConsumo(long bytes) {
+        abastecer();
+        tokens = Math.max(-capacidade, tokens - bytes);
+    }
+
+    /**
+     * Devolve tokens de um consumo que não chegou a ser usado
+     */
+    public synchronized void devolver(long bytes) {
+        tokens = Math.min(capacidade, tokens + bytes);
+    }
+
+    private void abastecer() {
+        long agora = System.nanoTime();
+        tokens = Math.min(capacidade, tokens + (agora - ultimoAbastecimento) * taxaPorNano);
+        ultimoAbastecimento = agora;
+    }
+
+    public double getCapacidade() {
+        return capacidade;
+    }
+
+    /**
+     * Fração disponível do balde (negativa em dívida)
+     */
+    public synchronized double getNivel() {
+        abastecer();
+        return tokens / capacidade;
+    }
+}
@@ -0,0 +1,110 @@
+package monitoramento.comum;
+
+/**
+ * Conjunto limitado dos ids de mensagem vistos mais recentemente, para
+ * suprimir cópias repetidas. Um anel guarda a ordem de chegada e uma tabela
+ * de endereçamento aberto (sondagem linear) responde à consulta; quando o anel
+ * enche, o id mais antigo sai da tabela. Não aloca depois de construído.
+ *
+ * Não é thread-safe: cada instância deve ser usada por uma única thread
+ * (por exemplo, a thread de despacho de um hub). O id 0 significa "sem id" e
+ * nunca é considerado repetido.
+ */
+public class CacheIdsRecentes {
+    private static final long VAZIO = 0L;
+
+    private final long[] anel;
+    private final int mascaraAnel;
+    private int proximaPosicao = 0;
+    private int tamanho = 0;
+
+    // Tabela com o dobro da capacidade: fator de carga máximo de 50%
+    private final long[] tabela;
+    private final int mascaraTabela;
+    private final int deslocamento;
+
+    /**
+     * @param capacidadeMinima arredondada para a próxima potência de 2
+     */
+    public CacheIdsRecentes(int capacidadeMinima) {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeMinima) - 1) << 1;
+        this.anel = new long[capacidade];
+        this.mascaraAnel = capacidade - 1;
+        this.tabela = new long[capacidade * 2];
+        this.mascaraTabela = capacidade * 2 - 1;
+        this.deslocamento = 64 - Integer.numberOfTrailingZeros(capacidade * 2);
+    }
+
+    /**
+     * Registra o id
+     * @return true se é a primeira vez que o id aparece na janela; false se é repetido
+     */
+    public boolean registrar(long id) {
+        if (id == VAZIO) return true;
+        if (contem(id)) return false;
+
+        if (tamanho == anel.length) {
+            remover(anel[proximaPosicao]); // Sai o mais antigo
+        } else {
+            tamanho++;
+        }
+        anel[proximaPosicao] = id;
+        proximaPosicao = (proximaPosicao + 1) & mascaraAnel;
+        inserir(id);
+        return true;
+    }
+
+    public boolean contem(long id) {
+        if (id == VAZIO) return false;
+        for (int i = indice(id); ; i = (i + 1) & mascaraTabela) {
+            if (tabela[i] == id) return true;
+            if (tabela[i] == VAZIO) return false;
+        }
+    }
+
+    private void inserir(long id) {
+        int i = indice(id);
+        while (tabela[i] != VAZIO) {
+            i = (i + 1) & mascaraTabela;
+        }
+        tabela[i] = id;
+    }
+
+    /**
+     * Remoção com deslocamento para trás, mantendo as cadeias de sondagem sem marcadores de remoção
+     */
+    private void remover(long id) {
+        int i = indice(id);
+        while (tabela[i] != id) {
+            if (tabela[i] == VAZIO) return;
+            i = (i + 1) & mascaraTabela;
+        }
+
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascaraTabela;
+            if (tabela[j] == VAZIO) break;
+
+            int ideal = indice(tabela[j]);
+            // Move o elemento de j para o buraco em i se i está no caminho de ideal até j
+            boolean podeMover = i <= j ? (ideal <= i || ideal > j) : (ideal <= i && ideal > j);
+            if (podeMover) {
+                tabela[i] = tabela[j];
+                i = j;
+            }
+        }
+        tabela[i] = VAZIO;
+    }
+
+    private int indice(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> deslocamento) & mascaraTabela;
+    }
+
+    public int getCapacidade() {
+        return anel.length;
+    }
+
+    public int getTamanho() {
+        return tamanho;
+    }
+}
@@ -0,0 +1,143 @@
+package monitoramento.comum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * Executor de eleições "single-flight" de um nó.
+ * Gatilhos que chegam dentro da janela de coalescência (ou com uma eleição
+ * em andamento) viram uma única execução. Cada execução recebe uma geração;
+ * passos agendados de execuções desatualizadas são descartados.
+ */
+public class CoordenadorEleicao {
+    private final String rotulo;
+    private final long janelaCoalescenciaMs;
+    private final LongConsumer execucao;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    // Estado da execução corrente
+    private final AtomicLong geracao = new AtomicLong(0);
+    private ScheduledFuture<?> execucaoPendente;
+    private boolean emAndamento = false;
+    private boolean parado = false;
+    private final List<ScheduledFuture<?>> passosAgendados = new ArrayList<>();
+
+    // Estatísticas
+    private final AtomicInteger execucoes = new AtomicInteger(0);
+    private final AtomicInteger gatilhosCoalescidos = new AtomicInteger(0);
+
+    /**
+     * @param rotulo identificação usada nos logs (ex: "BULLY P3")
+     * @param janelaCoalescenciaMs janela em que gatilhos são agrupados
+     * @param execucao corpo da eleição; recebe a geração da execução
+     */
+    public CoordenadorEleicao(String rotulo, long janelaCoalescenciaMs, LongConsumer execucao) {
+        this.rotulo = rotulo;
+        this.janelaCoalescenciaMs = janelaCoalescenciaMs;
+        this.execucao = execucao;
+    }
+
+    /**
+     * Solicita uma eleição. Não bloqueia o chamador.
+     */
+    public synchronized void solicitar(String motivo) {
+        if (parado) return;
+
+        if (emAndamento || (execucaoPendente != null && !execucaoPendente.isDone())) {
+            gatilhosCoalescidos.incrementAndGet();
+            System.out.printf("[ELEIÇÃO %s] Gatilho coalescido (%s)%n", rotulo, motivo);
+            return;
+        }
+
+        long minhaGeracao = geracao.incrementAndGet();
+        execucaoPendente = executor.schedule(() -> executar(minhaGeracao),
+                janelaCoalescenciaMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void executar(long minhaGeracao) {
+        synchronized (this) {
+            if (parado || minhaGeracao != geracao.get()) return;
+            emAndamento = true;
+        }
+
+        execucoes.incrementAndGet();
+        try {
+            execucao.accept(minhaGeracao);
+        } catch (Exception e) {
+            System.err.printf("[ELEIÇÃO %s] Erro na execução da eleição: %s%n", rotulo, e.getMessage());
+            concluir(minhaGeracao);
+        }
+    }
+
+    /**
+     * Agenda um passo da execução; ele só roda se a geração ainda for a atual.
+     */
+    public synchronized void agendar(long minhaGeracao, Runnable passo, long atrasoMs) {
+        if (parado || minhaGeracao != geracao.get()) return;
+
+        passosAgendados.removeIf(ScheduledFuture::isDone);
+        passosAgendados.add(executor.schedule(() -> {
+            if (isAtual(minhaGeracao)) {
+                passo.run();
+            }
+        }, atrasoMs, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Marca a execução como terminada, liberando novos gatilhos
+     */
+    public synchronized void concluir(long minhaGeracao) {
+        if (minhaGeracao == geracao.get()) {
+            emAndamento = false;
+        }
+    }
+
+    /**
+     * Torna obsoleta qualquer execução em andamento ou pendente
+     * (ex: um coordenador já foi anunciado por outro nó).
+     */
+    public synchronized void invalidar(String motivo) {
+        boolean haviaExecucao = emAndamento || (execucaoPendente != null && !execucaoPendente.isDone());
+        geracao.incrementAndGet();
+        emAndamento = false;
+
+        if (execucaoPendente != null) {
+            execucaoPendente.cancel(false);
+        }
+        passosAgendados.forEach(passo -> passo.cancel(false));
+        passosAgendados.clear();
+
+        if (haviaExecucao) {
+            System.out.printf("[ELEIÇÃO %s] Execução obsoleta cancelada (%s)%n", rotulo, motivo);
+        }
+    }
+
+    public boolean isAtual(long minhaGeracao) {
+        return !parado && minhaGeracao == geracao.get();
+    }
+
+    public synchronized boolean isEmAndamento() {
+        return emAndamento;
+    }
+
+    /**
+     * Encerra o executor (chamado quando o nó é desligado)
+     */
+    public void parar() {
+        synchronized (this) {
+            parado = true;
+        }
+        invalidar("nó encerrado");
+        executor.shutdownNow();
+    }
+
+    public int getExecucoes() { return execucoes.get(); }
+    public int getGatilhosCoalescidos() { return gatilhosCoalescidos.get(); }
+}
@@ -0,0 +1,40 @@
+package monitoramento.comum;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estado transferido do líder que está sendo desligado para o seu sucessor
+ * numa passagem de liderança planejada.
+ */
+public class EstadoLideranca implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int idLiderAnterior;
+    private final long epoca; // Época que o sucessor assume
+    private final boolean clienteAutenticadoPresente;
+    private final boolean supercoordenador;
+    private final List<String> paresIntergrupos; // formato: "idNo-tipoGrupo"
+
+    public EstadoLideranca(int idLiderAnterior, long epoca, boolean clienteAutenticadoPresente,
+                           boolean supercoordenador, List<String> paresIntergrupos) {
+        this.idLiderAnterior = idLiderAnterior;
+        this.epoca = epoca;
+        this.clienteAutenticadoPresente = clienteAutenticadoPresente;
+        this.supercoordenador = supercoordenador;
+        this.paresIntergrupos = new ArrayList<>(paresIntergrupos);
+    }
+
+    public int getIdLiderAnterior() { return idLiderAnterior; }
+    public long getEpoca() { return epoca; }
+    public boolean isClienteAutenticadoPresente() { return clienteAutenticadoPresente; }
+    public boolean isSupercoordenador() { return supercoordenador; }
+    public List<String> getParesIntergrupos() { return paresIntergrupos; }
+
+    @Override
+    public String toString() {
+        return String.format("EstadoLideranca[anterior=P%d, época=%d, cliente=%s, super=%s, pares=%s]",
+                idLiderAnterior, epoca, clienteAutenticadoPresente, supercoordenador, paresIntergrupos);
+    }
+}
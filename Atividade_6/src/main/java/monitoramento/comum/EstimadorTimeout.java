@@ -0,0 +1,92 @@
+package monitoramento.comum;
+
+/**
+ * Estima timeouts a partir da distribuição de RTT observada entre os nós.
+ * O timeout de uma rodada é média + k·desvio padrão das últimas amostras,
+ * limitado por um piso e um teto, de modo que as esperas da eleição
+ * acompanhem as condições reais da rede.
+ */
+public class EstimadorTimeout {
+    // Quantidade de amostras consideradas na janela deslizante
+    private static final int TAMANHO_JANELA = 64;
+
+    private final double fatorDesvio;
+    private final long pisoMs;
+    private final long tetoMs;
+
+    // Janela circular de amostras e somatórios para média/variância
+    private final double[] amostras = new double[TAMANHO_JANELA];
+    private int proximaPosicao = 0;
+    private int totalAmostras = 0;
+    private double soma = 0;
+    private double somaQuadrados = 0;
+
+    public EstimadorTimeout() {
+        this(4.0, 100, 1000);
+    }
+
+    public EstimadorTimeout(double fatorDesvio, long pisoMs, long tetoMs) {
+        this.fatorDesvio = fatorDesvio;
+        this.pisoMs = pisoMs;
+        this.tetoMs = tetoMs;
+    }
+
+    /**
+     * Registra uma nova medição de RTT (em milissegundos)
+     */
+    public synchronized void registrarAmostra(double rttMs) {
+        if (rttMs < 0 || Double.isNaN(rttMs)) return;
+
+        if (totalAmostras == TAMANHO_JANELA) {
+            double antiga = amostras[proximaPosicao];
+            soma -= antiga;
+            somaQuadrados -= antiga * antiga;
+        } else {
+            totalAmostras++;
+        }
+
+        amostras[proximaPosicao] = rttMs;
+        soma += rttMs;
+        somaQuadrados += rttMs * rttMs;
+        proximaPosicao = (proximaPosicao + 1) % TAMANHO_JANELA;
+    }
+
+    /**
+     * Timeout de uma rodada. Sem amostras, usa o teto (postura conservadora).
+     */
+    public synchronized long calcularTimeoutMs() {
+        if (totalAmostras == 0) {
+            return tetoMs;
+        }
+
+        double bruto = getMediaMs() + fatorDesvio * getDesvioMs();
+        return Math.max(pisoMs, Math.min(tetoMs, (long) Math.ceil(bruto)));
+    }
+
+    /**
+     * Timeout para uma espera que envolve várias trocas de mensagens
+     */
+    public long calcularTimeoutMs(int rodadas) {
+        return calcularTimeoutMs() * Math.max(1, rodadas);
+    }
+
+    public synchronized double getMediaMs() {
+        return totalAmostras == 0 ? 0.0 : soma / totalAmostras;
+    }
+
+    public synchronized double getDesvioMs() {
+        if (totalAmostras == 0) return 0.0;
+        double media = soma / totalAmostras;
+        return Math.sqrt(Math.max(0.0, somaQuadrados / totalAmostras - media * media));
+    }
+
+    public synchronized int getTotalAmostras() {
+        return totalAmostras;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RTT médio=%.2fms desvio=%.2fms timeout=%dms (%d amostras)",
+                getMediaMs(), getDesvioMs(), calcularTimeoutMs(), getTotalAmostras());
+    }
+}
@@ -0,0 +1,88 @@
+package monitoramento.comum;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fila circular limitada, sem locks, para múltiplos produtores e consumidores
+ * (algoritmo de Vyukov). Cada posição tem um número de sequência que indica
+ * se ela está livre para escrita ou pronta para leitura; quando cheia,
+ * {@link #oferecer} falha em vez de bloquear.
+ */
+public class FilaLimitada<E> {
+    private final int mascara;
+    private final AtomicReferenceArray<E> elementos;
+    private final AtomicLongArray sequencias;
+    private final AtomicLong posicaoEscrita = new AtomicLong(0);
+    private final AtomicLong posicaoLeitura = new AtomicLong(0);
+
+    /**
+     * @param capacidadeMinima arredondada para a próxima potência de 2
+     */
+    public FilaLimitada(int capacidadeMinima) {
+        int capacidade = Integer.highestOneBit(Math.max(2, capacidadeMinima) - 1) << 1;
+        this.mascara = capacidade - 1;
+        this.elementos = new AtomicReferenceArray<>(capacidade);
+        this.sequencias = new AtomicLongArray(capacidade);
+        for (int i = 0; i < capacidade; i++) {
+            sequencias.set(i, i);
+        }
+    }
+
+    /**
+     * Insere sem bloquear
+     * @return false se a fila estiver cheia
+     */
+    public boolean oferecer(E elemento) {
+        long posicao = posicaoEscrita.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+
+            if (diferenca == 0) {
+                if (posicaoEscrita.compareAndSet(posicao, posicao + 1)) {
+                    elementos.set(indice, elemento);
+                    sequencias.lazySet(indice, posicao + 1); // Publica a posição para os leitores
+                    return true;
+                }
+            } else if (diferenca < 0) {
+                return false; // Cheia: a posição ainda não foi liberada por um leitor
+            }
+            posicao = posicaoEscrita.get();
+        }
+    }
+
+    /**
+     * Remove sem bloquear
+     * @return o elemento, ou null se a fila estiver vazia
+     */
+    public E retirar() {
+        long posicao = posicaoLeitura.get();
+        while (true) {
+            int indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - (posicao + 1);
+
+            if (diferenca == 0) {
+                if (posicaoLeitura.compareAndSet(posicao, posicao + 1)) {
+                    E elemento = elementos.get(indice);
+                    elementos.set(indice, null);
+                    sequencias.lazySet(indice, posicao + mascara + 1); // Libera a posição para a próxima volta
+                    return elemento;
+                }
+            } else if (diferenca < 0) {
+                return null; // Vazia
+            }
+            posicao = posicaoLeitura.get();
+        }
+    }
+
+    public int getCapacidade() {
+        return mascara + 1;
+    }
+
+    public int getTamanhoAproximado() {
+        long tamanho = posicaoEscrita.get() - posicaoLeitura.get();
+        return (int) Math.max(0, Math.min(tamanho, mascara + 1));
+    }
+}
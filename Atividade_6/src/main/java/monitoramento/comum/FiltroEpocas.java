@@ -0,0 +1,31 @@
+package monitoramento.comum;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mantém a maior época de liderança vista por grupo e descarta
+ * mensagens vindas de líderes de épocas anteriores.
+ */
+public class FiltroEpocas {
+    private final Map<String, Long> maioresEpocas = new ConcurrentHashMap<>();
+
+    /**
+     * @return true se a época não é anterior à maior já vista para o grupo
+     */
+    public boolean aceitar(String grupo, long epoca) {
+        boolean[] aceito = {false};
+        maioresEpocas.compute(grupo, (g, atual) -> {
+            if (atual == null || epoca >= atual) {
+                aceito[0] = true;
+                return epoca;
+            }
+            return atual;
+        });
+        return aceito[0];
+    }
+
+    public long getMaiorEpoca(String grupo) {
+        return maioresEpocas.getOrDefault(grupo, 0L);
+    }
+}
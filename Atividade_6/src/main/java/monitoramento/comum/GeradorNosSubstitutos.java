@@ -18,7 +18,7 @@ public class GeradorNosSubstitutos {
     private final Supplier<Integer> idSupplier;
     private final Supplier<Map<Integer, InfoNo>> nosDaRedeSupplier;
     private final Consumer<String> notificadorCallback;
-    private final EmissorMulticast emissor = new EmissorMulticast();
+    private final EmissorMulticast emissor = EmissorMulticast.getInstancia();
 
     // Controle de substituições
     private final Map<Integer, Integer> mapaSubstituicoes = new ConcurrentHashMap<>();
@@ -175,7 +175,7 @@ public class GeradorNosSubstitutos {
         relatorio.append("=".repeat(80)).append("\n");
 
         // Enviar relatório via multicast
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idSupplier.get());
         System.out.print(relatorio.toString());
     }
 
@@ -239,7 +239,7 @@ public class GeradorNosSubstitutos {
         relatorio.append(String.format("Substitutos ativos: %d%n", contarSubstitutosAtivos()));
         relatorio.append("=".repeat(70)).append("\n");
 
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idSupplier.get());
         System.out.print(relatorio.toString());
     }
 
@@ -249,8 +249,9 @@ public class GeradorNosSubstitutos {
     private void notificarEvento(String evento) {
         if (notificadorCallback != null) {
             notificadorCallback.accept(evento);
+        } else {
+            emissor.enviarNotificacao(evento, idSupplier.get());
         }
-        emissor.enviarNotificacao(evento, idSupplier.get());
     }
 
     // Getters
@@ -14,6 +14,14 @@ import java.util.function.Supplier;
  * detectando falhas e acionando uma eleição caso o coordenador fique inativo.
  */
 public class GestorHeartbeat implements Runnable {
+    /**
+     * Recebe cada PONG: nó, RTT medido (ms) e o líder e a época que o nó
+     * reconhece (-1 se a resposta não os informa)
+     */
+    public interface OuvinteResposta {
+        void respondeu(int idNo, double rttMs, int liderReconhecido, long epocaReconhecida);
+    }
+
     // Fornece dinamicamente o ID do nó atual
     private final Supplier<Integer> idSupplier;
 
@@ -26,6 +34,9 @@ public class GestorHeartbeat implements Runnable {
     // Callback chamado quando é necessário iniciar um processo de eleição
     private final Runnable iniciarEleicaoCallback;
 
+    // Callback chamado a cada PONG recebido
+    private final OuvinteResposta respostaCallback;
+
     // Tempo máximo de espera em milissegundos para resposta de um nó
     private static final int TIMEOUT_MS = 7000;
 
@@ -37,11 +48,25 @@ public class GestorHeartbeat implements Runnable {
             Supplier<Integer> coordenadorIdSupplier,
             Supplier<Map<Integer, InfoNo>> nosDaRedeSupplier,
             Runnable iniciarEleicaoCallback
+    ) {
+        this(idSupplier, coordenadorIdSupplier, nosDaRedeSupplier, iniciarEleicaoCallback, null);
+    }
+
+    /**
+     * Construtor que também informa o RTT e a confirmação de liderança de cada heartbeat respondido.
+     */
+    public GestorHeartbeat(
+            Supplier<Integer> idSupplier,
+            Supplier<Integer> coordenadorIdSupplier,
+            Supplier<Map<Integer, InfoNo>> nosDaRedeSupplier,
+            Runnable iniciarEleicaoCallback,
+            OuvinteResposta respostaCallback
     ) {
         this.idSupplier = idSupplier;
         this.coordenadorIdSupplier = coordenadorIdSupplier;
         this.nosDaRedeSupplier = nosDaRedeSupplier;
         this.iniciarEleicaoCallback = iniciarEleicaoCallback;
+        this.respostaCallback = respostaCallback;
     }
 
     @Override
@@ -72,6 +97,9 @@ public class GestorHeartbeat implements Runnable {
                     if (idAlvo == idSupplier.get()) continue;
 
                     boolean isAlvoAtivo = false;
+                    int liderReconhecido = -1;
+                    long epocaReconhecida = -1;
+                    long inicio = System.nanoTime();
 
                     // Testa conexão com o nó alvo
                     try (Socket socket = new Socket()) {
@@ -86,14 +114,25 @@ public class GestorHeartbeat implements Runnable {
                         String resposta = in.readLine();
 
                         // Se respondeu "PONG", consideramos ativo
-                        if ("PONG".equals(resposta)) {
+                        if (resposta != null && resposta.startsWith("PONG")) {
                             isAlvoAtivo = true;
+                            String[] partes = resposta.split(" ");
+                            if (partes.length == 3) {
+                                liderReconhecido = Integer.parseInt(partes[1]);
+                                epocaReconhecida = Long.parseLong(partes[2]);
+                            }
                         }
                     } catch (Exception e) {
                         // Se não foi possível conectar/responder, nó pode estar inativo
                     }
 
                     if (isAlvoAtivo) {
+                        // Informa o RTT medido (conexão + PING/PONG) e o líder confirmado
+                        if (respostaCallback != null) {
+                            respostaCallback.respondeu(idAlvo, (System.nanoTime() - inicio) / 1_000_000.0,
+                                    liderReconhecido, epocaReconhecida);
+                        }
+
                         // Caso nó volte a ficar ativo após falha
                         if (!noAlvo.isAtivo()) {
                             System.out.printf("[INFO] Nó %d detectou: NÓ %d RECONECTADO!%n", idSupplier.get(), idAlvo);
@@ -143,7 +182,7 @@ public class GestorHeartbeat implements Runnable {
             out.println("PING");
             String resposta = in.readLine();
 
-            return "PONG".equals(resposta);
+            return resposta != null && resposta.startsWith("PONG");
         } catch (Exception e) {
             return false;
         }
@@ -16,7 +16,7 @@ public class GestorRecuperacao {
     private final Supplier<Integer> idSupplier;
     private final Supplier<Map<Integer, InfoNo>> nosDaRedeSupplier;
     private final Consumer<String> notificadorCallback;
-    private final EmissorMulticast emissor = new EmissorMulticast();
+    private final EmissorMulticast emissor = EmissorMulticast.getInstancia();
 
     // Controle de recuperação
     private final Map<Integer, Long> horariosUltimaFalha = new ConcurrentHashMap<>();
@@ -164,7 +164,7 @@ public class GestorRecuperacao {
         relatorio.append("=".repeat(60)).append("\n");
 
         // Enviar relatório
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idSupplier.get());
         System.out.print(relatorio.toString());
 
         // Limpar registros do nó falho
@@ -182,9 +182,9 @@ public class GestorRecuperacao {
     private void notificarEvento(String evento) {
         if (notificadorCallback != null) {
             notificadorCallback.accept(evento);
+        } else {
+            emissor.enviarNotificacao(evento, idSupplier.get());
         }
-
-        emissor.enviarNotificacao(evento, idSupplier.get());
     }
 
     /**
@@ -218,7 +218,7 @@ public class GestorRecuperacao {
         relatorio.append("=".repeat(50)).append("\n");
 
         System.out.print(relatorio.toString());
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idSupplier.get());
     }
 
     // Getters para status
@@ -1,12 +1,15 @@
 package monitoramento.comum;
 
 import monitoramento.coordenacao.EmissorMulticast;
+import monitoramento.coordenacao.EnvelopeMulticast;
+import monitoramento.coordenacao.TipoMensagem;
+import monitoramento.rastreio.RastreadorCausal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 /**
@@ -14,13 +17,16 @@ import java.util.function.Supplier;
  */
 public class GestorSnapshot {
     private final Supplier<Integer> idSupplier;
-    private final Supplier<Integer> relogioSupplier;
+    // Relógio híbrido do nó; cada leitura é um evento (captura ou envio de marcador)
+    private final Supplier<Long> relogioSupplier;
     private final Supplier<Boolean> isAtivoSupplier;
+    // Total de processos de todos os grupos ativos, inclusive este
+    private final Supplier<Integer> participantesSupplier;
     private final EmissorMulticast emissor;
 
     // Estado do snapshot
     private final AtomicBoolean capturaAtiva = new AtomicBoolean(false);
-    private final AtomicInteger estadoLocal = new AtomicInteger(0);
+    private final AtomicLong estadoLocal = new AtomicLong(0);
     private final Map<Integer, Boolean> marcadoresRecebidos = new ConcurrentHashMap<>();
     private final Map<Integer, String> estadosCanais = new ConcurrentHashMap<>();
     private final Map<Integer, StringBuilder> bufferMensagens = new ConcurrentHashMap<>();
@@ -29,12 +35,13 @@ public class GestorSnapshot {
     private static final String ENDERECO_SNAPSHOT = "239.0.0.3";
     private static final int PORTA_SNAPSHOT = 12345;
 
-    public GestorSnapshot(Supplier<Integer> idSupplier, Supplier<Integer> relogioSupplier,
-                          Supplier<Boolean> isAtivoSupplier) {
+    public GestorSnapshot(Supplier<Integer> idSupplier, Supplier<Long> relogioSupplier,
+                          Supplier<Boolean> isAtivoSupplier, Supplier<Integer> participantesSupplier) {
         this.idSupplier = idSupplier;
         this.relogioSupplier = relogioSupplier;
         this.isAtivoSupplier = isAtivoSupplier;
-        this.emissor = new EmissorMulticast();
+        this.participantesSupplier = participantesSupplier;
+        this.emissor = EmissorMulticast.getInstancia();
     }
 
     /**
@@ -48,19 +55,17 @@ public class GestorSnapshot {
 
         // 1. Salvar estado local
         estadoLocal.set(relogioSupplier.get());
+        RastreadorCausal.para(idSupplier.get()).registrarSnapshot("captura iniciada");
         marcadoresRecebidos.clear();
         estadosCanais.clear();
         bufferMensagens.clear();
 
         System.out.printf("[SNAPSHOT P%d] INICIANDO CAPTURA DE ESTADO GLOBAL%n", idSupplier.get());
-        System.out.printf("[SNAPSHOT P%d] Estado local capturado: %d%n", idSupplier.get(), estadoLocal.get());
+        System.out.printf("[SNAPSHOT P%d] Estado local capturado: %s%n", idSupplier.get(),
+                RelogioHibrido.formatar(estadoLocal.get()));
 
         // 2. Enviar marcadores para todos os outros processos
-        String mensagemMarcador = String.format("MARCADOR:%d:%d:%s",
-                idSupplier.get(), relogioSupplier.get(),
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss.SSS")));
-
-        emissor.enviarMensagem(mensagemMarcador, ENDERECO_SNAPSHOT, PORTA_SNAPSHOT);
+        enviarMarcador();
 
         // 3. Iniciar gravação de mensagens dos canais
         iniciarGravacaoCanais();
@@ -72,22 +77,19 @@ public class GestorSnapshot {
     /**
      * Processa o recebimento de um marcador
      */
-    public void receberMarcador(int idRemetente, int relogioRemetente, String timestamp) {
-        System.out.printf("[SNAPSHOT P%d] Marcador recebido de P%d (relógio: %d, time: %s)%n",
-                idSupplier.get(), idRemetente, relogioRemetente, timestamp);
+    public void receberMarcador(int idRemetente, long relogioRemetente, String timestamp) {
+        System.out.printf("[SNAPSHOT P%d] Marcador recebido de P%d (relógio: %s, time: %s)%n",
+                idSupplier.get(), idRemetente, RelogioHibrido.formatar(relogioRemetente), timestamp);
 
         // Se é o primeiro marcador, captura o estado local
         if (capturaAtiva.compareAndSet(false, true)) {
             estadoLocal.set(relogioSupplier.get());
-            System.out.printf("[SNAPSHOT P%d] Primeiro marcador! Estado local capturado: %d%n",
-                    idSupplier.get(), estadoLocal.get());
+            RastreadorCausal.para(idSupplier.get()).registrarSnapshot("primeiro marcador de P" + idRemetente);
+            System.out.printf("[SNAPSHOT P%d] Primeiro marcador! Estado local capturado: %s%n",
+                    idSupplier.get(), RelogioHibrido.formatar(estadoLocal.get()));
 
             // Propagar o marcador para outros processos
-            String mensagemMarcador = String.format("MARCADOR:%d:%d:%s",
-                    idSupplier.get(), relogioSupplier.get(),
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss.SSS")));
-
-            emissor.enviarMensagem(mensagemMarcador, ENDERECO_SNAPSHOT, PORTA_SNAPSHOT);
+            enviarMarcador();
             iniciarGravacaoCanais();
         }
 
@@ -101,6 +103,16 @@ public class GestorSnapshot {
         verificarCompletude();
     }
 
+    /**
+     * Envia o marcador; remetente e relógio vão no cabeçalho do envelope e o corpo leva o horário
+     */
+    private void enviarMarcador() {
+        String horario = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss.SSS"));
+        byte[] contexto = RastreadorCausal.para(idSupplier.get()).registrarEnvio("MARCADOR");
+        emissor.enviar(new EnvelopeMulticast(TipoMensagem.MARCADOR, idSupplier.get(), "",
+                relogioSupplier.get(), 0, horario).comContexto(contexto), ENDERECO_SNAPSHOT, PORTA_SNAPSHOT);
+    }
+
     /**
      * Registra uma mensagem recebida durante a captura
      */
@@ -146,9 +158,8 @@ public class GestorSnapshot {
      * Verifica se o snapshot está completo
      */
     private void verificarCompletude() {
-        // Para simplificar, assumimos que temos 6 processos total (3 de cada grupo)
-        // e cada processo deve receber marcadores dos outros 5
-        int totalEsperados = 5; // Ajustar conforme necessário
+        // Cada processo deve receber marcadores de todos os outros, de todos os grupos ativos
+        int totalEsperados = Math.max(1, participantesSupplier.get() - 1);
 
         if (marcadoresRecebidos.size() >= totalEsperados) {
             finalizarSnapshot();
@@ -168,8 +179,8 @@ public class GestorSnapshot {
         relatorio.append("\n").append("=".repeat(70)).append("\n");
         relatorio.append("           RELATÓRIO DE SNAPSHOT GLOBAL (Chandy-Lamport)\n");
         relatorio.append("=".repeat(70)).append("\n");
-        relatorio.append(String.format("Processo: P%d | Estado Local: %d | Timestamp: %s%n",
-                idSupplier.get(), estadoLocal.get(),
+        relatorio.append(String.format("Processo: P%d | Estado Local: %s | Timestamp: %s%n",
+                idSupplier.get(), RelogioHibrido.formatar(estadoLocal.get()),
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))));
         relatorio.append("-".repeat(70)).append("\n");
 
@@ -190,7 +201,7 @@ public class GestorSnapshot {
         relatorio.append("=".repeat(70)).append("\n");
 
         // Enviar relatório via multicast
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idSupplier.get());
 
         System.out.print(relatorio.toString());
     }
@@ -212,6 +223,6 @@ public class GestorSnapshot {
 
     // Getters para status
     public boolean isCapturaAtiva() { return capturaAtiva.get(); }
-    public int getEstadoLocal() { return estadoLocal.get(); }
+    public long getEstadoLocal() { return estadoLocal.get(); }
     public Map<Integer, String> getEstadosCanais() { return new ConcurrentHashMap<>(estadosCanais); }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package monitoramento.comum;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latências com faixas em potências de 2 (em microssegundos).
+ * A faixa i conta as amostras em [2^i, 2^(i+1)) µs; a última acumula as maiores.
+ * Seguro para registro concorrente; os percentis são o limite superior da faixa.
+ */
+public class HistogramaLatencia {
+    private static final int FAIXAS = 24; // Até ~16 s
+
+    private final AtomicLongArray contagens = new AtomicLongArray(FAIXAS);
+    private final AtomicLong total = new AtomicLong(0);
+    private final AtomicLong somaMicros = new AtomicLong(0);
+    private final AtomicLong maximoMicros = new AtomicLong(0);
+
+    public void registrar(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int faixa = Math.min(FAIXAS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        contagens.incrementAndGet(faixa);
+        total.incrementAndGet();
+        somaMicros.addAndGet(micros);
+        maximoMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * Limite superior (em µs) da faixa que contém o percentil, ou 0 sem amostras
+     */
+    public long percentilMicros(double percentil) {
+        long n = total.get();
+        if (n == 0) return 0;
+
+        long alvo = (long) Math.ceil(n * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += contagens.get(i);
+            if (acumulado >= alvo) {
+                return Math.min(1L << (i + 1), maximoMicros.get());
+            }
+        }
+        return maximoMicros.get();
+    }
+
+    public long getTotal() { return total.get(); }
+    public long getMaximoMicros() { return maximoMicros.get(); }
+
+    public double getMediaMicros() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) somaMicros.get() / n;
+    }
+
+    public String resumo() {
+        if (total.get() == 0) return "sem amostras";
+        return String.format("n=%d média=%s p50≤%s p90≤%s p99≤%s máx=%s", total.get(),
+                formatar((long) getMediaMicros()), formatar(percentilMicros(50)), formatar(percentilMicros(90)),
+                formatar(percentilMicros(99)), formatar(maximoMicros.get()));
+    }
+
+    private static String formatar(long micros) {
+        return micros < 1000 ? micros + "µs" : String.format("%.1fms", micros / 1000.0);
+    }
+}
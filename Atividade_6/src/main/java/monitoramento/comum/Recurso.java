@@ -32,13 +32,13 @@ public class Recurso implements Serializable {
     // Timestamp da coleta (em segundos desde época Unix)
     private final long timestampColeta;
 
-    // Relógio lógico de Lamport associado a este recurso
-    private final int relogioLamport;
+    // Relógio híbrido (ver RelogioHibrido) do nó no momento da coleta
+    private final long relogio;
 
     // Construtor: coleta os dados de uso do sistema no momento da criação do objeto
-    public Recurso(int noId, int relogioLamport) {
+    public Recurso(int noId, long relogio) {
         this.noId = noId;
-        this.relogioLamport = relogioLamport;
+        this.relogio = relogio;
 
         // Obtém informações do sistema operacional via MXBean
         OperatingSystemMXBean osBean = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
@@ -69,6 +69,20 @@ public class Recurso implements Serializable {
         this.cargaSistema = osBean.getSystemLoadAverage();
     }
 
+    // Construtor: recursos informados por outro nó (ex.: resposta de status via gRPC)
+    public Recurso(int noId, double usoCpu, double usoMemoria, long memoriaTotalGB, long tempoAtividade,
+                   int processadores, double cargaSistema, long relogio) {
+        this.noId = noId;
+        this.usoCpu = usoCpu;
+        this.usoMemoria = usoMemoria;
+        this.memoriaTotalGB = memoriaTotalGB;
+        this.tempoAtividade = tempoAtividade;
+        this.processadores = processadores;
+        this.cargaSistema = cargaSistema;
+        this.timestampColeta = Instant.now().getEpochSecond();
+        this.relogio = relogio;
+    }
+
     // Método para formatar os dados em forma de linha para relatórios
     public String paraLinhaRelatorio() {
         // Caso a carga do sistema seja inválida (-1), retorna "N/A"
@@ -88,8 +102,8 @@ public class Recurso implements Serializable {
     // Representação textual do objeto para debug/logs
     @Override
     public String toString() {
-        return String.format("Nó %d -> [Relógio: %d] CPU: %.2f%% | Memória: %.2f%%",
-                noId, relogioLamport, usoCpu, usoMemoria);
+        return String.format("Nó %d -> [Relógio: %s] CPU: %.2f%% | Memória: %.2f%%",
+                noId, RelogioHibrido.formatar(relogio), usoCpu, usoMemoria);
     }
 
     // --- GETTERS: permitem acessar os atributos, mas como os campos são finais, não há setters ---
@@ -101,5 +115,5 @@ public class Recurso implements Serializable {
     public int getProcessadores() { return processadores; }
     public double getCargaSistema() { return cargaSistema; }
     public long getTimestampColeta() { return timestampColeta; }
-    public int getRelogioLamport() { return relogioLamport; }
+    public long getRelogio() { return relogio; }
 }
@@ -0,0 +1,119 @@
+package monitoramento.comum;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Relógio lógico híbrido (HLC, Kulkarni et al.): os 48 bits altos guardam
+ * milissegundos do relógio físico e os 16 baixos um contador lógico. Preserva
+ * a causalidade como o relógio de Lamport, mas o valor fica próximo do horário
+ * real, então snapshots e relatórios de nós diferentes podem ser alinhados no tempo.
+ * O estado é um único long atualizado por CAS, sem travas; valores comparam-se
+ * como longs comuns.
+ */
+public class RelogioHibrido {
+    private static final int BITS_LOGICO = 16;
+    private static final long MASCARA_LOGICO = (1L << BITS_LOGICO) - 1;
+    // Relógios remotos mais adiantados que isso em relação ao físico local são descartados
+    public static final long DERIVA_MAXIMA_MS = 60000;
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    private final AtomicLong valor = new AtomicLong(0);
+    private final LongSupplier relogioFisico;
+    private final AtomicInteger remotosDescartados = new AtomicInteger(0);
+
+    public RelogioHibrido() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param relogioFisico fonte de milissegundos desde a época Unix
+     */
+    public RelogioHibrido(LongSupplier relogioFisico) {
+        this.relogioFisico = relogioFisico;
+    }
+
+    /**
+     * Evento local ou envio de mensagem
+     * @return o novo valor, maior que todos os já devolvidos
+     */
+    public long tick() {
+        return avancar(0);
+    }
+
+    /**
+     * Recebimento de mensagem com o relógio do remetente (zero ou negativo: sem relógio)
+     * @return o novo valor, maior que o local e que o remoto
+     */
+    public long receber(long remoto) {
+        if (remoto > 0 && fisico(remoto) - relogioFisico.getAsLong() > DERIVA_MAXIMA_MS) {
+            remotosDescartados.incrementAndGet();
+            System.out.printf("[RELÓGIO HÍBRIDO] Relógio remoto %s descartado: mais de %dms à frente do físico%n",
+                    formatar(remoto), DERIVA_MAXIMA_MS);
+            return tick();
+        }
+        return avancar(remoto);
+    }
+
+    /**
+     * Parte física = máx(local, remoto, físico); o contador só cresce quando a parte física não muda.
+     * Com os dois campos no mesmo long, "máximo + 1" faz as duas coisas e o estouro do contador
+     * avança a parte física em 1ms.
+     */
+    private long avancar(long remoto) {
+        long minimo = relogioFisico.getAsLong() << BITS_LOGICO;
+        return valor.updateAndGet(atual -> {
+            long maior = Math.max(atual, remoto);
+            return maior >= minimo ? maior + 1 : minimo;
+        });
+    }
+
+    /**
+     * Valor atual, sem avançar o relógio
+     */
+    public long atual() {
+        return valor.get();
+    }
+
+    /**
+     * Leitura do relógio físico de que este relógio deriva (ms desde a época Unix)
+     */
+    public long lerFisico() {
+        return relogioFisico.getAsLong();
+    }
+
+    /**
+     * Quanto a parte física do relógio está à frente do relógio físico local (ms)
+     */
+    public long getAdiantamentoMs() {
+        return Math.max(0, fisico(valor.get()) - relogioFisico.getAsLong());
+    }
+
+    public int getRemotosDescartados() {
+        return remotosDescartados.get();
+    }
+
+    // ---- Decomposição ----
+
+    public static long fisico(long relogio) {
+        return relogio >>> BITS_LOGICO;
+    }
+
+    public static int logico(long relogio) {
+        return (int) (relogio & MASCARA_LOGICO);
+    }
+
+    /**
+     * "HH:mm:ss.SSS+contador" no fuso local, ou "0" para um relógio ainda não usado
+     */
+    public static String formatar(long relogio) {
+        if (relogio <= 0) return "0";
+        LocalTime horario = LocalTime.ofInstant(Instant.ofEpochMilli(fisico(relogio)), ZoneId.systemDefault());
+        return horario.format(FORMATO) + "+" + logico(relogio);
+    }
+}
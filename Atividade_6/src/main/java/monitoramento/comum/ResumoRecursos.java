@@ -0,0 +1,173 @@
+package monitoramento.comum;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Resumo pré-agregado dos recursos de um conjunto de nós: quantidade e, para
+ * CPU e memória, soma, soma dos quadrados, mínimo, máximo e um sketch KLL de
+ * quantis. Resumos de grupos diferentes se combinam (os momentos sem perda,
+ * os sketches dentro do erro do KLL), então o supercoordenador monta a visão
+ * global e os percentis da frota a partir de um resumo por grupo, sem
+ * consultar cada nó nem juntar amostras brutas.
+ * Não é seguro para escrita concorrente: é montado por uma thread e publicado pronto.
+ */
+public class ResumoRecursos {
+    private int nos = 0;
+    private final Momentos cpu = new Momentos();
+    private final Momentos memoria = new Momentos();
+    private SketchKll quantisCpu = new SketchKll();
+    private SketchKll quantisMemoria = new SketchKll();
+
+    /**
+     * Resumo das amostras coletadas pelo líder (a dele e as dos membros)
+     */
+    public static ResumoRecursos de(List<Recurso> recursos) {
+        ResumoRecursos resumo = new ResumoRecursos();
+        for (Recurso recurso : recursos) {
+            resumo.adicionar(recurso.getUsoCpu(), recurso.getUsoMemoria());
+        }
+        return resumo;
+    }
+
+    public void adicionar(double usoCpu, double usoMemoria) {
+        nos++;
+        cpu.adicionar(usoCpu);
+        memoria.adicionar(usoMemoria);
+        quantisCpu.adicionar(usoCpu);
+        quantisMemoria.adicionar(usoMemoria);
+    }
+
+    /**
+     * Acumula outro resumo neste (o outro não é alterado)
+     */
+    public void combinar(ResumoRecursos outro) {
+        if (outro == null || outro.nos == 0) return;
+        nos += outro.nos;
+        cpu.combinar(outro.cpu);
+        memoria.combinar(outro.memoria);
+        quantisCpu.combinar(outro.quantisCpu);
+        quantisMemoria.combinar(outro.quantisMemoria);
+    }
+
+    // ---- Serialização: nós (4) | CPU: soma, soma dos quadrados, mín, máx (32) | memória (32) |
+    //      sketch da CPU | sketch da memória (opcionais: resumos antigos terminam nos momentos) ----
+
+    public int getTamanhoSerializado() {
+        return 4 + 2 * Momentos.TAMANHO + quantisCpu.getTamanhoSerializado() + quantisMemoria.getTamanhoSerializado();
+    }
+
+    public byte[] serializar() {
+        ByteBuffer saida = ByteBuffer.allocate(getTamanhoSerializado());
+        escrever(saida);
+        return saida.array();
+    }
+
+    public void escrever(ByteBuffer saida) {
+        saida.putInt(nos);
+        cpu.escrever(saida);
+        memoria.escrever(saida);
+        quantisCpu.escrever(saida);
+        quantisMemoria.escrever(saida);
+    }
+
+    /**
+     * @throws java.nio.BufferUnderflowException se o buffer estiver truncado
+     * @throws IllegalArgumentException se a quantidade de nós for negativa
+     */
+    public static ResumoRecursos ler(ByteBuffer entrada) {
+        ResumoRecursos resumo = new ResumoRecursos();
+        resumo.nos = entrada.getInt();
+        if (resumo.nos < 0) {
+            throw new IllegalArgumentException("quantidade de nós inválida: " + resumo.nos);
+        }
+        resumo.cpu.ler(entrada);
+        resumo.memoria.ler(entrada);
+        if (entrada.hasRemaining()) {
+            resumo.quantisCpu = SketchKll.ler(entrada);
+            resumo.quantisMemoria = SketchKll.ler(entrada);
+        }
+        return resumo;
+    }
+
+    // Getters (zero quando o resumo está vazio)
+    public int getNos() { return nos; }
+    public double getCpuMedia() { return cpu.media(nos); }
+    public double getCpuDesvio() { return cpu.desvio(nos); }
+    public double getCpuMinima() { return nos == 0 ? 0 : cpu.min; }
+    public double getCpuMaxima() { return nos == 0 ? 0 : cpu.max; }
+    public double getMemoriaMedia() { return memoria.media(nos); }
+    public double getMemoriaDesvio() { return memoria.desvio(nos); }
+    public double getMemoriaMinima() { return nos == 0 ? 0 : memoria.min; }
+    public double getMemoriaMaxima() { return nos == 0 ? 0 : memoria.max; }
+
+    /**
+     * Percentil aproximado (0 a 100) do uso de CPU, pelo sketch; zero sem amostras
+     */
+    public double getCpuPercentil(double percentil) { return quantisCpu.quantil(percentil / 100.0); }
+    public double getMemoriaPercentil(double percentil) { return quantisMemoria.quantil(percentil / 100.0); }
+
+    /**
+     * "p50=..% p95=..% p99=..%" de CPU e memória
+     */
+    public String percentis() {
+        return String.format("CPU p50=%.2f%% p95=%.2f%% p99=%.2f%% | memória p50=%.2f%% p95=%.2f%% p99=%.2f%%",
+                getCpuPercentil(50), getCpuPercentil(95), getCpuPercentil(99),
+                getMemoriaPercentil(50), getMemoriaPercentil(95), getMemoriaPercentil(99));
+    }
+
+    @Override
+    public String toString() {
+        if (nos == 0) return "sem amostras";
+        return String.format("nós=%d CPU %.2f%%±%.2f [%.2f-%.2f] | memória %.2f%%±%.2f [%.2f-%.2f]", nos,
+                getCpuMedia(), getCpuDesvio(), cpu.min, cpu.max,
+                getMemoriaMedia(), getMemoriaDesvio(), memoria.min, memoria.max);
+    }
+
+    /**
+     * Momentos de uma métrica; média e desvio saem da soma e da soma dos quadrados
+     */
+    private static final class Momentos {
+        private static final int TAMANHO = 32;
+
+        private double soma = 0;
+        private double somaQuadrados = 0;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private void adicionar(double valor) {
+            soma += valor;
+            somaQuadrados += valor * valor;
+            min = Math.min(min, valor);
+            max = Math.max(max, valor);
+        }
+
+        private void combinar(Momentos outro) {
+            soma += outro.soma;
+            somaQuadrados += outro.somaQuadrados;
+            min = Math.min(min, outro.min);
+            max = Math.max(max, outro.max);
+        }
+
+        private double media(int n) {
+            return n == 0 ? 0 : soma / n;
+        }
+
+        private double desvio(int n) {
+            if (n == 0) return 0;
+            double media = soma / n;
+            return Math.sqrt(Math.max(0, somaQuadrados / n - media * media));
+        }
+
+        private void escrever(ByteBuffer saida) {
+            saida.putDouble(soma).putDouble(somaQuadrados).putDouble(min).putDouble(max);
+        }
+
+        private void ler(ByteBuffer entrada) {
+            soma = entrada.getDouble();
+            somaQuadrados = entrada.getDouble();
+            min = entrada.getDouble();
+            max = entrada.getDouble();
+        }
+    }
+}
@@ -12,7 +12,8 @@ import java.util.function.Supplier;
 /**
  * Classe responsável por implementar um servidor de Heartbeat.
  * Esse servidor escuta em uma porta definida e responde a mensagens "PING"
- * com "PONG", permitindo verificar se o nó está ativo.
+ * com "PONG", permitindo verificar se o nó está ativo. Quando informados,
+ * o líder reconhecido e a época vão na resposta: "PONG <lider> <epoca>".
  */
 public class ServidorHeartbeat implements Runnable {
     // Fornece dinamicamente o identificador do nó
@@ -23,6 +24,9 @@ public class ServidorHeartbeat implements Runnable {
     private final int porta;
     // Callback executado assim que o socket do servidor é criado
     private final Consumer<ServerSocket> socketCallback;
+    // Líder reconhecido por este nó e a época dele (null: responde só "PONG")
+    private final Supplier<Integer> liderSupplier;
+    private final Supplier<Long> epocaSupplier;
 
     /**
      * Construtor do servidor de Heartbeat.
@@ -33,10 +37,24 @@ public class ServidorHeartbeat implements Runnable {
      * @param socketCallback callback para manipulação do socket do servidor
      */
     public ServidorHeartbeat(Supplier<Integer> idSupplier, Supplier<Boolean> isAtivoSupplier, int porta, Consumer<ServerSocket> socketCallback) {
+        this(idSupplier, isAtivoSupplier, porta, socketCallback, null, null);
+    }
+
+    /**
+     * Construtor que confirma, em cada PONG, o líder e a época reconhecidos pelo nó.
+     *
+     * @param liderSupplier fornecedor do líder reconhecido
+     * @param epocaSupplier fornecedor da época do líder reconhecido
+     */
+    public ServidorHeartbeat(Supplier<Integer> idSupplier, Supplier<Boolean> isAtivoSupplier, int porta,
+                             Consumer<ServerSocket> socketCallback,
+                             Supplier<Integer> liderSupplier, Supplier<Long> epocaSupplier) {
         this.idSupplier = idSupplier;
         this.isAtivoSupplier = isAtivoSupplier;
         this.porta = porta;
         this.socketCallback = socketCallback;
+        this.liderSupplier = liderSupplier;
+        this.epocaSupplier = epocaSupplier;
     }
 
     @Override
@@ -57,7 +75,11 @@ public class ServidorHeartbeat implements Runnable {
                     // Se a mensagem recebida for "PING", responde com "PONG"
                     if ("PING".equals(msg)) {
                         PrintWriter out = new PrintWriter(clientSocket.getOutputStream(), true);
-                        out.println("PONG");
+                        if (liderSupplier != null) {
+                            out.println("PONG " + liderSupplier.get() + " " + epocaSupplier.get());
+                        } else {
+                            out.println("PONG");
+                        }
                     }
                 } catch (Exception e) {
                     // Se ocorrer erro durante o atendimento de um cliente
@@ -0,0 +1,237 @@
+package monitoramento.comum;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sketch de quantis KLL (Karnin, Lang e Liberty): guarda no máximo ~3k
+ * amostras em níveis de compactação, onde um item do nível h vale 2^h
+ * amostras. Sketches se combinam nível a nível, então percentis de grupos
+ * diferentes se juntam sem as amostras originais. Erro de posto típico
+ * ~1,7/k; os valores são guardados como float (4 bytes cada).
+ * Não é seguro para escrita concorrente.
+ */
+public class SketchKll {
+    public static final int K_PADRAO = 32;
+    private static final double FATOR_CAPACIDADE = 2.0 / 3.0;
+    private static final int CAPACIDADE_MINIMA = 2;
+    private static final int MAXIMO_NIVEIS = 40;
+
+    private final int k;
+    private final List<float[]> niveis = new ArrayList<>();
+    private final List<Integer> tamanhos = new ArrayList<>();
+    private long contagem = 0;
+    private float minimo = Float.POSITIVE_INFINITY;
+    private float maximo = Float.NEGATIVE_INFINITY;
+
+    public SketchKll() {
+        this(K_PADRAO);
+    }
+
+    public SketchKll(int k) {
+        if (k < CAPACIDADE_MINIMA || k > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("k inválido: " + k);
+        }
+        this.k = k;
+        adicionarNivel();
+    }
+
+    public void adicionar(double valor) {
+        float v = (float) valor;
+        if (Float.isNaN(v)) return;
+        contagem++;
+        minimo = Math.min(minimo, v);
+        maximo = Math.max(maximo, v);
+        anexar(0, v);
+        compactarSeNecessario();
+    }
+
+    /**
+     * Acumula outro sketch neste (o outro não é alterado)
+     */
+    public void combinar(SketchKll outro) {
+        if (outro == null || outro.contagem == 0) return;
+        for (int h = 0; h < outro.niveis.size(); h++) {
+            float[] itens = outro.niveis.get(h);
+            int tamanho = outro.tamanhos.get(h);
+            for (int i = 0; i < tamanho; i++) {
+                anexar(h, itens[i]);
+            }
+        }
+        contagem += outro.contagem;
+        minimo = Math.min(minimo, outro.minimo);
+        maximo = Math.max(maximo, outro.maximo);
+        compactarSeNecessario();
+    }
+
+    /**
+     * Valor aproximado no quantil (0 a 1); mínimo e máximo são exatos
+     */
+    public double quantil(double q) {
+        if (contagem == 0) return 0;
+        if (q <= 0) return minimo;
+        if (q >= 1) return maximo;
+
+        int retidos = getRetidos();
+        float[] valores = new float[retidos];
+        long[] pesos = new long[retidos];
+        int n = 0;
+        for (int h = 0; h < niveis.size(); h++) {
+            float[] itens = niveis.get(h);
+            for (int i = 0; i < tamanhos.get(h); i++) {
+                valores[n] = itens[i];
+                pesos[n++] = 1L << h;
+            }
+        }
+        ordenarPorValor(valores, pesos);
+
+        long pesoTotal = 0;
+        for (long peso : pesos) pesoTotal += peso;
+        double alvo = q * pesoTotal;
+        long acumulado = 0;
+        for (int i = 0; i < n; i++) {
+            acumulado += pesos[i];
+            if (acumulado >= alvo) return valores[i];
+        }
+        return maximo;
+    }
+
+    public long getContagem() { return contagem; }
+    public double getMinimo() { return contagem == 0 ? 0 : minimo; }
+    public double getMaximo() { return contagem == 0 ? 0 : maximo; }
+
+    public int getRetidos() {
+        int retidos = 0;
+        for (int tamanho : tamanhos) retidos += tamanho;
+        return retidos;
+    }
+
+    // ---- Serialização: k (2) | contagem (8) | mín (4) | máx (4) | níveis (1) | por nível: tamanho (2) | itens (4 cada) ----
+
+    public int getTamanhoSerializado() {
+        return 19 + 2 * niveis.size() + 4 * getRetidos();
+    }
+
+    public void escrever(ByteBuffer saida) {
+        saida.putShort((short) k).putLong(contagem).putFloat(minimo).putFloat(maximo).put((byte) niveis.size());
+        for (int h = 0; h < niveis.size(); h++) {
+            int tamanho = tamanhos.get(h);
+            saida.putShort((short) tamanho);
+            float[] itens = niveis.get(h);
+            for (int i = 0; i < tamanho; i++) {
+                saida.putFloat(itens[i]);
+            }
+        }
+    }
+
+    /**
+     * @throws java.nio.BufferUnderflowException se o buffer estiver truncado
+     * @throws IllegalArgumentException se o cabeçalho for inconsistente
+     */
+    public static SketchKll ler(ByteBuffer entrada) {
+        SketchKll sketch = new SketchKll(entrada.getShort());
+        sketch.contagem = entrada.getLong();
+        sketch.minimo = entrada.getFloat();
+        sketch.maximo = entrada.getFloat();
+        int quantidadeNiveis = entrada.get() & 0xFF;
+        if (sketch.contagem < 0 || quantidadeNiveis == 0 || quantidadeNiveis > MAXIMO_NIVEIS) {
+            throw new IllegalArgumentException("cabeçalho de sketch inválido");
+        }
+        for (int h = 0; h < quantidadeNiveis; h++) {
+            int tamanho = entrada.getShort() & 0xFFFF;
+            for (int i = 0; i < tamanho; i++) {
+                sketch.anexar(h, entrada.getFloat());
+            }
+        }
+        return sketch;
+    }
+
+    // ---- Compactação ----
+
+    private void adicionarNivel() {
+        niveis.add(new float[CAPACIDADE_MINIMA]);
+        tamanhos.add(0);
+    }
+
+    private void anexar(int nivel, float valor) {
+        while (niveis.size() <= nivel) {
+            adicionarNivel();
+        }
+        float[] itens = niveis.get(nivel);
+        int tamanho = tamanhos.get(nivel);
+        if (tamanho == itens.length) {
+            itens = Arrays.copyOf(itens, itens.length * 2);
+            niveis.set(nivel, itens);
+        }
+        itens[tamanho] = valor;
+        tamanhos.set(nivel, tamanho + 1);
+    }
+
+    /**
+     * Capacidade do nível h: k no nível mais alto, decaindo por 2/3 a cada nível abaixo
+     */
+    private int capacidade(int nivel) {
+        int profundidade = niveis.size() - 1 - nivel;
+        return Math.max(CAPACIDADE_MINIMA, (int) Math.ceil(k * Math.pow(FATOR_CAPACIDADE, profundidade)));
+    }
+
+    private int capacidadeTotal() {
+        int total = 0;
+        for (int h = 0; h < niveis.size(); h++) total += capacidade(h);
+        return total;
+    }
+
+    private void compactarSeNecessario() {
+        while (getRetidos() > capacidadeTotal()) {
+            for (int h = 0; h < niveis.size(); h++) {
+                if (tamanhos.get(h) >= capacidade(h)) {
+                    compactar(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ordena o nível e promove um item de cada par (escolha aleatória) ao nível seguinte.
+     * Com tamanho ímpar, o último item fica onde está.
+     */
+    private void compactar(int nivel) {
+        float[] itens = niveis.get(nivel);
+        int tamanho = tamanhos.get(nivel);
+        Arrays.sort(itens, 0, tamanho);
+
+        int pares = tamanho / 2;
+        int deslocamento = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+        float sobra = itens[tamanho - 1];
+        for (int i = 0; i < pares; i++) {
+            anexar(nivel + 1, itens[2 * i + deslocamento]);
+        }
+        itens = niveis.get(nivel);
+        if (tamanho % 2 == 1) {
+            itens[0] = sobra;
+            tamanhos.set(nivel, 1);
+        } else {
+            tamanhos.set(nivel, 0);
+        }
+    }
+
+    private static void ordenarPorValor(float[] valores, long[] pesos) {
+        // Inserção: poucos itens (~3k) e os níveis já vêm quase ordenados
+        for (int i = 1; i < valores.length; i++) {
+            float valor = valores[i];
+            long peso = pesos[i];
+            int j = i - 1;
+            while (j >= 0 && valores[j] > valor) {
+                valores[j + 1] = valores[j];
+                pesos[j + 1] = pesos[j];
+                j--;
+            }
+            valores[j + 1] = valor;
+            pesos[j + 1] = peso;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.FilaLimitada;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fila assíncrona de notificações. Quem notifica só enfileira (sem bloquear);
+ * a cada janela curta os eventos acumulados viram um único datagrama, e
+ * eventos idênticos do mesmo nó são agrupados com um contador. Em rajadas de
+ * falhas isso reduz muito a taxa de datagramas enviados aos clientes.
+ * Os componentes de um nó (recuperação, substitutos, supercoordenador) notificam
+ * pelo callback do nó, que enfileira aqui uma única vez; o envio direto pelo
+ * emissor fica para quando são usados sem nó.
+ */
+class AgregadorNotificacoes {
+    private static final long JANELA_MS = 200;
+    private static final int CAPACIDADE_FILA = 4096;
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final EmissorMulticast emissor;
+    private final String enderecoGrupo;
+    private final int porta;
+
+    private final FilaLimitada<Evento> fila = new FilaLimitada<>(CAPACIDADE_FILA);
+    private final ScheduledExecutorService agendador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "agregador-notificacoes");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Estatísticas
+    private final AtomicLong eventosRecebidos = new AtomicLong(0);
+    private final AtomicLong eventosAgrupados = new AtomicLong(0);
+    private final AtomicLong eventosDescartados = new AtomicLong(0);
+    private final AtomicLong lotesEnviados = new AtomicLong(0);
+
+    AgregadorNotificacoes(EmissorMulticast emissor, String enderecoGrupo, int porta) {
+        this.emissor = emissor;
+        this.enderecoGrupo = enderecoGrupo;
+        this.porta = porta;
+
+        agendador.scheduleAtFixedRate(this::descarregar, JANELA_MS, JANELA_MS, TimeUnit.MILLISECONDS);
+        // Envia o último lote se o processo for encerrado no meio de uma janela
+        Runtime.getRuntime().addShutdownHook(new Thread(this::descarregar, "agregador-notificacoes-final"));
+    }
+
+    /**
+     * Enfileira o evento; nunca bloqueia (com a fila cheia o evento é descartado)
+     */
+    void notificar(String evento, int idNo) {
+        eventosRecebidos.incrementAndGet();
+        if (!fila.oferecer(new Evento(idNo, evento, LocalTime.now()))) {
+            long total = eventosDescartados.incrementAndGet();
+            if ((total & (total - 1)) == 0) { // Loga em potências de 2 para não inundar a saída
+                System.err.printf("[NOTIFICAÇÕES] ⚠ Fila cheia, %d eventos descartados%n", total);
+            }
+        }
+    }
+
+    /**
+     * Agrupa o que chegou na janela e envia um único datagrama
+     */
+    private synchronized void descarregar() {
+        Map<String, Agrupado> agrupados = new LinkedHashMap<>();
+        int remetente = -1;
+
+        Evento evento;
+        while ((evento = fila.retirar()) != null) {
+            String chave = evento.idNo + "|" + evento.texto;
+            Agrupado existente = agrupados.get(chave);
+            if (existente != null) {
+                existente.contagem++;
+                eventosAgrupados.incrementAndGet();
+                continue;
+            }
+            agrupados.put(chave, new Agrupado(evento));
+            // Um lote de vários nós não tem remetente único
+            remetente = remetente == -1 || remetente == evento.idNo ? evento.idNo : 0;
+        }
+
+        if (agrupados.isEmpty()) return;
+
+        StringBuilder corpo = new StringBuilder();
+        for (Agrupado agrupado : agrupados.values()) {
+            corpo.append(String.format("\n[NOTIFICAÇÃO] %s - Nó P%d - %s%s\n",
+                    agrupado.primeiro.horario.format(FORMATO_HORA), agrupado.primeiro.idNo, agrupado.primeiro.texto,
+                    agrupado.contagem > 1 ? String.format(" (x%d)", agrupado.contagem) : ""));
+        }
+
+        try {
+            emissor.enviar(new EnvelopeMulticast(TipoMensagem.NOTIFICACAO, remetente, "", 0, 0, corpo.toString()),
+                    enderecoGrupo, porta);
+            lotesEnviados.incrementAndGet();
+        } catch (Exception e) {
+            System.err.printf("[NOTIFICAÇÕES] Erro ao enviar lote: %s%n", e.getMessage());
+        }
+    }
+
+    String gerarEstatisticas() {
+        return String.format("[NOTIFICAÇÕES] Eventos: %d | Lotes enviados: %d | Agrupados: %d | Descartados: %d",
+                eventosRecebidos.get(), lotesEnviados.get(), eventosAgrupados.get(), eventosDescartados.get());
+    }
+
+    private static class Evento {
+        private final int idNo;
+        private final String texto;
+        private final LocalTime horario;
+
+        private Evento(int idNo, String texto, LocalTime horario) {
+            this.idNo = idNo;
+            this.texto = texto;
+            this.horario = horario;
+        }
+    }
+
+    private static class Agrupado {
+        private final Evento primeiro;
+        private int contagem = 1;
+
+        private Agrupado(Evento primeiro) {
+            this.primeiro = primeiro;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.RelogioHibrido;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a vazão do {@link MulticastOrdenadoTotal} com vários participantes no
+ * mesmo processo, todos enviando ao mesmo tempo com pausas aleatórias curtas,
+ * e confere se todos entregaram as mesmas mensagens na mesma ordem.
+ * Usa um endereço próprio para não interferir nas decisões dos líderes.
+ * Uso: java monitoramento.coordenacao.BenchmarkMulticastOrdenado [participantes] [mensagens por participante]
+ */
+public class BenchmarkMulticastOrdenado {
+    private static final String ENDERECO = "239.0.0.6";
+    private static final int PORTA = 12350;
+    private static final int ID_BASE = 900;
+    // Nome de grupo do envelope: até 3 caracteres
+    private static final String GRUPO = "BM";
+    // Tempo para os participantes se descobrirem pelos heartbeats
+    private static final long ESPERA_DESCOBERTA_MS = 1500;
+    private static final long LIMITE_ENTREGA_MS = 30000;
+    private static final int PAUSA_MAXIMA_MS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int participantes = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int porParticipante = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+        int total = participantes * porParticipante;
+
+        List<List<String>> entregas = new ArrayList<>();
+        List<MulticastOrdenadoTotal> multicasts = new ArrayList<>();
+        for (int i = 0; i < participantes; i++) {
+            List<String> entregues = Collections.synchronizedList(new ArrayList<>(total));
+            entregas.add(entregues);
+            MulticastOrdenadoTotal multicast = new MulticastOrdenadoTotal(ID_BASE + i, GRUPO,
+                    new RelogioHibrido(), ENDERECO, PORTA,
+                    mensagem -> entregues.add(mensagem.getRemetente() + ":" + mensagem.getSequencia()));
+            multicasts.add(multicast);
+            multicast.iniciar();
+        }
+        Thread.sleep(ESPERA_DESCOBERTA_MS);
+
+        System.out.printf("[BENCHMARK] %d participantes, %d mensagens cada%n", participantes, porParticipante);
+        long inicio = System.nanoTime();
+        ExecutorService remetentes = Executors.newFixedThreadPool(participantes);
+        for (MulticastOrdenadoTotal multicast : multicasts) {
+            remetentes.execute(() -> {
+                for (int j = 0; j < porParticipante; j++) {
+                    multicast.multicast(("m" + j).getBytes());
+                    try {
+                        Thread.sleep(ThreadLocalRandom.current().nextInt(PAUSA_MAXIMA_MS + 1));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        remetentes.shutdown();
+        remetentes.awaitTermination(LIMITE_ENTREGA_MS, TimeUnit.MILLISECONDS);
+
+        long limite = inicio + TimeUnit.MILLISECONDS.toNanos(LIMITE_ENTREGA_MS);
+        while (entregas.stream().anyMatch(entregues -> entregues.size() < total) && System.nanoTime() < limite) {
+            Thread.sleep(20);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        boolean mesmaOrdem = true;
+        for (int i = 1; i < participantes; i++) {
+            mesmaOrdem &= entregas.get(i).equals(entregas.get(0));
+        }
+
+        System.out.println("| NÓ   | ENTREGUES | CONFIRMAÇÕES | PERDIDAS | TARDIAS | RETENÇÃO |");
+        System.out.println("|------|-----------|--------------|----------|---------|----------|");
+        for (int i = 0; i < participantes; i++) {
+            MulticastOrdenadoTotal multicast = multicasts.get(i);
+            System.out.printf("| P%-3d | %9d | %12d | %8d | %7d | %s |%n", ID_BASE + i,
+                    multicast.getEntregues(), multicast.getConfirmacoesEnviadas(), multicast.getPerdidas(),
+                    multicast.getTardias(), multicast.getRetencao().resumo());
+        }
+        System.out.printf("[BENCHMARK] %d/%d entregues por nó em %.2fs (%.0f msg/s), mesma ordem em todos: %s%n",
+                entregas.stream().mapToInt(List::size).min().orElse(0), total, segundos, total / segundos,
+                mesmaOrdem ? "sim" : "NÃO");
+
+        multicasts.forEach(MulticastOrdenadoTotal::parar);
+    }
+}
@@ -0,0 +1,96 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.ResumoRecursos;
+import monitoramento.intergrupo.RegistroGrupos;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Mede o custo de CPU de um ciclo de monitoramento do supercoordenador em
+ * função do número de grupos: aplicar as respostas de status de cada grupo no
+ * registro, combinar os resumos de recursos, avaliar os problemas globais e
+ * montar o relatório de status.
+ * Uso: java monitoramento.coordenacao.BenchmarkSuperCoordenador [ciclos]
+ */
+public class BenchmarkSuperCoordenador {
+    private static final int[] QUANTIDADES_GRUPOS = {2, 4, 8, 16, 32, 64};
+    private static final int CICLOS_AQUECIMENTO = 2000;
+    // Impede que o JIT elimine o trabalho medido
+    private static volatile long sumidouro;
+
+    public static void main(String[] args) {
+        int ciclos = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean cpuDisponivel = threads.isCurrentThreadCpuTimeSupported();
+
+        System.out.printf("[BENCHMARK] %d ciclos por configuração, tempo de %s%n",
+                ciclos, cpuDisponivel ? "CPU da thread" : "relógio (CPU indisponível)");
+        System.out.println("| GRUPOS | CPU/CICLO (µs) | CPU/GRUPO (µs) | MARGINAL/GRUPO (µs) |");
+        System.out.println("|--------|----------------|----------------|---------------------|");
+
+        // Aquecimento do JIT na maior configuração, para não penalizar as primeiras linhas
+        sumidouro += executarCiclos(montarRegistro(QUANTIDADES_GRUPOS[QUANTIDADES_GRUPOS.length - 1]), CICLOS_AQUECIMENTO);
+
+        double anterior = -1;
+        int gruposAnterior = 0;
+        for (int grupos : QUANTIDADES_GRUPOS) {
+            RegistroGrupos registro = montarRegistro(grupos);
+            executarCiclos(registro, CICLOS_AQUECIMENTO);
+
+            long inicio = cpuDisponivel ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+            sumidouro += executarCiclos(registro, ciclos);
+            long fim = cpuDisponivel ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+
+            double porCiclo = (fim - inicio) / 1000.0 / ciclos;
+            String marginal = anterior < 0 ? "-" :
+                    String.format("%.3f", (porCiclo - anterior) / (grupos - gruposAnterior));
+            System.out.printf("| %6d | %14.3f | %14.3f | %19s |%n", grupos, porCiclo, porCiclo / grupos, marginal);
+
+            anterior = porCiclo;
+            gruposAnterior = grupos;
+        }
+    }
+
+    private static RegistroGrupos montarRegistro(int grupos) {
+        RegistroGrupos registro = new RegistroGrupos("G0");
+        long agora = System.currentTimeMillis();
+        for (int g = 1; g < grupos; g++) {
+            registro.registrarContato("G" + g, g * 3, 1, agora);
+            registro.registrarMembros("G" + g, 3);
+        }
+        return registro;
+    }
+
+    /**
+     * Um ciclo = o que o supercoordenador faz por rodada de monitoramento
+     */
+    private static long executarCiclos(RegistroGrupos registro, int ciclos) {
+        long verificacao = 0;
+        int quantidade = registro.getQuantidade();
+        ResumoRecursos resumo = new ResumoRecursos();
+        resumo.adicionar(40, 60);
+        resumo.adicionar(55, 62);
+        resumo.adicionar(70, 58);
+        StringBuilder relatorio = new StringBuilder(256 * quantidade);
+        for (int c = 0; c < ciclos; c++) {
+            long agora = System.currentTimeMillis();
+            for (int g = 1; g < quantidade; g++) {
+                // Um grupo em cada dez fica sem responder
+                if ((c + g) % 10 == 0) {
+                    registro.registrarSemResposta(registro.getNome(g));
+                } else {
+                    registro.registrarContato(registro.getNome(g), g * 3, 1, agora);
+                    registro.registrarStatus(registro.getNome(g), 0.5, 0.4, resumo, agora);
+                }
+            }
+            ResumoRecursos global = registro.combinarResumos(agora);
+            List<String> problemas = SuperCoordenador.avaliarGrupos(registro, agora);
+            relatorio.setLength(0);
+            SuperCoordenador.anexarStatusGrupos(relatorio, registro, agora, grupo -> null);
+            verificacao += problemas.size() + relatorio.length() + global.getNos();
+        }
+        return verificacao;
+    }
+}
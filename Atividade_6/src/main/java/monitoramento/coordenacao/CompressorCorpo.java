@@ -0,0 +1,124 @@
+package monitoramento.coordenacao;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+
+/**
+ * Compressão deflate do corpo dos envelopes, com um dicionário pré-compartilhado
+ * montado a partir dos modelos de relatório (molduras, cabeçalhos de tabela e
+ * rótulos). Corpo comprimido: tamanho original (4) | CRC32 do original (4) |
+ * dados deflate sem cabeçalho zlib (que por si só não detecta corrupção).
+ */
+public final class CompressorCorpo {
+    // Corpos menores que isto não compensam a compressão
+    public static final int TAMANHO_MINIMO = 256;
+    // Proteção contra corpos que se expandem absurdamente
+    private static final int TAMANHO_MAXIMO_ORIGINAL = 16 * 1024 * 1024;
+    private static final int TAMANHO_PREFIXO = 8;
+
+    // Trechos mais frequentes ficam no fim: o deflate alcança melhor as referências próximas
+    private static final byte[] DICIONARIO = String.join("\n",
+            "Tentativas de Recuperação: ", "Configurações: Max tentativas=", "Nó Substituto: P",
+            "Nó Original: P", "  ✓ ", "  • Porta Serviço: ", "  • Status: ", "  • Substitutos ativos: ",
+            "  • Total de substituições: ", "  • Último heartbeat: ", "s atrás", "  • Mensagens recebidas: ",
+            "  • Mensagens enviadas: ", "  • Grupos conhecidos: ", "GRUPOS REMOTOS CONHECIDOS:",
+            "STATUS: COMUNICAÇÃO INTERGRUPOS ATIVA", "RELATÓRIO DE COMUNICAÇÃO INTERGRUPOS",
+            "RELATÓRIO DO SISTEMA DE RECUPERAÇÃO", "RELATÓRIO DE SUBSTITUIÇÃO DINÂMICA DE NÓ",
+            "RELATÓRIO DO GERADOR DE NÓS SUBSTITUTOS", "STATUS: SUBSTITUIÇÃO REALIZADA COM SUCESSO",
+            "RELATÓRIO DE SUPERCOORDENAÇÃO GLOBAL", "STATUS DOS GRUPOS MONITORADOS:", "Supercoordenador: P",
+            "RELATÓRIO DE SNAPSHOT GLOBAL - CHANDY-LAMPORT", "RELATÓRIO DE SNAPSHOT GLOBAL (Chandy-Lamport)",
+            "STATUS: SNAPSHOT GLOBAL CONCLUÍDO COM SUCESSO", "ESTADO DOS CANAIS DE COMUNICAÇÃO:",
+            "Marcadores recebidos de: ", "Total de canais monitorados: ", "  • Canal P", "VAZIO",
+            "Timestamp: ", "Data/Hora: ", "[NOTIFICAÇÃO] ", " - Nó P",
+            "Percentis: CPU p50=", "% p95=", "% p99=", "% | memória p50=",
+            "CPU Média: ", "% | Memória Média: ", "% | Total Processadores: ",
+            "RELATÓRIO DE MONITORAMENTO DO SISTEMA DISTRIBUÍDO", "Líder Atual: P", " | Nós Ativos: ",
+            "| NÓ   | CPU          | MEMÓRIA          | CARGA SYS   | PROCESSADORES | UPTIME       |",
+            "|------|--------------|------------------|-------------|---------------|---------------|",
+            "% (~16 GB)    | N/A         | ", " GB)     | ", "%       | ", " |\n| P",
+            "-".repeat(80), "=".repeat(80)).getBytes(StandardCharsets.UTF_8);
+
+    private CompressorCorpo() {
+    }
+
+    /**
+     * @return o corpo comprimido, ou null se a compressão não reduzir o tamanho
+     */
+    public static byte[] comprimir(byte[] corpo) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICIONARIO);
+            deflater.setInput(corpo);
+            deflater.finish();
+
+            ByteArrayOutputStream saida = new ByteArrayOutputStream(corpo.length / 2 + 16);
+            saida.write(ByteBuffer.allocate(TAMANHO_PREFIXO).putInt(corpo.length).putInt(crc(corpo)).array(),
+                    0, TAMANHO_PREFIXO);
+            byte[] bloco = new byte[4096];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(bloco);
+                saida.write(bloco, 0, n);
+                if (saida.size() >= corpo.length) {
+                    return null; // Não compensa
+                }
+            }
+            return saida.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException se o corpo comprimido estiver corrompido
+     */
+    public static byte[] descomprimir(byte[] comprimido) {
+        if (comprimido.length < TAMANHO_PREFIXO) {
+            throw new IllegalArgumentException("corpo comprimido truncado");
+        }
+        ByteBuffer prefixo = ByteBuffer.wrap(comprimido, 0, TAMANHO_PREFIXO);
+        int tamanhoOriginal = prefixo.getInt();
+        int crcEsperado = prefixo.getInt();
+        if (tamanhoOriginal < 0 || tamanhoOriginal > TAMANHO_MAXIMO_ORIGINAL) {
+            throw new IllegalArgumentException("tamanho original inválido: " + tamanhoOriginal);
+        }
+
+        Inflater inflater = new Inflater(true);
+        try {
+            // Sem cabeçalho zlib, o dicionário é definido antes de inflar
+            inflater.setDictionary(DICIONARIO);
+            inflater.setInput(comprimido, TAMANHO_PREFIXO, comprimido.length - TAMANHO_PREFIXO);
+
+            byte[] corpo = new byte[tamanhoOriginal];
+            int lidos = 0;
+            while (lidos < tamanhoOriginal) {
+                int n = inflater.inflate(corpo, lidos, tamanhoOriginal - lidos);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                lidos += n;
+            }
+            if (lidos != tamanhoOriginal) {
+                throw new IllegalArgumentException("corpo comprimido incompleto: " + lidos + "/" + tamanhoOriginal);
+            }
+            if (crc(corpo) != crcEsperado) {
+                throw new IllegalArgumentException("corpo comprimido corrompido (CRC32 divergente)");
+            }
+            return corpo;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("corpo comprimido inválido: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int crc(byte[] dados) {
+        CRC32 crc = new CRC32();
+        crc.update(dados);
+        return (int) crc.getValue();
+    }
+}
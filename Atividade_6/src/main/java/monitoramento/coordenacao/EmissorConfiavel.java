@@ -0,0 +1,174 @@
+package monitoramento.coordenacao;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lado emissor do canal multicast confiável. Cada (remetente, destino) tem um
+ * fluxo com números de sequência e um buffer circular das últimas mensagens;
+ * receptores que detectam lacunas pedem retransmissão por NACK. Depois de cada
+ * envio a maior sequência é anunciada por alguns segundos, para que a perda da
+ * última mensagem de uma rajada também seja detectada.
+ */
+class EmissorConfiavel {
+    private static final int CAPACIDADE_BUFFER = 256; // Potência de 2
+    private static final long INTERVALO_ANUNCIO_MS = 500;
+    private static final long DURACAO_ANUNCIOS_MS = 3000;
+    // Evita retransmitir a mesma mensagem para vários NACKs simultâneos
+    private static final long INTERVALO_MINIMO_RETRANSMISSAO_MS = 50;
+
+    private final EmissorMulticast emissor;
+
+    // Fluxos por "remetente@grupo:porta"
+    private final Map<String, Fluxo> fluxos = new ConcurrentHashMap<>();
+    // Ouvintes de NACK por "grupo:porta"
+    private final Map<String, OuvinteMulticast> ouvintesNack = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService anunciador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "emissor-confiavel-anuncios");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Estatísticas
+    private final AtomicLong enviadas = new AtomicLong(0);
+    private final AtomicLong retransmitidas = new AtomicLong(0);
+    private final AtomicLong nacksRecebidos = new AtomicLong(0);
+    private final AtomicLong indisponiveis = new AtomicLong(0);
+
+    EmissorConfiavel(EmissorMulticast emissor) {
+        this.emissor = emissor;
+        anunciador.scheduleAtFixedRate(this::anunciarSequencias,
+                INTERVALO_ANUNCIO_MS, INTERVALO_ANUNCIO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Numera, guarda para retransmissão e envia a mensagem
+     */
+    boolean enviar(EnvelopeMulticast envelope, String enderecoGrupo, int porta) {
+        garantirOuvinteNack(enderecoGrupo, porta);
+
+        Fluxo fluxo = fluxos.computeIfAbsent(envelope.getRemetente() + "@" + enderecoGrupo + ":" + porta,
+                chave -> new Fluxo(envelope.getRemetente(), enderecoGrupo, porta));
+
+        byte[] quadro;
+        synchronized (fluxo) {
+            int sequencia = ++fluxo.ultimaSequencia;
+            quadro = envelope.comSequencia(sequencia).codificar(emissor.proximoIdMensagem());
+            int posicao = sequencia & (CAPACIDADE_BUFFER - 1);
+            fluxo.buffer[posicao] = quadro;
+            fluxo.ultimaRetransmissao[posicao] = 0;
+            fluxo.ultimoEnvio = System.currentTimeMillis();
+        }
+
+        enviadas.incrementAndGet();
+        return emissor.enviarBytes(quadro, enderecoGrupo, porta);
+    }
+
+    /**
+     * Os NACKs chegam pelo próprio grupo de destino
+     */
+    private void garantirOuvinteNack(String enderecoGrupo, int porta) {
+        ouvintesNack.computeIfAbsent(enderecoGrupo + ":" + porta, chave -> {
+            OuvinteMulticast ouvinte = new OuvinteMulticast(porta, enderecoGrupo,
+                    FiltroEnvelope.porTipo(TipoMensagem.NACK),
+                    nack -> processarNack(nack, enderecoGrupo, porta));
+            ouvinte.run();
+            return ouvinte;
+        });
+    }
+
+    /**
+     * Corpo do NACK: remetente alvo (4) | quantidade (2) | sequências (4 cada)
+     */
+    private void processarNack(EnvelopeMulticast nack, String enderecoGrupo, int porta) {
+        ByteBuffer corpo = ByteBuffer.wrap(nack.getCorpo());
+        if (corpo.remaining() < 6) return;
+
+        int alvo = corpo.getInt();
+        Fluxo fluxo = fluxos.get(alvo + "@" + enderecoGrupo + ":" + porta);
+        if (fluxo == null) return; // NACK para um remetente de outro processo
+
+        nacksRecebidos.incrementAndGet();
+        int quantidade = corpo.getShort() & 0xFFFF;
+        long agora = System.currentTimeMillis();
+
+        for (int i = 0; i < quantidade && corpo.remaining() >= 4; i++) {
+            int sequencia = corpo.getInt();
+            byte[] quadro = null;
+
+            synchronized (fluxo) {
+                int posicao = sequencia & (CAPACIDADE_BUFFER - 1);
+                byte[] guardado = fluxo.buffer[posicao];
+                if (guardado != null && EnvelopeMulticast.lerSequencia(guardado) == sequencia
+                        && agora - fluxo.ultimaRetransmissao[posicao] >= INTERVALO_MINIMO_RETRANSMISSAO_MS) {
+                    fluxo.ultimaRetransmissao[posicao] = agora;
+                    quadro = guardado;
+                } else if (guardado == null || EnvelopeMulticast.lerSequencia(guardado) != sequencia) {
+                    indisponiveis.incrementAndGet(); // Já saiu do buffer circular
+                }
+            }
+
+            if (quadro != null) {
+                retransmitidas.incrementAndGet();
+                System.out.printf("[CONFIÁVEL] Retransmitindo seq %d de P%d para %s:%d%n",
+                        sequencia, alvo, enderecoGrupo, porta);
+                emissor.enviarControle(quadro, enderecoGrupo, porta);
+            }
+        }
+    }
+
+    /**
+     * Anuncia a maior sequência dos fluxos que enviaram recentemente
+     */
+    private void anunciarSequencias() {
+        long agora = System.currentTimeMillis();
+        for (Fluxo fluxo : fluxos.values()) {
+            int ultima;
+            synchronized (fluxo) {
+                if (agora - fluxo.ultimoEnvio > DURACAO_ANUNCIOS_MS) continue;
+                ultima = fluxo.ultimaSequencia;
+            }
+
+            try {
+                emissor.enviar(new EnvelopeMulticast(TipoMensagem.ANUNCIO_SEQUENCIA, 0, fluxo.remetente, "",
+                        0, 0, 0, ultima, null), fluxo.enderecoGrupo, fluxo.porta);
+            } catch (Exception e) {
+                System.err.printf("[CONFIÁVEL] Erro ao anunciar sequência: %s%n", e.getMessage());
+            }
+        }
+    }
+
+    String gerarEstatisticas() {
+        return String.format("[CONFIÁVEL] Enviadas: %d | NACKs recebidos: %d | Retransmitidas: %d | Fora do buffer: %d",
+                enviadas.get(), nacksRecebidos.get(), retransmitidas.get(), indisponiveis.get());
+    }
+
+    long getRetransmitidas() { return retransmitidas.get(); }
+
+    /**
+     * Fluxo de um remetente para um destino (protegido pelo próprio objeto)
+     */
+    private static class Fluxo {
+        private final int remetente;
+        private final String enderecoGrupo;
+        private final int porta;
+        private final byte[][] buffer = new byte[CAPACIDADE_BUFFER][];
+        private final long[] ultimaRetransmissao = new long[CAPACIDADE_BUFFER];
+        // Início aleatório: um remetente reiniciado é visto como um fluxo novo
+        private int ultimaSequencia = ThreadLocalRandom.current().nextInt(1 << 30);
+        private long ultimoEnvio;
+
+        private Fluxo(int remetente, String enderecoGrupo, int porta) {
+            this.remetente = remetente;
+            this.enderecoGrupo = enderecoGrupo;
+            this.porta = porta;
+        }
+    }
+}
@@ -1,16 +1,29 @@
 package monitoramento.coordenacao;
 
 import monitoramento.comum.Recurso;
+import monitoramento.comum.ResumoRecursos;
+import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Classe responsável por emitir mensagens multicast no sistema distribuído.
  * O EmissorMulticast envia relatórios e notificações para os clientes,
  * utilizando diferentes estratégias de fallback caso o envio via multicast falhe.
+ *
+ * Há uma única instância por processo ({@link #getInstancia()}), com canais
+ * de envio de longa duração: a interface e a estratégia vencedora são escolhidas
+ * uma vez e reutilizadas, em vez de abrir e fechar um socket por mensagem.
  */
 public class EmissorMulticast {
     // Endereço multicast dos clientes
@@ -18,9 +31,63 @@ public class EmissorMulticast {
     // Porta utilizada para comunicação multicast
     private static final int PORTA_CLIENTES = 12345;
 
+    private static final EmissorMulticast INSTANCIA = new EmissorMulticast();
+
+    /**
+     * Estratégias de envio, na ordem em que são tentadas
+     */
+    private enum Estrategia {
+        MULTICAST_COM_INTERFACE("MulticastSocket+Interface"),
+        MULTICAST_SIMPLES("MulticastSocket simples"),
+        UDP_FALLBACK("UDP fallback");
+
+        private final String descricao;
+
+        Estrategia(String descricao) {
+            this.descricao = descricao;
+        }
+    }
+
     // Cache da melhor interface encontrada para multicast
-    private static NetworkInterface interfaceMulticast = null;
-    private static boolean interfaceTestada = false;
+    private NetworkInterface interfaceMulticast = null;
+    private boolean interfaceTestada = false;
+
+    // Canais de envio abertos uma vez e compartilhados entre as threads
+    private final Map<Estrategia, DatagramChannel> canais = new EnumMap<>(Estrategia.class);
+    private final Map<String, InetSocketAddress> destinos = new ConcurrentHashMap<>();
+    private volatile Estrategia estrategiaVencedora = null;
+
+    // Estatísticas de envio
+    private final AtomicLong mensagensEnviadas = new AtomicLong(0);
+    private final AtomicLong bytesEnviados = new AtomicLong(0);
+    private final AtomicLong errosEnvio = new AtomicLong(0);
+    private final AtomicLong falhasTotais = new AtomicLong(0);
+    private final AtomicLong mensagensFragmentadas = new AtomicLong(0);
+    private final AtomicLong mensagensComprimidas = new AtomicLong(0);
+    private final AtomicLong bytesEconomizados = new AtomicLong(0);
+
+    // Compressão dos corpos grandes (relatórios); desligável para depuração
+    private volatile boolean compressaoAtiva = true;
+
+    // IDs de envelopes e de mensagens fragmentadas: base aleatória evita colisão entre processos
+    private final AtomicLong geradorIdMensagem = new AtomicLong(new SecureRandom().nextLong());
+
+    // Canal confiável para os tipos críticos, criado no primeiro envio de um deles
+    private volatile EmissorConfiavel confiavel;
+    // Fila de notificações agrupadas, criada na primeira notificação
+    private volatile AgregadorNotificacoes agregadorNotificacoes;
+    // Controle de taxa por faixa de prioridade e por destino
+    private final LimitadorEnvio limitador = new LimitadorEnvio();
+
+    private EmissorMulticast() {
+    }
+
+    /**
+     * Emissor compartilhado por todos os componentes do processo
+     */
+    public static EmissorMulticast getInstancia() {
+        return INSTANCIA;
+    }
 
     /**
      * Detecta e configura a melhor interface de rede para envio de mensagens multicast.
@@ -103,125 +170,188 @@ public class EmissorMulticast {
      * 1. Multicast configurando explicitamente a interface
      * 2. Multicast simples
      * 3. UDP local (fallback garantido)
+     * A estratégia que funcionar é memorizada e tentada primeiro nos próximos envios.
+     * O envelope recebe aqui o seu id de mensagem, único no processo.
+     * Tipos críticos vão pelo canal confiável (sequência, NACK e retransmissão).
+     * Sob pressão, mensagens de faixas menos prioritárias são descartadas aqui.
+     * Corpos grandes são comprimidos antes da admissão, que passa a contar o tamanho real.
      */
-    public void enviarMensagem(String mensagem, String enderecoGrupo, int porta) {
-        boolean sucesso = false;
-
-        // Estratégia 1
-        sucesso = tentarMulticastComInterface(mensagem, enderecoGrupo, porta);
-
-        if (!sucesso) {
-            // Estratégia 2
-            sucesso = tentarMulticastSimples(mensagem, enderecoGrupo, porta);
+    public boolean enviar(EnvelopeMulticast envelope, String enderecoGrupo, int porta) {
+        if (compressaoAtiva) {
+            envelope = comprimir(envelope);
         }
 
-        if (!sucesso) {
-            // Estratégia 3
-            sucesso = tentarUDPFallback(mensagem, porta);
+        int tamanho = envelope.getTamanhoCodificado();
+        if (!limitador.admitir(envelope.getTipo().getFaixa(), tamanho, enderecoGrupo, porta)) {
+            return false;
         }
 
-        if (!sucesso) {
-            System.err.printf("[EMISSOR]  FALHA TOTAL ao enviar mensagem para %s:%d%n", enderecoGrupo, porta);
+        if (envelope.getTipo().isCritico()) {
+            return obterConfiavel().enviar(envelope, enderecoGrupo, porta);
         }
+        return enviarBytes(envelope.codificar(proximoIdMensagem()), enderecoGrupo, porta);
     }
 
     /**
-     * Estratégia 1: Enviar multicast configurando explicitamente a interface de rede.
+     * Envia um quadro de controle já codificado (retransmissões), sempre admitido
      */
-    private boolean tentarMulticastComInterface(String mensagem, String enderecoGrupo, int porta) {
-        MulticastSocket socket = null;
-        try {
-            socket = new MulticastSocket();
-            socket.setLoopbackMode(false); // Permite que o próprio emissor receba a mensagem
-            socket.setTimeToLive(1);       // Restringe ao escopo local
-
-            // Configurar interface detectada
-            NetworkInterface ni = obterInterfaceMulticast();
-            if (ni != null) {
-                socket.setNetworkInterface(ni);
-            }
+    boolean enviarControle(byte[] quadro, String enderecoGrupo, int porta) {
+        limitador.admitir(FaixaPrioridade.CONTROLE, quadro.length, enderecoGrupo, porta);
+        return enviarBytes(quadro, enderecoGrupo, porta);
+    }
 
-            byte[] dados = mensagem.getBytes("UTF-8");
-            InetAddress grupo = InetAddress.getByName(enderecoGrupo);
-            DatagramPacket pacote = new DatagramPacket(dados, dados.length, grupo, porta);
+    private EnvelopeMulticast comprimir(EnvelopeMulticast envelope) {
+        int tamanhoOriginal = envelope.getCorpo().length;
+        EnvelopeMulticast comprimido = envelope.comprimido();
+        if (comprimido != envelope) {
+            mensagensComprimidas.incrementAndGet();
+            bytesEconomizados.addAndGet(tamanhoOriginal - comprimido.getCorpo().length);
+        }
+        return comprimido;
+    }
 
-            socket.send(pacote);
+    public void setCompressaoAtiva(boolean ativa) {
+        this.compressaoAtiva = ativa;
+    }
 
-            System.out.printf("[EMISSOR]  Multicast enviado para %s:%d (%d bytes)%n",
-                    enderecoGrupo, porta, dados.length);
-            return true;
+    long proximoIdMensagem() {
+        return geradorIdMensagem.incrementAndGet();
+    }
 
-        } catch (Exception e) {
-            System.err.printf("[EMISSOR] Estratégia 1 (MulticastSocket+Interface) falhou: %s%n", e.getMessage());
-            return false;
-        } finally {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+    private EmissorConfiavel obterConfiavel() {
+        EmissorConfiavel atual = confiavel;
+        if (atual == null) {
+            synchronized (this) {
+                if (confiavel == null) {
+                    confiavel = new EmissorConfiavel(this);
+                }
+                atual = confiavel;
             }
         }
+        return atual;
     }
 
     /**
-     * Estratégia 2: Enviar multicast sem configurar interface específica.
+     * Envia uma mensagem já codificada. Seguro para chamadas concorrentes.
+     * Mensagens maiores que um quadro (8 KiB) são fragmentadas.
      */
-    private boolean tentarMulticastSimples(String mensagem, String enderecoGrupo, int porta) {
-        MulticastSocket socket = null;
-        try {
-            socket = new MulticastSocket();
-            socket.setLoopbackMode(false);
-            socket.setTimeToLive(1);
+    public boolean enviarBytes(byte[] dados, String enderecoGrupo, int porta) {
+        if (!FragmentadorMulticast.precisaFragmentar(dados.length)) {
+            return enviarQuadro(dados, enderecoGrupo, porta);
+        }
 
-            byte[] dados = mensagem.getBytes("UTF-8");
-            InetAddress grupo = InetAddress.getByName(enderecoGrupo);
-            DatagramPacket pacote = new DatagramPacket(dados, dados.length, grupo, porta);
+        List<byte[]> fragmentos = FragmentadorMulticast.fragmentar(dados, proximoIdMensagem());
+        mensagensFragmentadas.incrementAndGet();
+        System.out.printf("[EMISSOR]  Mensagem de %d bytes dividida em %d fragmentos%n", dados.length, fragmentos.size());
 
-            socket.send(pacote);
+        boolean sucesso = true;
+        for (byte[] fragmento : fragmentos) {
+            sucesso &= enviarQuadro(fragmento, enderecoGrupo, porta);
+        }
+        return sucesso;
+    }
 
-            System.out.printf("[EMISSOR]  Multicast simples enviado para %s:%d (%d bytes)%n",
-                    enderecoGrupo, porta, dados.length);
+    private boolean enviarQuadro(byte[] dados, String enderecoGrupo, int porta) {
+        Estrategia preferida = estrategiaVencedora;
+        if (preferida != null && tentarEnvio(preferida, dados, enderecoGrupo, porta)) {
             return true;
+        }
 
-        } catch (Exception e) {
-            System.err.printf("[EMISSOR] Estratégia 2 (MulticastSocket simples) falhou: %s%n", e.getMessage());
-            return false;
-        } finally {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+        for (Estrategia estrategia : Estrategia.values()) {
+            if (estrategia == preferida) continue;
+
+            if (tentarEnvio(estrategia, dados, enderecoGrupo, porta)) {
+                if (estrategiaVencedora != estrategia) {
+                    estrategiaVencedora = estrategia;
+                    System.out.printf("[EMISSOR] Estratégia de envio selecionada: %s%n", estrategia.descricao);
+                }
+                return true;
             }
         }
+
+        falhasTotais.incrementAndGet();
+        System.err.printf("[EMISSOR]  FALHA TOTAL ao enviar mensagem para %s:%d%n", enderecoGrupo, porta);
+        return false;
     }
 
-    /**
-     * Estratégia 3: Enviar via UDP diretamente para localhost (funciona mesmo sem suporte multicast).
-     */
-    private boolean tentarUDPFallback(String mensagem, int porta) {
-        DatagramSocket socket = null;
+    private boolean tentarEnvio(Estrategia estrategia, byte[] dados, String enderecoGrupo, int porta) {
         try {
-            socket = new DatagramSocket();
-            byte[] dados = mensagem.getBytes("UTF-8");
-            InetAddress localhost = InetAddress.getByName("127.0.0.1");
-            DatagramPacket pacote = new DatagramPacket(dados, dados.length, localhost, porta);
+            DatagramChannel canal = obterCanal(estrategia);
+            InetSocketAddress destino = estrategia == Estrategia.UDP_FALLBACK
+                    ? obterDestino("127.0.0.1", porta)
+                    : obterDestino(enderecoGrupo, porta);
 
-            socket.send(pacote);
+            canal.send(ByteBuffer.wrap(dados), destino);
 
-            System.out.printf("[EMISSOR]  UDP fallback enviado para 127.0.0.1:%d (%d bytes)%n",
-                    porta, dados.length);
+            mensagensEnviadas.incrementAndGet();
+            bytesEnviados.addAndGet(dados.length);
+            System.out.printf("[EMISSOR]  %s enviado para %s:%d (%d bytes)%n",
+                    estrategia.descricao, destino.getHostString(), porta, dados.length);
             return true;
 
         } catch (Exception e) {
-            System.err.printf("[EMISSOR] Estratégia 3 (UDP fallback) falhou: %s%n", e.getMessage());
+            errosEnvio.incrementAndGet();
+            System.err.printf("[EMISSOR] Estratégia %s falhou: %s%n", estrategia.descricao, e.getMessage());
+            descartarCanal(estrategia);
             return false;
-        } finally {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
+        }
+    }
+
+    /**
+     * Obtém (ou abre) o canal de longa duração de uma estratégia
+     */
+    private synchronized DatagramChannel obterCanal(Estrategia estrategia) throws IOException {
+        DatagramChannel canal = canais.get(estrategia);
+        if (canal != null && canal.isOpen()) {
+            return canal;
+        }
+
+        switch (estrategia) {
+            case MULTICAST_COM_INTERFACE:
+                NetworkInterface ni = obterInterfaceMulticast();
+                if (ni == null) {
+                    throw new IOException("nenhuma interface multicast disponível");
+                }
+                canal = DatagramChannel.open(StandardProtocolFamily.INET);
+                canal.setOption(StandardSocketOptions.IP_MULTICAST_IF, ni);
+                canal.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true); // Permite que o próprio processo receba
+                canal.setOption(StandardSocketOptions.IP_MULTICAST_TTL, 1);     // Restringe ao escopo local
+                break;
+            case MULTICAST_SIMPLES:
+                canal = DatagramChannel.open(StandardProtocolFamily.INET);
+                canal.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+                canal.setOption(StandardSocketOptions.IP_MULTICAST_TTL, 1);
+                break;
+            default:
+                canal = DatagramChannel.open(StandardProtocolFamily.INET);
+                break;
+        }
+
+        canais.put(estrategia, canal);
+        return canal;
+    }
+
+    private synchronized void descartarCanal(Estrategia estrategia) {
+        DatagramChannel canal = canais.remove(estrategia);
+        if (canal != null) {
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // Ignorar erros ao fechar
             }
         }
     }
 
+    private InetSocketAddress obterDestino(String endereco, int porta) {
+        return destinos.computeIfAbsent(endereco + ":" + porta, chave -> new InetSocketAddress(endereco, porta));
+    }
+
     /**
      * Envia um relatório consolidado do estado dos recursos monitorados.
+     * O relatório leva a época de liderança para que clientes descartem
+     * relatórios atrasados de líderes anteriores.
      */
-    public void enviarRelatorio(int idLider, List<Recurso> snapshot) {
+    public void enviarRelatorio(int idLider, String grupo, long epoca, List<Recurso> snapshot) {
         if (snapshot == null || snapshot.isEmpty()) {
             System.err.printf("[EMISSOR] Snapshot vazio para líder P%d%n", idLider);
             return;
@@ -253,28 +383,68 @@ public class EmissorMulticast {
 
         relatorio.append("-".repeat(80)).append("\n");
 
-        // Estatísticas agregadas
-        double cpuMedia = snapshot.stream().mapToDouble(Recurso::getUsoCpu).average().orElse(0.0);
-        double memoriaMedia = snapshot.stream().mapToDouble(Recurso::getUsoMemoria).average().orElse(0.0);
+        // Estatísticas agregadas: a média esconde nós sobrecarregados, os percentis não
+        ResumoRecursos resumo = ResumoRecursos.de(snapshot);
         int totalProcessadores = snapshot.stream().mapToInt(Recurso::getProcessadores).sum();
 
         relatorio.append(String.format("CPU Média: %.2f%% | Memória Média: %.2f%% | Total Processadores: %d\n",
-                cpuMedia, memoriaMedia, totalProcessadores));
+                resumo.getCpuMedia(), resumo.getMemoriaMedia(), totalProcessadores));
+        relatorio.append(String.format("Percentis: %s\n", resumo.percentis()));
         relatorio.append("=".repeat(80)).append("\n");
 
         // Envia o relatório utilizando as estratégias de fallback
-        enviarMensagem(relatorio.toString(), ENDERECO_CLIENTES, PORTA_CLIENTES);
+        enviar(new EnvelopeMulticast(TipoMensagem.RELATORIO, idLider, grupo, 0, epoca, relatorio.toString()),
+                ENDERECO_CLIENTES, PORTA_CLIENTES);
 
         System.out.printf("[EMISSOR]  RELATÓRIO P%d PROCESSADO%n", idLider);
     }
 
     /**
-     * Envia uma notificação de evento para os clientes.
+     * Envia uma notificação de evento para os clientes. Não bloqueia: o evento
+     * entra numa fila e sai agrupado com os demais da mesma janela.
      */
     public void enviarNotificacao(String evento, int idNo) {
-        String mensagem = String.format("\n[NOTIFICAÇÃO] %s - Nó P%d - %s\n",
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss")),
-                idNo, evento);
-        enviarMensagem(mensagem, ENDERECO_CLIENTES, PORTA_CLIENTES);
+        AgregadorNotificacoes agregador = agregadorNotificacoes;
+        if (agregador == null) {
+            synchronized (this) {
+                if (agregadorNotificacoes == null) {
+                    agregadorNotificacoes = new AgregadorNotificacoes(this, ENDERECO_CLIENTES, PORTA_CLIENTES);
+                }
+                agregador = agregadorNotificacoes;
+            }
+        }
+        agregador.notificar(evento, idNo);
+    }
+
+    /**
+     * Envia para os clientes um relatório textual já formatado
+     * (recuperação, substitutos, snapshot, intergrupos, supercoordenação).
+     */
+    public void enviarRelatorioSistema(String relatorio, int idNo) {
+        enviar(new EnvelopeMulticast(TipoMensagem.RELATORIO_SISTEMA, idNo, "", 0, 0, relatorio),
+                ENDERECO_CLIENTES, PORTA_CLIENTES);
+    }
+
+    // Estatísticas
+    public long getMensagensEnviadas() { return mensagensEnviadas.get(); }
+    public long getBytesEnviados() { return bytesEnviados.get(); }
+    public long getErrosEnvio() { return errosEnvio.get(); }
+    public long getFalhasTotais() { return falhasTotais.get(); }
+    public long getMensagensFragmentadas() { return mensagensFragmentadas.get(); }
+    public long getMensagensComprimidas() { return mensagensComprimidas.get(); }
+    public long getBytesEconomizados() { return bytesEconomizados.get(); }
+    public long getMensagensCortadas(FaixaPrioridade faixa) { return limitador.getCortadas(faixa); }
+
+    public String gerarEstatisticas() {
+        Estrategia estrategia = estrategiaVencedora;
+        EmissorConfiavel canalConfiavel = confiavel;
+        AgregadorNotificacoes agregador = agregadorNotificacoes;
+        return String.format("[EMISSOR] Enviadas: %d (%d bytes) | Fragmentadas: %d | Comprimidas: %d (%d bytes economizados) | Erros de estratégia: %d | Falhas totais: %d | Estratégia: %s",
+                mensagensEnviadas.get(), bytesEnviados.get(), mensagensFragmentadas.get(),
+                mensagensComprimidas.get(), bytesEconomizados.get(), errosEnvio.get(), falhasTotais.get(),
+                estrategia == null ? "nenhuma" : estrategia.descricao)
+                + (canalConfiavel == null ? "" : "\n" + canalConfiavel.gerarEstatisticas())
+                + "\n" + limitador.gerarEstatisticas()
+                + (agregador == null ? "" : "\n" + agregador.gerarEstatisticas());
     }
 }
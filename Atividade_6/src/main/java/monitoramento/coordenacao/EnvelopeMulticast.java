@@ -0,0 +1,340 @@
+package monitoramento.coordenacao;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Envelope binário versionado de todas as mensagens multicast.
+ * Cabeçalho fixo de 44 bytes (big-endian):
+ * magia (2) | versão (1) | tipo (1) | flags (2) | grupo (2) | remetente (4) |
+ * relógio (8) | época (8) | id da mensagem (8) | sequência (4) | tamanho do corpo (4),
+ * seguido do corpo opaco. A sequência só é usada pelo canal confiável (zero nas demais).
+ * Com {@link #FLAG_COMPRIMIDO} o corpo vai comprimido ({@link CompressorCorpo}) e é
+ * descomprimido de forma transparente em {@link #decodificar(byte[])}.
+ * Com {@link #FLAG_CONTEXTO} o corpo é precedido do contexto causal do rastreio
+ * (tamanho (2) | contexto), e o campo tamanho cobre os dois.
+ *
+ * Os métodos estáticos {@code ler*} leem campos direto do datagrama, sem alocar,
+ * para que os ouvintes filtrem por tipo ou remetente antes de decodificar o corpo.
+ */
+public final class EnvelopeMulticast {
+    // 0xFC nunca aparece em UTF-8 e difere do primeiro byte dos fragmentos (0xFB)
+    public static final int MAGIA = 0xFC45; // 0xFC 'E'
+    public static final int VERSAO = 1;
+    public static final int TAMANHO_CABECALHO = 44;
+
+    // Flags reservadas para as camadas de transporte
+    public static final int FLAG_CONFIAVEL = 0x0001;
+    public static final int FLAG_COMPRIMIDO = 0x0002;
+    public static final int FLAG_CONTEXTO = 0x0004;
+
+    private static final int POS_VERSAO = 2;
+    private static final int POS_TIPO = 3;
+    private static final int POS_FLAGS = 4;
+    private static final int POS_GRUPO = 6;
+    private static final int POS_REMETENTE = 8;
+    private static final int POS_RELOGIO = 12;
+    private static final int POS_EPOCA = 20;
+    private static final int POS_ID = 28;
+    private static final int POS_SEQUENCIA = 36;
+    private static final int POS_TAMANHO = 40;
+
+    // Nome de grupo com até 3 caracteres [A-Z0-9] codificado em base 37
+    private static final int BASE_GRUPO = 37;
+    private static final int TAMANHO_MAXIMO_GRUPO = 3;
+
+    private static final byte[] CORPO_VAZIO = new byte[0];
+
+    private final TipoMensagem tipo;
+    private final int flags;
+    private final String grupo;
+    private final int remetente;
+    private final long relogio;
+    private final long epoca;
+    private final long idMensagem;
+    private final int sequencia;
+    private final byte[] corpo;
+    // Contexto causal do rastreio (null quando o rastreio está desligado)
+    private final byte[] contextoCausal;
+
+    // Corpo decodificado sob demanda, uma única vez
+    private volatile String corpoTexto;
+
+    public EnvelopeMulticast(TipoMensagem tipo, int remetente, String grupo, long relogio, long epoca, String corpo) {
+        this(tipo, 0, remetente, grupo, relogio, epoca, 0, 0,
+                corpo == null ? CORPO_VAZIO : corpo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public EnvelopeMulticast(TipoMensagem tipo, int flags, int remetente, String grupo,
+                             long relogio, long epoca, long idMensagem, int sequencia, byte[] corpo) {
+        this(tipo, flags, remetente, grupo, relogio, epoca, idMensagem, sequencia, corpo, null);
+    }
+
+    private EnvelopeMulticast(TipoMensagem tipo, int flags, int remetente, String grupo, long relogio,
+                              long epoca, long idMensagem, int sequencia, byte[] corpo, byte[] contextoCausal) {
+        this.tipo = tipo;
+        this.flags = contextoCausal == null ? flags & ~FLAG_CONTEXTO : flags | FLAG_CONTEXTO;
+        this.grupo = grupo == null ? "" : grupo;
+        this.remetente = remetente;
+        this.relogio = relogio;
+        this.epoca = epoca;
+        this.idMensagem = idMensagem;
+        this.sequencia = sequencia;
+        this.corpo = corpo == null ? CORPO_VAZIO : corpo;
+        this.contextoCausal = contextoCausal;
+    }
+
+    /**
+     * Envolve um datagrama sem envelope (texto puro de emissores antigos)
+     */
+    public static EnvelopeMulticast texto(byte[] dados) {
+        return new EnvelopeMulticast(TipoMensagem.TEXTO, 0, -1, "", 0, 0, 0, 0, dados);
+    }
+
+    /**
+     * Cópia marcada como confiável, com a sequência do fluxo do remetente
+     */
+    public EnvelopeMulticast comSequencia(int novaSequencia) {
+        return new EnvelopeMulticast(tipo, flags | FLAG_CONFIAVEL, remetente, grupo,
+                relogio, epoca, idMensagem, novaSequencia, corpo, contextoCausal);
+    }
+
+    /**
+     * Cópia com o contexto causal do rastreio; sem contexto (rastreio desligado) devolve o próprio envelope
+     */
+    public EnvelopeMulticast comContexto(byte[] contexto) {
+        if (contexto == null) {
+            return this;
+        }
+        return new EnvelopeMulticast(tipo, flags, remetente, grupo,
+                relogio, epoca, idMensagem, sequencia, corpo, contexto);
+    }
+
+    /**
+     * Cópia com o corpo comprimido, ou o próprio envelope se a compressão não compensar
+     */
+    public EnvelopeMulticast comprimido() {
+        if (temFlag(FLAG_COMPRIMIDO) || corpo.length < CompressorCorpo.TAMANHO_MINIMO) {
+            return this;
+        }
+        byte[] corpoComprimido = CompressorCorpo.comprimir(corpo);
+        if (corpoComprimido == null) {
+            return this;
+        }
+        return new EnvelopeMulticast(tipo, flags | FLAG_COMPRIMIDO, remetente, grupo,
+                relogio, epoca, idMensagem, sequencia, corpoComprimido, contextoCausal);
+    }
+
+    /**
+     * Serializa o envelope com o id de mensagem atribuído pelo emissor
+     */
+    public byte[] codificar(long idMensagemAtribuido) {
+        int tamanhoPayload = getTamanhoCodificado() - TAMANHO_CABECALHO;
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CABECALHO + tamanhoPayload);
+        buffer.putShort((short) MAGIA)
+                .put((byte) VERSAO)
+                .put((byte) tipo.getCodigo())
+                .putShort((short) flags)
+                .putShort((short) codificarGrupo(grupo))
+                .putInt(remetente)
+                .putLong(relogio)
+                .putLong(epoca)
+                .putLong(idMensagemAtribuido)
+                .putInt(sequencia)
+                .putInt(tamanhoPayload);
+        if (contextoCausal != null) {
+            buffer.putShort((short) contextoCausal.length).put(contextoCausal);
+        }
+        buffer.put(corpo);
+        return buffer.array();
+    }
+
+    /**
+     * Decodifica um datagrama completo; datagramas sem envelope viram {@link TipoMensagem#TEXTO}
+     * Corpos comprimidos são entregues já descomprimidos, sem a flag.
+     * @throws IllegalArgumentException se o envelope for de versão desconhecida, estiver truncado
+     *                                  ou tiver o corpo comprimido corrompido
+     */
+    public static EnvelopeMulticast decodificar(byte[] dados) {
+        if (!isEnvelope(dados)) {
+            return texto(dados);
+        }
+        if (lerVersao(dados) != VERSAO) {
+            throw new IllegalArgumentException("versão de envelope desconhecida: " + lerVersao(dados));
+        }
+
+        int tamanhoCorpo = lerInt(dados, POS_TAMANHO);
+        if (tamanhoCorpo < 0 || TAMANHO_CABECALHO + tamanhoCorpo > dados.length) {
+            throw new IllegalArgumentException("envelope truncado: corpo de " + tamanhoCorpo + " bytes");
+        }
+
+        TipoMensagem tipo = TipoMensagem.doCodigo(lerCodigoTipo(dados));
+        if (tipo == null) {
+            throw new IllegalArgumentException("tipo de mensagem desconhecido: " + lerCodigoTipo(dados));
+        }
+
+        int flags = lerFlags(dados);
+        int inicioCorpo = TAMANHO_CABECALHO;
+        byte[] contexto = null;
+        if ((flags & FLAG_CONTEXTO) != 0) {
+            int tamanhoContexto = tamanhoCorpo < 2 ? -1 : lerShort(dados, inicioCorpo);
+            if (tamanhoContexto < 0 || 2 + tamanhoContexto > tamanhoCorpo) {
+                throw new IllegalArgumentException("envelope truncado: contexto causal inválido");
+            }
+            contexto = Arrays.copyOfRange(dados, inicioCorpo + 2, inicioCorpo + 2 + tamanhoContexto);
+            inicioCorpo += 2 + tamanhoContexto;
+            tamanhoCorpo -= 2 + tamanhoContexto;
+        }
+
+        byte[] corpo = new byte[tamanhoCorpo];
+        System.arraycopy(dados, inicioCorpo, corpo, 0, tamanhoCorpo);
+
+        if ((flags & FLAG_COMPRIMIDO) != 0) {
+            corpo = CompressorCorpo.descomprimir(corpo);
+            flags &= ~FLAG_COMPRIMIDO;
+        }
+
+        return new EnvelopeMulticast(tipo, flags, lerRemetente(dados),
+                decodificarGrupo(lerCodigoGrupo(dados)), lerRelogio(dados), lerEpoca(dados),
+                lerIdMensagem(dados), lerSequencia(dados), corpo, contexto);
+    }
+
+    // ---- Leitura do cabeçalho sem alocação ----
+
+    public static boolean isEnvelope(byte[] dados) {
+        return dados.length >= TAMANHO_CABECALHO
+                && (dados[0] & 0xFF) == 0xFC && dados[1] == 'E';
+    }
+
+    public static int lerVersao(byte[] dados) {
+        return dados[POS_VERSAO] & 0xFF;
+    }
+
+    /**
+     * Código do tipo; datagramas sem envelope têm o código de {@link TipoMensagem#TEXTO}
+     */
+    public static int lerCodigoTipo(byte[] dados) {
+        return isEnvelope(dados) ? dados[POS_TIPO] & 0xFF : TipoMensagem.TEXTO.getCodigo();
+    }
+
+    public static int lerFlags(byte[] dados) {
+        return lerShort(dados, POS_FLAGS);
+    }
+
+    public static int lerCodigoGrupo(byte[] dados) {
+        return lerShort(dados, POS_GRUPO);
+    }
+
+    public static int lerRemetente(byte[] dados) {
+        return lerInt(dados, POS_REMETENTE);
+    }
+
+    public static long lerRelogio(byte[] dados) {
+        return lerLong(dados, POS_RELOGIO);
+    }
+
+    public static long lerEpoca(byte[] dados) {
+        return lerLong(dados, POS_EPOCA);
+    }
+
+    public static long lerIdMensagem(byte[] dados) {
+        return lerLong(dados, POS_ID);
+    }
+
+    public static int lerSequencia(byte[] dados) {
+        return lerInt(dados, POS_SEQUENCIA);
+    }
+
+    public static boolean isConfiavel(byte[] dados) {
+        return isEnvelope(dados) && (lerFlags(dados) & FLAG_CONFIAVEL) != 0;
+    }
+
+    private static int lerShort(byte[] dados, int pos) {
+        return ((dados[pos] & 0xFF) << 8) | (dados[pos + 1] & 0xFF);
+    }
+
+    private static int lerInt(byte[] dados, int pos) {
+        return ((dados[pos] & 0xFF) << 24) | ((dados[pos + 1] & 0xFF) << 16)
+                | ((dados[pos + 2] & 0xFF) << 8) | (dados[pos + 3] & 0xFF);
+    }
+
+    private static long lerLong(byte[] dados, int pos) {
+        return ((long) lerInt(dados, pos) << 32) | (lerInt(dados, pos + 4) & 0xFFFFFFFFL);
+    }
+
+    // ---- Código compacto do nome do grupo ----
+
+    /**
+     * Codifica o nome do grupo (até 3 caracteres [A-Z0-9], sem distinguir maiúsculas)
+     * @throws IllegalArgumentException se o nome não couber no código
+     */
+    public static int codificarGrupo(String grupo) {
+        if (grupo.length() > TAMANHO_MAXIMO_GRUPO) {
+            throw new IllegalArgumentException("nome de grupo longo demais: " + grupo);
+        }
+        int codigo = 0;
+        for (int i = 0; i < grupo.length(); i++) {
+            char c = Character.toUpperCase(grupo.charAt(i));
+            int digito;
+            if (c >= 'A' && c <= 'Z') {
+                digito = c - 'A' + 1;
+            } else if (c >= '0' && c <= '9') {
+                digito = c - '0' + 27;
+            } else {
+                throw new IllegalArgumentException("caractere inválido no nome de grupo: " + grupo);
+            }
+            codigo = codigo * BASE_GRUPO + digito;
+        }
+        return codigo;
+    }
+
+    public static String decodificarGrupo(int codigo) {
+        StringBuilder grupo = new StringBuilder(TAMANHO_MAXIMO_GRUPO);
+        while (codigo > 0) {
+            int digito = codigo % BASE_GRUPO;
+            grupo.append(digito <= 26 ? (char) ('A' + digito - 1) : (char) ('0' + digito - 27));
+            codigo /= BASE_GRUPO;
+        }
+        return grupo.reverse().toString();
+    }
+
+    // Getters
+    public TipoMensagem getTipo() { return tipo; }
+    public int getFlags() { return flags; }
+    public boolean temFlag(int flag) { return (flags & flag) != 0; }
+    public String getGrupo() { return grupo; }
+    public int getRemetente() { return remetente; }
+    public long getRelogio() { return relogio; }
+    public long getEpoca() { return epoca; }
+    public long getIdMensagem() { return idMensagem; }
+    public int getSequencia() { return sequencia; }
+    public byte[] getCorpo() { return corpo; }
+    public byte[] getContextoCausal() { return contextoCausal; }
+
+    /**
+     * Tamanho do datagrama codificado: cabeçalho, contexto causal (se houver) e corpo
+     */
+    public int getTamanhoCodificado() {
+        int tamanho = TAMANHO_CABECALHO + corpo.length;
+        return contextoCausal == null ? tamanho : tamanho + 2 + contextoCausal.length;
+    }
+
+    /**
+     * Corpo como texto UTF-8, decodificado na primeira chamada
+     */
+    public String getCorpoTexto() {
+        String texto = corpoTexto;
+        if (texto == null) {
+            texto = new String(corpo, StandardCharsets.UTF_8);
+            corpoTexto = texto;
+        }
+        return texto;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s de P%d-%s (relógio=%d, época=%d, id=%d, %d bytes)",
+                tipo, remetente, grupo, relogio, epoca, idMensagem, corpo.length);
+    }
+}
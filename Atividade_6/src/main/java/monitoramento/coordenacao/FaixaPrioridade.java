@@ -0,0 +1,28 @@
+package monitoramento.coordenacao;
+
+/**
+ * Faixas de prioridade do envio multicast. Cada faixa tem seu balde de tokens
+ * e só pode usar o balde do destino enquanto ele mantiver a reserva da faixa:
+ * sob pressão a telemetria é cortada primeiro, depois o estado, e o controle
+ * (eleições, marcadores, NACKs) nunca é cortado.
+ */
+public enum FaixaPrioridade {
+    CONTROLE(1024 * 1024, 512 * 1024, 0.0),
+    ESTADO(256 * 1024, 128 * 1024, 0.25),
+    TELEMETRIA(128 * 1024, 128 * 1024, 0.5);
+
+    private final long bytesPorSegundo;
+    private final long capacidadeBytes;
+    // Fração do balde do destino que precisa sobrar depois do envio
+    private final double reservaDestino;
+
+    FaixaPrioridade(long bytesPorSegundo, long capacidadeBytes, double reservaDestino) {
+        this.bytesPorSegundo = bytesPorSegundo;
+        this.capacidadeBytes = capacidadeBytes;
+        this.reservaDestino = reservaDestino;
+    }
+
+    public long getBytesPorSegundo() { return bytesPorSegundo; }
+    public long getCapacidadeBytes() { return capacidadeBytes; }
+    public double getReservaDestino() { return reservaDestino; }
+}
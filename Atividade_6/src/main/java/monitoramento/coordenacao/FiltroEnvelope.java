@@ -0,0 +1,46 @@
+package monitoramento.coordenacao;
+
+/**
+ * Filtro avaliado sobre o datagrama bruto, antes de o corpo ser decodificado.
+ * Deve apenas ler o cabeçalho com os métodos de {@link EnvelopeMulticast}.
+ */
+@FunctionalInterface
+public interface FiltroEnvelope {
+
+    boolean aceitar(byte[] dados);
+
+    default FiltroEnvelope e(FiltroEnvelope outro) {
+        return dados -> aceitar(dados) && outro.aceitar(dados);
+    }
+
+    static FiltroEnvelope todos() {
+        return dados -> true;
+    }
+
+    /**
+     * Aceita apenas os tipos informados (máscara de bits sobre o código do tipo)
+     */
+    static FiltroEnvelope porTipo(TipoMensagem... tipos) {
+        long mascara = 0;
+        for (TipoMensagem tipo : tipos) {
+            mascara |= 1L << tipo.getCodigo();
+        }
+        long mascaraFinal = mascara;
+        return dados -> (mascaraFinal & (1L << EnvelopeMulticast.lerCodigoTipo(dados))) != 0;
+    }
+
+    /**
+     * Descarta as mensagens enviadas pelo próprio nó
+     */
+    static FiltroEnvelope excetoRemetente(int idRemetente) {
+        return dados -> !EnvelopeMulticast.isEnvelope(dados) || EnvelopeMulticast.lerRemetente(dados) != idRemetente;
+    }
+
+    /**
+     * Descarta as mensagens enviadas por nós do grupo informado
+     */
+    static FiltroEnvelope excetoGrupo(String grupo) {
+        int codigo = EnvelopeMulticast.codificarGrupo(grupo);
+        return dados -> !EnvelopeMulticast.isEnvelope(dados) || EnvelopeMulticast.lerCodigoGrupo(dados) != codigo;
+    }
+}
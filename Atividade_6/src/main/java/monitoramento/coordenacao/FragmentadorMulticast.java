@@ -0,0 +1,77 @@
+package monitoramento.coordenacao;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divide mensagens maiores que um quadro (8 KiB) em fragmentos numerados.
+ * Formato do fragmento: magia (4) | id da mensagem (8) | índice (2) | total (2) | dados.
+ * O primeiro byte da magia (0xFB) nunca aparece em UTF-8, então mensagens
+ * pequenas continuam sendo enviadas como texto puro sem ambiguidade.
+ */
+public final class FragmentadorMulticast {
+    public static final int MAGIA = 0xFB465247; // 0xFB 'F' 'R' 'G'
+    public static final int TAMANHO_CABECALHO = 16;
+    // Cabe nos buffers de 8192 bytes dos receptores antigos
+    public static final int TAMANHO_MAXIMO_QUADRO = 8192;
+    public static final int TAMANHO_MAXIMO_DADOS = TAMANHO_MAXIMO_QUADRO - TAMANHO_CABECALHO;
+    public static final int MAXIMO_FRAGMENTOS = 0xFFFF;
+
+    private FragmentadorMulticast() {
+    }
+
+    /**
+     * Indica se a mensagem precisa ser fragmentada
+     */
+    public static boolean precisaFragmentar(int tamanho) {
+        return tamanho > TAMANHO_MAXIMO_QUADRO;
+    }
+
+    /**
+     * Gera os fragmentos de uma mensagem
+     * @throws IllegalArgumentException se a mensagem exigir mais de 65535 fragmentos
+     */
+    public static List<byte[]> fragmentar(byte[] dados, long idMensagem) {
+        int total = (dados.length + TAMANHO_MAXIMO_DADOS - 1) / TAMANHO_MAXIMO_DADOS;
+        if (total > MAXIMO_FRAGMENTOS) {
+            throw new IllegalArgumentException("mensagem grande demais: " + dados.length + " bytes");
+        }
+
+        List<byte[]> fragmentos = new ArrayList<>(total);
+        for (int indice = 0; indice < total; indice++) {
+            int inicio = indice * TAMANHO_MAXIMO_DADOS;
+            int tamanho = Math.min(TAMANHO_MAXIMO_DADOS, dados.length - inicio);
+
+            ByteBuffer quadro = ByteBuffer.allocate(TAMANHO_CABECALHO + tamanho);
+            quadro.putInt(MAGIA)
+                    .putLong(idMensagem)
+                    .putShort((short) indice)
+                    .putShort((short) total)
+                    .put(dados, inicio, tamanho);
+            fragmentos.add(quadro.array());
+        }
+        return fragmentos;
+    }
+
+    /**
+     * Verifica a magia sem alocar
+     */
+    public static boolean isFragmento(byte[] quadro, int tamanho) {
+        return tamanho >= TAMANHO_CABECALHO
+                && (quadro[0] & 0xFF) == 0xFB
+                && quadro[1] == 'F' && quadro[2] == 'R' && quadro[3] == 'G';
+    }
+
+    public static long lerIdMensagem(byte[] quadro) {
+        return ByteBuffer.wrap(quadro, 4, 8).getLong();
+    }
+
+    public static int lerIndice(byte[] quadro) {
+        return ((quadro[12] & 0xFF) << 8) | (quadro[13] & 0xFF);
+    }
+
+    public static int lerTotal(byte[] quadro) {
+        return ((quadro[14] & 0xFF) << 8) | (quadro[15] & 0xFF);
+    }
+}
@@ -0,0 +1,410 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.CacheIdsRecentes;
+import monitoramento.comum.FilaLimitada;
+
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Demultiplexador multicast do processo: um único canal por (grupo, porta),
+ * compartilhado por todos os ouvintes do mesmo destino. Cada datagrama é
+ * recebido uma vez, passa pelo filtro de cabeçalho de cada assinante
+ * ({@link OuvinteMulticast}) e só é decodificado se algum deles o aceitar.
+ */
+public class HubMulticast {
+    // Maior datagrama UDP possível
+    private static final int TAMANHO_MAXIMO_DATAGRAMA = 65507;
+    private static final int BUFFER_RECEPCAO_SO = 4 * 1024 * 1024;
+    private static final int CAPACIDADE_FILA = 4096;
+    private static final long ESPERA_OCIOSA_NS = 100_000_000L;
+    private static final int CAPACIDADE_IDS_RECENTES = 4096;
+
+    // Hubs ativos, por "grupo:porta"
+    private static final Map<String, HubMulticast> hubs = new ConcurrentHashMap<>();
+
+    // Cache da melhor interface
+    private static NetworkInterface interfaceEscolhida = null;
+    private static boolean interfaceTestada = false;
+
+    private final int porta;
+    private final String enderecoGrupo;
+    private final List<OuvinteMulticast> assinantes = new CopyOnWriteArrayList<>();
+    private volatile boolean ativo = true;
+    private DatagramChannel canal;
+
+    // Datagramas recebidos aguardando decodificação
+    private final FilaLimitada<Quadro> fila = new FilaLimitada<>(CAPACIDADE_FILA);
+    private final RemontadorMulticast remontador = new RemontadorMulticast();
+    private final ReceptorConfiavel receptorConfiavel;
+    // Usado apenas pela thread de despacho
+    private final CacheIdsRecentes idsRecentes = new CacheIdsRecentes(CAPACIDADE_IDS_RECENTES);
+    private Thread threadDespacho;
+
+    // Estatísticas
+    private final AtomicLong recebidos = new AtomicLong(0);
+    private final AtomicLong descartados = new AtomicLong(0);
+    private final AtomicLong entregas = new AtomicLong(0);
+    private final AtomicLong filtradas = new AtomicLong(0);
+    private final AtomicLong invalidas = new AtomicLong(0);
+    private final AtomicLong repetidas = new AtomicLong(0);
+
+    private HubMulticast(int porta, String enderecoGrupo) {
+        this.porta = porta;
+        this.enderecoGrupo = enderecoGrupo;
+        this.receptorConfiavel = new ReceptorConfiavel(enderecoGrupo, porta);
+    }
+
+    /**
+     * Inscreve um ouvinte no hub do seu destino, abrindo o canal na primeira inscrição
+     * @return false se não foi possível conectar ao grupo
+     */
+    static synchronized boolean assinar(OuvinteMulticast ouvinte) {
+        String chave = ouvinte.getEnderecoGrupo() + ":" + ouvinte.getPorta();
+        HubMulticast hub = hubs.get(chave);
+
+        if (hub == null) {
+            hub = new HubMulticast(ouvinte.getPorta(), ouvinte.getEnderecoGrupo());
+            if (!hub.conectar()) {
+                return false;
+            }
+            hub.iniciarThreads();
+            hubs.put(chave, hub);
+        }
+
+        hub.assinantes.add(ouvinte);
+        System.out.printf("[HUB] Assinante adicionado em %s (%d assinantes)%n", chave, hub.assinantes.size());
+        return true;
+    }
+
+    /**
+     * Remove um ouvinte; o canal é fechado quando o último assinante sai
+     */
+    static synchronized void cancelar(OuvinteMulticast ouvinte) {
+        String chave = ouvinte.getEnderecoGrupo() + ":" + ouvinte.getPorta();
+        HubMulticast hub = hubs.get(chave);
+        if (hub == null || !hub.assinantes.remove(ouvinte)) return;
+
+        if (hub.assinantes.isEmpty()) {
+            hubs.remove(chave);
+            hub.parar();
+        }
+    }
+
+    private boolean conectar() {
+        // ESTRATÉGIA 1: Canal multicast na interface escolhida
+        // ESTRATÉGIA 2: Canal multicast em todas as interfaces com suporte
+        // ESTRATÉGIA 3: Fallback para UDP simples (apenas localhost)
+        if (tentarMulticastComInterface() || tentarMulticastSimples() || tentarUDPFallback()) {
+            return true;
+        }
+
+        System.err.printf("[HUB] ❌ FALHA TOTAL ao conectar no grupo %s:%d%n", enderecoGrupo, porta);
+        return false;
+    }
+
+    /**
+     * Abre o canal na porta com reuso de endereço (outros processos na mesma máquina)
+     */
+    private DatagramChannel abrirCanal() throws IOException {
+        DatagramChannel novoCanal = DatagramChannel.open(StandardProtocolFamily.INET);
+        novoCanal.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        novoCanal.setOption(StandardSocketOptions.SO_RCVBUF, BUFFER_RECEPCAO_SO);
+        novoCanal.bind(new InetSocketAddress(porta));
+        return novoCanal;
+    }
+
+    private boolean tentarMulticastComInterface() {
+        try {
+            NetworkInterface ni = obterMelhorInterface();
+            if (ni == null) {
+                throw new IOException("nenhuma interface multicast disponível");
+            }
+
+            canal = abrirCanal();
+            canal.join(InetAddress.getByName(enderecoGrupo), ni);
+            System.out.printf("[HUB] Usando interface: %s%n", ni.getDisplayName());
+            System.out.printf("[HUB] ✅ Conectado via DatagramChannel+Interface no grupo %s:%d (SO_RCVBUF=%d)%n",
+                    enderecoGrupo, porta, canal.getOption(StandardSocketOptions.SO_RCVBUF));
+            return true;
+
+        } catch (Exception e) {
+            System.err.printf("[HUB] Estratégia 1 falhou: %s%n", e.getMessage());
+            fecharCanal();
+            return false;
+        }
+    }
+
+    private boolean tentarMulticastSimples() {
+        try {
+            canal = abrirCanal();
+            InetAddress grupo = InetAddress.getByName(enderecoGrupo);
+
+            int interfacesUnidas = 0;
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface ni = interfaces.nextElement();
+                try {
+                    if (ni.isUp() && ni.supportsMulticast()) {
+                        canal.join(grupo, ni);
+                        interfacesUnidas++;
+                    }
+                } catch (Exception e) {
+                    // Interface sem suporte efetivo; tentar a próxima
+                }
+            }
+            if (interfacesUnidas == 0) {
+                throw new IOException("não foi possível entrar no grupo em nenhuma interface");
+            }
+
+            System.out.printf("[HUB] ✅ Conectado via DatagramChannel simples no grupo %s:%d%n",
+                    enderecoGrupo, porta);
+            return true;
+
+        } catch (Exception e) {
+            System.err.printf("[HUB] Estratégia 2 falhou: %s%n", e.getMessage());
+            fecharCanal();
+            return false;
+        }
+    }
+
+    private boolean tentarUDPFallback() {
+        try {
+            // Sem entrar no grupo: recebe apenas o fallback UDP enviado para localhost
+            canal = abrirCanal();
+
+            System.out.printf("[HUB] ✅ Conectado via UDP fallback na porta %d%n", porta);
+            return true;
+
+        } catch (Exception e) {
+            System.err.printf("[HUB] Estratégia 3 (UDP fallback) falhou: %s%n", e.getMessage());
+            fecharCanal();
+            return false;
+        }
+    }
+
+    private void iniciarThreads() {
+        String nome = String.format("hub-%s:%d", enderecoGrupo, porta);
+
+        Thread threadRecepcao = new Thread(this::receber, nome + "-recepcao");
+        threadRecepcao.setDaemon(true);
+
+        threadDespacho = new Thread(this::despachar, nome + "-despacho");
+        threadDespacho.setDaemon(true);
+
+        threadDespacho.start();
+        threadRecepcao.start();
+    }
+
+    /**
+     * Laço de recepção: só copia o datagrama para a fila, sem decodificar
+     */
+    private void receber() {
+        // Buffer direto reutilizado: a recepção não aloca além da cópia do datagrama
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_MAXIMO_DATAGRAMA);
+
+        System.out.printf("[HUB] 👂 Escutando mensagens no grupo %s:%d...%n", enderecoGrupo, porta);
+
+        while (ativo) {
+            try {
+                buffer.clear();
+                SocketAddress origem = canal.receive(buffer);
+                if (origem == null) continue;
+
+                buffer.flip();
+                byte[] dados = new byte[buffer.remaining()];
+                buffer.get(dados);
+                recebidos.incrementAndGet();
+
+                if (fila.oferecer(new Quadro(dados, origem))) {
+                    LockSupport.unpark(threadDespacho);
+                } else {
+                    long total = descartados.incrementAndGet();
+                    if ((total & (total - 1)) == 0) { // Loga em potências de 2 para não inundar a saída
+                        System.err.printf("[HUB] ⚠ Fila cheia em %s:%d, %d datagramas descartados%n",
+                                enderecoGrupo, porta, total);
+                    }
+                }
+
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (Exception e) {
+                if (ativo) {
+                    System.err.printf("[HUB] Erro ao receber mensagem: %s%n", e.getMessage());
+                }
+            }
+        }
+
+        fecharCanal();
+        LockSupport.unpark(threadDespacho);
+        System.out.printf("[HUB] 👋 Hub encerrado para %s:%d%n", enderecoGrupo, porta);
+    }
+
+    /**
+     * Laço de despacho: decodifica cada datagrama uma vez e o entrega aos assinantes interessados
+     */
+    private void despachar() {
+        while (ativo) {
+            Quadro quadro = fila.retirar();
+            if (quadro == null) {
+                LockSupport.parkNanos(this, ESPERA_OCIOSA_NS);
+                continue;
+            }
+
+            try {
+                // Fragmentos ficam retidos até a mensagem estar completa
+                byte[] dados = remontador.receber(quadro.dados);
+                if (dados == null) continue;
+
+                // Cópias da mesma mensagem (ex.: multicast e fallback UDP, retransmissões) param aqui
+                if (EnvelopeMulticast.isEnvelope(dados)
+                        && !idsRecentes.registrar(EnvelopeMulticast.lerIdMensagem(dados))) {
+                    repetidas.incrementAndGet();
+                    continue;
+                }
+
+                // Canal confiável: cópias repetidas e anúncios de sequência não são entregues
+                if (!receptorConfiavel.filtrar(dados)) continue;
+
+                // Filtros leem só o cabeçalho; o envelope é decodificado uma vez, se alguém o quiser
+                EnvelopeMulticast envelope = null;
+                for (OuvinteMulticast assinante : assinantes) {
+                    if (!assinante.getFiltro().aceitar(dados)) {
+                        filtradas.incrementAndGet();
+                        continue;
+                    }
+                    if (envelope == null) {
+                        envelope = EnvelopeMulticast.decodificar(dados);
+                        System.out.printf("[HUB] 📨 %s recebida de %s%n", envelope, quadro.origem);
+                    }
+                    assinante.entregar(envelope);
+                    entregas.incrementAndGet();
+                }
+            } catch (IllegalArgumentException e) {
+                invalidas.incrementAndGet();
+                System.err.printf("[HUB] Envelope inválido de %s: %s%n", quadro.origem, e.getMessage());
+            } catch (Exception e) {
+                System.err.printf("[HUB] Erro ao despachar mensagem: %s%n", e.getMessage());
+            }
+        }
+    }
+
+    private static synchronized NetworkInterface obterMelhorInterface() {
+        if (interfaceTestada) {
+            return interfaceEscolhida;
+        }
+
+        try {
+            // Tentar loopback primeiro
+            String[] nomesLoopback = {"lo", "lo0", "Loopback", "loopback"};
+            for (String nome : nomesLoopback) {
+                try {
+                    NetworkInterface ni = NetworkInterface.getByName(nome);
+                    if (ni != null && ni.supportsMulticast() && ni.isUp()) {
+                        interfaceEscolhida = ni;
+                        interfaceTestada = true;
+                        return interfaceEscolhida;
+                    }
+                } catch (Exception e) {
+                    // Continuar
+                }
+            }
+
+            // Tentar por índice
+            try {
+                NetworkInterface ni = NetworkInterface.getByIndex(1);
+                if (ni != null && ni.supportsMulticast() && ni.isUp() && ni.isLoopback()) {
+                    interfaceEscolhida = ni;
+                    interfaceTestada = true;
+                    return interfaceEscolhida;
+                }
+            } catch (Exception e) {
+                // Continuar
+            }
+
+            // Procurar qualquer interface multicast
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces.hasMoreElements()) {
+                NetworkInterface ni = interfaces.nextElement();
+                if (ni.supportsMulticast() && ni.isUp() && !ni.isVirtual()) {
+                    if (ni.isLoopback()) {
+                        interfaceEscolhida = ni;
+                        break;
+                    }
+                    if (interfaceEscolhida == null) {
+                        interfaceEscolhida = ni;
+                    }
+                }
+            }
+
+        } catch (Exception e) {
+            System.err.printf("[HUB] Erro ao detectar interface: %s%n", e.getMessage());
+        }
+
+        interfaceTestada = true;
+        return interfaceEscolhida;
+    }
+
+
+    private void fecharCanal() {
+        try {
+            if (canal != null && canal.isOpen()) {
+                canal.close();
+            }
+        } catch (Exception e) {
+            // Ignorar erro de fechamento
+        }
+    }
+
+    private void parar() {
+        this.ativo = false;
+        receptorConfiavel.encerrar();
+        fecharCanal();
+        if (threadDespacho != null) {
+            LockSupport.unpark(threadDespacho);
+        }
+    }
+
+    /**
+     * Resumo dos hubs ativos no processo
+     */
+    public static String gerarEstatisticas() {
+        StringBuilder estatisticas = new StringBuilder();
+        hubs.forEach((chave, hub) -> estatisticas.append(String.format(
+                "[HUB] %s: %d assinantes | recebidos: %d | entregas: %d | filtradas: %d | inválidas: %d | repetidas: %d | descartados: %d | remontadas: %d (%d expiradas)"
+                        + " | confiável: %d NACKs, %d recuperadas, %d perdidas, %d repetidas%n",
+                chave, hub.assinantes.size(), hub.recebidos.get(), hub.entregas.get(), hub.filtradas.get(),
+                hub.invalidas.get(), hub.repetidas.get(), hub.descartados.get(),
+                hub.remontador.getRemontadas(), hub.remontador.getDescartadas(),
+                hub.receptorConfiavel.getNacksEnviados(), hub.receptorConfiavel.getRecuperadas(),
+                hub.receptorConfiavel.getPerdidas(), hub.receptorConfiavel.getDuplicadas())));
+        return estatisticas.toString();
+    }
+
+    public long getRecebidos() { return recebidos.get(); }
+    public long getDescartados() { return descartados.get(); }
+    public long getRepetidas() { return repetidas.get(); }
+
+    /**
+     * Datagrama copiado do buffer de recepção
+     */
+    private static class Quadro {
+        private final byte[] dados;
+        private final SocketAddress origem;
+
+        private Quadro(byte[] dados, SocketAddress origem) {
+            this.dados = dados;
+            this.origem = origem;
+        }
+    }
+}
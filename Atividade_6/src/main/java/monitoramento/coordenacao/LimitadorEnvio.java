@@ -0,0 +1,98 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.BaldeTokens;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controle de taxa do emissor: um balde de tokens por faixa de prioridade e
+ * um por destino (grupo:porta). Mensagens de controle sempre passam (e
+ * consomem tokens, possivelmente em dívida); as demais são descartadas quando
+ * não cabem no balde da faixa ou quando esgotariam a reserva do destino.
+ * Uma mensagem maior que o que um balde pode admitir de uma vez espera o balde
+ * chegar a esse máximo e o excedente fica como dívida, senão nunca passaria.
+ */
+class LimitadorEnvio {
+    // Balde de cada destino
+    private static final long TAXA_DESTINO_BYTES = 512 * 1024;
+    private static final long CAPACIDADE_DESTINO_BYTES = 256 * 1024;
+
+    private final Map<FaixaPrioridade, BaldeTokens> baldesFaixa = new EnumMap<>(FaixaPrioridade.class);
+    private final Map<String, BaldeTokens> baldesDestino = new ConcurrentHashMap<>();
+
+    // Estatísticas por faixa
+    private final Map<FaixaPrioridade, AtomicLong> admitidas = new EnumMap<>(FaixaPrioridade.class);
+    private final Map<FaixaPrioridade, AtomicLong> cortadas = new EnumMap<>(FaixaPrioridade.class);
+
+    LimitadorEnvio() {
+        for (FaixaPrioridade faixa : FaixaPrioridade.values()) {
+            baldesFaixa.put(faixa, new BaldeTokens(faixa.getBytesPorSegundo(), faixa.getCapacidadeBytes()));
+            admitidas.put(faixa, new AtomicLong(0));
+            cortadas.put(faixa, new AtomicLong(0));
+        }
+    }
+
+    /**
+     * @return true se a mensagem pode ser enviada agora; false se deve ser descartada
+     */
+    boolean admitir(FaixaPrioridade faixa, int bytes, String enderecoGrupo, int porta) {
+        BaldeTokens baldeFaixa = baldesFaixa.get(faixa);
+        BaldeTokens baldeDestino = baldesDestino.computeIfAbsent(enderecoGrupo + ":" + porta,
+                chave -> new BaldeTokens(TAXA_DESTINO_BYTES, CAPACIDADE_DESTINO_BYTES));
+
+        if (faixa == FaixaPrioridade.CONTROLE) {
+            baldeFaixa.forcarConsumo(bytes);
+            baldeDestino.forcarConsumo(bytes);
+            admitidas.get(faixa).incrementAndGet();
+            return true;
+        }
+
+        double reserva = faixa.getReservaDestino() * baldeDestino.getCapacidade();
+        long cobradoFaixa = Math.min(bytes, (long) baldeFaixa.getCapacidade());
+        long cobradoDestino = Math.min(bytes, (long) (baldeDestino.getCapacidade() - reserva));
+
+        if (!baldeFaixa.consumir(cobradoFaixa, 0)) {
+            return cortar(faixa, bytes, enderecoGrupo, porta);
+        }
+        if (!baldeDestino.consumir(cobradoDestino, reserva)) {
+            baldeFaixa.devolver(cobradoFaixa);
+            return cortar(faixa, bytes, enderecoGrupo, porta);
+        }
+        if (cobradoFaixa < bytes) {
+            baldeFaixa.forcarConsumo(bytes - cobradoFaixa);
+        }
+        if (cobradoDestino < bytes) {
+            baldeDestino.forcarConsumo(bytes - cobradoDestino);
+        }
+
+        admitidas.get(faixa).incrementAndGet();
+        return true;
+    }
+
+    private boolean cortar(FaixaPrioridade faixa, int bytes, String enderecoGrupo, int porta) {
+        long total = cortadas.get(faixa).incrementAndGet();
+        if ((total & (total - 1)) == 0) { // Loga em potências de 2 para não inundar a saída
+            System.err.printf("[EMISSOR] ⚠ Faixa %s sem tokens para %s:%d (%d bytes), %d mensagens cortadas%n",
+                    faixa, enderecoGrupo, porta, bytes, total);
+        }
+        return false;
+    }
+
+    long getCortadas(FaixaPrioridade faixa) {
+        return cortadas.get(faixa).get();
+    }
+
+    String gerarEstatisticas() {
+        StringBuilder estatisticas = new StringBuilder("[EMISSOR] Faixas:");
+        for (FaixaPrioridade faixa : FaixaPrioridade.values()) {
+            estatisticas.append(String.format(" %s %d enviadas/%d cortadas (nível %.0f%%) |",
+                    faixa, admitidas.get(faixa).get(), cortadas.get(faixa).get(),
+                    baldesFaixa.get(faixa).getNivel() * 100));
+        }
+        estatisticas.setLength(estatisticas.length() - 2);
+        return estatisticas.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.RelogioHibrido;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+
+/**
+ * Mensagem do {@link MulticastOrdenadoTotal}: o relógio híbrido do remetente no
+ * envio define a posição na ordem total, e o id do remetente desempata.
+ */
+public final class MensagemOrdenada {
+    public static final Comparator<MensagemOrdenada> ORDEM =
+            Comparator.comparingLong(MensagemOrdenada::getRelogio).thenComparingInt(MensagemOrdenada::getRemetente);
+
+    private final int remetente;
+    private final String grupo;
+    private final long relogio;
+    private final int sequencia;
+    private final byte[] corpo;
+    // Quando a mensagem entrou na fila de retenção (System.nanoTime)
+    final long retidaEm;
+
+    MensagemOrdenada(int remetente, String grupo, long relogio, int sequencia, byte[] corpo, long retidaEm) {
+        this.remetente = remetente;
+        this.grupo = grupo;
+        this.relogio = relogio;
+        this.sequencia = sequencia;
+        this.corpo = corpo;
+        this.retidaEm = retidaEm;
+    }
+
+    public int getRemetente() { return remetente; }
+    public String getGrupo() { return grupo; }
+    public long getRelogio() { return relogio; }
+    public int getSequencia() { return sequencia; }
+    public byte[] getCorpo() { return corpo; }
+
+    public String getCorpoTexto() {
+        return new String(corpo, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d de P%d-%s (relógio=%s, %d bytes)",
+                sequencia, remetente, grupo, RelogioHibrido.formatar(relogio), corpo.length);
+    }
+}
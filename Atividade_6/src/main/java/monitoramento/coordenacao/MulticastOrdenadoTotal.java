@@ -0,0 +1,315 @@
+package monitoramento.coordenacao;
+
+import monitoramento.comum.HistogramaLatencia;
+import monitoramento.comum.RelogioHibrido;
+import monitoramento.rastreio.RastreadorCausal;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Multicast com ordem total (algoritmo de Lamport sobre o relógio híbrido).
+ * Cada mensagem fica retida até ficar estável: todos os participantes ativos já
+ * anunciaram um relógio maior ou igual ao dela, e todas as mensagens que cada um
+ * enviou antes do anúncio já chegaram. Nenhuma mensagem anterior na ordem
+ * (relógio, remetente) pode mais aparecer, então a entrega segue essa ordem, a
+ * mesma em todos os nós.
+ *
+ * O canal confiável não garante FIFO. Por isso cada mensagem leva sua sequência
+ * no fluxo do remetente, e cada confirmação leva quantas mensagens o remetente
+ * já enviou. Uma confirmação só passa a valer quando essas mensagens chegaram.
+ * As confirmações são acumuladas: uma por janela de 10ms cobre tudo o que
+ * chegou na janela, e uma mensagem enviada também confirma.
+ * Sem tráfego, a confirmação periódica serve de batimento. Participantes em
+ * silêncio por mais de 3s deixam de ser esperados.
+ *
+ * Todo o estado pertence a uma única thread. O callback de entrega roda nela e deve ser rápido.
+ */
+public class MulticastOrdenadoTotal {
+    private static final long INTERVALO_CONFIRMACAO_MS = 10;
+    private static final long INTERVALO_BATIMENTO_MS = 500;
+    private static final long INTERVALO_MANUTENCAO_MS = 100;
+    private static final long SILENCIO_MAXIMO_MS = 3000;
+    // Mensagem faltante (perdida apesar dos NACKs) deixa de bloquear o fluxo do remetente
+    private static final long TIMEOUT_LACUNA_MS = 3000;
+    // Antes de entregar, espera os batimentos dos participantes já existentes
+    private static final long JANELA_DESCOBERTA_MS = 2 * INTERVALO_BATIMENTO_MS;
+
+    private final int idNo;
+    private final String grupo;
+    private final RelogioHibrido relogio;
+    private final String enderecoGrupo;
+    private final int porta;
+    private final Consumer<MensagemOrdenada> entrega;
+    private final EmissorMulticast emissor = EmissorMulticast.getInstancia();
+    private final RastreadorCausal rastreador;
+    private final ScheduledExecutorService executor;
+    private OuvinteMulticast ouvinte;
+
+    // Estado da thread do executor
+    private final PriorityQueue<MensagemOrdenada> retidas = new PriorityQueue<>(MensagemOrdenada.ORDEM);
+    private final Map<Integer, Participante> participantes = new HashMap<>();
+    private int enviadas;
+    private boolean confirmacaoPendente;
+    private long ultimoEnvio;
+    private long inicio;
+    private MensagemOrdenada ultimaEntregue;
+
+    // Estatísticas (lidas de outras threads)
+    private final AtomicLong entregues = new AtomicLong(0);
+    private final AtomicLong confirmacoesEnviadas = new AtomicLong(0);
+    private final AtomicLong tardias = new AtomicLong(0);
+    private final AtomicLong perdidas = new AtomicLong(0);
+    private final HistogramaLatencia retencao = new HistogramaLatencia();
+    private volatile int quantidadeRetidas;
+    private volatile int quantidadeParticipantes;
+
+    /**
+     * @param entrega chamado na ordem total, na thread do serviço
+     */
+    public MulticastOrdenadoTotal(int idNo, String grupo, RelogioHibrido relogio, String enderecoGrupo, int porta,
+                                  Consumer<MensagemOrdenada> entrega) {
+        this.idNo = idNo;
+        this.grupo = grupo;
+        this.relogio = relogio;
+        this.enderecoGrupo = enderecoGrupo;
+        this.porta = porta;
+        this.entrega = entrega;
+        this.rastreador = RastreadorCausal.para(idNo);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ordem-total-P" + idNo);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void iniciar() {
+        if (ouvinte != null) return;
+        inicio = System.currentTimeMillis();
+        ouvinte = new OuvinteMulticast(porta, enderecoGrupo,
+                FiltroEnvelope.porTipo(TipoMensagem.ORDENADA, TipoMensagem.CONFIRMACAO_ORDEM)
+                        .e(FiltroEnvelope.excetoRemetente(idNo)),
+                envelope -> executar(() -> receber(envelope)));
+        new Thread(ouvinte).start();
+        executor.scheduleWithFixedDelay(this::manter, INTERVALO_MANUTENCAO_MS, INTERVALO_MANUTENCAO_MS,
+                TimeUnit.MILLISECONDS);
+        System.out.printf("[ORDEM TOTAL P%d-%s] Iniciado em %s:%d%n", idNo, grupo, enderecoGrupo, porta);
+    }
+
+    public synchronized void parar() {
+        if (ouvinte != null) ouvinte.parar();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Envia a mensagem a todos os participantes, inclusive este nó; a entrega
+     * (também a local) acontece quando ela fica estável
+     */
+    public void multicast(byte[] corpo) {
+        executar(() -> enviar(corpo));
+    }
+
+    private void executar(Runnable tarefa) {
+        try {
+            executor.execute(tarefa);
+        } catch (RejectedExecutionException e) {
+            // Serviço parado: o nó está encerrando
+        }
+    }
+
+    // ---- Thread do serviço ----
+
+    private void enviar(byte[] corpo) {
+        long relogioEnvio = relogio.tick();
+        int sequencia = ++enviadas;
+        retidas.add(new MensagemOrdenada(idNo, grupo, relogioEnvio, sequencia, corpo, System.nanoTime()));
+
+        byte[] dados = ByteBuffer.allocate(4 + corpo.length).putInt(sequencia).put(corpo).array();
+        emissor.enviar(new EnvelopeMulticast(TipoMensagem.ORDENADA, 0, idNo, grupo, relogioEnvio, 0, 0, 0, dados)
+                .comContexto(rastreador.registrarEnvio(TipoMensagem.ORDENADA.name())), enderecoGrupo, porta);
+        // A própria mensagem confirma tudo o que chegou antes dela
+        confirmacaoPendente = false;
+        ultimoEnvio = System.currentTimeMillis();
+        tentarEntregar();
+    }
+
+    private void enviarConfirmacao() {
+        emissor.enviar(new EnvelopeMulticast(TipoMensagem.CONFIRMACAO_ORDEM, 0, idNo, grupo, relogio.tick(), 0, 0, 0,
+                ByteBuffer.allocate(4).putInt(enviadas).array()), enderecoGrupo, porta);
+        confirmacoesEnviadas.incrementAndGet();
+        confirmacaoPendente = false;
+        ultimoEnvio = System.currentTimeMillis();
+    }
+
+    private void receber(EnvelopeMulticast envelope) {
+        ByteBuffer corpo = ByteBuffer.wrap(envelope.getCorpo());
+        if (corpo.remaining() < 4) return;
+
+        relogio.receber(envelope.getRelogio());
+        int remetente = envelope.getRemetente();
+
+        if (envelope.getTipo() == TipoMensagem.CONFIRMACAO_ORDEM) {
+            int enviadasRemetente = corpo.getInt();
+            Participante participante = participante(remetente, enviadasRemetente);
+            participante.marcas.merge(enviadasRemetente, envelope.getRelogio(), Math::max);
+            participante.avancar();
+        } else {
+            rastreador.registrarRecebimento(TipoMensagem.ORDENADA.name(), envelope.getContextoCausal());
+            int sequencia = corpo.getInt();
+            Participante participante = participante(remetente, sequencia - 1);
+            if (sequencia <= participante.contigua || !participante.adiantadas.add(sequencia)) {
+                return; // cópia repetida
+            }
+            participante.marcas.merge(sequencia, envelope.getRelogio(), Math::max);
+            participante.avancar();
+            reter(new MensagemOrdenada(remetente, envelope.getGrupo(), envelope.getRelogio(), sequencia,
+                    Arrays.copyOfRange(envelope.getCorpo(), 4, envelope.getCorpo().length), System.nanoTime()));
+            agendarConfirmacao();
+        }
+        tentarEntregar();
+    }
+
+    private void reter(MensagemOrdenada mensagem) {
+        if (ultimaEntregue != null && MensagemOrdenada.ORDEM.compare(mensagem, ultimaEntregue) < 0) {
+            // Remetente que ficou em silêncio e voltou com mensagens antigas: entregá-las quebraria a ordem
+            tardias.incrementAndGet();
+            System.out.printf("[ORDEM TOTAL P%d-%s] Mensagem %s chegou depois de entregas posteriores, descartada%n",
+                    idNo, grupo, mensagem);
+            return;
+        }
+        retidas.add(mensagem);
+    }
+
+    /**
+     * Uma confirmação por janela cobre todas as mensagens recebidas nela
+     */
+    private void agendarConfirmacao() {
+        if (confirmacaoPendente) return;
+        confirmacaoPendente = true;
+        executor.schedule(() -> {
+            if (confirmacaoPendente) enviarConfirmacao();
+        }, INTERVALO_CONFIRMACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private Participante participante(int id, int contiguaInicial) {
+        Participante participante = participantes.get(id);
+        if (participante == null) {
+            // Primeiro contato: o que ele enviou antes não é esperado
+            participante = new Participante(contiguaInicial);
+            participantes.put(id, participante);
+            System.out.printf("[ORDEM TOTAL P%d-%s] Participante P%d incluído%n", idNo, grupo, id);
+        }
+        participante.ultimoContato = System.currentTimeMillis();
+        return participante;
+    }
+
+    private void tentarEntregar() {
+        long agora = System.currentTimeMillis();
+        if (agora - inicio >= JANELA_DESCOBERTA_MS) {
+            while (!retidas.isEmpty() && isEstavel(retidas.peek())) {
+                MensagemOrdenada mensagem = retidas.poll();
+                ultimaEntregue = mensagem;
+                entregues.incrementAndGet();
+                retencao.registrar(System.nanoTime() - mensagem.retidaEm);
+                try {
+                    entrega.accept(mensagem);
+                } catch (RuntimeException e) {
+                    System.err.printf("[ORDEM TOTAL P%d-%s] Erro ao entregar %s: %s%n", idNo, grupo, mensagem, e.getMessage());
+                }
+            }
+        }
+        quantidadeRetidas = retidas.size();
+    }
+
+    private boolean isEstavel(MensagemOrdenada mensagem) {
+        for (Participante participante : participantes.values()) {
+            if (participante.confirmado < mensagem.getRelogio()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Batimento, participantes em silêncio, lacunas esgotadas e entregas que eles destravam
+     */
+    private void manter() {
+        long agora = System.currentTimeMillis();
+        if (agora - ultimoEnvio >= INTERVALO_BATIMENTO_MS) {
+            enviarConfirmacao();
+        }
+
+        Iterator<Map.Entry<Integer, Participante>> it = participantes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Participante> entrada = it.next();
+            Participante participante = entrada.getValue();
+            if (agora - participante.ultimoContato > SILENCIO_MAXIMO_MS) {
+                it.remove();
+                System.out.printf("[ORDEM TOTAL P%d-%s] P%d em silêncio há %dms, deixa de ser esperado%n",
+                        idNo, grupo, entrada.getKey(), agora - participante.ultimoContato);
+            } else if (participante.lacunaDesde > 0 && agora - participante.lacunaDesde > TIMEOUT_LACUNA_MS) {
+                int primeira = participante.adiantadas.first();
+                perdidas.addAndGet(primeira - participante.contigua - 1);
+                System.out.printf("[ORDEM TOTAL P%d-%s] Mensagens #%d a #%d de P%d perdidas, seguindo sem elas%n",
+                        idNo, grupo, participante.contigua + 1, primeira - 1, entrada.getKey());
+                participante.contigua = primeira - 1;
+                participante.avancar();
+            }
+        }
+        quantidadeParticipantes = participantes.size();
+        tentarEntregar();
+    }
+
+    // Estatísticas
+    public long getEntregues() { return entregues.get(); }
+    public int getRetidas() { return quantidadeRetidas; }
+    public int getParticipantes() { return quantidadeParticipantes; }
+    public long getConfirmacoesEnviadas() { return confirmacoesEnviadas.get(); }
+    public long getTardias() { return tardias.get(); }
+    public long getPerdidas() { return perdidas.get(); }
+    public HistogramaLatencia getRetencao() { return retencao; }
+
+    /**
+     * Fluxo de um participante remoto
+     */
+    private static class Participante {
+        // Maior sequência até a qual todas as mensagens chegaram
+        private int contigua;
+        private final TreeSet<Integer> adiantadas = new TreeSet<>();
+        // Relógio anunciado por quantidade de mensagens enviadas, à espera dessas mensagens
+        private final TreeMap<Integer, Long> marcas = new TreeMap<>();
+        // Maior relógio anunciado com todas as mensagens anteriores já recebidas
+        private long confirmado;
+        private long ultimoContato;
+        // Desde quando há mensagem faltante (zero: nenhuma)
+        private long lacunaDesde;
+
+        private Participante(int contiguaInicial) {
+            this.contigua = Math.max(0, contiguaInicial);
+        }
+
+        private void avancar() {
+            while (adiantadas.remove(contigua + 1)) {
+                contigua++;
+            }
+            while (!marcas.isEmpty() && marcas.firstKey() <= contigua) {
+                confirmado = Math.max(confirmado, marcas.pollFirstEntry().getValue());
+            }
+            if (adiantadas.isEmpty()) {
+                lacunaDesde = 0;
+            } else if (lacunaDesde == 0) {
+                lacunaDesde = System.currentTimeMillis();
+            }
+        }
+    }
+}
@@ -1,219 +1,145 @@
 package monitoramento.coordenacao;
 
-import java.net.*;
+import monitoramento.comum.FilaLimitada;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Consumer;
-import java.util.Enumeration;
 
+/**
+ * Assinatura de um grupo multicast. O datagrama é recebido e decodificado uma
+ * única vez pelo {@link HubMulticast} do processo; este ouvinte só mantém seu
+ * filtro de cabeçalho, sua fila de entrega limitada e as threads que executam
+ * o callback, de modo que um callback lento não atrasa a recepção nem os
+ * demais assinantes.
+ */
 public class OuvinteMulticast implements Runnable {
+    private static final int CAPACIDADE_FILA = 1024;
+    private static final long ESPERA_OCIOSA_NS = 100_000_000L;
+
     private final int porta;
     private final String enderecoGrupo;
-    private final Consumer<String> callbackMensagem;
+    private final FiltroEnvelope filtro;
+    private final Consumer<EnvelopeMulticast> callbackMensagem;
+    private final int numeroTrabalhadores;
     private volatile boolean ativo = true;
-    private MulticastSocket socket;
 
-    // Cache da melhor interface
-    private static NetworkInterface interfaceEscolhida = null;
-    private static boolean interfaceTestada = false;
+    // Mensagens decodificadas aguardando as trabalhadoras
+    private final FilaLimitada<EnvelopeMulticast> fila = new FilaLimitada<>(CAPACIDADE_FILA);
+    private final List<Thread> trabalhadoras = new CopyOnWriteArrayList<>();
+    private int proximaTrabalhadora = 0;
 
+    // Estatísticas
+    private final AtomicLong recebidos = new AtomicLong(0);
+    private final AtomicLong processados = new AtomicLong(0);
+    private final AtomicLong descartados = new AtomicLong(0);
+
+    /**
+     * Ouvinte de texto: recebe o corpo de todas as mensagens do grupo
+     */
     public OuvinteMulticast(int porta, String enderecoGrupo, Consumer<String> callbackMensagem) {
+        this(porta, enderecoGrupo, FiltroEnvelope.todos(),
+                envelope -> callbackMensagem.accept(envelope.getCorpoTexto()));
+    }
+
+    public OuvinteMulticast(int porta, String enderecoGrupo, FiltroEnvelope filtro,
+                            Consumer<EnvelopeMulticast> callbackMensagem) {
+        // Uma trabalhadora preserva a ordem de entrega das mensagens
+        this(porta, enderecoGrupo, filtro, callbackMensagem, 1);
+    }
+
+    public OuvinteMulticast(int porta, String enderecoGrupo, FiltroEnvelope filtro,
+                            Consumer<EnvelopeMulticast> callbackMensagem, int numeroTrabalhadores) {
         this.porta = porta;
         this.enderecoGrupo = enderecoGrupo;
+        this.filtro = filtro;
         this.callbackMensagem = callbackMensagem;
+        this.numeroTrabalhadores = Math.max(1, numeroTrabalhadores);
     }
 
     @Override
     public void run() {
-        boolean conectado = false;
+        iniciarTrabalhadoras();
 
-        // ESTRATÉGIA 1: Tentar MulticastSocket com interface configurada
-        if (!conectado) {
-            conectado = tentarMulticastComInterface();
-        }
-
-        // ESTRATÉGIA 2: Tentar MulticastSocket simples
-        if (!conectado) {
-            conectado = tentarMulticastSimples();
-        }
-
-        // ESTRATÉGIA 3: Fallback para UDP simples (apenas localhost)
-        if (!conectado) {
-            conectado = tentarUDPFallback();
-        }
-
-        if (!conectado) {
+        if (!HubMulticast.assinar(this)) {
             System.err.printf("[OUVINTE] ❌ FALHA TOTAL ao conectar no grupo %s:%d%n", enderecoGrupo, porta);
+            parar();
             return;
         }
 
-        // Loop principal de recepção
-        escutarMensagens();
+        System.out.printf("[OUVINTE] 👂 Inscrito no grupo %s:%d%n", enderecoGrupo, porta);
     }
 
-    private boolean tentarMulticastComInterface() {
-        try {
-            socket = new MulticastSocket(porta);
-            InetAddress grupo = InetAddress.getByName(enderecoGrupo);
-
-            // Configurar interface
-            NetworkInterface ni = obterMelhorInterface();
-            if (ni != null) {
-                socket.setNetworkInterface(ni);
-                System.out.printf("[OUVINTE] Usando interface: %s%n", ni.getDisplayName());
-            }
-
-            socket.joinGroup(grupo);
-            System.out.printf("[OUVINTE] ✅ Conectado via MulticastSocket+Interface no grupo %s:%d%n",
-                    enderecoGrupo, porta);
-            return true;
-
-        } catch (Exception e) {
-            System.err.printf("[OUVINTE] Estratégia 1 falhou: %s%n", e.getMessage());
-            fecharSocket();
-            return false;
+    private synchronized void iniciarTrabalhadoras() {
+        for (int i = 0; i < numeroTrabalhadores; i++) {
+            Thread trabalhadora = new Thread(this::processarFila,
+                    String.format("ouvinte-%s:%d-t%d", enderecoGrupo, porta, i));
+            trabalhadora.setDaemon(true);
+            trabalhadoras.add(trabalhadora);
+            trabalhadora.start();
         }
     }
 
-    private boolean tentarMulticastSimples() {
-        try {
-            socket = new MulticastSocket(porta);
-            InetAddress grupo = InetAddress.getByName(enderecoGrupo);
-            socket.joinGroup(grupo);
-
-            System.out.printf("[OUVINTE] ✅ Conectado via MulticastSocket simples no grupo %s:%d%n",
-                    enderecoGrupo, porta);
-            return true;
-
-        } catch (Exception e) {
-            System.err.printf("[OUVINTE] Estratégia 2 falhou: %s%n", e.getMessage());
-            fecharSocket();
-            return false;
+    /**
+     * Chamado pela thread de despacho do hub; nunca bloqueia
+     */
+    void entregar(EnvelopeMulticast mensagem) {
+        if (!ativo) return;
+        recebidos.incrementAndGet();
+
+        if (fila.oferecer(mensagem)) {
+            acordarTrabalhadora();
+        } else {
+            long total = descartados.incrementAndGet();
+            if ((total & (total - 1)) == 0) { // Loga em potências de 2 para não inundar a saída
+                System.err.printf("[OUVINTE] ⚠ Fila cheia em %s:%d, %d mensagens descartadas%n",
+                        enderecoGrupo, porta, total);
+            }
         }
     }
 
-    private boolean tentarUDPFallback() {
-        try {
-            // Para UDP simples, apenas criar DatagramSocket na porta
-            DatagramSocket udpSocket = new DatagramSocket(porta);
-
-            // Converter para MulticastSocket para manter compatibilidade
-            udpSocket.close();
-            socket = new MulticastSocket(porta);
-
-            System.out.printf("[OUVINTE] ✅ Conectado via UDP fallback na porta %d%n", porta);
-            return true;
-
-        } catch (Exception e) {
-            System.err.printf("[OUVINTE] Estratégia 3 (UDP fallback) falhou: %s%n", e.getMessage());
-            fecharSocket();
-            return false;
-        }
+    private void acordarTrabalhadora() {
+        Thread trabalhadora = trabalhadoras.get(proximaTrabalhadora);
+        proximaTrabalhadora = (proximaTrabalhadora + 1) % trabalhadoras.size();
+        LockSupport.unpark(trabalhadora);
     }
 
-    private void escutarMensagens() {
-        byte[] buffer = new byte[8192]; // Buffer maior para relatórios
-
-        System.out.printf("[OUVINTE] 👂 Escutando mensagens no grupo %s:%d...%n", enderecoGrupo, porta);
-
+    /**
+     * Laço das trabalhadoras: executa o callback fora da thread do hub
+     */
+    private void processarFila() {
         while (ativo) {
-            try {
-                DatagramPacket pacote = new DatagramPacket(buffer, buffer.length);
-                socket.receive(pacote);
-
-                String mensagem = new String(pacote.getData(), 0, pacote.getLength(), "UTF-8");
-
-                System.out.printf("[OUVINTE] 📨 Mensagem recebida (%d bytes) de %s%n",
-                        pacote.getLength(), pacote.getSocketAddress());
-
-                if (callbackMensagem != null) {
-                    callbackMensagem.accept(mensagem);
-                }
-
-            } catch (SocketTimeoutException e) {
-                // Timeout normal, continuar
-            } catch (SocketException e) {
-                if (ativo) {
-                    System.err.printf("[OUVINTE] Erro no socket: %s%n", e.getMessage());
-                }
-                break;
-            } catch (Exception e) {
-                if (ativo) {
-                    System.err.printf("[OUVINTE] Erro ao receber mensagem: %s%n", e.getMessage());
-                }
-            }
-        }
-
-        fecharSocket();
-        System.out.printf("[OUVINTE] 👋 Ouvinte encerrado para %s:%d%n", enderecoGrupo, porta);
-    }
-
-    private synchronized NetworkInterface obterMelhorInterface() {
-        if (interfaceTestada) {
-            return interfaceEscolhida;
-        }
-
-        try {
-            // Tentar loopback primeiro
-            String[] nomesLoopback = {"lo", "lo0", "Loopback", "loopback"};
-            for (String nome : nomesLoopback) {
-                try {
-                    NetworkInterface ni = NetworkInterface.getByName(nome);
-                    if (ni != null && ni.supportsMulticast() && ni.isUp()) {
-                        interfaceEscolhida = ni;
-                        interfaceTestada = true;
-                        return interfaceEscolhida;
-                    }
-                } catch (Exception e) {
-                    // Continuar
-                }
+            EnvelopeMulticast mensagem = fila.retirar();
+            if (mensagem == null) {
+                LockSupport.parkNanos(this, ESPERA_OCIOSA_NS);
+                continue;
             }
 
-            // Tentar por índice
             try {
-                NetworkInterface ni = NetworkInterface.getByIndex(1);
-                if (ni != null && ni.supportsMulticast() && ni.isUp() && ni.isLoopback()) {
-                    interfaceEscolhida = ni;
-                    interfaceTestada = true;
-                    return interfaceEscolhida;
+                if (callbackMensagem != null) {
+                    callbackMensagem.accept(mensagem);
                 }
+                processados.incrementAndGet();
             } catch (Exception e) {
-                // Continuar
-            }
-
-            // Procurar qualquer interface multicast
-            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
-            while (interfaces.hasMoreElements()) {
-                NetworkInterface ni = interfaces.nextElement();
-                if (ni.supportsMulticast() && ni.isUp() && !ni.isVirtual()) {
-                    if (ni.isLoopback()) {
-                        interfaceEscolhida = ni;
-                        break;
-                    }
-                    if (interfaceEscolhida == null) {
-                        interfaceEscolhida = ni;
-                    }
-                }
+                System.err.printf("[OUVINTE] Erro ao processar mensagem: %s%n", e.getMessage());
             }
-
-        } catch (Exception e) {
-            System.err.printf("[OUVINTE] Erro ao detectar interface: %s%n", e.getMessage());
-        }
-
-        interfaceTestada = true;
-        return interfaceEscolhida;
-    }
-
-    private void fecharSocket() {
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-        } catch (Exception e) {
-            // Ignorar erro de fechamento
         }
     }
 
     public void parar() {
         this.ativo = false;
-        fecharSocket();
+        HubMulticast.cancelar(this);
+        trabalhadoras.forEach(LockSupport::unpark);
+        System.out.printf("[OUVINTE] 👋 Ouvinte encerrado para %s:%d%n", enderecoGrupo, porta);
     }
-}
\ No newline at end of file
+
+    FiltroEnvelope getFiltro() { return filtro; }
+
+    public int getPorta() { return porta; }
+    public String getEnderecoGrupo() { return enderecoGrupo; }
+    public long getRecebidos() { return recebidos.get(); }
+    public long getProcessados() { return processados.get(); }
+    public long getDescartados() { return descartados.get(); }
+}
@@ -0,0 +1,210 @@
+package monitoramento.coordenacao;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lado receptor do canal multicast confiável, um por {@link HubMulticast}.
+ * Acompanha a sequência de cada remetente, descarta cópias repetidas,
+ * detecta lacunas (por mensagens fora de ordem ou anúncios de sequência) e
+ * pede as mensagens faltantes por NACK até um limite de tentativas.
+ */
+class ReceptorConfiavel {
+    // Sequências mais distantes que isto indicam um remetente reiniciado
+    private static final int JANELA = 1024;
+    private static final long INTERVALO_VERIFICACAO_MS = 100;
+    private static final long INTERVALO_NACK_MS = 200;
+    private static final int MAXIMO_TENTATIVAS_NACK = 5;
+    private static final int MAXIMO_SEQUENCIAS_POR_NACK = 64;
+
+    // Uma thread verifica as lacunas de todos os hubs do processo
+    private static final ScheduledExecutorService verificador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "receptor-confiavel-nacks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String enderecoGrupo;
+    private final int porta;
+    private final Map<Integer, Fluxo> fluxos = new HashMap<>(); // protegido por this
+    private final ScheduledFuture<?> tarefaVerificacao;
+
+    // Estatísticas
+    private final AtomicLong duplicadas = new AtomicLong(0);
+    private final AtomicLong recuperadas = new AtomicLong(0);
+    private final AtomicLong perdidas = new AtomicLong(0);
+    private final AtomicLong nacksEnviados = new AtomicLong(0);
+
+    ReceptorConfiavel(String enderecoGrupo, int porta) {
+        this.enderecoGrupo = enderecoGrupo;
+        this.porta = porta;
+        this.tarefaVerificacao = verificador.scheduleAtFixedRate(this::verificarLacunas,
+                INTERVALO_VERIFICACAO_MS, INTERVALO_VERIFICACAO_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Processa a parte confiável de um datagrama, lendo apenas o cabeçalho
+     * @return false se o datagrama não deve ser entregue (cópia repetida ou controle)
+     */
+    boolean filtrar(byte[] dados) {
+        if (!EnvelopeMulticast.isEnvelope(dados)) return true;
+
+        int tipo = EnvelopeMulticast.lerCodigoTipo(dados);
+        if (tipo == TipoMensagem.ANUNCIO_SEQUENCIA.getCodigo()) {
+            registrarAnuncio(EnvelopeMulticast.lerRemetente(dados), EnvelopeMulticast.lerSequencia(dados));
+            return false;
+        }
+        if (tipo == TipoMensagem.NACK.getCodigo() || !EnvelopeMulticast.isConfiavel(dados)) {
+            return true;
+        }
+        return aceitar(EnvelopeMulticast.lerRemetente(dados), EnvelopeMulticast.lerSequencia(dados));
+    }
+
+    private synchronized boolean aceitar(int remetente, int sequencia) {
+        Fluxo fluxo = fluxos.get(remetente);
+        if (fluxo == null || Math.abs(sequencia - fluxo.contigua) > JANELA) {
+            // Primeiro contato ou remetente reiniciado: não há histórico a recuperar
+            fluxos.put(remetente, new Fluxo(sequencia));
+            return true;
+        }
+
+        if (sequencia <= fluxo.contigua || fluxo.adiantadas.contains(sequencia)) {
+            duplicadas.incrementAndGet();
+            return false;
+        }
+
+        if (fluxo.faltantes.remove(sequencia) != null) {
+            recuperadas.incrementAndGet();
+        }
+
+        if (sequencia == fluxo.contigua + 1) {
+            fluxo.contigua = sequencia;
+            fluxo.avancar();
+        } else {
+            fluxo.adiantadas.add(sequencia);
+            fluxo.marcarFaltantes(sequencia - 1);
+        }
+        return true;
+    }
+
+    private synchronized void registrarAnuncio(int remetente, int maiorSequencia) {
+        Fluxo fluxo = fluxos.get(remetente);
+        if (fluxo == null || Math.abs(maiorSequencia - fluxo.contigua) > JANELA) {
+            fluxos.put(remetente, new Fluxo(maiorSequencia));
+            return;
+        }
+        fluxo.marcarFaltantes(maiorSequencia);
+    }
+
+    /**
+     * Envia NACKs das lacunas pendentes e desiste das que esgotaram as tentativas
+     */
+    private void verificarLacunas() {
+        long agora = System.currentTimeMillis();
+        Map<Integer, List<Integer>> pedidos = new HashMap<>();
+
+        synchronized (this) {
+            for (Map.Entry<Integer, Fluxo> entrada : fluxos.entrySet()) {
+                Fluxo fluxo = entrada.getValue();
+                if (fluxo.faltantes.isEmpty()) continue;
+
+                Iterator<Map.Entry<Integer, Lacuna>> it = fluxo.faltantes.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Integer, Lacuna> faltante = it.next();
+                    Lacuna lacuna = faltante.getValue();
+                    if (agora - lacuna.ultimoNack < INTERVALO_NACK_MS) continue;
+
+                    if (lacuna.tentativas >= MAXIMO_TENTATIVAS_NACK) {
+                        // Desiste: conta como perdida para a sequência contígua avançar
+                        it.remove();
+                        fluxo.adiantadas.add(faltante.getKey());
+                        perdidas.incrementAndGet();
+                        continue;
+                    }
+
+                    List<Integer> sequencias = pedidos.computeIfAbsent(entrada.getKey(), k -> new ArrayList<>());
+                    if (sequencias.size() < MAXIMO_SEQUENCIAS_POR_NACK) {
+                        lacuna.tentativas++;
+                        lacuna.ultimoNack = agora;
+                        sequencias.add(faltante.getKey());
+                    }
+                }
+                fluxo.avancar();
+            }
+        }
+
+        pedidos.forEach(this::enviarNack);
+    }
+
+    private void enviarNack(int remetente, List<Integer> sequencias) {
+        ByteBuffer corpo = ByteBuffer.allocate(6 + 4 * sequencias.size());
+        corpo.putInt(remetente).putShort((short) sequencias.size());
+        sequencias.forEach(corpo::putInt);
+
+        try {
+            EmissorMulticast.getInstancia().enviar(new EnvelopeMulticast(TipoMensagem.NACK, 0, 0, "",
+                    0, 0, 0, 0, corpo.array()), enderecoGrupo, porta);
+            nacksEnviados.incrementAndGet();
+            System.out.printf("[CONFIÁVEL] NACK para P%d em %s:%d: %s%n", remetente, enderecoGrupo, porta, sequencias);
+        } catch (Exception e) {
+            System.err.printf("[CONFIÁVEL] Erro ao enviar NACK: %s%n", e.getMessage());
+        }
+    }
+
+    void encerrar() {
+        tarefaVerificacao.cancel(false);
+    }
+
+    long getDuplicadas() { return duplicadas.get(); }
+    long getRecuperadas() { return recuperadas.get(); }
+    long getPerdidas() { return perdidas.get(); }
+    long getNacksEnviados() { return nacksEnviados.get(); }
+
+    /**
+     * Estado de recepção de um remetente
+     */
+    private static class Fluxo {
+        // Maior sequência até a qual tudo foi recebido (ou dado como perdido)
+        private int contigua;
+        private final Set<Integer> adiantadas = new HashSet<>();
+        private final TreeMap<Integer, Lacuna> faltantes = new TreeMap<>();
+
+        private Fluxo(int sequenciaInicial) {
+            this.contigua = sequenciaInicial;
+        }
+
+        private void avancar() {
+            while (adiantadas.remove(contigua + 1)) {
+                contigua++;
+            }
+        }
+
+        /**
+         * Registra como faltantes as sequências não recebidas até o limite informado
+         */
+        private void marcarFaltantes(int ate) {
+            for (int s = contigua + 1; s <= ate; s++) {
+                if (!adiantadas.contains(s)) {
+                    faltantes.putIfAbsent(s, new Lacuna());
+                }
+            }
+        }
+    }
+
+    private static class Lacuna {
+        private int tentativas = 0;
+        private long ultimoNack = 0;
+    }
+}
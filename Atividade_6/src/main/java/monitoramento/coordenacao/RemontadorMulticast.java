@@ -0,0 +1,146 @@
+package monitoramento.coordenacao;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remonta mensagens fragmentadas pelo {@link FragmentadorMulticast} com memória
+ * limitada: no máximo N mensagens parciais e um teto de bytes pendentes.
+ * Mensagens incompletas expiram após o timeout; ao estourar os limites,
+ * as parciais mais antigas são descartadas.
+ */
+public class RemontadorMulticast {
+    private final int maximoMensagensPendentes;
+    private final long maximoBytesPendentes;
+    // Mais fragmentos que isso não caberiam no teto de bytes; o total vem do cabeçalho
+    // e dimensiona a tabela de partes, então é limitado antes de alocá-la
+    private final int maximoFragmentos;
+    private final long timeoutMs;
+
+    // Mensagens parciais em ordem de chegada (a mais antiga primeiro)
+    private final LinkedHashMap<Long, MensagemParcial> pendentes = new LinkedHashMap<>();
+    private long bytesPendentes = 0;
+
+    // Estatísticas
+    private final AtomicLong remontadas = new AtomicLong(0);
+    private final AtomicLong descartadas = new AtomicLong(0);
+
+    public RemontadorMulticast() {
+        this(64, 4L * 1024 * 1024, 5000);
+    }
+
+    public RemontadorMulticast(int maximoMensagensPendentes, long maximoBytesPendentes, long timeoutMs) {
+        this.maximoMensagensPendentes = maximoMensagensPendentes;
+        this.maximoBytesPendentes = maximoBytesPendentes;
+        this.maximoFragmentos = (int) Math.min(FragmentadorMulticast.MAXIMO_FRAGMENTOS,
+                (maximoBytesPendentes + FragmentadorMulticast.TAMANHO_MAXIMO_DADOS - 1) / FragmentadorMulticast.TAMANHO_MAXIMO_DADOS);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Processa um datagrama recebido.
+     * @return a mensagem completa (o próprio datagrama se não for fragmento),
+     *         ou null enquanto faltarem fragmentos
+     */
+    public synchronized byte[] receber(byte[] quadro) {
+        if (!FragmentadorMulticast.isFragmento(quadro, quadro.length)) {
+            return quadro;
+        }
+
+        long agora = System.currentTimeMillis();
+        expirar(agora);
+
+        long idMensagem = FragmentadorMulticast.lerIdMensagem(quadro);
+        int indice = FragmentadorMulticast.lerIndice(quadro);
+        int total = FragmentadorMulticast.lerTotal(quadro);
+        if (total == 0 || total > maximoFragmentos || indice >= total) {
+            return null;
+        }
+
+        MensagemParcial parcial = pendentes.get(idMensagem);
+        if (parcial == null) {
+            parcial = new MensagemParcial(total, agora);
+            pendentes.put(idMensagem, parcial);
+        }
+        if (parcial.total != total || parcial.partes[indice] != null) {
+            return null; // Inconsistente ou duplicado
+        }
+
+        byte[] dados = Arrays.copyOfRange(quadro, FragmentadorMulticast.TAMANHO_CABECALHO, quadro.length);
+        parcial.partes[indice] = dados;
+        parcial.recebidas++;
+        parcial.bytes += dados.length;
+        bytesPendentes += dados.length;
+
+        if (parcial.recebidas < parcial.total) {
+            aplicarLimites(idMensagem);
+            return null;
+        }
+
+        pendentes.remove(idMensagem);
+        bytesPendentes -= parcial.bytes;
+        remontadas.incrementAndGet();
+        return parcial.juntar();
+    }
+
+    private void expirar(long agora) {
+        Iterator<Map.Entry<Long, MensagemParcial>> it = pendentes.entrySet().iterator();
+        while (it.hasNext()) {
+            MensagemParcial parcial = it.next().getValue();
+            if (agora - parcial.criadaEm < timeoutMs) {
+                break; // As demais são mais recentes
+            }
+            descartar(it, parcial);
+        }
+    }
+
+    /**
+     * Descarta as parciais mais antigas (exceto a atual) até respeitar os limites
+     */
+    private void aplicarLimites(long idAtual) {
+        Iterator<Map.Entry<Long, MensagemParcial>> it = pendentes.entrySet().iterator();
+        while ((pendentes.size() > maximoMensagensPendentes || bytesPendentes > maximoBytesPendentes)
+                && it.hasNext()) {
+            Map.Entry<Long, MensagemParcial> entrada = it.next();
+            if (entrada.getKey() == idAtual && pendentes.size() > 1) continue;
+            descartar(it, entrada.getValue());
+        }
+    }
+
+    private void descartar(Iterator<Map.Entry<Long, MensagemParcial>> it, MensagemParcial parcial) {
+        it.remove();
+        bytesPendentes -= parcial.bytes;
+        descartadas.incrementAndGet();
+    }
+
+    public long getRemontadas() { return remontadas.get(); }
+    public long getDescartadas() { return descartadas.get(); }
+    public synchronized int getPendentes() { return pendentes.size(); }
+
+    private static class MensagemParcial {
+        private final int total;
+        private final long criadaEm;
+        private final byte[][] partes;
+        private int recebidas = 0;
+        private long bytes = 0;
+
+        private MensagemParcial(int total, long criadaEm) {
+            this.total = total;
+            this.criadaEm = criadaEm;
+            this.partes = new byte[total][];
+        }
+
+        private byte[] juntar() {
+            byte[] completa = new byte[(int) bytes];
+            int posicao = 0;
+            for (byte[] parte : partes) {
+                System.arraycopy(parte, 0, completa, posicao, parte.length);
+                posicao += parte.length;
+            }
+            return completa;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 // Arquivo: src/main/java/monitoramento/coordenacao/SuperCoordenador.java
 package monitoramento.coordenacao;
 
+import monitoramento.comum.HistogramaLatencia;
 import monitoramento.comum.Recurso;
+import monitoramento.comum.RelogioHibrido;
+import monitoramento.comum.ResumoRecursos;
 import monitoramento.intergrupo.ComunicacaoIntergrupos;
+import monitoramento.intergrupo.LeituraRelogio;
+import monitoramento.intergrupo.RegistroGrupos;
+import monitoramento.intergrupo.StatusGrupo;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -14,11 +20,13 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
- * Classe responsável pela coordenação global entre grupos A e B
- * Implementa as funcionalidades do supercoordenador eleito
+ * Classe responsável pela coordenação global entre os grupos
+ * Implementa as funcionalidades do supercoordenador eleito; os grupos vêm do
+ * {@link RegistroGrupos} da comunicação intergrupos, à medida que são descobertos
  */
 public class SuperCoordenador {
 
@@ -29,7 +37,7 @@ public class SuperCoordenador {
     private final AtomicBoolean isSupercoordenador = new AtomicBoolean(false);
 
     // Dependências
-    private final Supplier<Integer> relogioSupplier;
+    private final RelogioHibrido relogio;
     private final Supplier<Boolean> isLiderLocalSupplier;
     private final Consumer<String> notificadorCallback;
     private final ComunicacaoIntergrupos comunicacaoIntergrupos;
@@ -40,8 +48,13 @@ public class SuperCoordenador {
     private final Map<String, ScheduledFuture<?>> tarefasAgendadas = new ConcurrentHashMap<>();
 
     // Estado global
-    private final Map<String, EstadoGrupo> estadosGrupos = new ConcurrentHashMap<>();
+    private final RegistroGrupos registroGrupos;
+    // Recursos de todos os nós, combinados a partir do resumo de cada grupo
+    private volatile ResumoRecursos visaoGlobal = new ResumoRecursos();
     private final AtomicInteger contadorSnapshots = new AtomicInteger(0);
+    // Última rodada de sincronização de relógios
+    private final AtomicInteger rodadasSincronizacao = new AtomicInteger(0);
+    private volatile String ultimaSincronizacao = "nenhuma rodada concluída";
     private final Map<String, Long> historicoSnapshots = new ConcurrentHashMap<>();
     private static final AtomicInteger contadorSupercoordenadores = new AtomicInteger(0);
     private static volatile Integer supercoordenadorGlobalAtivo = null;
@@ -51,23 +64,22 @@ public class SuperCoordenador {
     private static final int INTERVALO_SNAPSHOT_GLOBAL_SEGUNDOS = 120; // 2 minutos
     private static final int INTERVALO_SINCRONIZACAO_SEGUNDOS = 60;
     private static final int TIMEOUT_RESPOSTA_GRUPOS_MS = 10000;
+    // Desvio de relógio físico entre líderes a partir do qual a rodada gera alerta
+    private static final long LIMITE_DESVIO_RELOGIO_MS = 1000;
 
     public SuperCoordenador(int idNo, String tipoGrupo,
-                            Supplier<Integer> relogioSupplier,
+                            RelogioHibrido relogio,
                             Supplier<Boolean> isLiderLocalSupplier,
                             Consumer<String> notificadorCallback,
                             ComunicacaoIntergrupos comunicacaoIntergrupos) {
         this.idNo = idNo;
         this.tipoGrupo = tipoGrupo;
-        this.relogioSupplier = relogioSupplier;
+        this.relogio = relogio;
         this.isLiderLocalSupplier = isLiderLocalSupplier;
         this.notificadorCallback = notificadorCallback;
         this.comunicacaoIntergrupos = comunicacaoIntergrupos;
-        this.emissor = new EmissorMulticast();
-
-        // Inicializar estados dos grupos conhecidos
-        estadosGrupos.put("A", new EstadoGrupo("A"));
-        estadosGrupos.put("B", new EstadoGrupo("B"));
+        this.emissor = EmissorMulticast.getInstancia();
+        this.registroGrupos = comunicacaoIntergrupos.getRegistroGrupos();
 
         System.out.printf("[SUPER-COORD P%d-%s] SuperCoordenador inicializado%n", idNo, tipoGrupo);
     }
@@ -183,16 +195,20 @@ public class SuperCoordenador {
                     idNo, tipoGrupo);
 
             // Solicitar status de todos os grupos
-            comunicacaoIntergrupos.solicitarStatusIntergrupo();
+            Map<String, CompletableFuture<StatusGrupo>> respostas =
+                    comunicacaoIntergrupos.solicitarStatusGrupos(TIMEOUT_RESPOSTA_GRUPOS_MS);
 
             // Verificar ping dos grupos
             comunicacaoIntergrupos.enviarPingIntergrupo();
 
-            // Atualizar status dos grupos conhecidos
-            atualizarStatusGrupos();
-
-            // Verificar se há problemas críticos
-            verificarProblemasGlobais();
+            // Avaliar quando todos responderem (ou o prazo acabar), em vez de usar dados antigos
+            CompletableFuture.allOf(respostas.values().toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((r, erro) -> {
+                        if (!ativo.get()) return;
+                        registrarRespostasStatus(respostas);
+                        atualizarVisaoGlobal();
+                        verificarProblemasGlobais();
+                    });
 
         } catch (Exception e) {
             System.err.printf("[ERRO SUPER-COORD P%d-%s] Erro no monitoramento global: %s%n",
@@ -243,15 +259,15 @@ public class SuperCoordenador {
             System.out.printf("[SUPER-COORD P%d-%s] Executando sincronização entre grupos...%n",
                     idNo, tipoGrupo);
 
-            // Verificar se ambos os grupos estão ativos
+            // Verificar se todos os grupos descobertos estão ativos
             long agora = System.currentTimeMillis();
-            boolean grupoAAtivo = estadosGrupos.get("A").isAtivo(agora);
-            boolean grupoBAtivo = estadosGrupos.get("B").isAtivo(agora);
+            List<String> inativos = listarInativos(registroGrupos, agora);
 
-            if (!grupoAAtivo || !grupoBAtivo) {
-                System.out.printf("[SUPER-COORD P%d-%s] AVISO: Nem todos os grupos estão ativos (A:%s, B:%s)%n",
-                        idNo, tipoGrupo, grupoAAtivo, grupoBAtivo);
-                notificarEvento("GRUPOS DESSINCRONIZADOS - A:" + grupoAAtivo + " B:" + grupoBAtivo);
+            if (!inativos.isEmpty()) {
+                System.out.printf("[SUPER-COORD P%d-%s] AVISO: Nem todos os grupos estão ativos (%d/%d, inativos: %s)%n",
+                        idNo, tipoGrupo, registroGrupos.getQuantidade() - inativos.size(),
+                        registroGrupos.getQuantidade(), inativos);
+                notificarEvento("GRUPOS DESSINCRONIZADOS - inativos: " + String.join(",", inativos));
             }
 
             // Solicitar sincronização de relógios lógicos
@@ -264,26 +280,33 @@ public class SuperCoordenador {
     }
 
     /**
-     * Atualiza status dos grupos conhecidos
+     * Registra quem respondeu às solicitações de status; grupos que não responderam no prazo ficam inativos.
+     * As respostas em si já atualizaram o registro ao chegar.
      */
-    private void atualizarStatusGrupos() {
-        Map<Integer, ComunicacaoIntergrupos.InfoGrupoRemoto> gruposRemotosConhecidos =
-                comunicacaoIntergrupos.getGruposConhecidos();
+    private void registrarRespostasStatus(Map<String, CompletableFuture<StatusGrupo>> respostas) {
+        respostas.forEach((grupo, futuro) -> {
+            StatusGrupo status = futuro.isCompletedExceptionally() ? null : futuro.getNow(null);
+            if (status != null) {
+                System.out.printf("[SUPER-COORD P%d-%s] Grupo %s respondeu em %.1fms: %s%n",
+                        idNo, tipoGrupo, grupo, status.getRttNanos() / 1e6, status);
+            } else {
+                registroGrupos.registrarSemResposta(grupo);
+                System.out.printf("[SUPER-COORD P%d-%s] Grupo %s não respondeu em %dms%n",
+                        idNo, tipoGrupo, grupo, TIMEOUT_RESPOSTA_GRUPOS_MS);
+            }
+        });
+    }
 
+    /**
+     * Árvore de agregação: os líderes resumem os seus nós e aqui só se combinam os resumos dos grupos
+     */
+    private void atualizarVisaoGlobal() {
         long agora = System.currentTimeMillis();
-
-        // Atualizar cada grupo conhecido
-        for (ComunicacaoIntergrupos.InfoGrupoRemoto info : gruposRemotosConhecidos.values()) {
-            String tipoGrupoRemoto = info.getTipoGrupo();
-            EstadoGrupo estado = estadosGrupos.get(tipoGrupoRemoto);
-
-            if (estado != null) {
-                long tempoSemContato = agora - info.getUltimoContato();
-                estado.atualizarStatus(tempoSemContato < 30000); // 30 segundos de timeout
-                estado.setUltimaAtualizacao(info.getUltimoContato());
-                estado.setLiderAtual(info.getId());
-            }
-        }
+        visaoGlobal = registroGrupos.combinarResumos(agora);
+        System.out.printf("[SUPER-COORD P%d-%s] Visão global (%d grupos ativos): %s%n",
+                idNo, tipoGrupo, registroGrupos.contarAtivos(agora), visaoGlobal);
+        // Percentis da frota pelos sketches combinados, sem amostras brutas
+        System.out.printf("[SUPER-COORD P%d-%s] Percentis da frota: %s%n", idNo, tipoGrupo, visaoGlobal.percentis());
     }
 
     private void salvarRelatorio(String relatorio, String nomeArquivo) {
@@ -299,18 +322,7 @@ public class SuperCoordenador {
      * Verifica problemas críticos no sistema global
      */
     private void verificarProblemasGlobais() {
-        long agora = System.currentTimeMillis();
-        List<String> problemas = new ArrayList<>();
-
-        for (Map.Entry<String, EstadoGrupo> entry : estadosGrupos.entrySet()) {
-            String nomeGrupo = entry.getKey();
-            EstadoGrupo estado = entry.getValue();
-
-            if (!estado.isAtivo(agora)) {
-                problemas.add("Grupo " + nomeGrupo + " sem comunicação há " +
-                        ((agora - estado.getUltimaAtualizacao()) / 1000) + "s");
-            }
-        }
+        List<String> problemas = avaliarGrupos(registroGrupos, System.currentTimeMillis());
 
         if (!problemas.isEmpty()) {
             System.err.printf("[ALERTA SUPER-COORD P%d-%s] Problemas detectados:%n", idNo, tipoGrupo);
@@ -322,13 +334,111 @@ public class SuperCoordenador {
     }
 
     /**
-     * Sincroniza relógios lógicos entre grupos
+     * Problemas de comunicação dos grupos registrados, numa única passada pelos arrays do registro
+     */
+    static List<String> avaliarGrupos(RegistroGrupos registro, long agora) {
+        List<String> problemas = new ArrayList<>();
+        int quantidade = registro.getQuantidade();
+        for (int i = 0; i < quantidade; i++) {
+            if (!registro.isAtivo(i, agora)) {
+                long ultimoContato = registro.getUltimoContato(i);
+                problemas.add("Grupo " + registro.getNome(i) + (ultimoContato == 0 ? " nunca respondeu" :
+                        " sem comunicação há " + ((agora - ultimoContato) / 1000) + "s"));
+            }
+        }
+        return problemas;
+    }
+
+    static List<String> listarInativos(RegistroGrupos registro, long agora) {
+        List<String> inativos = new ArrayList<>();
+        int quantidade = registro.getQuantidade();
+        for (int i = 0; i < quantidade; i++) {
+            if (!registro.isAtivo(i, agora)) {
+                inativos.add(registro.getNome(i));
+            }
+        }
+        return inativos;
+    }
+
+    /**
+     * Uma linha por grupo registrado, com o histograma de RTT quando houver
+     */
+    static void anexarStatusGrupos(StringBuilder relatorio, RegistroGrupos registro, long agora,
+                                   Function<String, HistogramaLatencia> rttPorGrupo) {
+        int quantidade = registro.getQuantidade();
+        for (int i = 0; i < quantidade; i++) {
+            String nome = registro.getNome(i);
+            relatorio.append(String.format("  • Grupo %s: %s (P%d, %ds atrás, %d nós, cpu=%.2f, memória=%.2f)%n",
+                    nome, registro.isAtivo(i, agora) ? "ATIVO" : "INATIVO", registro.getLider(i),
+                    (agora - registro.getUltimoContato(i)) / 1000, registro.getMembros(i),
+                    registro.getUsoCpu(i), registro.getUsoMemoria(i)));
+            ResumoRecursos resumo = registro.getResumo(i);
+            if (resumo != null) {
+                relatorio.append(String.format("      Recursos do grupo: %s%n", resumo));
+            }
+            HistogramaLatencia rtt = rttPorGrupo.apply(nome);
+            if (rtt != null) {
+                relatorio.append(String.format("      RTT de status: %s%n", rtt.resumo()));
+            }
+        }
+    }
+
+    /**
+     * Rodada de sincronização dos relógios híbridos entre os líderes: coleta o relógio de
+     * cada grupo (o local avança a cada resposta) e, quando todos responderem ou o prazo
+     * acabar, anuncia o relógio combinado; ao recebê-lo, cada líder passa à frente dele.
+     * Os relógios físicos não são ajustados; o desvio de cada líder só é medido e alertado.
      */
     private void sincronizarRelogiosLogicos() {
-        // Implementar sincronização de Lamport entre grupos
-        // Por simplicidade, apenas notificamos sobre a sincronização
-        System.out.printf("[SUPER-COORD P%d-%s] Sincronização de relógios lógicos executada%n",
-                idNo, tipoGrupo);
+        long inicio = relogio.tick();
+        Map<String, CompletableFuture<LeituraRelogio>> leituras =
+                comunicacaoIntergrupos.sincronizarRelogios(TIMEOUT_RESPOSTA_GRUPOS_MS);
+        if (leituras.isEmpty()) {
+            System.out.printf("[SUPER-COORD P%d-%s] Sincronização de relógios: nenhum grupo remoto%n", idNo, tipoGrupo);
+            return;
+        }
+
+        CompletableFuture.allOf(leituras.values().toArray(new CompletableFuture<?>[0]))
+                .whenComplete((r, erro) -> {
+                    if (!ativo.get()) return;
+                    concluirSincronizacao(leituras, inicio);
+                });
+    }
+
+    private void concluirSincronizacao(Map<String, CompletableFuture<LeituraRelogio>> leituras, long inicio) {
+        int respostas = 0;
+        long maiorDesvio = 0;
+        List<String> dessincronizados = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<LeituraRelogio>> entrada : leituras.entrySet()) {
+            CompletableFuture<LeituraRelogio> futuro = entrada.getValue();
+            LeituraRelogio leitura = futuro.isCompletedExceptionally() ? null : futuro.getNow(null);
+            if (leitura == null) {
+                System.out.printf("[SUPER-COORD P%d-%s] Grupo %s não enviou o relógio em %dms%n",
+                        idNo, tipoGrupo, entrada.getKey(), TIMEOUT_RESPOSTA_GRUPOS_MS);
+                continue;
+            }
+            respostas++;
+            maiorDesvio = Math.max(maiorDesvio, Math.abs(leitura.getDesvioMs()));
+            if (Math.abs(leitura.getDesvioMs()) > LIMITE_DESVIO_RELOGIO_MS) {
+                dessincronizados.add(String.format("%s (%+dms)", entrada.getKey(), leitura.getDesvioMs()));
+            }
+            System.out.printf("[SUPER-COORD P%d-%s] Relógio do grupo %s: %s%n", idNo, tipoGrupo, entrada.getKey(), leitura);
+        }
+
+        // Fase 2: o relógio local já incorporou o de todos os que responderam
+        comunicacaoIntergrupos.anunciarRelogio();
+        long combinado = relogio.atual();
+
+        ultimaSincronizacao = String.format("#%d, %d/%d grupos, relógio %s -> %s, maior desvio físico %dms",
+                rodadasSincronizacao.incrementAndGet(), respostas, leituras.size(),
+                RelogioHibrido.formatar(inicio), RelogioHibrido.formatar(combinado), maiorDesvio);
+        System.out.printf("[SUPER-COORD P%d-%s] Sincronização de relógios concluída: %s%n",
+                idNo, tipoGrupo, ultimaSincronizacao);
+
+        if (!dessincronizados.isEmpty()) {
+            notificarEvento("RELÓGIOS FÍSICOS DESSINCRONIZADOS (>" + LIMITE_DESVIO_RELOGIO_MS + "ms): "
+                    + String.join(", ", dessincronizados));
+        }
     }
 
     /**
@@ -350,6 +460,7 @@ public class SuperCoordenador {
         relatorio.append("=".repeat(80)).append("\n");
         relatorio.append(String.format("ID do Snapshot: %s%n", idSnapshot));
         relatorio.append(String.format("Supercoordenador: P%d-%s%n", idNo, tipoGrupo));
+        relatorio.append(String.format("Relógio híbrido: %s%n", RelogioHibrido.formatar(relogio.tick())));
         relatorio.append(String.format("Duração: %d segundos%n", duracao));
         relatorio.append(String.format("Timestamp: %s%n",
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"))));
@@ -357,14 +468,15 @@ public class SuperCoordenador {
 
         // Estado dos grupos
         relatorio.append("ESTADO GLOBAL DOS GRUPOS:\n");
-        estadosGrupos.forEach((nome, estado) -> {
-            long ultimoContato = (System.currentTimeMillis() - estado.getUltimaAtualizacao()) / 1000;
+        long agora = System.currentTimeMillis();
+        int quantidade = registroGrupos.getQuantidade();
+        for (int i = 0; i < quantidade; i++) {
             relatorio.append(String.format("  • Grupo %s: %s (líder: P%d, último contato: %ds)%n",
-                    nome,
-                    estado.isAtivo(System.currentTimeMillis()) ? "ATIVO" : "INATIVO",
-                    estado.getLiderAtual(),
-                    ultimoContato));
-        });
+                    registroGrupos.getNome(i),
+                    registroGrupos.isAtivo(i, agora) ? "ATIVO" : "INATIVO",
+                    registroGrupos.getLider(i),
+                    (agora - registroGrupos.getUltimoContato(i)) / 1000));
+        }
 
         relatorio.append("-".repeat(80)).append("\n");
         relatorio.append(String.format("Total de snapshots executados: %d%n", contadorSnapshots.get()));
@@ -372,7 +484,7 @@ public class SuperCoordenador {
         relatorio.append("=".repeat(80)).append("\n");
 
         // Enviar relatório via multicast
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idNo);
         System.out.print(relatorio.toString());
 
         notificarEvento("SNAPSHOT GLOBAL FINALIZADO: " + idSnapshot + " (duração: " + duracao + "s)");
@@ -410,14 +522,18 @@ public class SuperCoordenador {
         relatorio.append(String.format("  • Grupos conhecidos: %d%n", comunicacaoIntergrupos.getGruposConhecidos().size()));
 
         // Status dos grupos
+        relatorio.append("\nVISÃO GLOBAL DE RECURSOS (resumos dos líderes):\n");
+        relatorio.append(String.format("  • %s%n", visaoGlobal));
+        relatorio.append(String.format("  • Percentis da frota: %s%n", visaoGlobal.percentis()));
+
         relatorio.append("\nSTATUS DOS GRUPOS MONITORADOS:\n");
-        long agora = System.currentTimeMillis();
-        estadosGrupos.forEach((nome, estado) -> {
-            long ultimoContato = (agora - estado.getUltimaAtualizacao()) / 1000;
-            String status = estado.isAtivo(agora) ? "ATIVO" : "INATIVO";
-            relatorio.append(String.format("  • Grupo %s: %s (P%d, %ds atrás)%n",
-                    nome, status, estado.getLiderAtual(), ultimoContato));
-        });
+        anexarStatusGrupos(relatorio, registroGrupos, System.currentTimeMillis(),
+                comunicacaoIntergrupos::getHistogramaRtt);
+
+        // Relógios
+        relatorio.append("\nSINCRONIZAÇÃO DE RELÓGIOS:\n");
+        relatorio.append(String.format("  • Relógio híbrido: %s%n", RelogioHibrido.formatar(relogio.atual())));
+        relatorio.append(String.format("  • Última rodada: %s%n", ultimaSincronizacao));
 
         // Snapshots executados
         relatorio.append(String.format("\nSNAPSHOTS GLOBAIS EXECUTADOS: %d%n", contadorSnapshots.get()));
@@ -432,7 +548,7 @@ public class SuperCoordenador {
         relatorio.append("=".repeat(70)).append("\n");
 
         // Enviar relatório
-        emissor.enviarMensagem(relatorio.toString(), "239.0.0.1", 12345);
+        emissor.enviarRelatorioSistema(relatorio.toString(), idNo);
         System.out.print(relatorio.toString());
     }
 
@@ -442,47 +558,16 @@ public class SuperCoordenador {
     private void notificarEvento(String evento) {
         if (notificadorCallback != null) {
             notificadorCallback.accept(evento);
+        } else {
+            emissor.enviarNotificacao(evento, idNo);
         }
-
-        emissor.enviarNotificacao(evento, idNo);
     }
 
     // Getters
     public boolean isSupercoordenador() { return isSupercoordenador.get(); }
     public boolean isAtivo() { return ativo.get(); }
     public int getContadorSnapshots() { return contadorSnapshots.get(); }
-    public Map<String, EstadoGrupo> getEstadosGrupos() { return new HashMap<>(estadosGrupos); }
-
-    /**
-     * Classe interna para armazenar estado de um grupo
-     */
-    public static class EstadoGrupo {
-        private final String nome;
-        private boolean ativo = false;
-        private long ultimaAtualizacao = 0;
-        private int liderAtual = -1;
-
-        public EstadoGrupo(String nome) {
-            this.nome = nome;
-        }
-
-        public void atualizarStatus(boolean ativo) {
-            this.ativo = ativo;
-            if (ativo) {
-                this.ultimaAtualizacao = System.currentTimeMillis();
-            }
-        }
-
-        public boolean isAtivo(long tempoAtual) {
-            return ativo && (tempoAtual - ultimaAtualizacao) < 60000; // 1 minuto de timeout
-        }
-
-        // Getters e setters
-        public String getNome() { return nome; }
-        public boolean isAtivo() { return ativo; }
-        public long getUltimaAtualizacao() { return ultimaAtualizacao; }
-        public void setUltimaAtualizacao(long ultimaAtualizacao) { this.ultimaAtualizacao = ultimaAtualizacao; }
-        public int getLiderAtual() { return liderAtual; }
-        public void setLiderAtual(int liderAtual) { this.liderAtual = liderAtual; }
-    }
+    public int getRodadasSincronizacao() { return rodadasSincronizacao.get(); }
+    public RegistroGrupos getRegistroGrupos() { return registroGrupos; }
+    public ResumoRecursos getVisaoGlobal() { return visaoGlobal; }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package monitoramento.coordenacao;
+
+/**
+ * Tipos de mensagem transportados no envelope multicast. O código é o byte
+ * gravado no cabeçalho e não deve mudar entre versões. Tipos críticos, dos quais
+ * o protocolo depende, vão pelo canal confiável (NACK e retransmissão);
+ * os demais continuam best-effort. A faixa define a prioridade no controle de taxa.
+ */
+public enum TipoMensagem {
+    // Datagrama sem envelope (texto puro)
+    TEXTO(0, FaixaPrioridade.TELEMETRIA),
+
+    // Canal dos clientes
+    RELATORIO(1, FaixaPrioridade.TELEMETRIA),
+    NOTIFICACAO(2, FaixaPrioridade.ESTADO),
+    RELATORIO_SISTEMA(3, FaixaPrioridade.TELEMETRIA),
+
+    // Canal dos líderes e de snapshot
+    CANDIDATO(10, FaixaPrioridade.CONTROLE, true),
+    MARCADOR(11, FaixaPrioridade.CONTROLE, true),
+
+    // Multicast com ordem total (MulticastOrdenadoTotal)
+    ORDENADA(12, FaixaPrioridade.CONTROLE, true),
+    CONFIRMACAO_ORDEM(13, FaixaPrioridade.CONTROLE),
+
+    // Canal intergrupos
+    PING_INTER(20, FaixaPrioridade.CONTROLE),
+    PONG_INTER(21, FaixaPrioridade.CONTROLE),
+    STATUS_REQUEST(22, FaixaPrioridade.ESTADO),
+    STATUS_RESPONSE(23, FaixaPrioridade.ESTADO),
+    SUPER_CANDIDATE(24, FaixaPrioridade.CONTROLE),
+    SNAPSHOT_GLOBAL(25, FaixaPrioridade.CONTROLE, true),
+    SYNC_REQUEST(26, FaixaPrioridade.CONTROLE),
+    SYNC_RESPONSE(27, FaixaPrioridade.CONTROLE),
+
+    // Controle do canal confiável
+    NACK(30, FaixaPrioridade.CONTROLE),
+    ANUNCIO_SEQUENCIA(31, FaixaPrioridade.CONTROLE);
+
+    private static final TipoMensagem[] POR_CODIGO = new TipoMensagem[64];
+
+    static {
+        for (TipoMensagem tipo : values()) {
+            POR_CODIGO[tipo.codigo] = tipo;
+        }
+    }
+
+    private final int codigo;
+    private final FaixaPrioridade faixa;
+    private final boolean critico;
+
+    TipoMensagem(int codigo, FaixaPrioridade faixa) {
+        this(codigo, faixa, false);
+    }
+
+    TipoMensagem(int codigo, FaixaPrioridade faixa, boolean critico) {
+        this.codigo = codigo;
+        this.faixa = faixa;
+        this.critico = critico;
+    }
+
+    public int getCodigo() {
+        return codigo;
+    }
+
+    public FaixaPrioridade getFaixa() {
+        return faixa;
+    }
+
+    public boolean isCritico() {
+        return critico;
+    }
+
+    /**
+     * @return o tipo do código, ou null se desconhecido
+     */
+    public static TipoMensagem doCodigo(int codigo) {
+        return codigo >= 0 && codigo < POR_CODIGO.length ? POR_CODIGO[codigo] : null;
+    }
+}
@@ -0,0 +1,100 @@
+package monitoramento.grupoa;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ForwardingServerCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import monitoramento.comum.RelogioHibrido;
+import monitoramento.rastreio.RastreadorCausal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Propaga o relógio híbrido do nó nos metadados de todas as chamadas gRPC do
+ * grupo: o cliente envia o relógio nos cabeçalhos da chamada e incorpora o do
+ * servidor nos cabeçalhos da resposta; o servidor faz o inverso. Os serviços
+ * não precisam tratar relógio nas mensagens.
+ * Com o rastreio causal ligado, o contexto vetorial segue pelo mesmo caminho
+ * (envio na chamada e na resposta, recebimento do outro lado).
+ */
+public class InterceptorRelogio implements ClientInterceptor, ServerInterceptor {
+    static final Metadata.Key<byte[]> CHAVE_RELOGIO =
+            Metadata.Key.of("relogio-hibrido-bin", Metadata.BINARY_BYTE_MARSHALLER);
+    static final Metadata.Key<byte[]> CHAVE_CONTEXTO =
+            Metadata.Key.of("contexto-causal-bin", Metadata.BINARY_BYTE_MARSHALLER);
+
+    private final RelogioHibrido relogio;
+    private final RastreadorCausal rastreador;
+
+    public InterceptorRelogio(RelogioHibrido relogio, RastreadorCausal rastreador) {
+        this.relogio = relogio;
+        this.rastreador = rastreador;
+    }
+
+    @Override
+    public <Q, R> ClientCall<Q, R> interceptCall(MethodDescriptor<Q, R> metodo, CallOptions opcoes, Channel proximo) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(proximo.newCall(metodo, opcoes)) {
+            @Override
+            public void start(Listener<R> ouvinte, Metadata cabecalhos) {
+                cabecalhos.put(CHAVE_RELOGIO, codificar(relogio.tick()));
+                anexarContexto(cabecalhos, metodo.getBareMethodName());
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(ouvinte) {
+                    @Override
+                    public void onHeaders(Metadata cabecalhosResposta) {
+                        incorporar(cabecalhosResposta);
+                        incorporarContexto(cabecalhosResposta, metodo.getBareMethodName() + " (resposta)");
+                        super.onHeaders(cabecalhosResposta);
+                    }
+                }, cabecalhos);
+            }
+        };
+    }
+
+    @Override
+    public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> chamada, Metadata cabecalhos,
+                                                       ServerCallHandler<Q, R> proximo) {
+        // Antes do serviço: o tratamento da mensagem já vê o relógio atualizado
+        String metodo = chamada.getMethodDescriptor().getBareMethodName();
+        incorporar(cabecalhos);
+        incorporarContexto(cabecalhos, metodo);
+        return proximo.startCall(new ForwardingServerCall.SimpleForwardingServerCall<>(chamada) {
+            @Override
+            public void sendHeaders(Metadata cabecalhosResposta) {
+                cabecalhosResposta.put(CHAVE_RELOGIO, codificar(relogio.tick()));
+                anexarContexto(cabecalhosResposta, metodo + " (resposta)");
+                super.sendHeaders(cabecalhosResposta);
+            }
+        }, cabecalhos);
+    }
+
+    private void incorporar(Metadata cabecalhos) {
+        byte[] bytes = cabecalhos.get(CHAVE_RELOGIO);
+        if (bytes != null && bytes.length == Long.BYTES) {
+            relogio.receber(ByteBuffer.wrap(bytes).getLong());
+        }
+    }
+
+    private void anexarContexto(Metadata cabecalhos, String rotulo) {
+        if (rastreador.isAtivo()) {
+            cabecalhos.put(CHAVE_CONTEXTO, rastreador.registrarEnvio(rotulo));
+        }
+    }
+
+    private void incorporarContexto(Metadata cabecalhos, String rotulo) {
+        if (rastreador.isAtivo()) {
+            rastreador.registrarRecebimento(rotulo, cabecalhos.get(CHAVE_CONTEXTO));
+        }
+    }
+
+    private static byte[] codificar(long valor) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(valor).array();
+    }
+}
@@ -5,39 +5,72 @@ import io.grpc.stub.StreamObserver;
 import monitoramento.autenticacao.ServidorAutenticacao;
 import monitoramento.comum.*;
 import monitoramento.coordenacao.EmissorMulticast;
+import monitoramento.coordenacao.EnvelopeMulticast;
+import monitoramento.coordenacao.FiltroEnvelope;
+import monitoramento.coordenacao.MensagemOrdenada;
+import monitoramento.coordenacao.MulticastOrdenadoTotal;
 import monitoramento.coordenacao.OuvinteMulticast;
 import monitoramento.coordenacao.SuperCoordenador;
+import monitoramento.coordenacao.TipoMensagem;
 import monitoramento.intergrupo.ComunicacaoIntergrupos;
+import monitoramento.intergrupo.MensagemIntergrupo;
 import monitoramento.grpc.*;
+import monitoramento.rastreio.RastreadorCausal;
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class NoGrupoA {
     private final int id;
+    private final String nomeGrupo;
     private final AtomicBoolean ativo = new AtomicBoolean(true);
-    private final AtomicInteger relogioLamport = new AtomicInteger(0);
-    private int coordenadorId;
+    // Relógio híbrido do nó; nas chamadas gRPC vai nos metadados, pelo interceptor
+    private final RelogioHibrido relogio = new RelogioHibrido();
+    private final InterceptorRelogio interceptorRelogio;
+    // Rastreio causal (inerte sem -Drastreio.diretorio)
+    private final RastreadorCausal rastreador;
+    private volatile int coordenadorId;
     private final List<Integer> todosPidsDoGrupo;
     private final Map<Integer, InfoNo> nosDaRede = new ConcurrentHashMap<>();
     private final Map<Integer, Integer> portasGrpcDosNos;
+    // Canais gRPC reutilizados por destino (evita criar/fechar um canal por mensagem)
+    private final Map<Integer, ManagedChannel> canaisGrpc = new ConcurrentHashMap<>();
     private final int portaHeartbeat;
     private final int portaGrpc;
     private final Server servidorGrpc;
-    private final EmissorMulticast emissor = new EmissorMulticast();
+    private final EmissorMulticast emissor = EmissorMulticast.getInstancia();
     private final AtomicBoolean clienteAutenticadoPresente = new AtomicBoolean(false);
     private ServerSocket servidorSocketAuth;
     private ServerSocket servidorSocketHeartbeat;
 
     // Eleição Bully
-    private AtomicBoolean emEleicao = new AtomicBoolean(false);
     private AtomicBoolean respondeuOk = new AtomicBoolean(false);
+    private final CoordenadorEleicao eleicaoBully;
+    private final CoordenadorEleicao eleicaoSuper;
+    private static final long JANELA_COALESCENCIA_MS = 250;
+
+    // Timeouts adaptativos derivados do RTT observado entre os nós
+    private final EstimadorTimeout estimadorTimeout = new EstimadorTimeout();
+    private static final int RODADAS_RESPOSTA_OK = 3;
+    private static final int RODADAS_SUPER_ELEICAO = 10;
+    // A janela de candidaturas cobre líderes de outros grupos elegendo e anunciando por multicast,
+    // que o RTT medido dentro do grupo não reflete
+    private static final long PISO_JANELA_SUPER_ELEICAO_MS = 10000;
+
+    // Arrendamento de liderança: menor que o tempo de detecção de falha (3 heartbeats de 5s)
+    private final ArrendamentoLideranca arrendamento;
+    private static final long DURACAO_ARRENDAMENTO_MS = 12000;
+    private static final long CARENCIA_INICIAL_MS = 30000;
 
     // Super-coordenador
     private static final String ENDERECO_LIDERES = "239.0.0.2";
@@ -46,10 +79,19 @@ public class NoGrupoA {
     private final List<Integer> candidatosSuperCoordenador = new CopyOnWriteArrayList<>();
     private OuvinteMulticast ouvinteLideres;
 
+    // Decisões globais dos líderes, entregues a todos na mesma ordem
+    private static final String ENDERECO_DECISOES = "239.0.0.5";
+    private static final int PORTA_DECISOES = 12349;
+    private static final byte DECISAO_SUPERCOORDENADOR = 1;
+    private final MulticastOrdenadoTotal decisoes;
+
     // NOVOS COMPONENTES - Comunicação Intergrupos e SuperCoordenador
     private final ComunicacaoIntergrupos comunicacaoIntergrupos;
     private final SuperCoordenador superCoordenador;
 
+    // Resumo dos recursos do grupo da última coleta do líder; sobe ao supercoordenador nas respostas de status
+    private volatile ResumoRecursos resumoGrupo;
+
     // Sistemas integrados
     private final GestorSnapshot gestorSnapshot;
     private final GestorRecuperacao gestorRecuperacao;
@@ -57,12 +99,29 @@ public class NoGrupoA {
 
     public NoGrupoA(int id, List<Integer> todosPidsDoGrupo, Map<Integer, Integer> portasHeartbeat,
                     Map<Integer, Integer> portasGrpc) throws IOException {
+        this(id, "A", todosPidsDoGrupo, portasHeartbeat, portasGrpc);
+    }
+
+    /**
+     * @param nomeGrupo nome do grupo nas mensagens intergrupos (até 3 caracteres [A-Z0-9])
+     */
+    public NoGrupoA(int id, String nomeGrupo, List<Integer> todosPidsDoGrupo, Map<Integer, Integer> portasHeartbeat,
+                    Map<Integer, Integer> portasGrpc) throws IOException {
         this.id = id;
+        this.nomeGrupo = nomeGrupo;
         this.todosPidsDoGrupo = todosPidsDoGrupo;
         this.portaHeartbeat = portasHeartbeat.get(id);
         this.portaGrpc = portasGrpc.get(id);
         this.portasGrpcDosNos = portasGrpc;
+        this.rastreador = RastreadorCausal.para(id);
+        this.decisoes = new MulticastOrdenadoTotal(id, nomeGrupo, relogio, ENDERECO_DECISOES, PORTA_DECISOES,
+                this::aplicarDecisao);
+        this.interceptorRelogio = new InterceptorRelogio(relogio, rastreador);
         this.coordenadorId = todosPidsDoGrupo.stream().max(Integer::compareTo).orElse(this.id);
+        this.arrendamento = new ArrendamentoLideranca(id, todosPidsDoGrupo.size(), coordenadorId,
+                DURACAO_ARRENDAMENTO_MS, CARENCIA_INICIAL_MS);
+        this.eleicaoBully = new CoordenadorEleicao("BULLY P" + id, JANELA_COALESCENCIA_MS, this::executarEleicaoBully);
+        this.eleicaoSuper = new CoordenadorEleicao("SUPER P" + id, JANELA_COALESCENCIA_MS, this::executarEleicaoSuper);
 
         // Inicializar nós da rede
         for (int pid : todosPidsDoGrupo) {
@@ -71,18 +130,21 @@ public class NoGrupoA {
 
         // NOVO: Inicializar comunicação intergrupos
         this.comunicacaoIntergrupos = new ComunicacaoIntergrupos(
-                id, "A",
-                () -> this.relogioLamport.get(),
-                () -> this.id == this.coordenadorId,
+                id, nomeGrupo,
+                this.relogio,
+                this::isLider,
+                this.arrendamento::getEpoca,
                 this::processarMensagemIntergrupos,
-                () -> new Recurso(this.id, this.relogioLamport.get())
+                () -> new Recurso(this.id, this.relogio.tick()),
+                () -> this.todosPidsDoGrupo.size(),
+                () -> this.resumoGrupo
         );
 
         // NOVO: Inicializar supercoordenador
         this.superCoordenador = new SuperCoordenador(
-                id, "A",
-                () -> this.relogioLamport.get(),
-                () -> this.id == this.coordenadorId,
+                id, nomeGrupo,
+                this.relogio,
+                this::isLider,
                 this::notificarEvento,
                 this.comunicacaoIntergrupos
         );
@@ -90,8 +152,9 @@ public class NoGrupoA {
         // Inicializar gestores
         this.gestorSnapshot = new GestorSnapshot(
                 () -> this.id,
-                () -> this.relogioLamport.get(),
-                () -> this.ativo.get()
+                this.relogio::tick,
+                () -> this.ativo.get(),
+                () -> this.comunicacaoIntergrupos.getRegistroGrupos().getTotalMembros(System.currentTimeMillis())
         );
 
         this.gestorRecuperacao = new GestorRecuperacao(
@@ -102,11 +165,11 @@ public class NoGrupoA {
 
         // Inicializar servidor gRPC
         this.servidorGrpc = ServerBuilder.forPort(this.portaGrpc)
-                .addService(new ServicoGrupoAImpl(this))
+                .addService(ServerInterceptors.intercept(new ServicoGrupoAImpl(this), interceptorRelogio))
                 .build();
         this.servidorGrpc.start();
 
-        System.out.printf("[GRUPO A - gRPC] Nó %d iniciado na porta gRPC %d.%n", id, portaGrpc);
+        System.out.printf("[GRUPO %s - gRPC] Nó %d iniciado na porta gRPC %d.%n", nomeGrupo, id, portaGrpc);
 
         iniciarServicosHeartbeat();
         iniciarTarefaCoordenador();
@@ -123,113 +186,165 @@ public class NoGrupoA {
         // Enviar ping inicial para descobrir outros grupos após 5 segundos
         scheduler.schedule(() -> {
             comunicacaoIntergrupos.enviarPingIntergrupo();
-            System.out.printf("[INTERGRUPOS P%d-A] Descoberta de grupos iniciada%n", id);
+            System.out.printf("[INTERGRUPOS P%d-%s] Descoberta de grupos iniciada%n", id, nomeGrupo);
         }, 5, TimeUnit.SECONDS);
 
         // Ping periódico para manter comunicação viva
         scheduler.scheduleAtFixedRate(() -> {
-            if (id == coordenadorId) { // Apenas o líder faz ping
+            if (isLider()) { // Apenas o líder faz ping
                 comunicacaoIntergrupos.enviarPingIntergrupo();
             }
-        }, 30, 60, TimeUnit.SECONDS); // A cada 1 minuto após 30s iniciais
+        }, 30, ComunicacaoIntergrupos.INTERVALO_PING_SEGUNDOS, TimeUnit.SECONDS); // A cada 1 minuto após 30s iniciais
     }
 
     /**
-     * NOVO: Processa mensagens recebidas via comunicação intergrupos
+     * NOVO: Processa as mensagens intergrupos que cabem ao nó
+     * (candidaturas a supercoordenador e marcadores de snapshot global)
      */
-    private void processarMensagemIntergrupos(String mensagem) {
-        // Atualizar relógio de Lamport
-        relogioLamport.incrementAndGet();
-
-        if (mensagem.startsWith("SNAPSHOT_MARKER:")) {
-            // Mensagem de snapshot de outro grupo
-            String payload = mensagem.substring(16);
-            System.out.printf("[SNAPSHOT P%d-A] Marcador de snapshot intergrupos recebido: %s%n",
-                    id, payload);
-
-            if (gestorSnapshot != null) {
-                // Processar marcador de snapshot cross-group
-                gestorSnapshot.receberMarcador(-1, relogioLamport.get(), payload);
-            }
-        } else if (mensagem.startsWith("SUPER_ELECTION:")) {
-            // Mensagem de eleição de supercoordenador
-            String payload = mensagem.substring(15);
-            System.out.printf("[ELEIÇÃO SUPER P%d-A] Candidatura intergrupos: %s%n", id, payload);
-
-            // Extrair informações do candidato
-            if (payload.contains("candidato:") && payload.contains("prioridade:")) {
-                try {
-                    String[] partes = payload.split(",");
-                    for (String parte : partes) {
-                        if (parte.startsWith("candidato:")) {
-                            String candidatoInfo = parte.substring(10);
-                            // Processar candidatura na eleição global
-                            processarCandidaturaGlobal(candidatoInfo);
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.printf("[ERRO P%d-A] Erro ao processar candidatura: %s%n", id, e.getMessage());
+    private void processarMensagemIntergrupos(MensagemIntergrupo mensagem) {
+        // O relógio do cabeçalho já foi incorporado pela comunicação intergrupos
+        switch (mensagem.getTipo()) {
+            case SNAPSHOT_GLOBAL:
+                System.out.printf("[SNAPSHOT P%d-%s] Marcador de snapshot intergrupos recebido: %s%n",
+                        id, nomeGrupo, mensagem.getIdSnapshot());
+
+                if (gestorSnapshot != null) {
+                    // Processar marcador de snapshot cross-group
+                    gestorSnapshot.receberMarcador(-1, mensagem.getRelogio(), LocalTime.ofInstant(
+                            Instant.ofEpochMilli(mensagem.getTimestamp()), ZoneId.systemDefault()).toString());
                 }
-            }
+                break;
+
+            case SUPER_CANDIDATE:
+                System.out.printf("[ELEIÇÃO SUPER P%d-%s] Candidatura intergrupos: P%d-%s (prioridade %d)%n",
+                        id, nomeGrupo, mensagem.getRemetente(), mensagem.getGrupo(), mensagem.getPrioridade());
+                processarCandidaturaGlobal(mensagem.getRemetente(), mensagem.getGrupo());
+                break;
+
+            default:
+                break;
         }
     }
 
     /**
-     * NOVO: Processa candidaturas para supercoordenador global
+     *NOVO: Processa candidaturas para supercoordenador global
      */
-    private void processarCandidaturaGlobal(String candidatoInfo) {
-        // candidatoInfo formato: "idNo-tipoGrupo"
-        String[] partes = candidatoInfo.split("-");
-        if (partes.length != 2) return;
-
-        try {
-            int idCandidato = Integer.parseInt(partes[0]);
-            String grupoCandidato = partes[1];
+    private void processarCandidaturaGlobal(int idCandidato, String grupoCandidato) {
+        System.out.printf("[ELEIÇÃO SUPER P%d-%s] Candidato: P%d-%s%n", id, nomeGrupo, idCandidato, grupoCandidato);
 
-            System.out.printf("[ELEIÇÃO SUPER P%d-A] Candidato: P%d-%s%n", id, idCandidato, grupoCandidato);
-
-            // Se eu sou líder do meu grupo, também sou candidato
-            if (id == coordenadorId) {
-                candidatosSuperCoordenador.add(id); // Minha candidatura
-            }
+        // Se eu sou líder do meu grupo, também sou candidato
+        if (isLider()) {
+            candidatosSuperCoordenador.add(id); // Minha candidatura
+        }
 
-            // Adicionar candidato externo se não estiver na lista
-            if (!candidatosSuperCoordenador.contains(idCandidato)) {
-                candidatosSuperCoordenador.add(idCandidato);
-            }
+        // Adicionar candidato externo se não estiver na lista
+        if (!candidatosSuperCoordenador.contains(idCandidato)) {
+            candidatosSuperCoordenador.add(idCandidato);
+        }
+        responderCandidatura(idCandidato);
+    }
 
-        } catch (NumberFormatException e) {
-            System.err.printf("[ERRO P%d-A] ID de candidato inválido: %s%n", id, candidatoInfo);
+    /**
+     * Um líder de id menor se candidatou (ex.: recém-eleito no grupo dele): reanunciar a
+     * minha candidatura antes que ele decida, senão ele se declararia vencedor sem me ver
+     */
+    private void responderCandidatura(int idCandidato) {
+        if (idCandidato < id && isLider()) {
+            anunciarCandidaturaSuper();
         }
     }
 
+    /**
+     * Candidatura pelos dois caminhos: comunicação intergrupos e grupo de líderes
+     */
+    private void anunciarCandidaturaSuper() {
+        comunicacaoIntergrupos.enviarCandidaturaSuper();
+        emissor.enviar(new EnvelopeMulticast(TipoMensagem.CANDIDATO, id, nomeGrupo, relogio.tick(),
+                arrendamento.getEpoca(), "").comContexto(rastreador.registrarEnvio("CANDIDATO")),
+                ENDERECO_LIDERES, PORTA_LIDERES);
+    }
+
     private void iniciarServicosHeartbeat() {
         new Thread(new ServidorHeartbeat(
                 () -> this.id,
                 () -> this.ativo.get(),
                 this.portaHeartbeat,
-                (s) -> this.servidorSocketHeartbeat = s
+                (s) -> this.servidorSocketHeartbeat = s,
+                () -> this.coordenadorId,
+                this.arrendamento::getEpoca
         )).start();
 
         new Thread(new GestorHeartbeat(
                 () -> this.id,
                 () -> this.coordenadorId,
                 () -> this.nosDaRede,
-                () -> this.iniciarEleicao()
+                () -> this.iniciarEleicao(),
+                this::registrarRespostaHeartbeat
         )).start();
     }
 
+    /**
+     * Heartbeat respondido: alimenta o estimador de RTT, adota um líder mais recente
+     * que o nó já conheça e conta a confirmação no arrendamento do líder
+     */
+    private void registrarRespostaHeartbeat(int pid, double rttMs, int liderReconhecido, long epocaReconhecida) {
+        estimadorTimeout.registrarAmostra(rttMs);
+        if (liderReconhecido >= 0) {
+            adotarLiderMaisRecente(liderReconhecido, epocaReconhecida, "P" + pid);
+        }
+        arrendamento.registrarResposta(pid, liderReconhecido, epocaReconhecida);
+    }
+
+    /**
+     * Outro nó reconhece um líder que vence o conhecido (ex.: eleito durante uma
+     * partição): passa a reconhecê-lo e deixa de agir como líder
+     */
+    private void adotarLiderMaisRecente(int lider, long epoca, String origem) {
+        if (lider == this.id || !reconhecerLider(lider, epoca)) {
+            return;
+        }
+        System.out.printf("[BULLY P%d] %s reconhece P%d na época %d; adotado como coordenador%n",
+                id, origem, lider, epoca);
+        eleicaoBully.invalidar("coordenador P" + lider + " informado por " + origem);
+        eleicaoSuper.invalidar("deixei de ser líder");
+    }
+
+    /**
+     * Só é líder quem foi eleito e ainda mantém o arrendamento válido
+     */
+    private boolean isLider() {
+        return id == coordenadorId && arrendamento.isLiderValido();
+    }
+
+    /**
+     * Reconhece um líder anunciado, descartando anúncios de épocas obsoletas
+     * @return true se o anúncio foi aceito como novo
+     */
+    private synchronized boolean reconhecerLider(int lider, long epoca) {
+        if (!arrendamento.aceitar(lider, epoca)) {
+            return false;
+        }
+        boolean eraLider = this.coordenadorId == this.id;
+        this.coordenadorId = lider;
+        if (eraLider && lider != this.id) {
+            comunicacaoIntergrupos.deixarLideranca();
+        }
+        return true;
+    }
+
     private void iniciarTarefaCoordenador() {
         new Thread(() -> {
             Thread servidorAuthThread = null;
             while (ativo.get()) {
                 try {
                     Thread.sleep(10000);
-                    if (id == coordenadorId && ativo.get()) {
+                    if (isLider() && ativo.get()) {
                         if (servidorAuthThread == null || !servidorAuthThread.isAlive()) {
                             servidorAuthThread = new Thread(new ServidorAutenticacao(
                                     () -> this.id,
-                                    () -> this.coordenadorId,
+                                    this::isLider,
+                                    nomeGrupo,
+                                    this.arrendamento::getEpoca,
                                     () -> this.ativo.get(),
                                     () -> this.registrarClienteAutenticado(),
                                     (socket) -> this.servidorSocketAuth = socket
@@ -255,7 +370,7 @@ public class NoGrupoA {
     private void iniciarMonitoramentoPeriodico() {
         // Relatório de recuperação a cada 2 minutos
         scheduler.scheduleAtFixedRate(() -> {
-            if (id == coordenadorId && ativo.get()) {
+            if (isLider() && ativo.get()) {
                 gestorRecuperacao.gerarRelatorioRecuperacao();
             }
         }, 120, 120, TimeUnit.SECONDS);
@@ -263,24 +378,29 @@ public class NoGrupoA {
         // MODIFICADO: Snapshot periódico apenas se for supercoordenador
         scheduler.scheduleAtFixedRate(() -> {
             if (superCoordenador.isSupercoordenador() && ativo.get()) {
-                System.out.printf("[SNAPSHOT P%d-A] Iniciando snapshot como supercoordenador%n", id);
+                System.out.printf("[SNAPSHOT P%d-%s] Iniciando snapshot como supercoordenador%n", id, nomeGrupo);
                 gestorSnapshot.iniciarCapturaEstado();
             }
         }, 300, 300, TimeUnit.SECONDS);
 
         // NOVO: Relatório de comunicação intergrupos a cada 3 minutos
         scheduler.scheduleAtFixedRate(() -> {
-            if (id == coordenadorId && ativo.get()) {
+            if (isLider() && ativo.get()) {
                 String relatorio = comunicacaoIntergrupos.gerarRelatorioIntergrupos();
                 System.out.print(relatorio);
-                emissor.enviarMensagem(relatorio, "239.0.0.1", 12345);
+                emissor.enviarRelatorioSistema(relatorio, id);
             }
         }, 180, 180, TimeUnit.SECONDS);
     }
 
+    /**
+     * Solicita uma eleição Bully; gatilhos simultâneos viram uma única execução
+     */
     public void iniciarEleicao() {
-        if (emEleicao.getAndSet(true)) return;
+        eleicaoBully.solicitar("eleição solicitada");
+    }
 
+    private void executarEleicaoBully(long geracao) {
         System.out.printf("[BULLY P%d] Iniciando eleição Bully%n", id);
         notificarEvento("ELEIÇÃO BULLY INICIADA POR P" + id);
 
@@ -290,54 +410,51 @@ public class NoGrupoA {
                 .filter(p -> p > this.id && nosDaRede.get(p).isAtivo())
                 .collect(Collectors.toList());
 
-        boolean algumMaiorContactado = false;
+        // Envios assíncronos: falhas marcam o destino como inativo no próprio futuro
         for (int pidMaior : pidsMaiores) {
-            try {
-                enviarMensagemBully(pidMaior, MensagemBully.Tipo.ELEICAO);
-                algumMaiorContactado = true;
-            } catch (Exception e) {
-                // Nó não respondeu, marcar como inativo
-                nosDaRede.get(pidMaior).setAtivo(false);
-            }
+            enviarMensagemBully(pidMaior, MensagemBully.Tipo.ELEICAO);
         }
 
-        if (!algumMaiorContactado) {
+        if (pidsMaiores.isEmpty()) {
             // Aguardar um tempo antes de assumir liderança para evitar conflitos
-            scheduler.schedule(() -> {
+            eleicaoBully.agendar(geracao, () -> {
                 if (!this.respondeuOk.get()) {
                     anunciarCoordenador();
                 }
-            }, 2000 + (id * 1000), TimeUnit.MILLISECONDS); // Delay baseado no ID
+                eleicaoBully.concluir(geracao);
+            }, estimadorTimeout.calcularTimeoutMs(1 + id)); // Delay baseado no ID
             return;
         }
 
-        // Aguardar resposta OK com timeout maior
-        scheduler.schedule(() -> {
+        // Aguardar resposta OK por algumas rodadas de RTT
+        eleicaoBully.agendar(geracao, () -> {
             if (!this.respondeuOk.get()) {
                 anunciarCoordenador();
-            } else {
-                emEleicao.set(false);
             }
-        }, 5000, TimeUnit.MILLISECONDS);
+            eleicaoBully.concluir(geracao);
+        }, estimadorTimeout.calcularTimeoutMs(RODADAS_RESPOSTA_OK));
     }
 
     private void anunciarCoordenador() {
+        long epoca;
         synchronized (this) {
-            if (this.coordenadorId == this.id) {
+            if (isLider()) {
+                return;
+            }
+            epoca = arrendamento.proximaEpoca();
+            if (!reconhecerLider(this.id, epoca)) {
                 return;
             }
-            this.coordenadorId = this.id;
         }
 
-        System.out.printf("%n[BULLY P%d] *** EU SOU O NOVO COORDENADOR! ***%n", id);
-        notificarEvento("NOVO LÍDER ELEITO NO GRUPO A: P" + id);
+        System.out.printf("%n[BULLY P%d] *** EU SOU O NOVO COORDENADOR! (época %d) ***%n", id, epoca);
+        notificarEvento("NOVO LÍDER ELEITO NO GRUPO " + nomeGrupo + ": P" + id);
 
-        this.emEleicao.set(false);
         this.respondeuOk.set(false);
 
         for (int pid : todosPidsDoGrupo) {
             if (pid != this.id && nosDaRede.get(pid).isAtivo()) {
-                enviarMensagemBully(pid, MensagemBully.Tipo.COORDENADOR);
+                enviarAnuncioCoordenador(pid);
             }
         }
 
@@ -345,150 +462,243 @@ public class NoGrupoA {
         iniciarEleicaoSuperCoordenador();
     }
 
-    private void enviarMensagemBully(int idDestino, MensagemBully.Tipo tipo) {
-        relogioLamport.incrementAndGet();
-        int portaDestino = portasGrpcDosNos.get(idDestino);
-        ManagedChannel canal = ManagedChannelBuilder.forAddress("localhost", portaDestino)
-                .usePlaintext().build();
+    /**
+     * Anuncia este nó como coordenador. Quem já reconhece um líder mais recente
+     * responde OBSOLETO com ele, e este nó o adota.
+     */
+    private void enviarAnuncioCoordenador(int idDestino) {
+        enviarMensagemBully(idDestino, MensagemBully.Tipo.COORDENADOR).thenAccept(resposta -> {
+            if (resposta != null && "OBSOLETO".equals(resposta.getStatus())) {
+                adotarLiderMaisRecente(resposta.getIdLider(), resposta.getEpoca(), "P" + idDestino);
+            }
+        });
+    }
 
-        try {
-            ServicoGrupoAGrpc.ServicoGrupoABlockingStub stub =
-                    ServicoGrupoAGrpc.newBlockingStub(canal);
+    /**
+     * Envia uma mensagem Bully sem bloquear o chamador.
+     * O futuro completa com a resposta do destino ou com a falha do envio.
+     */
+    private CompletableFuture<RespostaBully> enviarMensagemBully(int idDestino, MensagemBully.Tipo tipo) {
+        MensagemBully mensagem = MensagemBully.newBuilder()
+                .setTipo(tipo)
+                .setIdRemetente(this.id)
+                .setEpoca(arrendamento.getEpoca())
+                .build();
 
-            MensagemBully mensagem = MensagemBully.newBuilder()
-                    .setTipo(tipo)
-                    .setIdRemetente(this.id)
-                    .setRelogioLamport(this.relogioLamport.get())
-                    .build();
+        CompletableFuture<RespostaBully> futuro = new CompletableFuture<>();
+        long inicio = System.nanoTime();
 
-            stub.enviarMensagemBully(mensagem);
+        try {
+            ServicoGrupoAGrpc.newStub(obterCanal(idDestino))
+                    .withDeadlineAfter(estimadorTimeout.calcularTimeoutMs(RODADAS_RESPOSTA_OK), TimeUnit.MILLISECONDS)
+                    .enviarMensagemBully(mensagem, new StreamObserver<RespostaBully>() {
+                        @Override
+                        public void onNext(RespostaBully resposta) {
+                            futuro.complete(resposta);
+                        }
 
+                        @Override
+                        public void onError(Throwable erro) {
+                            futuro.completeExceptionally(erro);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            futuro.complete(null);
+                        }
+                    });
         } catch (Exception e) {
-            nosDaRede.get(idDestino).setAtivo(false);
-            gestorRecuperacao.registrarFalha(idDestino);
-        } finally {
-            try {
-                canal.shutdown().awaitTermination(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+            futuro.completeExceptionally(e);
         }
+
+        return futuro.whenComplete((resposta, erro) -> {
+            if (erro == null) {
+                estimadorTimeout.registrarAmostra((System.nanoTime() - inicio) / 1_000_000.0);
+            } else if (Status.fromThrowable(erro).getCode() == Status.Code.DEADLINE_EXCEEDED) {
+                // Par lento, não necessariamente falho: conta só como resposta que não veio;
+                // quem marca nós inativos é o heartbeat
+                System.out.printf("[BULLY P%d] P%d não respondeu %s no prazo%n", id, idDestino, tipo);
+            } else if (ativo.get()) {
+                nosDaRede.get(idDestino).setAtivo(false);
+                gestorRecuperacao.registrarFalha(idDestino);
+            }
+        });
+    }
+
+    /**
+     * Obtém (ou cria) o canal gRPC compartilhado para um nó do grupo
+     */
+    private ManagedChannel obterCanal(int idDestino) {
+        return canaisGrpc.computeIfAbsent(idDestino, pid ->
+                ManagedChannelBuilder.forAddress("localhost", portasGrpcDosNos.get(pid))
+                        .intercept(interceptorRelogio)
+                        .usePlaintext().build());
     }
 
     /**
      * MODIFICADO: Eleição de supercoordenador com comunicação intergrupos
      */
     private void iniciarEleicaoSuperCoordenador() {
-        System.out.printf("[SUPER-ELEIÇÃO P%d] Tornei-me líder do Grupo A. Iniciando eleição para supercoordenador...%n", id);
+        eleicaoSuper.solicitar("novo líder do Grupo " + nomeGrupo);
+    }
+
+    private void executarEleicaoSuper(long geracao) {
+        System.out.printf("[SUPER-ELEIÇÃO P%d] Tornei-me líder do Grupo %s. Iniciando eleição para supercoordenador...%n", id, nomeGrupo);
         candidatosSuperCoordenador.clear();
         candidatosSuperCoordenador.add(this.id);
 
-        this.ouvinteLideres = new OuvinteMulticast(PORTA_LIDERES, ENDERECO_LIDERES, this::processarMensagemLideres);
-        new Thread(this.ouvinteLideres).start();
+        garantirOuvinteLideres();
+        anunciarCandidaturaSuper();
 
-        // NOVO: Enviar candidatura via comunicação intergrupos também
-        comunicacaoIntergrupos.enviarCandidaturaSuper();
-        emissor.enviarMensagem("CANDIDATO:" + this.id, ENDERECO_LIDERES, PORTA_LIDERES);
+        // Aguarda candidaturas dos outros grupos
+        eleicaoSuper.agendar(geracao, () -> {
+            concluirEleicaoSuper();
+            eleicaoSuper.concluir(geracao);
+        }, Math.max(PISO_JANELA_SUPER_ELEICAO_MS, estimadorTimeout.calcularTimeoutMs(RODADAS_SUPER_ELEICAO)));
+    }
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(10000); // Aumentado para 10 segundos para aguardar outros grupos
+    /**
+     * O vencedor não é aplicado aqui: a decisão vai pelo multicast com ordem total,
+     * e todos os líderes aplicam as decisões de todos na mesma ordem
+     */
+    private void concluirEleicaoSuper() {
+        // Um supercoordenador ainda ativo continua no páreo mesmo sem ter respondido a tempo:
+        // decidir por um id menor o derrubaria
+        Integer atual = superCoordenadorId;
+        if (atual != null && atual != id
+                && comunicacaoIntergrupos.getRegistroGrupos().isLiderRemotoAtivo(atual, System.currentTimeMillis())) {
+            candidatosSuperCoordenador.add(atual);
+        }
 
-                int vencedor = candidatosSuperCoordenador.stream()
-                        .max(Integer::compareTo)
-                        .orElse(this.id);
+        int vencedor = candidatosSuperCoordenador.stream()
+                .max(Integer::compareTo)
+                .orElse(this.id);
 
-                superCoordenadorId = vencedor;
-                System.out.printf("[SUPER-ELEIÇÃO P%d] Eleição concluída. O Supercoordenador é P%d.%n",
-                        id, superCoordenadorId);
+        System.out.printf("[SUPER-ELEIÇÃO P%d] Eleição concluída com P%d; anunciando a decisão aos líderes%n",
+                id, vencedor);
+        decidirSupercoordenador(vencedor);
+    }
 
-                notificarEvento("SUPERCOORDENADOR ELEITO: P" + superCoordenadorId);
+    private void decidirSupercoordenador(int vencedor) {
+        decisoes.multicast(ByteBuffer.allocate(5).put(DECISAO_SUPERCOORDENADOR).putInt(vencedor).array());
+    }
 
-                // NOVO: Se eu sou o supercoordenador, ativar responsabilidades
-                if (id == superCoordenadorId) {
-                    System.out.printf("[SUPER-COORD P%d-A] *** TORNEI-ME SUPERCOORDENADOR GLOBAL! ***%n", id);
-                    superCoordenador.ativarComoSupercoordenador();
-                } else {
-                    System.out.printf("[SUPER-COORD P%d-A] Supercoordenador é P%d, continuando como líder local%n",
-                            id, superCoordenadorId);
-                }
+    /**
+     * Entrega em ordem total das decisões globais dos líderes (thread do multicast ordenado)
+     */
+    private void aplicarDecisao(MensagemOrdenada decisao) {
+        ByteBuffer corpo = ByteBuffer.wrap(decisao.getCorpo());
+        if (corpo.remaining() < 5 || corpo.get() != DECISAO_SUPERCOORDENADOR) {
+            System.err.printf("[SUPER-ELEIÇÃO P%d] Decisão desconhecida %s ignorada%n", id, decisao);
+            return;
+        }
+        aplicarSupercoordenador(corpo.getInt(), decisao.getRemetente());
+    }
+
+    /**
+     * Todos os líderes veem as mesmas decisões na mesma sequência; vale a última
+     */
+    private void aplicarSupercoordenador(int vencedor, int decididoPor) {
+        boolean mudou = superCoordenadorId == null || superCoordenadorId != vencedor;
+        superCoordenadorId = vencedor;
+        if (mudou) {
+            rastreador.registrarEvento("supercoordenador P" + vencedor);
+            System.out.printf("[SUPER-ELEIÇÃO P%d] Decisão de P%d: o Supercoordenador é P%d.%n",
+                    id, decididoPor, vencedor);
+            notificarEvento("SUPERCOORDENADOR ELEITO: P" + vencedor);
+        }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+        // Se eu sou o supercoordenador, ativar responsabilidades
+        if (id == vencedor) {
+            if (!superCoordenador.isSupercoordenador()) {
+                System.out.printf("[SUPER-COORD P%d-%s] *** TORNEI-ME SUPERCOORDENADOR GLOBAL! ***%n", id, nomeGrupo);
+                superCoordenador.ativarComoSupercoordenador();
             }
-        }).start();
+        } else if (superCoordenador.isSupercoordenador()) {
+            System.out.printf("[SUPER-COORD P%d-%s] Decisão posterior elegeu P%d, deixando o papel global%n",
+                    id, nomeGrupo, vencedor);
+            superCoordenador.desativar();
+        } else if (mudou) {
+            System.out.printf("[SUPER-COORD P%d-%s] Supercoordenador é P%d, continuando como líder local%n",
+                    id, nomeGrupo, vencedor);
+        }
     }
 
-    private void processarMensagemLideres(String mensagem) {
-        String[] partes = mensagem.split(":");
-        if (partes.length < 2) return;
+    /**
+     * Cria o ouvinte do grupo de líderes apenas uma vez e o reutiliza nas eleições seguintes
+     */
+    private synchronized void garantirOuvinteLideres() {
+        if (ouvinteLideres == null) {
+            this.ouvinteLideres = new OuvinteMulticast(PORTA_LIDERES, ENDERECO_LIDERES,
+                    FiltroEnvelope.excetoRemetente(id), this::processarMensagemLideres);
+            new Thread(this.ouvinteLideres).start();
+        }
+        decisoes.iniciar();
+    }
 
-        String tipo = partes[0];
-        int remetenteId = Integer.parseInt(partes[1]);
+    private void processarMensagemLideres(EnvelopeMulticast mensagem) {
+        int remetenteId = mensagem.getRemetente();
 
-        // Atualizar relógio de Lamport
-        if (partes.length > 2) {
-            try {
-                int relogioRemoto = Integer.parseInt(partes[2]);
-                relogioLamport.set(Math.max(relogioLamport.get(), relogioRemoto) + 1);
-            } catch (NumberFormatException e) {
-                relogioLamport.incrementAndGet();
-            }
+        relogio.receber(mensagem.getRelogio());
+        // O marcador é rastreado depois da captura que ele dispara (ver case MARCADOR)
+        if (mensagem.getTipo() != TipoMensagem.MARCADOR) {
+            rastreador.registrarRecebimento(mensagem.getTipo().name(), mensagem.getContextoCausal());
         }
 
-        switch (tipo) {
-            case "CANDIDATO":
+        switch (mensagem.getTipo()) {
+            case CANDIDATO:
                 if (!candidatosSuperCoordenador.contains(remetenteId)) {
                     candidatosSuperCoordenador.add(remetenteId);
-                    System.out.printf("[ELEIÇÃO SUPER P%d-A] Novo candidato: P%d%n", id, remetenteId);
+                    System.out.printf("[ELEIÇÃO SUPER P%d-%s] Novo candidato: P%d%n", id, nomeGrupo, remetenteId);
                 }
+                responderCandidatura(remetenteId);
                 break;
 
-            case "MARCADOR":
-                gestorSnapshot.receberMarcador(remetenteId, relogioLamport.get(),
-                        java.time.LocalDateTime.now().toString());
+            case MARCADOR:
+                // Capturar antes de combinar o vetor do remetente: o corte não pode incluir o envio do marcador
+                gestorSnapshot.receberMarcador(remetenteId, mensagem.getRelogio(), mensagem.getCorpoTexto());
+                rastreador.registrarRecebimento(mensagem.getTipo().name(), mensagem.getContextoCausal());
                 break;
 
             default:
                 // Registrar mensagem no snapshot se ativo
                 if (gestorSnapshot.isCapturaAtiva()) {
-                    gestorSnapshot.registrarMensagemCanal(remetenteId, mensagem);
+                    gestorSnapshot.registrarMensagemCanal(remetenteId, mensagem.getCorpoTexto());
                 }
                 break;
         }
     }
 
     private void coletarEstadoGlobal() {
-        relogioLamport.incrementAndGet();
         List<Recurso> snapshot = new ArrayList<>();
-        snapshot.add(new Recurso(this.id, this.relogioLamport.get()));
+        snapshot.add(new Recurso(this.id, relogio.tick()));
 
         for (int pid : todosPidsDoGrupo) {
             if (pid != this.id && nosDaRede.get(pid).isAtivo()) {
                 coletarStatusNo(pid, snapshot);
             }
         }
+        resumoGrupo = ResumoRecursos.de(snapshot);
 
         if (clienteAutenticadoPresente.get()) {
-            emissor.enviarRelatorio(this.id, snapshot);
+            emissor.enviarRelatorio(this.id, nomeGrupo, arrendamento.getEpoca(), snapshot);
         }
     }
 
     private void coletarStatusNo(int pid, List<Recurso> snapshot) {
-        int portaDestino = portasGrpcDosNos.get(pid);
-        ManagedChannel canal = ManagedChannelBuilder.forAddress("localhost", portaDestino)
-                .usePlaintext().build();
-
         try {
             ServicoGrupoAGrpc.ServicoGrupoABlockingStub stub =
-                    ServicoGrupoAGrpc.newBlockingStub(canal);
-
-            RequisicaoStatus requisicao = RequisicaoStatus.newBuilder()
-                    .setRelogioRemetente(this.relogioLamport.get())
-                    .build();
-
-            RespostaStatus resposta = stub.obterStatus(requisicao);
-            snapshot.add(new Recurso(pid, resposta.getRelogioNo()));
+                    ServicoGrupoAGrpc.newBlockingStub(obterCanal(pid))
+                            .withDeadlineAfter(estimadorTimeout.calcularTimeoutMs(RODADAS_RESPOSTA_OK),
+                                    TimeUnit.MILLISECONDS);
+
+            long inicio = System.nanoTime();
+            RespostaStatus resposta = stub.obterStatus(RequisicaoStatus.getDefaultInstance());
+            estimadorTimeout.registrarAmostra((System.nanoTime() - inicio) / 1_000_000.0);
+            // A amostra é a do nó consultado, não a do líder
+            snapshot.add(new Recurso(pid, resposta.getUsoCpu(), resposta.getUsoMemoria(),
+                    resposta.getMemoriaTotalGb(), resposta.getTempoAtividade(), resposta.getProcessadores(),
+                    resposta.getCargaSistema(), resposta.getRelogioNo()));
 
             // Confirmar que nó está ativo
             InfoNo infoNo = nosDaRede.get(pid);
@@ -501,12 +711,6 @@ public class NoGrupoA {
             if (infoNo.isAtivo()) {
                 gestorRecuperacao.registrarFalha(pid);
             }
-        } finally {
-            try {
-                canal.shutdown().awaitTermination(5, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
         }
     }
 
@@ -515,15 +719,122 @@ public class NoGrupoA {
     }
 
     /**
-     * MODIFICADO: Para todos os serviços incluindo comunicação intergrupos
+     * MODIFICADO: Para todos os serviços incluindo comunicação intergrupos.
+     * Se este nó é o líder, passa a liderança a um sucessor antes de parar.
      */
     public void setAtivo(boolean status) {
+        if (!status && ativo.get() && isLider()) {
+            transferirLideranca();
+        }
+        aplicarEstado(status);
+    }
+
+    /**
+     * Simula uma falha abrupta: para os serviços sem passagem de liderança
+     */
+    public void simularFalha() {
+        aplicarEstado(false);
+    }
+
+    /**
+     * Passagem planejada: oferece a liderança aos nós ativos (maior ID primeiro)
+     * com o estado do líder, sem esperar a detecção de falha por heartbeat.
+     * @return true se algum sucessor assumiu
+     */
+    private boolean transferirLideranca() {
+        List<Integer> sucessores = todosPidsDoGrupo.stream()
+                .filter(p -> p != this.id && nosDaRede.get(p).isAtivo())
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+
+        // Libera o papel global para que o sucessor possa assumi-lo
+        boolean eraSupercoordenador = superCoordenador.isSupercoordenador();
+        if (eraSupercoordenador) {
+            superCoordenador.desativar();
+        }
+
+        for (int sucessor : sucessores) {
+            long epoca = arrendamento.proximaEpoca();
+
+            PedidoTransferencia pedido = PedidoTransferencia.newBuilder()
+                    .setIdRemetente(this.id)
+                    .setEpoca(epoca)
+                    .setClienteAutenticado(clienteAutenticadoPresente.get())
+                    .setSupercoordenador(eraSupercoordenador)
+                    .addAllParesIntergrupos(comunicacaoIntergrupos.exportarParesConhecidos())
+                    .build();
+
+            try {
+                RespostaBully resposta = ServicoGrupoAGrpc.newBlockingStub(obterCanal(sucessor))
+                        .withDeadlineAfter(estimadorTimeout.calcularTimeoutMs(RODADAS_RESPOSTA_OK), TimeUnit.MILLISECONDS)
+                        .transferirLideranca(pedido);
+
+                if ("OK".equals(resposta.getStatus())) {
+                    reconhecerLider(sucessor, epoca);
+                    System.out.printf("[HANDOFF P%d] Liderança transferida para P%d (época %d)%n", id, sucessor, epoca);
+                    return true;
+                }
+                System.out.printf("[HANDOFF P%d] P%d recusou a liderança (%s)%n", id, sucessor, resposta.getStatus());
+            } catch (Exception e) {
+                System.err.printf("[HANDOFF P%d] P%d não assumiu a liderança: %s%n", id, sucessor, e.getMessage());
+            }
+        }
+
+        System.out.printf("[HANDOFF P%d] Nenhum sucessor disponível; o grupo elegerá após detectar a falha%n", id);
+        return false;
+    }
+
+    /**
+     * Sucessor: adota o estado do líder anterior e se anuncia ao grupo
+     */
+    private boolean assumirLiderancaTransferida(EstadoLideranca estado) {
+        if (!ativo.get() || !reconhecerLider(this.id, estado.getEpoca())) {
+            return false;
+        }
+
+        eleicaoBully.invalidar("liderança recebida de P" + estado.getIdLiderAnterior());
+        if (estado.isClienteAutenticadoPresente()) {
+            clienteAutenticadoPresente.set(true);
+        }
+        comunicacaoIntergrupos.adotarParesConhecidos(estado.getParesIntergrupos());
+
+        // O líder anterior está saindo do grupo
+        InfoNo anterior = nosDaRede.get(estado.getIdLiderAnterior());
+        if (anterior != null) {
+            anterior.setAtivo(false);
+        }
+
+        System.out.printf("%n[HANDOFF P%d] *** LIDERANÇA RECEBIDA DE P%d (época %d) ***%n",
+                id, estado.getIdLiderAnterior(), estado.getEpoca());
+        notificarEvento("LIDERANÇA DO GRUPO " + nomeGrupo + " TRANSFERIDA: P" + estado.getIdLiderAnterior() + " -> P" + id);
+
+        // Anúncio fora do handler gRPC para responder ao líder anterior imediatamente
+        scheduler.execute(() -> {
+            for (int pid : todosPidsDoGrupo) {
+                if (pid != this.id && nosDaRede.get(pid).isAtivo()) {
+                    enviarAnuncioCoordenador(pid);
+                }
+            }
+
+            if (estado.isSupercoordenador()) {
+                // Como qualquer decisão, pela ordem total: o papel é ativado na entrega
+                garantirOuvinteLideres();
+                notificarEvento("SUPERCOORDENADOR TRANSFERIDO: P" + id);
+                decidirSupercoordenador(this.id);
+            }
+        });
+        return true;
+    }
+
+    private void aplicarEstado(boolean status) {
         this.ativo.set(status);
         if (!status) {
-            System.out.printf("[GRUPO A P%d] Parando todos os serviços...%n", id);
+            System.out.printf("[GRUPO %s P%d] Parando todos os serviços...%n", nomeGrupo, id);
 
             servidorGrpc.shutdown();
             scheduler.shutdown();
+            eleicaoBully.parar();
+            eleicaoSuper.parar();
 
             // NOVO: Parar comunicação intergrupos
             if (comunicacaoIntergrupos != null) {
@@ -537,8 +848,11 @@ public class NoGrupoA {
 
             pararServicosSocket();
             if (ouvinteLideres != null) ouvinteLideres.parar();
+            decisoes.parar();
+            canaisGrpc.values().forEach(ManagedChannel::shutdown);
+            canaisGrpc.clear();
 
-            System.out.printf("[GRUPO A P%d] Todos os serviços foram encerrados%n", id);
+            System.out.printf("[GRUPO %s P%d] Todos os serviços foram encerrados%n", nomeGrupo, id);
         }
     }
 
@@ -562,10 +876,14 @@ public class NoGrupoA {
 
     // Getters
     public int getId() { return id; }
+    public String getNomeGrupo() { return nomeGrupo; }
     public boolean isAtivo() { return ativo.get(); }
     public int getCoordenadorId() { return coordenadorId; }
+    public long getEpocaLideranca() { return arrendamento.getEpoca(); }
+    public boolean isLiderComArrendamento() { return isLider(); }
     public Map<Integer, InfoNo> getNosDaRede() { return nosDaRede; }
     public GestorSnapshot getGestorSnapshot() { return gestorSnapshot; }
+    public EstimadorTimeout getEstimadorTimeout() { return estimadorTimeout; }
 
     // NOVOS Getters
     public ComunicacaoIntergrupos getComunicacaoIntergrupos() { return comunicacaoIntergrupos; }
@@ -581,8 +899,6 @@ public class NoGrupoA {
 
         @Override
         public void enviarMensagemBully(MensagemBully req, StreamObserver<RespostaBully> resObserver) {
-            noPai.relogioLamport.set(Math.max(noPai.relogioLamport.get(), req.getRelogioLamport()) + 1);
-
             // Registrar mensagem no snapshot se ativo
             if (noPai.gestorSnapshot.isCapturaAtiva()) {
                 noPai.gestorSnapshot.registrarMensagemCanal(req.getIdRemetente(),
@@ -592,6 +908,7 @@ public class NoGrupoA {
             switch (req.getTipo()) {
                 case ELEICAO:
                     if (noPai.id > req.getIdRemetente()) {
+                        // Resposta OK enviada de forma assíncrona; o handler retorna imediatamente
                         noPai.enviarMensagemBully(req.getIdRemetente(), MensagemBully.Tipo.OK);
                         noPai.iniciarEleicao();
                     }
@@ -602,10 +919,23 @@ public class NoGrupoA {
                     break;
 
                 case COORDENADOR:
-                    noPai.coordenadorId = req.getIdRemetente();
-                    noPai.emEleicao.set(false);
-                    System.out.printf("[BULLY P%d] Reconheço P%d como novo coordenador%n",
-                            noPai.id, req.getIdRemetente());
+                    if (!noPai.reconhecerLider(req.getIdRemetente(), req.getEpoca())) {
+                        System.out.printf("[BULLY P%d] Anúncio de P%d descartado (época %d obsoleta)%n",
+                                noPai.id, req.getIdRemetente(), req.getEpoca());
+                        resObserver.onNext(RespostaBully.newBuilder()
+                                .setStatus("OBSOLETO")
+                                .setIdLider(noPai.coordenadorId)
+                                .setEpoca(noPai.arrendamento.getEpoca())
+                                .build());
+                        resObserver.onCompleted();
+                        return;
+                    }
+                    noPai.eleicaoBully.invalidar("coordenador P" + req.getIdRemetente() + " anunciado");
+                    if (noPai.id != req.getIdRemetente()) {
+                        noPai.eleicaoSuper.invalidar("deixei de ser líder");
+                    }
+                    System.out.printf("[BULLY P%d] Reconheço P%d como novo coordenador (época %d)%n",
+                            noPai.id, req.getIdRemetente(), req.getEpoca());
                     break;
             }
 
@@ -614,14 +944,26 @@ public class NoGrupoA {
         }
 
         @Override
-        public void obterStatus(RequisicaoStatus req, StreamObserver<RespostaStatus> resObserver) {
-            noPai.relogioLamport.set(Math.max(noPai.relogioLamport.get(), req.getRelogioRemetente()) + 1);
+        public void transferirLideranca(PedidoTransferencia req, StreamObserver<RespostaBully> resObserver) {
+            EstadoLideranca estado = new EstadoLideranca(req.getIdRemetente(), req.getEpoca(),
+                    req.getClienteAutenticado(), req.getSupercoordenador(), req.getParesIntergruposList());
+            boolean aceito = noPai.assumirLiderancaTransferida(estado);
 
-            Recurso recurso = new Recurso(noPai.id, noPai.relogioLamport.get());
+            resObserver.onNext(RespostaBully.newBuilder().setStatus(aceito ? "OK" : "RECUSADO").build());
+            resObserver.onCompleted();
+        }
+
+        @Override
+        public void obterStatus(RequisicaoStatus req, StreamObserver<RespostaStatus> resObserver) {
+            Recurso recurso = new Recurso(noPai.id, noPai.relogio.tick());
             RespostaStatus resposta = RespostaStatus.newBuilder()
                     .setUsoCpu(recurso.getUsoCpu())
                     .setUsoMemoria(recurso.getUsoMemoria())
-                    .setRelogioNo(recurso.getRelogioLamport())
+                    .setMemoriaTotalGb(recurso.getMemoriaTotalGB())
+                    .setTempoAtividade(recurso.getTempoAtividade())
+                    .setProcessadores(recurso.getProcessadores())
+                    .setCargaSistema(recurso.getCargaSistema())
+                    .setRelogioNo(recurso.getRelogio())
                     .build();
 
             resObserver.onNext(resposta);
@@ -3,37 +3,67 @@ package monitoramento.grupob;
 import monitoramento.autenticacao.ServidorAutenticacao;
 import monitoramento.comum.*;
 import monitoramento.coordenacao.EmissorMulticast;
+import monitoramento.coordenacao.EnvelopeMulticast;
+import monitoramento.coordenacao.FiltroEnvelope;
+import monitoramento.coordenacao.MensagemOrdenada;
+import monitoramento.coordenacao.MulticastOrdenadoTotal;
 import monitoramento.coordenacao.OuvinteMulticast;
 import monitoramento.coordenacao.SuperCoordenador;
+import monitoramento.coordenacao.TipoMensagem;
 import monitoramento.intergrupo.ComunicacaoIntergrupos;
+import monitoramento.intergrupo.MensagemIntergrupo;
+import monitoramento.rastreio.RastreadorCausal;
 import java.net.ServerSocket;
+import java.nio.ByteBuffer;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class NoGrupoB {
     private final int id;
+    private final String nomeGrupo;
     private final AtomicBoolean ativo = new AtomicBoolean(true);
-    private final AtomicInteger relogioLamport = new AtomicInteger(0);
-    private int coordenadorId;
+    // Relógio híbrido do nó; nas chamadas RMI vai como argumento
+    private final RelogioHibrido relogio = new RelogioHibrido();
+    // Rastreio causal (inerte sem -Drastreio.diretorio)
+    private final RastreadorCausal rastreador;
+    private volatile int coordenadorId;
     private final List<Integer> todosPidsDoGrupo;
     private final Map<Integer, InfoNo> nosDaRede = new ConcurrentHashMap<>();
     private final ServicoNoRMI servidorRMI;
     private final int portaHeartbeat;
-    private final EmissorMulticast emissor = new EmissorMulticast();
+    private final EmissorMulticast emissor = EmissorMulticast.getInstancia();
     private final AtomicBoolean clienteAutenticadoPresente = new AtomicBoolean(false);
     private ServerSocket servidorSocketAuth;
     private ServerSocket servidorSocketHeartbeat;
     private final int idProximoNo;
     private AtomicBoolean emEleicao = new AtomicBoolean(false);
+    private final CoordenadorEleicao eleicaoAnel;
+    private final CoordenadorEleicao eleicaoSuper;
+    private static final long JANELA_COALESCENCIA_MS = 250;
+
+    // Timeouts adaptativos derivados do RTT observado entre os nós
+    private final EstimadorTimeout estimadorTimeout = new EstimadorTimeout();
+    private static final int RODADAS_SUPER_ELEICAO = 10;
+    // A janela de candidaturas cobre líderes de outros grupos elegendo e anunciando por multicast,
+    // que o RTT medido dentro do grupo não reflete
+    private static final long PISO_JANELA_SUPER_ELEICAO_MS = 10000;
+
+    // Arrendamento de liderança: menor que o tempo de detecção de falha (3 heartbeats de 5s)
+    private final ArrendamentoLideranca arrendamento;
+    private static final long DURACAO_ARRENDAMENTO_MS = 12000;
+    private static final long CARENCIA_INICIAL_MS = 30000;
 
     // Super-coordenador
     private static final String ENDERECO_LIDERES = "239.0.0.2";
@@ -42,20 +72,45 @@ public class NoGrupoB {
     private final List<Integer> candidatosSuperCoordenador = new CopyOnWriteArrayList<>();
     private OuvinteMulticast ouvinteLideres;
 
+    // Decisões globais dos líderes, entregues a todos na mesma ordem
+    private static final String ENDERECO_DECISOES = "239.0.0.5";
+    private static final int PORTA_DECISOES = 12349;
+    private static final byte DECISAO_SUPERCOORDENADOR = 1;
+    private final MulticastOrdenadoTotal decisoes;
+
     // NOVOS COMPONENTES - Comunicação Intergrupos e SuperCoordenador
     private final ComunicacaoIntergrupos comunicacaoIntergrupos;
     private final SuperCoordenador superCoordenador;
 
+    // Resumo dos recursos do grupo da última coleta do líder; sobe ao supercoordenador nas respostas de status
+    private volatile ResumoRecursos resumoGrupo;
+
     // Sistemas integrados
     private final GestorSnapshot gestorSnapshot;
     private final GestorRecuperacao gestorRecuperacao;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
 
     public NoGrupoB(int id, List<Integer> todosPidsDoGrupo, Map<Integer, Integer> portasHeartbeat) throws RemoteException {
+        this(id, "B", todosPidsDoGrupo, portasHeartbeat);
+    }
+
+    /**
+     * @param nomeGrupo nome do grupo nas mensagens intergrupos (até 3 caracteres [A-Z0-9])
+     */
+    public NoGrupoB(int id, String nomeGrupo, List<Integer> todosPidsDoGrupo,
+                    Map<Integer, Integer> portasHeartbeat) throws RemoteException {
         this.id = id;
+        this.nomeGrupo = nomeGrupo;
         this.todosPidsDoGrupo = todosPidsDoGrupo;
         this.portaHeartbeat = portasHeartbeat.get(id);
+        this.rastreador = RastreadorCausal.para(id);
+        this.decisoes = new MulticastOrdenadoTotal(id, nomeGrupo, relogio, ENDERECO_DECISOES, PORTA_DECISOES,
+                this::aplicarDecisao);
         this.coordenadorId = todosPidsDoGrupo.stream().max(Integer::compareTo).orElse(this.id);
+        this.arrendamento = new ArrendamentoLideranca(id, todosPidsDoGrupo.size(), coordenadorId,
+                DURACAO_ARRENDAMENTO_MS, CARENCIA_INICIAL_MS);
+        this.eleicaoAnel = new CoordenadorEleicao("ANEL P" + id, JANELA_COALESCENCIA_MS, this::executarEleicaoAnel);
+        this.eleicaoSuper = new CoordenadorEleicao("SUPER P" + id, JANELA_COALESCENCIA_MS, this::executarEleicaoSuper);
 
         // Inicializar nós da rede
         for (int pid : todosPidsDoGrupo) {
@@ -69,18 +124,21 @@ public class NoGrupoB {
 
         // Inicializar comunicação intergrupos
         this.comunicacaoIntergrupos = new ComunicacaoIntergrupos(
-                id, "B",
-                () -> this.relogioLamport.get(),
-                () -> this.id == this.coordenadorId,
+                id, nomeGrupo,
+                this.relogio,
+                this::isLider,
+                this.arrendamento::getEpoca,
                 this::processarMensagemIntergrupos,
-                () -> new Recurso(this.id, this.relogioLamport.get())
+                () -> new Recurso(this.id, this.relogio.tick()),
+                () -> this.todosPidsDoGrupo.size(),
+                () -> this.resumoGrupo
         );
 
         //  Inicializar supercoordenador
         this.superCoordenador = new SuperCoordenador(
-                id, "B",
-                () -> this.relogioLamport.get(),
-                () -> this.id == this.coordenadorId,
+                id, nomeGrupo,
+                this.relogio,
+                this::isLider,
                 this::notificarEvento,
                 this.comunicacaoIntergrupos
         );
@@ -88,8 +146,9 @@ public class NoGrupoB {
         // Inicializar gestores
         this.gestorSnapshot = new GestorSnapshot(
                 () -> this.id,
-                () -> this.relogioLamport.get(),
-                () -> this.ativo.get()
+                this.relogio::tick,
+                () -> this.ativo.get(),
+                () -> this.comunicacaoIntergrupos.getRegistroGrupos().getTotalMembros(System.currentTimeMillis())
         );
 
         this.gestorRecuperacao = new GestorRecuperacao(
@@ -101,7 +160,7 @@ public class NoGrupoB {
         // Inicializar servidor RMI
         this.servidorRMI = new ServidorRMIImpl(this);
 
-        System.out.printf("[GRUPO B - RMI] Nó %d iniciado. Próximo no anel: P%d.%n", id, idProximoNo);
+        System.out.printf("[GRUPO %s - RMI] Nó %d iniciado. Próximo no anel: P%d.%n", nomeGrupo, id, idProximoNo);
 
         iniciarServicosHeartbeat();
         iniciarTarefaCoordenador();
@@ -118,92 +177,92 @@ public class NoGrupoB {
         // Enviar ping inicial para descobrir outros grupos após 5 segundos
         scheduler.schedule(() -> {
             comunicacaoIntergrupos.enviarPingIntergrupo();
-            System.out.printf("[INTERGRUPOS P%d-B] Descoberta de grupos iniciada%n", id);
+            System.out.printf("[INTERGRUPOS P%d-%s] Descoberta de grupos iniciada%n", id, nomeGrupo);
         }, 5, TimeUnit.SECONDS);
 
         // Ping periódico para manter comunicação viva
         scheduler.scheduleAtFixedRate(() -> {
-            if (id == coordenadorId) { // Apenas o líder faz ping
+            if (isLider()) { // Apenas o líder faz ping
                 comunicacaoIntergrupos.enviarPingIntergrupo();
             }
-        }, 30, 60, TimeUnit.SECONDS); // A cada 1 minuto após 30s iniciais
+        }, 30, ComunicacaoIntergrupos.INTERVALO_PING_SEGUNDOS, TimeUnit.SECONDS); // A cada 1 minuto após 30s iniciais
     }
 
     /**
-      Processa mensagens recebidas via comunicação intergrupos
+     * Processa as mensagens intergrupos que cabem ao nó
+     * (candidaturas a supercoordenador e marcadores de snapshot global)
      */
-    private void processarMensagemIntergrupos(String mensagem) {
-        // Atualizar relógio de Lamport
-        relogioLamport.incrementAndGet();
-
-        if (mensagem.startsWith("SNAPSHOT_MARKER:")) {
-            // Mensagem de snapshot de outro grupo
-            String payload = mensagem.substring(16);
-            System.out.printf("[SNAPSHOT P%d-B] Marcador de snapshot intergrupos recebido: %s%n",
-                    id, payload);
-
-            if (gestorSnapshot != null) {
-                // Processar marcador de snapshot cross-group
-                gestorSnapshot.receberMarcador(-1, relogioLamport.get(), payload);
-            }
-        } else if (mensagem.startsWith("SUPER_ELECTION:")) {
-            // Mensagem de eleição de supercoordenador
-            String payload = mensagem.substring(15);
-            System.out.printf("[ELEIÇÃO SUPER P%d-B] Candidatura intergrupos: %s%n", id, payload);
-
-            // Extrair informações do candidato
-            if (payload.contains("candidato:") && payload.contains("prioridade:")) {
-                try {
-                    String[] partes = payload.split(",");
-                    for (String parte : partes) {
-                        if (parte.startsWith("candidato:")) {
-                            String candidatoInfo = parte.substring(10);
-                            // Processar candidatura na eleição global
-                            processarCandidaturaGlobal(candidatoInfo);
-                        }
-                    }
-                } catch (Exception e) {
-                    System.err.printf("[ERRO P%d-B] Erro ao processar candidatura: %s%n", id, e.getMessage());
+    private void processarMensagemIntergrupos(MensagemIntergrupo mensagem) {
+        // O relógio do cabeçalho já foi incorporado pela comunicação intergrupos
+        switch (mensagem.getTipo()) {
+            case SNAPSHOT_GLOBAL:
+                System.out.printf("[SNAPSHOT P%d-%s] Marcador de snapshot intergrupos recebido: %s%n",
+                        id, nomeGrupo, mensagem.getIdSnapshot());
+
+                if (gestorSnapshot != null) {
+                    // Processar marcador de snapshot cross-group
+                    gestorSnapshot.receberMarcador(-1, mensagem.getRelogio(), LocalTime.ofInstant(
+                            Instant.ofEpochMilli(mensagem.getTimestamp()), ZoneId.systemDefault()).toString());
                 }
-            }
+                break;
+
+            case SUPER_CANDIDATE:
+                System.out.printf("[ELEIÇÃO SUPER P%d-%s] Candidatura intergrupos: P%d-%s (prioridade %d)%n",
+                        id, nomeGrupo, mensagem.getRemetente(), mensagem.getGrupo(), mensagem.getPrioridade());
+                processarCandidaturaGlobal(mensagem.getRemetente(), mensagem.getGrupo());
+                break;
+
+            default:
+                break;
         }
     }
 
     /**
-     *  Processa candidaturas para supercoordenador global
+     * Processa candidaturas para supercoordenador global
      */
-    private void processarCandidaturaGlobal(String candidatoInfo) {
-        // candidatoInfo formato: "idNo-tipoGrupo"
-        String[] partes = candidatoInfo.split("-");
-        if (partes.length != 2) return;
-
-        try {
-            int idCandidato = Integer.parseInt(partes[0]);
-            String grupoCandidato = partes[1];
+    private void processarCandidaturaGlobal(int idCandidato, String grupoCandidato) {
+        System.out.printf("[ELEIÇÃO SUPER P%d-%s] Candidato: P%d-%s%n", id, nomeGrupo, idCandidato, grupoCandidato);
 
-            System.out.printf("[ELEIÇÃO SUPER P%d-B] Candidato: P%d-%s%n", id, idCandidato, grupoCandidato);
-
-            // Se eu sou líder do meu grupo, também sou candidato
-            if (id == coordenadorId) {
-                candidatosSuperCoordenador.add(id); // Minha candidatura
-            }
+        // Se eu sou líder do meu grupo, também sou candidato
+        if (isLider()) {
+            candidatosSuperCoordenador.add(id); // Minha candidatura
+        }
 
-            // Adicionar candidato externo se não estiver na lista
-            if (!candidatosSuperCoordenador.contains(idCandidato)) {
-                candidatosSuperCoordenador.add(idCandidato);
-            }
+        // Adicionar candidato externo se não estiver na lista
+        if (!candidatosSuperCoordenador.contains(idCandidato)) {
+            candidatosSuperCoordenador.add(idCandidato);
+        }
+        responderCandidatura(idCandidato);
+    }
 
-        } catch (NumberFormatException e) {
-            System.err.printf("[ERRO P%d-B] ID de candidato inválido: %s%n", id, candidatoInfo);
+    /**
+     * Um líder de id menor se candidatou (ex.: recém-eleito no grupo dele): reanunciar a
+     * minha candidatura antes que ele decida, senão ele se declararia vencedor sem me ver
+     */
+    private void responderCandidatura(int idCandidato) {
+        if (idCandidato < id && isLider()) {
+            anunciarCandidaturaSuper();
         }
     }
 
+    /**
+     * Candidatura pelos dois caminhos: comunicação intergrupos e grupo de líderes
+     */
+    private void anunciarCandidaturaSuper() {
+        comunicacaoIntergrupos.enviarCandidaturaSuper();
+        emissor.enviar(new EnvelopeMulticast(TipoMensagem.CANDIDATO, id, nomeGrupo, relogio.tick(),
+                arrendamento.getEpoca(), "").comContexto(rastreador.registrarEnvio("CANDIDATO")),
+                ENDERECO_LIDERES, PORTA_LIDERES);
+    }
+
     private void iniciarServicosHeartbeat() {
         new Thread(new ServidorHeartbeat(
                 () -> this.id,
                 () -> this.ativo.get(),
                 this.portaHeartbeat,
-                (s) -> this.servidorSocketHeartbeat = s
+                (s) -> this.servidorSocketHeartbeat = s,
+                () -> this.coordenadorId,
+                this.arrendamento::getEpoca
         )).start();
 
         // Aguardar inicialização antes de iniciar gestor de heartbeat
@@ -214,24 +273,78 @@ public class NoGrupoB {
                         () -> this.id,
                         () -> this.coordenadorId,
                         () -> this.nosDaRede,
-                        this::iniciarEleicaoSuperCoordenador
+                        this::iniciarEleicaoAnel,
+                        this::registrarRespostaHeartbeat
                 ).run();
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
             }
         }).start();
     }
+
+    /**
+     * Heartbeat respondido: alimenta o estimador de RTT, adota um líder mais recente
+     * que o nó já conheça e conta a confirmação no arrendamento do líder
+     */
+    private void registrarRespostaHeartbeat(int pid, double rttMs, int liderReconhecido, long epocaReconhecida) {
+        estimadorTimeout.registrarAmostra(rttMs);
+        if (liderReconhecido >= 0) {
+            adotarLiderMaisRecente(liderReconhecido, epocaReconhecida, "P" + pid);
+        }
+        arrendamento.registrarResposta(pid, liderReconhecido, epocaReconhecida);
+    }
+
+    /**
+     * Outro nó reconhece um líder que vence o conhecido (ex.: eleito enquanto este nó
+     * estava isolado e o anúncio não completou o anel até ele): passa a reconhecê-lo
+     * e deixa de agir como líder
+     */
+    private void adotarLiderMaisRecente(int lider, long epoca, String origem) {
+        if (lider == this.id || !reconhecerLider(lider, epoca)) {
+            return;
+        }
+        System.out.printf("[ANEL P%d] %s reconhece P%d na época %d; adotado como líder%n",
+                id, origem, lider, epoca);
+        emEleicao.set(false);
+        eleicaoAnel.invalidar("líder P" + lider + " informado por " + origem);
+        eleicaoSuper.invalidar("deixei de ser líder");
+    }
+
+    /**
+     * Só é líder quem foi eleito e ainda mantém o arrendamento válido
+     */
+    private boolean isLider() {
+        return id == coordenadorId && arrendamento.isLiderValido();
+    }
+
+    /**
+     * Reconhece um líder anunciado, descartando anúncios de épocas obsoletas
+     * @return true se o anúncio foi aceito como novo
+     */
+    private synchronized boolean reconhecerLider(int lider, long epoca) {
+        if (!arrendamento.aceitar(lider, epoca)) {
+            return false;
+        }
+        boolean eraLider = this.coordenadorId == this.id;
+        this.coordenadorId = lider;
+        if (eraLider && lider != this.id) {
+            comunicacaoIntergrupos.deixarLideranca();
+        }
+        return true;
+    }
     private void iniciarTarefaCoordenador() {
         new Thread(() -> {
             Thread servidorAuthThread = null;
             while (ativo.get()) {
                 try {
                     Thread.sleep(10000);
-                    if (id == coordenadorId && ativo.get()) {
+                    if (isLider() && ativo.get()) {
                         if (servidorAuthThread == null || !servidorAuthThread.isAlive()) {
                             servidorAuthThread = new Thread(new ServidorAutenticacao(
                                     () -> this.id,
-                                    () -> this.coordenadorId,
+                                    this::isLider,
+                                    nomeGrupo,
+                                    this.arrendamento::getEpoca,
                                     () -> this.ativo.get(),
                                     () -> this.registrarClienteAutenticado(),
                                     (socket) -> this.servidorSocketAuth = socket
@@ -257,7 +370,7 @@ public class NoGrupoB {
     private void iniciarMonitoramentoPeriodico() {
         // Relatório de recuperação a cada 2 minutos
         scheduler.scheduleAtFixedRate(() -> {
-            if (id == coordenadorId && ativo.get()) {
+            if (isLider() && ativo.get()) {
                 gestorRecuperacao.gerarRelatorioRecuperacao();
             }
         }, 120, 120, TimeUnit.SECONDS);
@@ -265,45 +378,67 @@ public class NoGrupoB {
         // Snapshot periódico apenas se for supercoordenador
         scheduler.scheduleAtFixedRate(() -> {
             if (superCoordenador.isSupercoordenador() && ativo.get()) {
-                System.out.printf("[SNAPSHOT P%d-B] Iniciando snapshot como supercoordenador%n", id);
+                System.out.printf("[SNAPSHOT P%d-%s] Iniciando snapshot como supercoordenador%n", id, nomeGrupo);
                 gestorSnapshot.iniciarCapturaEstado();
             }
         }, 300, 300, TimeUnit.SECONDS);
 
         // Relatório de comunicação intergrupos a cada 3 minutos
         scheduler.scheduleAtFixedRate(() -> {
-            if (id == coordenadorId && ativo.get()) {
+            if (isLider() && ativo.get()) {
                 String relatorio = comunicacaoIntergrupos.gerarRelatorioIntergrupos();
                 System.out.print(relatorio);
-                emissor.enviarMensagem(relatorio, "239.0.0.1", 12345);
+                emissor.enviarRelatorioSistema(relatorio, id);
             }
         }, 180, 180, TimeUnit.SECONDS);
     }
 
+    /**
+     * Solicita uma eleição em anel; gatilhos simultâneos viram uma única execução
+     */
     public void iniciarEleicaoAnel() {
-        if (emEleicao.getAndSet(true)) return;
+        eleicaoAnel.solicitar("eleição solicitada");
+    }
+
+    private void executarEleicaoAnel(long geracao) {
+        if (emEleicao.getAndSet(true)) {
+            eleicaoAnel.concluir(geracao);
+            return;
+        }
 
         System.out.printf("[ANEL P%d] Iniciando eleição em anel%n", id);
         notificarEvento("ELEIÇÃO EM ANEL INICIADA POR P" + id);
 
+        // Se o anúncio do líder não voltar a tempo, libera novas eleições
+        eleicaoAnel.agendar(geracao, () -> {
+            emEleicao.set(false);
+            eleicaoAnel.concluir(geracao);
+        }, estimadorTimeout.calcularTimeoutMs(2 * todosPidsDoGrupo.size() + 1));
+
         String mensagemInicial = "ELEICAO:" + this.id + ":" + this.id;
         enviarParaProximo(mensagemInicial);
     }
 
     private void enviarParaProximo(String mensagem) {
-        relogioLamport.incrementAndGet();
-
         // Encontrar próximo nó ativo no anel
         int proximoAtivo = encontrarProximoNoAtivo();
 
         if (proximoAtivo == -1) {
-            // Se não há próximo ativo, eu me torno líder
-            System.out.printf("[ANEL P%d] Nenhum próximo nó ativo, assumindo liderança%n", id);
+            // Se não há próximo ativo, eu me torno líder numa nova época
+            long epoca;
             synchronized (this) {
-                this.coordenadorId = this.id;
                 this.emEleicao.set(false);
+                if (isLider()) {
+                    return;
+                }
+                epoca = arrendamento.proximaEpoca();
+                if (!reconhecerLider(this.id, epoca)) {
+                    return;
+                }
             }
-            notificarEvento("NOVO LÍDER ELEITO NO GRUPO B: P" + id);
+            System.out.printf("[ANEL P%d] Nenhum próximo nó ativo, assumindo liderança (época %d)%n", id, epoca);
+            eleicaoAnel.invalidar("assumi a liderança");
+            notificarEvento("NOVO LÍDER ELEITO NO GRUPO " + nomeGrupo + ": P" + id);
             iniciarEleicaoSuperCoordenador();
             return;
         }
@@ -311,9 +446,10 @@ public class NoGrupoB {
         try {
             Registry registry = LocateRegistry.getRegistry("127.0.0.1", 1099);
             ServicoNoRMI stub = (ServicoNoRMI) registry.lookup("NoRMI" + proximoAtivo);
-            stub.receberMensagemEleicaoAnel(mensagem, this.relogioLamport.get());
+            // Sem amostra de RTT: a chamada só retorna depois que o anel inteiro repassou a mensagem
+            stub.receberMensagemEleicaoAnel(mensagem, relogio.tick(), rastreador.registrarEnvio("eleição anel"));
         } catch (Exception e) {
-            System.err.printf("[ERRO P%d-B] Falha ao enviar para P%d: %s%n", id, proximoAtivo, e.getMessage());
+            System.err.printf("[ERRO P%d-%s] Falha ao enviar para P%d: %s%n", id, nomeGrupo, proximoAtivo, e.getMessage());
 
             // Marcar próximo nó como falho e tentar novamente
             InfoNo noProximo = nosDaRede.get(proximoAtivo);
@@ -348,109 +484,154 @@ public class NoGrupoB {
         return -1; // Nenhum próximo nó ativo encontrado
     }
 
-    // Metodo para finalizar eleição:
-    private void finalizarEleicaoComoLider() {
-        synchronized (this) {
-            this.coordenadorId = this.id;
-            this.emEleicao.set(false);
-        }
+    // Metodo para finalizar eleição (o anúncio LIDER desta época já foi aceito):
+    private void finalizarEleicaoComoLider(long epoca) {
+        System.out.printf("[ANEL P%d] *** EU SOU O NOVO LÍDER DO GRUPO %s! (época %d) ***%n", id, nomeGrupo, epoca);
+        notificarEvento("NOVO LÍDER ELEITO NO GRUPO " + nomeGrupo + ": P" + id);
 
-        System.out.printf("[ANEL P%d] *** EU SOU O NOVO LÍDER DO GRUPO B! ***%n", id);
-        notificarEvento("NOVO LÍDER ELEITO NO GRUPO B: P" + id);
-
-        // Iniciar eleição de supercoordenador após delay
+        // Iniciar eleição de supercoordenador após o anúncio percorrer o anel
         scheduler.schedule(() -> {
             iniciarEleicaoSuperCoordenador();
-        }, 3000, TimeUnit.MILLISECONDS);
+        }, estimadorTimeout.calcularTimeoutMs(todosPidsDoGrupo.size()), TimeUnit.MILLISECONDS);
     }
 
     /**
      Eleição de supercoordenador com comunicação intergrupos
      */
     private void iniciarEleicaoSuperCoordenador() {
-        System.out.printf("[SUPER-ELEIÇÃO P%d] Tornei-me líder do Grupo B. Iniciando eleição para supercoordenador...%n", id);
+        eleicaoSuper.solicitar("novo líder do Grupo " + nomeGrupo);
+    }
+
+    private void executarEleicaoSuper(long geracao) {
+        System.out.printf("[SUPER-ELEIÇÃO P%d] Tornei-me líder do Grupo %s. Iniciando eleição para supercoordenador...%n", id, nomeGrupo);
         candidatosSuperCoordenador.clear();
         candidatosSuperCoordenador.add(this.id);
 
-        this.ouvinteLideres = new OuvinteMulticast(PORTA_LIDERES, ENDERECO_LIDERES, this::processarMensagemLideres);
-        new Thread(this.ouvinteLideres).start();
+        garantirOuvinteLideres();
+        anunciarCandidaturaSuper();
 
-        //  Enviar candidatura via comunicação intergrupos também
-        comunicacaoIntergrupos.enviarCandidaturaSuper();
-        emissor.enviarMensagem("CANDIDATO:" + this.id, ENDERECO_LIDERES, PORTA_LIDERES);
+        // Aguarda candidaturas dos outros grupos
+        eleicaoSuper.agendar(geracao, () -> {
+            concluirEleicaoSuper();
+            eleicaoSuper.concluir(geracao);
+        }, Math.max(PISO_JANELA_SUPER_ELEICAO_MS, estimadorTimeout.calcularTimeoutMs(RODADAS_SUPER_ELEICAO)));
+    }
 
-        new Thread(() -> {
-            try {
-                Thread.sleep(10000); // Aumentado para 10 segundos para aguardar outros grupos
+    /**
+     * O vencedor não é aplicado aqui: a decisão vai pelo multicast com ordem total,
+     * e todos os líderes aplicam as decisões de todos na mesma ordem
+     */
+    private void concluirEleicaoSuper() {
+        // Um supercoordenador ainda ativo continua no páreo mesmo sem ter respondido a tempo:
+        // decidir por um id menor o derrubaria
+        Integer atual = superCoordenadorId;
+        if (atual != null && atual != id
+                && comunicacaoIntergrupos.getRegistroGrupos().isLiderRemotoAtivo(atual, System.currentTimeMillis())) {
+            candidatosSuperCoordenador.add(atual);
+        }
 
-                int vencedor = candidatosSuperCoordenador.stream()
-                        .max(Integer::compareTo)
-                        .orElse(this.id);
+        int vencedor = candidatosSuperCoordenador.stream()
+                .max(Integer::compareTo)
+                .orElse(this.id);
 
-                superCoordenadorId = vencedor;
-                System.out.printf("[SUPER-ELEIÇÃO P%d] Eleição concluída. O Supercoordenador é P%d.%n",
-                        id, superCoordenadorId);
+        System.out.printf("[SUPER-ELEIÇÃO P%d] Eleição concluída com P%d; anunciando a decisão aos líderes%n",
+                id, vencedor);
+        decidirSupercoordenador(vencedor);
+    }
 
-                notificarEvento("SUPERCOORDENADOR ELEITO: P" + superCoordenadorId);
+    private void decidirSupercoordenador(int vencedor) {
+        decisoes.multicast(ByteBuffer.allocate(5).put(DECISAO_SUPERCOORDENADOR).putInt(vencedor).array());
+    }
 
-                //  Se eu sou o supercoordenador, ativar responsabilidades
-                if (id == superCoordenadorId) {
-                    System.out.printf("[SUPER-COORD P%d-B] *** TORNEI-ME SUPERCOORDENADOR GLOBAL! ***%n", id);
-                    superCoordenador.ativarComoSupercoordenador();
-                } else {
-                    System.out.printf("[SUPER-COORD P%d-B] Supercoordenador é P%d, continuando como líder local%n",
-                            id, superCoordenadorId);
-                }
+    /**
+     * Entrega em ordem total das decisões globais dos líderes (thread do multicast ordenado)
+     */
+    private void aplicarDecisao(MensagemOrdenada decisao) {
+        ByteBuffer corpo = ByteBuffer.wrap(decisao.getCorpo());
+        if (corpo.remaining() < 5 || corpo.get() != DECISAO_SUPERCOORDENADOR) {
+            System.err.printf("[SUPER-ELEIÇÃO P%d] Decisão desconhecida %s ignorada%n", id, decisao);
+            return;
+        }
+        aplicarSupercoordenador(corpo.getInt(), decisao.getRemetente());
+    }
 
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+    /**
+     * Todos os líderes veem as mesmas decisões na mesma sequência; vale a última
+     */
+    private void aplicarSupercoordenador(int vencedor, int decididoPor) {
+        boolean mudou = superCoordenadorId == null || superCoordenadorId != vencedor;
+        superCoordenadorId = vencedor;
+        if (mudou) {
+            rastreador.registrarEvento("supercoordenador P" + vencedor);
+            System.out.printf("[SUPER-ELEIÇÃO P%d] Decisão de P%d: o Supercoordenador é P%d.%n",
+                    id, decididoPor, vencedor);
+            notificarEvento("SUPERCOORDENADOR ELEITO: P" + vencedor);
+        }
+
+        // Se eu sou o supercoordenador, ativar responsabilidades
+        if (id == vencedor) {
+            if (!superCoordenador.isSupercoordenador()) {
+                System.out.printf("[SUPER-COORD P%d-%s] *** TORNEI-ME SUPERCOORDENADOR GLOBAL! ***%n", id, nomeGrupo);
+                superCoordenador.ativarComoSupercoordenador();
             }
-        }).start();
+        } else if (superCoordenador.isSupercoordenador()) {
+            System.out.printf("[SUPER-COORD P%d-%s] Decisão posterior elegeu P%d, deixando o papel global%n",
+                    id, nomeGrupo, vencedor);
+            superCoordenador.desativar();
+        } else if (mudou) {
+            System.out.printf("[SUPER-COORD P%d-%s] Supercoordenador é P%d, continuando como líder local%n",
+                    id, nomeGrupo, vencedor);
+        }
     }
 
-    private void processarMensagemLideres(String mensagem) {
-        String[] partes = mensagem.split(":");
-        if (partes.length < 2) return;
+    /**
+     * Cria o ouvinte do grupo de líderes apenas uma vez e o reutiliza nas eleições seguintes
+     */
+    private synchronized void garantirOuvinteLideres() {
+        if (ouvinteLideres == null) {
+            this.ouvinteLideres = new OuvinteMulticast(PORTA_LIDERES, ENDERECO_LIDERES,
+                    FiltroEnvelope.excetoRemetente(id), this::processarMensagemLideres);
+            new Thread(this.ouvinteLideres).start();
+        }
+        decisoes.iniciar();
+    }
 
-        String tipo = partes[0];
-        int remetenteId = Integer.parseInt(partes[1]);
+    private void processarMensagemLideres(EnvelopeMulticast mensagem) {
+        int remetenteId = mensagem.getRemetente();
 
-        // Atualizar relógio de Lamport
-        if (partes.length > 2) {
-            try {
-                int relogioRemoto = Integer.parseInt(partes[2]);
-                relogioLamport.set(Math.max(relogioLamport.get(), relogioRemoto) + 1);
-            } catch (NumberFormatException e) {
-                relogioLamport.incrementAndGet();
-            }
+        relogio.receber(mensagem.getRelogio());
+        // O marcador é rastreado depois da captura que ele dispara (ver case MARCADOR)
+        if (mensagem.getTipo() != TipoMensagem.MARCADOR) {
+            rastreador.registrarRecebimento(mensagem.getTipo().name(), mensagem.getContextoCausal());
         }
 
-        switch (tipo) {
-            case "CANDIDATO":
+        switch (mensagem.getTipo()) {
+            case CANDIDATO:
                 if (!candidatosSuperCoordenador.contains(remetenteId)) {
                     candidatosSuperCoordenador.add(remetenteId);
-                    System.out.printf("[ELEIÇÃO SUPER P%d-B] Novo candidato: P%d%n", id, remetenteId);
+                    System.out.printf("[ELEIÇÃO SUPER P%d-%s] Novo candidato: P%d%n", id, nomeGrupo, remetenteId);
                 }
+                responderCandidatura(remetenteId);
                 break;
 
-            case "MARCADOR":
-                gestorSnapshot.receberMarcador(remetenteId, relogioLamport.get(),
-                        java.time.LocalDateTime.now().toString());
+            case MARCADOR:
+                // Capturar antes de combinar o vetor do remetente: o corte não pode incluir o envio do marcador
+                gestorSnapshot.receberMarcador(remetenteId, mensagem.getRelogio(), mensagem.getCorpoTexto());
+                rastreador.registrarRecebimento(mensagem.getTipo().name(), mensagem.getContextoCausal());
                 break;
 
             default:
                 // Registrar mensagem no snapshot se ativo
                 if (gestorSnapshot.isCapturaAtiva()) {
-                    gestorSnapshot.registrarMensagemCanal(remetenteId, mensagem);
+                    gestorSnapshot.registrarMensagemCanal(remetenteId, mensagem.getCorpoTexto());
                 }
                 break;
         }
     }
 
     private void coletarEstadoGlobal() {
-        relogioLamport.incrementAndGet();
         List<Recurso> snapshot = new ArrayList<>();
-        snapshot.add(new Recurso(this.id, this.relogioLamport.get()));
+        snapshot.add(new Recurso(this.id, relogio.tick()));
 
         System.out.printf("[DEBUG] P%d coletando estado global. Cliente autenticado: %s%n",
                 id, clienteAutenticadoPresente.get());
@@ -460,12 +641,13 @@ public class NoGrupoB {
                 coletarStatusNo(pid, snapshot);
             }
         }
+        resumoGrupo = ResumoRecursos.de(snapshot);
 
         System.out.printf("[DEBUG] P%d snapshot coletado: %d recursos%n", id, snapshot.size());
 
         // SEMPRE enviar relatório, independente do cliente estar autenticado
         // para debug, depois pode voltar à verificação original
-        emissor.enviarRelatorio(this.id, snapshot);
+        emissor.enviarRelatorio(this.id, nomeGrupo, arrendamento.getEpoca(), snapshot);
         System.out.printf("[DEBUG] P%d relatório enviado via multicast%n", id);
 
     }
@@ -477,9 +659,13 @@ public class NoGrupoB {
         try {
             Registry registry = LocateRegistry.getRegistry("127.0.0.1", 1099);
             ServicoNoRMI stub = (ServicoNoRMI) registry.lookup("NoRMI" + pid);
-            Recurso recursoRemoto = stub.obterStatus(this.relogioLamport.get());
+            long inicio = System.nanoTime();
+            Recurso recursoRemoto = stub.obterStatus(relogio.tick(), rastreador.registrarEnvio("obter status"));
+            estimadorTimeout.registrarAmostra((System.nanoTime() - inicio) / 1_000_000.0);
 
             if (recursoRemoto != null) {
+                // A resposta leva o relógio do nó consultado
+                relogio.receber(recursoRemoto.getRelogio());
                 snapshot.add(recursoRemoto);
 
                 // Confirmar que nó está ativo
@@ -505,14 +691,113 @@ public class NoGrupoB {
     }
 
     /**
-     Para todos os serviços incluindo comunicação intergrupos
+     Para todos os serviços incluindo comunicação intergrupos.
+     Se este nó é o líder, passa a liderança a um sucessor antes de parar.
      */
     public void setAtivo(boolean status) {
+        if (!status && ativo.get() && isLider()) {
+            transferirLideranca();
+        }
+        aplicarEstado(status);
+    }
+
+    /**
+     * Simula uma falha abrupta: para os serviços sem passagem de liderança
+     */
+    public void simularFalha() {
+        aplicarEstado(false);
+    }
+
+    /**
+     * Passagem planejada: oferece a liderança aos nós ativos (maior ID primeiro)
+     * com o estado do líder, sem esperar a detecção de falha por heartbeat.
+     * @return true se algum sucessor assumiu
+     */
+    private boolean transferirLideranca() {
+        List<Integer> sucessores = todosPidsDoGrupo.stream()
+                .filter(p -> p != this.id && nosDaRede.get(p).isAtivo())
+                .sorted(Comparator.reverseOrder())
+                .collect(Collectors.toList());
+
+        // Libera o papel global para que o sucessor possa assumi-lo
+        boolean eraSupercoordenador = superCoordenador.isSupercoordenador();
+        if (eraSupercoordenador) {
+            superCoordenador.desativar();
+        }
+
+        for (int sucessor : sucessores) {
+            long epoca = arrendamento.proximaEpoca();
+            EstadoLideranca estado = new EstadoLideranca(this.id, epoca, clienteAutenticadoPresente.get(),
+                    eraSupercoordenador, comunicacaoIntergrupos.exportarParesConhecidos());
+
+            try {
+                Registry registry = LocateRegistry.getRegistry("127.0.0.1", 1099);
+                ServicoNoRMI stub = (ServicoNoRMI) registry.lookup("NoRMI" + sucessor);
+
+                if (stub.receberTransferenciaLideranca(estado, relogio.tick(),
+                        rastreador.registrarEnvio("transferência de liderança"))) {
+                    reconhecerLider(sucessor, epoca);
+                    System.out.printf("[HANDOFF P%d] Liderança transferida para P%d (época %d)%n", id, sucessor, epoca);
+                    return true;
+                }
+                System.out.printf("[HANDOFF P%d] P%d recusou a liderança%n", id, sucessor);
+            } catch (Exception e) {
+                System.err.printf("[HANDOFF P%d] P%d não assumiu a liderança: %s%n", id, sucessor, e.getMessage());
+            }
+        }
+
+        System.out.printf("[HANDOFF P%d] Nenhum sucessor disponível; o grupo elegerá após detectar a falha%n", id);
+        return false;
+    }
+
+    /**
+     * Sucessor: adota o estado do líder anterior e se anuncia no anel
+     */
+    private boolean assumirLiderancaTransferida(EstadoLideranca estado) {
+        if (!ativo.get() || !reconhecerLider(this.id, estado.getEpoca())) {
+            return false;
+        }
+
+        emEleicao.set(false);
+        eleicaoAnel.invalidar("liderança recebida de P" + estado.getIdLiderAnterior());
+        if (estado.isClienteAutenticadoPresente()) {
+            clienteAutenticadoPresente.set(true);
+        }
+        comunicacaoIntergrupos.adotarParesConhecidos(estado.getParesIntergrupos());
+
+        // O líder anterior está saindo do anel
+        InfoNo anterior = nosDaRede.get(estado.getIdLiderAnterior());
+        if (anterior != null) {
+            anterior.setAtivo(false);
+        }
+
+        System.out.printf("%n[HANDOFF P%d] *** LIDERANÇA RECEBIDA DE P%d (época %d) ***%n",
+                id, estado.getIdLiderAnterior(), estado.getEpoca());
+        notificarEvento("LIDERANÇA DO GRUPO " + nomeGrupo + " TRANSFERIDA: P" + estado.getIdLiderAnterior() + " -> P" + id);
+
+        // Anúncio fora da chamada RMI para responder ao líder anterior imediatamente;
+        // o anúncio para ao voltar a este nó, que já aceitou a época
+        scheduler.execute(() -> {
+            enviarParaProximo("LIDER:" + this.id + ":" + estado.getEpoca());
+
+            if (estado.isSupercoordenador()) {
+                // Como qualquer decisão, pela ordem total: o papel é ativado na entrega
+                garantirOuvinteLideres();
+                notificarEvento("SUPERCOORDENADOR TRANSFERIDO: P" + id);
+                decidirSupercoordenador(this.id);
+            }
+        });
+        return true;
+    }
+
+    private void aplicarEstado(boolean status) {
         this.ativo.set(status);
         if (!status) {
-            System.out.printf("[GRUPO B P%d] Parando todos os serviços...%n", id);
+            System.out.printf("[GRUPO %s P%d] Parando todos os serviços...%n", nomeGrupo, id);
 
             scheduler.shutdown();
+            eleicaoAnel.parar();
+            eleicaoSuper.parar();
 
             //  Parar comunicação intergrupos
             if (comunicacaoIntergrupos != null) {
@@ -526,7 +811,7 @@ public class NoGrupoB {
 
             pararServicos();
 
-            System.out.printf("[GRUPO B P%d] Todos os serviços foram encerrados%n", id);
+            System.out.printf("[GRUPO %s P%d] Todos os serviços foram encerrados%n", nomeGrupo, id);
         }
     }
 
@@ -541,6 +826,7 @@ public class NoGrupoB {
             if (ouvinteLideres != null) {
                 ouvinteLideres.parar();
             }
+            decisoes.parar();
         } catch (Exception e) {
             System.err.printf("[ERRO P%d] Erro ao fechar sockets: %s%n", id, e.getMessage());
         }
@@ -555,20 +841,24 @@ public class NoGrupoB {
 
     // Getters existentes
     public int getId() { return id; }
+    public String getNomeGrupo() { return nomeGrupo; }
     public boolean isAtivo() { return ativo.get(); }
     public Map<Integer, InfoNo> getNosDaRede() { return nosDaRede; }
     public ServicoNoRMI getServidorRMI() { return servidorRMI; }
     public int getCoordenadorId() { return coordenadorId; }
+    public long getEpocaLideranca() { return arrendamento.getEpoca(); }
+    public boolean isLiderComArrendamento() { return isLider(); }
 
     //  Getters
     public ComunicacaoIntergrupos getComunicacaoIntergrupos() { return comunicacaoIntergrupos; }
     public SuperCoordenador getSuperCoordenador() { return superCoordenador; }
     public boolean isSupercoordenador() { return superCoordenador.isSupercoordenador(); }
     public GestorSnapshot getGestorSnapshot() { return gestorSnapshot; }
+    public EstimadorTimeout getEstimadorTimeout() { return estimadorTimeout; }
 
     public Recurso obterStatusLocal() {
         if (!ativo.get()) return null;
-        return new Recurso(id, relogioLamport.incrementAndGet());
+        return new Recurso(id, relogio.tick());
     }
 
     private class ServidorRMIImpl extends UnicastRemoteObject implements ServicoNoRMI {
@@ -580,14 +870,25 @@ public class NoGrupoB {
         }
 
         @Override
-        public Recurso obterStatus(int relogioRemetente) throws RemoteException {
-            noPai.relogioLamport.set(Math.max(noPai.relogioLamport.get(), relogioRemetente) + 1);
+        public Recurso obterStatus(long relogioRemetente, byte[] contexto) throws RemoteException {
+            noPai.relogio.receber(relogioRemetente);
+            noPai.rastreador.registrarRecebimento("obter status", contexto);
             return noPai.obterStatusLocal();
         }
 
         @Override
-        public void receberMensagemEleicaoAnel(String mensagem, int relogioRemetente) throws RemoteException {
-            noPai.relogioLamport.set(Math.max(noPai.relogioLamport.get(), relogioRemetente) + 1);
+        public boolean receberTransferenciaLideranca(EstadoLideranca estado, long relogioRemetente,
+                                                     byte[] contexto) throws RemoteException {
+            noPai.relogio.receber(relogioRemetente);
+            noPai.rastreador.registrarRecebimento("transferência de liderança", contexto);
+            return noPai.assumirLiderancaTransferida(estado);
+        }
+
+        @Override
+        public void receberMensagemEleicaoAnel(String mensagem, long relogioRemetente,
+                                               byte[] contexto) throws RemoteException {
+            noPai.relogio.receber(relogioRemetente);
+            noPai.rastreador.registrarRecebimento("eleição anel", contexto);
 
             // Registrar mensagem no snapshot se ativo
             if (noPai.gestorSnapshot.isCapturaAtiva()) {
@@ -599,29 +900,33 @@ public class NoGrupoB {
             int idVencedor = Integer.parseInt(partes[1]);
 
             if (tipoMsg.equals("LIDER")) {
-                // Se eu iniciei a mensagem de LIDER e ela voltou para mim, a notificação terminou.
-                if (noPai.id == idVencedor) {
-                    System.out.printf("[ANEL P%d] Anúncio de líder completou o anel.%n", noPai.id);
+                long epoca = partes.length > 2 ? Long.parseLong(partes[2]) : 0;
+
+                // Anúncio já aceito (completou o anel) ou de época obsoleta: encerra a circulação
+                if (!noPai.reconhecerLider(idVencedor, epoca)) {
+                    System.out.printf("[ANEL P%d] Anúncio de P%d (época %d) já conhecido ou obsoleto; circulação encerrada.%n",
+                            noPai.id, idVencedor, epoca);
                     return;
                 }
-                // Se eu não sou o líder e a eleição terminou, atualizo meu estado e repasso.
-                if (noPai.emEleicao.getAndSet(false)) {
-                    noPai.coordenadorId = idVencedor;
-                    System.out.printf("[ANEL P%d] Fim da eleição. Novo líder é P%d.%n", noPai.id, idVencedor);
 
-                    noPai.notificarEvento("NOVO LÍDER ELEITO NO GRUPO B: P" + idVencedor);
+                noPai.emEleicao.set(false);
+                noPai.eleicaoAnel.invalidar("líder P" + idVencedor + " anunciado");
+                System.out.printf("[ANEL P%d] Fim da eleição. Novo líder é P%d (época %d).%n",
+                        noPai.id, idVencedor, epoca);
 
-                    if (noPai.id == noPai.coordenadorId) {
-                        noPai.iniciarEleicaoSuperCoordenador();
-                    }
+                if (noPai.id == idVencedor) {
+                    noPai.finalizarEleicaoComoLider(epoca);
+                } else {
+                    noPai.eleicaoSuper.invalidar("deixei de ser líder");
                 }
-                noPai.enviarParaProximo(mensagem); // Sempre repassa a mensagem de LIDER
+                noPai.enviarParaProximo(mensagem); // Repassa o anúncio uma vez por época
             } else { // Mensagem de ELEICAO
                 String idsVisitados = partes[2];
                 // Se a mensagem de eleição já passou por mim, a volta foi completada
                 if (idsVisitados.contains(String.valueOf(noPai.id))) {
                     // A primeira volta terminou, agora inicio a segunda volta com o anúncio do LIDER
-                    noPai.enviarParaProximo("LIDER:" + idVencedor);
+                    // numa época nova, que invalida o trabalho do líder anterior
+                    noPai.enviarParaProximo("LIDER:" + idVencedor + ":" + noPai.arrendamento.proximaEpoca());
                 } else { // Eleição em andamento
                     int novoVencedorParcial = Math.max(noPai.id, idVencedor);
                     String novaMensagem = "ELEICAO:" + novoVencedorParcial + ":" + idsVisitados + "," + noPai.id;
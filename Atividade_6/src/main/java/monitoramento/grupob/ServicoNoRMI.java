@@ -1,10 +1,19 @@
 package monitoramento.grupob;
 
+import monitoramento.comum.EstadoLideranca;
 import monitoramento.comum.Recurso;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
+/**
+ * Serviço RMI dos nós do grupo B. Toda chamada leva o relógio híbrido do
+ * remetente; o Recurso devolvido por obterStatus leva o do nó chamado.
+ * O contexto causal do rastreio vai junto (null com o rastreio desligado);
+ * as respostas não o carregam.
+ */
 public interface ServicoNoRMI extends Remote {
-    Recurso obterStatus(int relogioRemetente) throws RemoteException;
-    void receberMensagemEleicaoAnel(String mensagem, int relogioRemetente) throws RemoteException;
+    Recurso obterStatus(long relogioRemetente, byte[] contexto) throws RemoteException;
+    void receberMensagemEleicaoAnel(String mensagem, long relogioRemetente, byte[] contexto) throws RemoteException;
+    boolean receberTransferenciaLideranca(EstadoLideranca estado, long relogioRemetente,
+                                          byte[] contexto) throws RemoteException;
 }
\ No newline at end of file
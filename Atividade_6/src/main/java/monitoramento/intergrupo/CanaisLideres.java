@@ -0,0 +1,280 @@
+package monitoramento.intergrupo;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+import monitoramento.coordenacao.TipoMensagem;
+import monitoramento.grpc.QuadroIntergrupo;
+import monitoramento.grpc.ServicoIntergruposGrpc;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Streams gRPC persistentes entre líderes de grupos diferentes, um por grupo
+ * remoto. Cada nó expõe o serviço numa porta anunciada no PING/PONG de
+ * descoberta; entre dois líderes, só o de grupo com nome menor abre o stream,
+ * e o outro responde pelo stream que recebeu. O stream garante entrega
+ * ordenada e confiável enquanto os dois continuarem líderes.
+ */
+class CanaisLideres {
+    private final int idNo;
+    private final String tipoGrupo;
+    private final int porta;
+    private final Consumer<MensagemIntergrupo> receptor;
+
+    private Server servidor;
+    // Stream ativo por grupo remoto
+    private final Map<String, Conexao> conexoes = new ConcurrentHashMap<>();
+
+    CanaisLideres(int idNo, String tipoGrupo, int porta, Consumer<MensagemIntergrupo> receptor) {
+        this.idNo = idNo;
+        this.tipoGrupo = tipoGrupo;
+        this.porta = porta;
+        this.receptor = receptor;
+    }
+
+    /**
+     * Sobe o servidor do canal entre líderes
+     * @return a porta em uso, ou 0 se o servidor não pôde ser iniciado
+     */
+    int iniciar() {
+        try {
+            servidor = ServerBuilder.forPort(porta).addService(new ServicoIntergruposImpl()).build().start();
+            System.out.printf("[INTERGRUPOS P%d-%s] Canal entre líderes ouvindo na porta %d%n", idNo, tipoGrupo, porta);
+            return porta;
+        } catch (IOException e) {
+            System.err.printf("[INTERGRUPOS P%d-%s] Canal entre líderes indisponível (porta %d): %s%n",
+                    idNo, tipoGrupo, porta, e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Abre o stream para o líder de um grupo remoto, se ainda não houver um com esse líder.
+     * Só o lado de grupo com nome menor abre; o outro espera o stream de entrada.
+     */
+    void conectar(int idRemoto, String grupoRemoto, int portaRemota) {
+        if (portaRemota <= 0 || tipoGrupo.compareTo(grupoRemoto) >= 0) return;
+
+        Conexao atual = conexoes.get(grupoRemoto);
+        if (atual != null && atual.idRemoto == idRemoto) return;
+
+        ManagedChannel canal = ManagedChannelBuilder.forAddress("localhost", portaRemota).usePlaintext().build();
+        Conexao conexao = new Conexao(idRemoto, grupoRemoto, canal);
+        conexao.saida = ServicoIntergruposGrpc.newStub(canal).trocarMensagens(new ObservadorEntrada(conexao));
+        substituir(conexao);
+
+        // Apresentação: o primeiro quadro identifica este líder para o outro lado
+        conexao.enviar(quadro(TipoMensagem.PING_INTER, 0, 0, new byte[0]));
+        System.out.printf("[INTERGRUPOS P%d-%s] Stream aberto com o líder P%d-%s (porta %d)%n",
+                idNo, tipoGrupo, idRemoto, grupoRemoto, portaRemota);
+    }
+
+    /**
+     * Indica se o stream com o grupo remoto está aberto com este líder dele
+     * (um stream com um líder deposto não conta)
+     */
+    boolean isConectado(String grupoRemoto, int idRemoto) {
+        Conexao conexao = conexoes.get(grupoRemoto);
+        return conexao != null && conexao.idRemoto == idRemoto;
+    }
+
+    int getConexoesAtivas() {
+        return conexoes.size();
+    }
+
+    /**
+     * Envia uma mensagem a todos os líderes conectados
+     * @return quantos streams receberam a mensagem
+     */
+    int enviar(TipoMensagem tipo, long relogio, long epoca, byte[] corpo, byte[] contextoCausal) {
+        if (conexoes.isEmpty()) return 0;
+
+        QuadroIntergrupo quadro = quadro(tipo, relogio, epoca, corpo);
+        if (contextoCausal != null) {
+            quadro = quadro.toBuilder().setContextoCausal(ByteString.copyFrom(contextoCausal)).build();
+        }
+        int enviados = 0;
+        for (Conexao conexao : conexoes.values()) {
+            if (conexao.enviar(quadro)) {
+                enviados++;
+            } else {
+                fechar(conexao);
+            }
+        }
+        return enviados;
+    }
+
+    private QuadroIntergrupo quadro(TipoMensagem tipo, long relogio, long epoca, byte[] corpo) {
+        return QuadroIntergrupo.newBuilder()
+                .setTipo(tipo.getCodigo())
+                .setIdRemetente(idNo)
+                .setGrupo(tipoGrupo)
+                .setRelogio(relogio)
+                .setEpoca(epoca)
+                .setCorpo(ByteString.copyFrom(corpo == null ? new byte[0] : corpo))
+                .build();
+    }
+
+    /**
+     * Fecha todos os streams (o nó deixou de ser líder ou está parando)
+     */
+    void encerrarConexoes() {
+        conexoes.values().forEach(this::fechar);
+    }
+
+    void parar() {
+        encerrarConexoes();
+        if (servidor != null) {
+            servidor.shutdown();
+        }
+    }
+
+    private void substituir(Conexao nova) {
+        Conexao antiga = conexoes.put(nova.grupoRemoto, nova);
+        if (antiga != null && antiga != nova) {
+            antiga.encerrar();
+        }
+    }
+
+    private void fechar(Conexao conexao) {
+        conexoes.remove(conexao.grupoRemoto, conexao);
+        conexao.encerrar();
+    }
+
+    private void receber(Conexao conexao, QuadroIntergrupo quadro) {
+        TipoMensagem tipo = TipoMensagem.doCodigo(quadro.getTipo());
+        if (tipo == null) {
+            System.err.printf("[INTERGRUPOS P%d-%s] Quadro de tipo desconhecido (%d) de P%d-%s%n",
+                    idNo, tipoGrupo, quadro.getTipo(), conexao.idRemoto, conexao.grupoRemoto);
+            return;
+        }
+        try {
+            receptor.accept(MensagemIntergrupo.decodificar(tipo, quadro.getIdRemetente(), quadro.getGrupo(),
+                    quadro.getRelogio(), quadro.getEpoca(), quadro.getCorpo().toByteArray(),
+                    quadro.getContextoCausal().isEmpty() ? null : quadro.getContextoCausal().toByteArray()));
+        } catch (IllegalArgumentException e) {
+            System.err.printf("[INTERGRUPOS P%d-%s] Quadro inválido de P%d-%s: %s%n",
+                    idNo, tipoGrupo, conexao.idRemoto, conexao.grupoRemoto, e.getMessage());
+        }
+    }
+
+    /**
+     * Um stream com o líder de um grupo remoto, de saída (aberto aqui) ou de entrada
+     */
+    private static class Conexao {
+        private final int idRemoto;
+        private final String grupoRemoto;
+        private final ManagedChannel canal; // null nos streams de entrada
+        private StreamObserver<QuadroIntergrupo> saida;
+        private boolean encerrada = false;
+
+        private Conexao(int idRemoto, String grupoRemoto, ManagedChannel canal) {
+            this.idRemoto = idRemoto;
+            this.grupoRemoto = grupoRemoto;
+            this.canal = canal;
+        }
+
+        // StreamObserver não aceita chamadas concorrentes
+        private synchronized boolean enviar(QuadroIntergrupo quadro) {
+            if (encerrada) return false;
+            try {
+                saida.onNext(quadro);
+                return true;
+            } catch (RuntimeException e) {
+                encerrada = true;
+                return false;
+            }
+        }
+
+        private synchronized void encerrar() {
+            if (encerrada) return;
+            encerrada = true;
+            try {
+                saida.onCompleted();
+            } catch (RuntimeException e) {
+                // Stream já fechado pelo outro lado
+            }
+            if (canal != null) {
+                canal.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Recebe os quadros de um stream; serve tanto aos streams abertos aqui quanto aos de entrada
+     */
+    private class ObservadorEntrada implements StreamObserver<QuadroIntergrupo> {
+        private final Conexao conexao;
+
+        private ObservadorEntrada(Conexao conexao) {
+            this.conexao = conexao;
+        }
+
+        @Override
+        public void onNext(QuadroIntergrupo quadro) {
+            receber(conexao, quadro);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            System.out.printf("[INTERGRUPOS P%d-%s] Stream com P%d-%s interrompido: %s%n",
+                    idNo, tipoGrupo, conexao.idRemoto, conexao.grupoRemoto, t.getMessage());
+            conexoes.remove(conexao.grupoRemoto, conexao);
+            conexao.encerrar();
+        }
+
+        @Override
+        public void onCompleted() {
+            System.out.printf("[INTERGRUPOS P%d-%s] Stream com P%d-%s encerrado pelo outro lado%n",
+                    idNo, tipoGrupo, conexao.idRemoto, conexao.grupoRemoto);
+            fechar(conexao);
+        }
+    }
+
+    /**
+     * Lado servidor: o primeiro quadro de cada stream de entrada identifica o líder remoto
+     */
+    private class ServicoIntergruposImpl extends ServicoIntergruposGrpc.ServicoIntergruposImplBase {
+        @Override
+        public StreamObserver<QuadroIntergrupo> trocarMensagens(StreamObserver<QuadroIntergrupo> saida) {
+            return new StreamObserver<QuadroIntergrupo>() {
+                private ObservadorEntrada observador;
+
+                @Override
+                public void onNext(QuadroIntergrupo quadro) {
+                    if (observador == null) {
+                        Conexao conexao = new Conexao(quadro.getIdRemetente(), quadro.getGrupo(), null);
+                        conexao.saida = saida;
+                        observador = new ObservadorEntrada(conexao);
+                        substituir(conexao);
+                        System.out.printf("[INTERGRUPOS P%d-%s] Stream recebido do líder P%d-%s%n",
+                                idNo, tipoGrupo, conexao.idRemoto, conexao.grupoRemoto);
+                        return; // Quadro de apresentação
+                    }
+                    observador.onNext(quadro);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    if (observador != null) observador.onError(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                    if (observador != null) {
+                        observador.onCompleted();
+                    } else {
+                        saida.onCompleted();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -1,129 +1,231 @@
 package monitoramento.intergrupo;
 
+import monitoramento.comum.FiltroEpocas;
+import monitoramento.comum.HistogramaLatencia;
 import monitoramento.comum.Recurso;
+import monitoramento.comum.RelogioHibrido;
+import monitoramento.comum.ResumoRecursos;
 import monitoramento.coordenacao.EmissorMulticast;
+import monitoramento.coordenacao.EnvelopeMulticast;
+import monitoramento.coordenacao.FiltroEnvelope;
 import monitoramento.coordenacao.OuvinteMulticast;
+import monitoramento.coordenacao.TipoMensagem;
+import monitoramento.rastreio.RastreadorCausal;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * Classe responsável pela comunicação entre diferentes grupos (A e B)
+ * Classe responsável pela comunicação entre os grupos do sistema
  * Implementa descoberta, sincronização e coordenação intergrupos
+ *
+ * O multicast intergrupos serve à descoberta (PING/PONG, que anunciam a porta
+ * do canal entre líderes). Depois dela, status, candidaturas e marcadores de
+ * snapshot seguem por streams gRPC entre os líderes ({@link CanaisLideres});
+ * o multicast só é usado para grupos ainda sem stream.
  */
 public class ComunicacaoIntergrupos {
 
     private final int idNo;
     private final String tipoGrupo;
-    private final Supplier<Integer> relogioSupplier;
+    // Relógio híbrido do nó: vai no cabeçalho de cada envio e incorpora o de cada mensagem recebida
+    private final RelogioHibrido relogio;
+    // Rastreio causal do nó (inerte sem -Drastreio.diretorio)
+    private final RastreadorCausal rastreador;
     private final Supplier<Boolean> isLiderSupplier;
-    private final Consumer<String> processadorMensagens;
+    private final Supplier<Long> epocaSupplier;
+    private final Consumer<MensagemIntergrupo> processadorMensagens;
     private final Supplier<Recurso> recursoSupplier;
+    private final Supplier<Integer> membrosSupplier;
+    // Resumo dos nós do grupo montado pelo líder a cada coleta (null antes da primeira)
+    private final Supplier<ResumoRecursos> resumoSupplier;
+
+    // Tabela de tratamento indexada pelo tipo; tipos sem entrada vão ao processador do nó
+    private final Map<TipoMensagem, Consumer<MensagemIntergrupo>> manipuladores = new EnumMap<>(TipoMensagem.class);
 
     // Comunicação multicast para intergrupos
-    private final EmissorMulticast emissor = new EmissorMulticast();
+    private final EmissorMulticast emissor = EmissorMulticast.getInstancia();
     private final OuvinteMulticast ouvinte;
 
+    // Streams gRPC com os líderes dos outros grupos
+    private final CanaisLideres canaisLideres;
+    private final int portaCanal;
+
     // Controle de grupos conhecidos
     private final Map<Integer, InfoGrupoRemoto> gruposConhecidos = new ConcurrentHashMap<>();
+    // Estado por grupo (inclusive o local) para a supercoordenação
+    private final RegistroGrupos registroGrupos;
     private final AtomicInteger mensagensEnviadas = new AtomicInteger(0);
     private final AtomicInteger mensagensRecebidas = new AtomicInteger(0);
+    private final AtomicInteger mensagensViaStream = new AtomicInteger(0);
     private final AtomicLong ultimoHeartbeatIntergrupos = new AtomicLong(System.currentTimeMillis());
 
+    // Maior época de liderança vista por grupo remoto; mensagens de líderes antigos são descartadas
+    private final FiltroEpocas filtroEpocas = new FiltroEpocas();
+    private final AtomicInteger mensagensObsoletas = new AtomicInteger(0);
+    private final AtomicInteger mensagensInvalidas = new AtomicInteger(0);
+
+    // Solicitações de status em andamento, por id de correlação, e RTT medido por grupo remoto
+    private final AtomicLong geradorCorrelacao = new AtomicLong(new SecureRandom().nextLong());
+    private final Map<Long, Solicitacao<StatusGrupo>> solicitacoesPendentes = new ConcurrentHashMap<>();
+    private final Map<String, HistogramaLatencia> rttPorGrupo = new ConcurrentHashMap<>();
+    private final AtomicInteger solicitacoesExpiradas = new AtomicInteger(0);
+    // Solicitação ainda sem todas as respostas; pedidos concorrentes se juntam a ela
+    private Solicitacao<StatusGrupo> solicitacaoEmVoo; // protegido por this
+    private final AtomicInteger solicitacoesAgrupadas = new AtomicInteger(0);
+    // Rodadas de sincronização de relógios em andamento, por id de correlação
+    private final Map<Long, Solicitacao<LeituraRelogio>> sincronizacoesPendentes = new ConcurrentHashMap<>();
+
+    // Status local servido nas respostas: o MXBean é amostrado no máximo uma vez por TTL
+    private volatile AmostraStatus amostraStatusLocal;
+    private final Object travaAmostraStatus = new Object();
+    private final AtomicInteger respostasDoCache = new AtomicInteger(0);
+
     // Configurações de comunicação intergrupos
+    // Período do ping que os líderes enviam para manter a descoberta viva
+    public static final long INTERVALO_PING_SEGUNDOS = 60;
     private static final String ENDERECO_INTERGRUPOS = "239.0.0.4";
     private static final int PORTA_INTERGRUPOS = 12348;
     private static final long TIMEOUT_DESCOBERTA_MS = 30000; // 30 segundos
     private static final long INTERVALO_HEARTBEAT_MS = 20000; // 15 segundos
+    private static final int PORTA_BASE_CANAL_LIDERES = 50200; // + id do nó
+    private static final long TIMEOUT_STATUS_MS = 5000;
+    private static final long TTL_STATUS_LOCAL_MS = 2000;
 
     public ComunicacaoIntergrupos(int idNo, String tipoGrupo,
-                                  Supplier<Integer> relogioSupplier,
+                                  RelogioHibrido relogio,
                                   Supplier<Boolean> isLiderSupplier,
-                                  Consumer<String> processadorMensagens,
-                                  Supplier<Recurso> recursoSupplier) {
+                                  Supplier<Long> epocaSupplier,
+                                  Consumer<MensagemIntergrupo> processadorMensagens,
+                                  Supplier<Recurso> recursoSupplier,
+                                  Supplier<Integer> membrosSupplier,
+                                  Supplier<ResumoRecursos> resumoSupplier) {
         this.idNo = idNo;
         this.tipoGrupo = tipoGrupo;
-        this.relogioSupplier = relogioSupplier;
+        this.relogio = relogio;
+        this.rastreador = RastreadorCausal.para(idNo);
         this.isLiderSupplier = isLiderSupplier;
+        this.epocaSupplier = epocaSupplier;
         this.processadorMensagens = processadorMensagens;
         this.recursoSupplier = recursoSupplier;
+        this.membrosSupplier = membrosSupplier;
+        this.resumoSupplier = resumoSupplier;
+        this.registroGrupos = new RegistroGrupos(tipoGrupo);
+        // Tamanho do grupo local conhecido desde já: os seguidores não recebem os pings do próprio grupo
+        registroGrupos.registrarMembros(tipoGrupo, membrosSupplier.get());
+
+        manipuladores.put(TipoMensagem.PING_INTER, this::processarPingIntergrupos);
+        manipuladores.put(TipoMensagem.PONG_INTER, this::processarPongIntergrupos);
+        manipuladores.put(TipoMensagem.STATUS_REQUEST, this::processarSolicitacaoStatus);
+        manipuladores.put(TipoMensagem.STATUS_RESPONSE, this::processarRespostaStatus);
+        manipuladores.put(TipoMensagem.SYNC_REQUEST, this::processarSolicitacaoSincronizacao);
+        manipuladores.put(TipoMensagem.SYNC_RESPONSE, this::processarRespostaSincronizacao);
+
+        this.canaisLideres = new CanaisLideres(idNo, tipoGrupo, PORTA_BASE_CANAL_LIDERES + idNo,
+                this::processarMensagemLider);
+        this.portaCanal = canaisLideres.iniciar();
 
         // Inicializar ouvinte para mensagens intergrupos
         this.ouvinte = new OuvinteMulticast(PORTA_INTERGRUPOS, ENDERECO_INTERGRUPOS,
-                this::processarMensagemIntergrupos);
+                FiltroEnvelope.excetoGrupo(tipoGrupo), this::processarMensagemIntergrupos);
         new Thread(this.ouvinte).start();
 
         System.out.printf("[INTERGRUPOS P%d-%s] Comunicação intergrupos inicializada%n", idNo, tipoGrupo);
     }
 
     /**
-     * Processa mensagens recebidas de outros grupos
+     * Processa mensagens multicast de outros grupos: o corpo é decodificado uma
+     * única vez e a mensagem tipada segue pela tabela de manipuladores
      */
-    private void processarMensagemIntergrupos(String mensagem) {
+    private void processarMensagemIntergrupos(EnvelopeMulticast envelope) {
         mensagensRecebidas.incrementAndGet();
 
-        try {
-            String[] partes = mensagem.split(":", 3);
-            if (partes.length < 2) return;
+        // Datagramas sem envelope não têm remetente nem tipo intergrupos
+        if (envelope.getTipo() == TipoMensagem.TEXTO) {
+            mensagensInvalidas.incrementAndGet();
+            return;
+        }
 
-            String tipoMensagem = partes[0];
-            String remetenteInfo = partes[1]; // formato: "idNo-tipoGrupo"
+        // Com stream aberto com o remetente, só a descoberta vale pelo multicast; o resto já chegou pelo stream
+        if (!isDescoberta(envelope.getTipo())
+                && canaisLideres.isConectado(envelope.getGrupo(), envelope.getRemetente())) {
+            return;
+        }
 
-            // Extrair informações do remetente
-            String[] infoRemetente = remetenteInfo.split("-");
-            if (infoRemetente.length != 2) return;
+        try {
+            // Mensagens do próprio grupo já foram descartadas pelo filtro do ouvinte
+            processarMensagem(MensagemIntergrupo.decodificar(envelope));
+        } catch (IllegalArgumentException e) {
+            mensagensInvalidas.incrementAndGet();
+            System.err.printf("[ERRO INTERGRUPOS P%d-%s] Mensagem inválida de P%d-%s: %s%n",
+                    idNo, tipoGrupo, envelope.getRemetente(), envelope.getGrupo(), e.getMessage());
+        }
+    }
 
-            int idRemetente = Integer.parseInt(infoRemetente[0]);
-            String grupoRemetente = infoRemetente[1];
+    /**
+     * Processa mensagens recebidas pelo stream de um líder remoto
+     */
+    private void processarMensagemLider(MensagemIntergrupo mensagem) {
+        mensagensRecebidas.incrementAndGet();
+        mensagensViaStream.incrementAndGet();
+
+        if (!isLiderSupplier.get()) {
+            // O outro lado ainda nos vê como líder: fechar devolve-o ao multicast
+            canaisLideres.encerrarConexoes();
+        }
+        processarMensagem(mensagem);
+    }
 
-            // Ignorar mensagens do próprio grupo
-            if (grupoRemetente.equals(this.tipoGrupo)) {
+    private void processarMensagem(MensagemIntergrupo mensagem) {
+        try {
+            // Descartar trabalho de um líder deposto (época anterior à já vista)
+            if (!filtroEpocas.aceitar(mensagem.getGrupo(), mensagem.getEpoca())) {
+                mensagensObsoletas.incrementAndGet();
+                System.out.printf("[INTERGRUPOS P%d-%s] %s de P%d-%s descartada (época %d obsoleta)%n",
+                        idNo, tipoGrupo, mensagem.getTipo(), mensagem.getRemetente(), mensagem.getGrupo(),
+                        mensagem.getEpoca());
                 return;
             }
 
+            // Recebimento é um evento causal: o relógio local passa à frente do remetente
+            relogio.receber(mensagem.getRelogio());
+            // O marcador só é rastreado depois da captura que ele dispara no nó; senão o
+            // corte incluiria o envio do marcador, que é posterior ao corte do remetente
+            boolean marcador = mensagem.getTipo() == TipoMensagem.SNAPSHOT_GLOBAL;
+            if (!marcador) {
+                rastreador.registrarRecebimento(mensagem.getTipo().name(), mensagem.getContextoCausal());
+            }
+
             // Atualizar informações do grupo remoto
-            atualizarGrupoRemoto(idRemetente, grupoRemetente);
-
-            System.out.printf("[INTERGRUPOS P%d-%s] Recebido de P%d-%s: %s%n",
-                    idNo, tipoGrupo, idRemetente, grupoRemetente, tipoMensagem);
-
-            // Processar diferentes tipos de mensagem
-            switch (tipoMensagem) {
-                case "PING_INTER":
-                    processarPingIntergrupos(idRemetente, grupoRemetente);
-                    break;
-
-                case "PONG_INTER":
-                    processarPongIntergrupos(idRemetente, grupoRemetente);
-                    break;
-
-                case "STATUS_REQUEST":
-                    processarSolicitacaoStatus(idRemetente, grupoRemetente);
-                    break;
-
-                case "STATUS_RESPONSE":
-                    processarRespostaStatus(idRemetente, grupoRemetente, partes.length > 2 ? partes[2] : "");
-                    break;
-
-                case "SUPER_CANDIDATE":
-                    processarCandidaturaSuper(idRemetente, grupoRemetente, partes.length > 2 ? partes[2] : "");
-                    break;
-
-                case "SNAPSHOT_GLOBAL":
-                    processarSnapshotGlobal(idRemetente, grupoRemetente, partes.length > 2 ? partes[2] : "");
-                    break;
-
-                default:
-                    // Repassar para processador personalizado
-                    if (processadorMensagens != null) {
-                        processadorMensagens.accept(mensagem);
-                    }
-                    break;
+            atualizarGrupoRemoto(mensagem.getRemetente(), mensagem.getGrupo());
+            registroGrupos.registrarContato(mensagem.getGrupo(), mensagem.getRemetente(), mensagem.getEpoca(),
+                    System.currentTimeMillis());
+
+            System.out.printf("[INTERGRUPOS P%d-%s] Recebido: %s%n", idNo, tipoGrupo, mensagem);
+
+            Consumer<MensagemIntergrupo> manipulador = manipuladores.get(mensagem.getTipo());
+            if (manipulador != null) {
+                manipulador.accept(mensagem);
+            } else if (processadorMensagens != null) {
+                // Candidaturas e marcadores de snapshot são tratados pelo nó
+                processadorMensagens.accept(mensagem);
+            }
+            if (marcador) {
+                rastreador.registrarRecebimento(mensagem.getTipo().name(), mensagem.getContextoCausal());
             }
 
         } catch (Exception e) {
@@ -132,75 +234,110 @@ public class ComunicacaoIntergrupos {
         }
     }
 
+    private static boolean isDescoberta(TipoMensagem tipo) {
+        return tipo == TipoMensagem.PING_INTER || tipo == TipoMensagem.PONG_INTER;
+    }
+
     /**
      * Processa ping de outro grupo
      */
-    private void processarPingIntergrupos(int idRemetente, String grupoRemetente) {
+    private void processarPingIntergrupos(MensagemIntergrupo ping) {
+        registroGrupos.registrarMembros(ping.getGrupo(), ping.getMembros());
         if (isLiderSupplier.get()) {
             // Responder apenas se for líder do meu grupo
-            enviarMensagemIntergrupos("PONG_INTER", "");
+            enviarMensagemIntergrupos(TipoMensagem.PONG_INTER, corpoDescoberta());
             System.out.printf("[INTERGRUPOS P%d-%s] Respondido ping de P%d-%s%n",
-                    idNo, tipoGrupo, idRemetente, grupoRemetente);
+                    idNo, tipoGrupo, ping.getRemetente(), ping.getGrupo());
+            canaisLideres.conectar(ping.getRemetente(), ping.getGrupo(), ping.getPortaCanal());
         }
     }
 
     /**
      * Processa pong de outro grupo
      */
-    private void processarPongIntergrupos(int idRemetente, String grupoRemetente) {
+    private void processarPongIntergrupos(MensagemIntergrupo pong) {
         System.out.printf("[INTERGRUPOS P%d-%s] Confirmação de vida de P%d-%s%n",
-                idNo, tipoGrupo, idRemetente, grupoRemetente);
+                idNo, tipoGrupo, pong.getRemetente(), pong.getGrupo());
         ultimoHeartbeatIntergrupos.set(System.currentTimeMillis());
+        registroGrupos.registrarMembros(pong.getGrupo(), pong.getMembros());
+
+        if (isLiderSupplier.get()) {
+            canaisLideres.conectar(pong.getRemetente(), pong.getGrupo(), pong.getPortaCanal());
+        }
     }
 
     /**
      * Processa solicitação de status
      */
-    private void processarSolicitacaoStatus(int idRemetente, String grupoRemetente) {
+    private void processarSolicitacaoStatus(MensagemIntergrupo solicitacao) {
         if (isLiderSupplier.get()) {
             // Enviar status apenas se for líder
-            Recurso recurso = recursoSupplier.get();
-            String dadosStatus = String.format("relogio=%d,cpu=%.2f,memoria=%.2f",
-                    recurso.getRelogioLamport(), recurso.getUsoCpu(), recurso.getUsoMemoria());
-
-            enviarMensagemIntergrupos("STATUS_RESPONSE", dadosStatus);
+            // A resposta devolve o id da solicitação para o solicitante correlacioná-la
+            // e leva o resumo do grupo inteiro: o supercoordenador não consulta cada nó
+            AmostraStatus amostra = obterStatusLocal();
+            if (amostra.usos.getAndIncrement() > 0) {
+                respostasDoCache.incrementAndGet();
+            }
+            enviarMensagemIntergrupos(TipoMensagem.STATUS_RESPONSE, MensagemIntergrupo.corpoStatus(
+                    solicitacao.getIdCorrelacao(), amostra.recurso.getUsoCpu(), amostra.recurso.getUsoMemoria(),
+                    amostra.resumo));
         }
     }
 
     /**
-     * Processa resposta de status
+     * Status local com até {@link #TTL_STATUS_LOCAL_MS} de idade; só uma thread reamostra
      */
-    private void processarRespostaStatus(int idRemetente, String grupoRemetente, String dadosStatus) {
-        System.out.printf("[INTERGRUPOS P%d-%s] Status recebido de P%d-%s: %s%n",
-                idNo, tipoGrupo, idRemetente, grupoRemetente, dadosStatus);
-
-        // Atualizar dados do grupo remoto
-        InfoGrupoRemoto info = gruposConhecidos.get(idRemetente);
-        if (info != null) {
-            info.atualizarStatus(dadosStatus);
+    private AmostraStatus obterStatusLocal() {
+        AmostraStatus amostra = amostraStatusLocal;
+        if (amostra != null && amostra.isValida()) {
+            return amostra;
+        }
+        synchronized (travaAmostraStatus) {
+            amostra = amostraStatusLocal;
+            if (amostra == null || !amostra.isValida()) {
+                amostra = new AmostraStatus(recursoSupplier.get(), resumoSupplier.get());
+                amostraStatusLocal = amostra;
+            }
+            return amostra;
         }
     }
 
     /**
-     * Processa candidatura para supercoordenador
+     * O grupo local entra na visão global como os remotos: pelo resumo do líder
      */
-    private void processarCandidaturaSuper(int idRemetente, String grupoRemetente, String dadosCandidatura) {
-        String mensagemProcessada = String.format("SUPER_ELECTION:candidato:%d-%s,prioridade:%s",
-                idRemetente, grupoRemetente, dadosCandidatura);
-
-        if (processadorMensagens != null) {
-            processadorMensagens.accept(mensagemProcessada);
-        }
+    private void registrarStatusLocal() {
+        AmostraStatus amostra = obterStatusLocal();
+        registroGrupos.registrarStatus(tipoGrupo, amostra.recurso.getUsoCpu(), amostra.recurso.getUsoMemoria(),
+                amostra.resumo, System.currentTimeMillis());
     }
 
     /**
-     * Processa snapshot global
+     * Processa resposta de status: completa a solicitação correspondente, se for deste nó
      */
-    private void processarSnapshotGlobal(int idRemetente, String grupoRemetente, String dadosSnapshot) {
-        String mensagemProcessada = String.format("SNAPSHOT_MARKER:%s", dadosSnapshot);
+    private void processarRespostaStatus(MensagemIntergrupo resposta) {
+        long rttNanos = -1;
+        CompletableFuture<StatusGrupo> pendente = null;
+
+        Solicitacao<StatusGrupo> solicitacao = solicitacoesPendentes.get(resposta.getIdCorrelacao());
+        if (solicitacao != null) {
+            pendente = solicitacao.respostas.get(resposta.getGrupo());
+            if (pendente != null && !pendente.isDone()) {
+                rttNanos = System.nanoTime() - solicitacao.enviadaEm;
+                rttPorGrupo.computeIfAbsent(resposta.getGrupo(), g -> new HistogramaLatencia()).registrar(rttNanos);
+            }
+        }
+
+        StatusGrupo status = new StatusGrupo(resposta, rttNanos);
+        registroGrupos.registrarStatus(resposta.getGrupo(), status.getUsoCpu(), status.getUsoMemoria(),
+                status.getResumo(), status.getRecebidoEm());
 
-        if (processadorMensagens != null) {
-            processadorMensagens.accept(mensagemProcessada);
+        // Atualizar dados do grupo remoto
+        InfoGrupoRemoto info = gruposConhecidos.get(resposta.getRemetente());
+        if (info != null) {
+            info.atualizarStatus(status);
+        }
+        if (rttNanos >= 0) {
+            pendente.complete(status);
         }
     }
 
@@ -215,22 +352,178 @@ public class ComunicacaoIntergrupos {
         info.atualizarUltimoContato();
     }
 
+    /**
+     * Lista os pares intergrupos conhecidos (formato "idNo-tipoGrupo") para passagem de liderança
+     */
+    public List<String> exportarParesConhecidos() {
+        List<String> pares = new ArrayList<>();
+        gruposConhecidos.values().forEach(info -> pares.add(info.getId() + "-" + info.getTipoGrupo()));
+        return pares;
+    }
+
+    /**
+     * Adota os pares conhecidos pelo líder anterior, dispensando uma nova descoberta
+     */
+    public void adotarParesConhecidos(List<String> pares) {
+        for (String par : pares) {
+            String[] partes = par.split("-");
+            if (partes.length != 2) continue;
+            try {
+                int idRemoto = Integer.parseInt(partes[0]);
+                atualizarGrupoRemoto(idRemoto, partes[1]);
+                // Sem contato próprio ainda: o grupo entra no registro, mas só fica ativo quando falar
+                registroGrupos.registrarContato(partes[1], idRemoto, 0, 0);
+            } catch (NumberFormatException e) {
+                System.err.printf("[ERRO INTERGRUPOS P%d-%s] Par inválido: %s%n", idNo, tipoGrupo, par);
+            }
+        }
+    }
+
     /**
      * Envia ping para descobrir outros grupos
      */
     public void enviarPingIntergrupo() {
         if (isLiderSupplier.get()) {
-            enviarMensagemIntergrupos("PING_INTER", "");
+            enviarMensagemIntergrupos(TipoMensagem.PING_INTER, corpoDescoberta());
             System.out.printf("[INTERGRUPOS P%d-%s] Ping enviado para descoberta de grupos%n", idNo, tipoGrupo);
         }
     }
 
+    private byte[] corpoDescoberta() {
+        int membros = membrosSupplier.get();
+        registroGrupos.registrarMembros(tipoGrupo, membros);
+        return MensagemIntergrupo.corpoDescoberta(portaCanal, membros);
+    }
+
     /**
-     * Solicita status de outros grupos
+     * Solicita status de outros grupos, sem esperar as respostas
      */
     public void solicitarStatusIntergrupo() {
         if (isLiderSupplier.get()) {
-            enviarMensagemIntergrupos("STATUS_REQUEST", "");
+            solicitarStatusGrupos(TIMEOUT_STATUS_MS);
+        }
+    }
+
+    /**
+     * Solicita o status de um grupo remoto
+     * @return futuro completado com a resposta do líder do grupo, ou com
+     *         {@link java.util.concurrent.TimeoutException} se ela não chegar no prazo
+     */
+    public CompletableFuture<StatusGrupo> solicitarStatus(String grupoRemoto, long timeoutMs) {
+        return solicitar(Set.of(grupoRemoto), timeoutMs).get(grupoRemoto);
+    }
+
+    /**
+     * Solicita o status de todos os grupos remotos conhecidos com uma única mensagem
+     * @return um futuro por grupo, cada um com o seu prazo
+     */
+    public Map<String, CompletableFuture<StatusGrupo>> solicitarStatusGrupos(long timeoutMs) {
+        return solicitar(new HashSet<>(registroGrupos.getGruposRemotos()), timeoutMs);
+    }
+
+    private Map<String, CompletableFuture<StatusGrupo>> solicitar(Set<String> grupos, long timeoutMs) {
+        Map<String, CompletableFuture<StatusGrupo>> respostas = new HashMap<>();
+        if (!isLiderSupplier.get()) {
+            // Só líderes recebem respostas de status
+            grupos.forEach(g -> respostas.put(g, CompletableFuture.failedFuture(
+                    new IllegalStateException("P" + idNo + " não é líder do grupo " + tipoGrupo))));
+            return respostas;
+        }
+        registrarStatusLocal();
+        if (grupos.isEmpty()) {
+            return respostas;
+        }
+
+        Solicitacao<StatusGrupo> nova;
+        synchronized (this) {
+            // Single-flight: se a solicitação em voo já cobre os grupos, reaproveita suas respostas
+            Solicitacao<StatusGrupo> emVoo = solicitacaoEmVoo;
+            if (emVoo != null && emVoo.cobre(grupos)) {
+                solicitacoesAgrupadas.incrementAndGet();
+                // Cópias: o cancelamento por um chamador não afeta os demais
+                grupos.forEach(g -> respostas.put(g, emVoo.respostas.get(g).copy()));
+                return respostas;
+            }
+            nova = iniciarSolicitacao(grupos, timeoutMs, solicitacoesPendentes, respostas);
+            solicitacaoEmVoo = nova;
+        }
+        respostas.values().forEach(futuro -> futuro.whenComplete((status, erro) -> {
+            if (erro != null) {
+                solicitacoesExpiradas.incrementAndGet();
+            }
+        }));
+        enviarMensagemIntergrupos(TipoMensagem.STATUS_REQUEST,
+                MensagemIntergrupo.corpoSolicitacaoStatus(nova.idCorrelacao));
+        return respostas;
+    }
+
+    private <T> Solicitacao<T> iniciarSolicitacao(Set<String> grupos, long timeoutMs,
+                                                  Map<Long, Solicitacao<T>> pendentes,
+                                                  Map<String, CompletableFuture<T>> respostas) {
+        long idCorrelacao = geradorCorrelacao.incrementAndGet();
+        Solicitacao<T> solicitacao = new Solicitacao<>(idCorrelacao);
+        for (String grupo : grupos) {
+            CompletableFuture<T> futuro = new CompletableFuture<T>().orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+            solicitacao.respostas.put(grupo, futuro);
+            respostas.put(grupo, futuro);
+        }
+
+        pendentes.put(idCorrelacao, solicitacao);
+        CompletableFuture.allOf(respostas.values().toArray(new CompletableFuture<?>[0]))
+                .whenComplete((r, erro) -> encerrarSolicitacao(pendentes, solicitacao));
+        return solicitacao;
+    }
+
+    private synchronized <T> void encerrarSolicitacao(Map<Long, Solicitacao<T>> pendentes, Solicitacao<T> solicitacao) {
+        pendentes.remove(solicitacao.idCorrelacao);
+        if (solicitacaoEmVoo == solicitacao) {
+            solicitacaoEmVoo = null;
+        }
+    }
+
+    /**
+     * Rodada de sincronização de relógios, fase 1: pede o relógio do líder de cada grupo remoto
+     * conhecido. Cada resposta já avança o relógio local ao chegar (ver {@link #anunciarRelogio()}).
+     * @return um futuro por grupo com o relógio e o desvio físico do líder, cada um com o seu prazo
+     */
+    public Map<String, CompletableFuture<LeituraRelogio>> sincronizarRelogios(long timeoutMs) {
+        Map<String, CompletableFuture<LeituraRelogio>> leituras = new HashMap<>();
+        Set<String> grupos = new HashSet<>(registroGrupos.getGruposRemotos());
+        if (!isLiderSupplier.get() || grupos.isEmpty()) {
+            return leituras;
+        }
+        Solicitacao<LeituraRelogio> rodada = iniciarSolicitacao(grupos, timeoutMs, sincronizacoesPendentes, leituras);
+        enviarMensagemIntergrupos(TipoMensagem.SYNC_REQUEST,
+                MensagemIntergrupo.corpoSolicitacaoSincronizacao(rodada.idCorrelacao));
+        return leituras;
+    }
+
+    /**
+     * Fase 2: anuncia o relógio local, que já incorporou o de todos os líderes que responderam.
+     * Depois dela nenhum líder fica atrás do maior relógio da rodada.
+     */
+    public void anunciarRelogio() {
+        if (isLiderSupplier.get()) {
+            enviarMensagemIntergrupos(TipoMensagem.SYNC_REQUEST, MensagemIntergrupo.corpoSolicitacaoSincronizacao(0));
+        }
+    }
+
+    /**
+     * O relógio remoto já foi incorporado em processarMensagem; só a fase 1 pede resposta
+     */
+    private void processarSolicitacaoSincronizacao(MensagemIntergrupo solicitacao) {
+        if (solicitacao.getIdCorrelacao() != 0 && isLiderSupplier.get()) {
+            enviarMensagemIntergrupos(TipoMensagem.SYNC_RESPONSE, MensagemIntergrupo.corpoSincronizacao(
+                    solicitacao.getIdCorrelacao(), relogio.lerFisico()));
+        }
+    }
+
+    private void processarRespostaSincronizacao(MensagemIntergrupo resposta) {
+        Solicitacao<LeituraRelogio> rodada = sincronizacoesPendentes.get(resposta.getIdCorrelacao());
+        CompletableFuture<LeituraRelogio> pendente = rodada == null ? null : rodada.respostas.get(resposta.getGrupo());
+        if (pendente != null && !pendente.isDone()) {
+            pendente.complete(new LeituraRelogio(resposta, System.nanoTime() - rodada.enviadaEm,
+                    System.currentTimeMillis()));
         }
     }
 
@@ -239,9 +532,7 @@ public class ComunicacaoIntergrupos {
      */
     public void enviarCandidaturaSuper() {
         if (isLiderSupplier.get()) {
-            String dadosCandidatura = String.format("relogio=%d,prioridade=%d",
-                    relogioSupplier.get(), idNo);
-            enviarMensagemIntergrupos("SUPER_CANDIDATE", dadosCandidatura);
+            enviarMensagemIntergrupos(TipoMensagem.SUPER_CANDIDATE, MensagemIntergrupo.corpoCandidatura(idNo));
             System.out.printf("[INTERGRUPOS P%d-%s] Candidatura para supercoordenador enviada%n", idNo, tipoGrupo);
         }
     }
@@ -251,24 +542,49 @@ public class ComunicacaoIntergrupos {
      */
     public void enviarMarcadorSnapshot(String idSnapshot) {
         if (isLiderSupplier.get()) {
-            String dadosSnapshot = String.format("id=%s,relogio=%d,timestamp=%s",
-                    idSnapshot, relogioSupplier.get(),
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss.SSS")));
-            enviarMensagemIntergrupos("SNAPSHOT_GLOBAL", dadosSnapshot);
+            enviarMensagemIntergrupos(TipoMensagem.SNAPSHOT_GLOBAL,
+                    MensagemIntergrupo.corpoSnapshot(idSnapshot, System.currentTimeMillis()));
         }
     }
 
     /**
-     * Método genérico para enviar mensagens intergrupos
+     * Método genérico para enviar mensagens intergrupos.
+     * Remetente, grupo, relógio e época vão no cabeçalho do envelope; o corpo leva
+     * só os campos binários do tipo (ver {@link MensagemIntergrupo}).
+     * Fora da descoberta, a mensagem vai pelos streams dos líderes e só cai no
+     * multicast se algum grupo conhecido ainda não tiver stream.
      */
-    private void enviarMensagemIntergrupos(String tipo, String payload) {
-        String remetenteInfo = String.format("%d-%s", idNo, tipoGrupo);
-        String mensagem = payload.isEmpty() ?
-                String.format("%s:%s", tipo, remetenteInfo) :
-                String.format("%s:%s:%s", tipo, remetenteInfo, payload);
-
-        emissor.enviarMensagem(mensagem, ENDERECO_INTERGRUPOS, PORTA_INTERGRUPOS);
+    private void enviarMensagemIntergrupos(TipoMensagem tipo, byte[] corpo) {
+        long relogioEnvio = relogio.tick();
+        // Um único evento de envio, quer a mensagem siga pelos streams, pelo multicast ou pelos dois
+        byte[] contexto = rastreador.registrarEnvio(tipo.name());
+        long epoca = epocaSupplier.get();
         mensagensEnviadas.incrementAndGet();
+        // Só o líder envia: mantém o grupo local do registro com o líder e a época atuais
+        registroGrupos.registrarContato(tipoGrupo, idNo, epoca, System.currentTimeMillis());
+
+        if (!isDescoberta(tipo)) {
+            canaisLideres.enviar(tipo, relogioEnvio, epoca, corpo, contexto);
+            if (!haGrupoSemStream()) {
+                return;
+            }
+        }
+
+        emissor.enviar(new EnvelopeMulticast(tipo, 0, idNo, tipoGrupo, relogioEnvio, epoca, 0, 0, corpo)
+                        .comContexto(contexto), ENDERECO_INTERGRUPOS, PORTA_INTERGRUPOS);
+    }
+
+    private boolean haGrupoSemStream() {
+        int quantidade = registroGrupos.getQuantidade();
+        if (quantidade == 1) return true;
+        long agora = System.currentTimeMillis();
+        for (int i = 1; i < quantidade; i++) {
+            if (agora - registroGrupos.getUltimoContato(i) < TIMEOUT_DESCOBERTA_MS * 4
+                    && !canaisLideres.isConectado(registroGrupos.getNome(i), registroGrupos.getLider(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -289,7 +605,18 @@ public class ComunicacaoIntergrupos {
         relatorio.append("ESTATÍSTICAS DE COMUNICAÇÃO:\n");
         relatorio.append(String.format("  • Mensagens enviadas: %d%n", mensagensEnviadas.get()));
         relatorio.append(String.format("  • Mensagens recebidas: %d%n", mensagensRecebidas.get()));
+        relatorio.append(String.format("  • Recebidas pelo stream entre líderes: %d%n", mensagensViaStream.get()));
+        relatorio.append(String.format("  • Streams com líderes remotos: %d%n", canaisLideres.getConexoesAtivas()));
         relatorio.append(String.format("  • Grupos conhecidos: %d%n", gruposConhecidos.size()));
+        relatorio.append(String.format("  • Grupos no registro (com o local): %d, %d ativos, %d nós%n",
+                registroGrupos.getQuantidade(), registroGrupos.contarAtivos(System.currentTimeMillis()),
+                registroGrupos.getTotalMembros(System.currentTimeMillis())));
+        relatorio.append(String.format("  • Recursos dos grupos (resumos): %s%n",
+                registroGrupos.combinarResumos(System.currentTimeMillis())));
+        relatorio.append(String.format("  • Relógio híbrido: %s (%dms à frente do físico, %d relógios remotos descartados)%n",
+                RelogioHibrido.formatar(relogio.atual()), relogio.getAdiantamentoMs(), relogio.getRemotosDescartados()));
+        relatorio.append(String.format("  • Mensagens de época obsoleta descartadas: %d%n", mensagensObsoletas.get()));
+        relatorio.append(String.format("  • Mensagens inválidas descartadas: %d%n", mensagensInvalidas.get()));
 
         long ultimoHeartbeat = (System.currentTimeMillis() - ultimoHeartbeatIntergrupos.get()) / 1000;
         relatorio.append(String.format("  • Último heartbeat: %ds atrás%n", ultimoHeartbeat));
@@ -306,6 +633,19 @@ public class ComunicacaoIntergrupos {
             });
         }
 
+        // Tempo de ida e volta das solicitações de status
+        if (!rttPorGrupo.isEmpty()) {
+            relatorio.append("\nRTT DAS SOLICITAÇÕES DE STATUS:\n");
+            rttPorGrupo.forEach((grupo, histograma) ->
+                    relatorio.append(String.format("  • Grupo %s: %s%n", grupo, histograma.resumo())));
+            relatorio.append(String.format("  • Solicitações sem resposta no prazo: %d%n", solicitacoesExpiradas.get()));
+            relatorio.append(String.format("  • Solicitações agrupadas à que estava em voo: %d%n", solicitacoesAgrupadas.get()));
+        }
+        if (respostasDoCache.get() > 0) {
+            relatorio.append(String.format("  • Respostas de status servidas do cache (TTL %dms): %d%n",
+                    TTL_STATUS_LOCAL_MS, respostasDoCache.get()));
+        }
+
         relatorio.append("-".repeat(70)).append("\n");
         relatorio.append("STATUS: COMUNICAÇÃO INTERGRUPOS ATIVA\n");
         relatorio.append("=".repeat(70)).append("\n");
@@ -313,6 +653,14 @@ public class ComunicacaoIntergrupos {
         return relatorio.toString();
     }
 
+    /**
+     * O nó deixou de ser líder: fecha os streams, e os outros líderes voltam ao
+     * multicast até abrirem stream com o novo líder
+     */
+    public void deixarLideranca() {
+        canaisLideres.encerrarConexoes();
+    }
+
     /**
      * Para a comunicação intergrupos
      */
@@ -320,6 +668,7 @@ public class ComunicacaoIntergrupos {
         if (ouvinte != null) {
             ouvinte.parar();
         }
+        canaisLideres.parar();
         System.out.printf("[INTERGRUPOS P%d-%s] Comunicação intergrupos encerrada%n", idNo, tipoGrupo);
     }
 
@@ -328,8 +677,57 @@ public class ComunicacaoIntergrupos {
         return new ConcurrentHashMap<>(gruposConhecidos);
     }
 
+    public RegistroGrupos getRegistroGrupos() { return registroGrupos; }
+
     public int getMensagensEnviadas() { return mensagensEnviadas.get(); }
     public int getMensagensRecebidas() { return mensagensRecebidas.get(); }
+    public int getMensagensObsoletas() { return mensagensObsoletas.get(); }
+    public int getMensagensInvalidas() { return mensagensInvalidas.get(); }
+    public int getSolicitacoesAgrupadas() { return solicitacoesAgrupadas.get(); }
+    public int getRespostasDoCache() { return respostasDoCache.get(); }
+
+    /**
+     * Histograma do RTT das solicitações de status ao grupo, ou null se nenhuma foi respondida
+     */
+    public HistogramaLatencia getHistogramaRtt(String grupoRemoto) {
+        return rttPorGrupo.get(grupoRemoto);
+    }
+
+    /**
+     * Uma solicitação (de status ou de relógio) em andamento: um futuro por grupo remoto esperado
+     */
+    private static class Solicitacao<T> {
+        private final long idCorrelacao;
+        private final long enviadaEm = System.nanoTime();
+        private final Map<String, CompletableFuture<T>> respostas = new ConcurrentHashMap<>();
+
+        private Solicitacao(long idCorrelacao) {
+            this.idCorrelacao = idCorrelacao;
+        }
+
+        private boolean cobre(Set<String> grupos) {
+            return respostas.keySet().containsAll(grupos);
+        }
+    }
+
+    /**
+     * Status local amostrado, o resumo do grupo no mesmo instante e quantas respostas já o usaram
+     */
+    private static class AmostraStatus {
+        private final Recurso recurso;
+        private final ResumoRecursos resumo;
+        private final long amostradaEm = System.currentTimeMillis();
+        private final AtomicInteger usos = new AtomicInteger(0);
+
+        private AmostraStatus(Recurso recurso, ResumoRecursos resumo) {
+            this.recurso = recurso;
+            this.resumo = resumo;
+        }
+
+        private boolean isValida() {
+            return System.currentTimeMillis() - amostradaEm < TTL_STATUS_LOCAL_MS;
+        }
+    }
 
     /**
      * Classe para armazenar informações de grupos remotos
@@ -339,6 +737,7 @@ public class ComunicacaoIntergrupos {
         private final String tipoGrupo;
         private volatile long ultimoContato;
         private volatile String statusInfo = "DESCOBERTO";
+        private volatile StatusGrupo ultimoStatus;
 
         public InfoGrupoRemoto(int id, String tipoGrupo) {
             this.id = id;
@@ -357,6 +756,11 @@ public class ComunicacaoIntergrupos {
             System.out.printf("[INTERGRUPOS] Status atualizado P%d-%s: %s%n", id, tipoGrupo, novoStatus);
         }
 
+        public void atualizarStatus(StatusGrupo status) {
+            this.ultimoStatus = status;
+            atualizarStatus(status.toString());
+        }
+
         public boolean isAtivo(long timeoutMs) {
             long tempoDecorrido = System.currentTimeMillis() - ultimoContato;
             return tempoDecorrido < timeoutMs;
@@ -371,6 +775,7 @@ public class ComunicacaoIntergrupos {
         public String getTipoGrupo() { return tipoGrupo; }
         public long getUltimoContato() { return ultimoContato; }
         public String getStatusInfo() { return statusInfo; }
+        public StatusGrupo getUltimoStatus() { return ultimoStatus; }
     }
 
 }
\ No newline at end of file
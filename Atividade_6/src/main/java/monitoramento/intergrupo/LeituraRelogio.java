@@ -0,0 +1,41 @@
+package monitoramento.intergrupo;
+
+import monitoramento.comum.RelogioHibrido;
+
+/**
+ * Relógios do líder de um grupo remoto, vindos de um SYNC_RESPONSE
+ */
+public final class LeituraRelogio {
+    private final int idLider;
+    private final String grupo;
+    // Relógio híbrido do líder no envio da resposta (do cabeçalho)
+    private final long relogio;
+    // Relógio físico do líder no envio da resposta (ms)
+    private final long relogioFisico;
+    private final long rttNanos;
+    // Desvio estimado do relógio físico do líder em relação ao local (Cristian: meio RTT de trânsito)
+    private final long desvioMs;
+
+    LeituraRelogio(MensagemIntergrupo resposta, long rttNanos, long recebidaEm) {
+        this.idLider = resposta.getRemetente();
+        this.grupo = resposta.getGrupo();
+        this.relogio = resposta.getRelogio();
+        this.relogioFisico = resposta.getTimestamp();
+        this.rttNanos = rttNanos;
+        this.desvioMs = relogioFisico - (recebidaEm - rttNanos / 2_000_000);
+    }
+
+    // Getters
+    public int getIdLider() { return idLider; }
+    public String getGrupo() { return grupo; }
+    public long getRelogio() { return relogio; }
+    public long getRelogioFisico() { return relogioFisico; }
+    public long getRttNanos() { return rttNanos; }
+    public long getDesvioMs() { return desvioMs; }
+
+    @Override
+    public String toString() {
+        return String.format("relogio=%s,desvio=%+dms,rtt=%.1fms",
+                RelogioHibrido.formatar(relogio), desvioMs, rttNanos / 1e6);
+    }
+}
@@ -0,0 +1,215 @@
+package monitoramento.intergrupo;
+
+import monitoramento.comum.RelogioHibrido;
+import monitoramento.comum.ResumoRecursos;
+import monitoramento.coordenacao.EnvelopeMulticast;
+import monitoramento.coordenacao.TipoMensagem;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Mensagem intergrupos já tipada. Remetente, grupo, relógio, época e o contexto
+ * causal do rastreio (se houver) vêm do cabeçalho do envelope (ou do quadro do
+ * canal entre líderes); o corpo binário
+ * leva apenas os campos do tipo:
+ * PING_INTER e PONG_INTER: porta do canal entre líderes (4, zero se indisponível) | nós do grupo (2);
+ * STATUS_REQUEST: id de correlação (8);
+ * STATUS_RESPONSE: id de correlação da solicitação (8) | cpu (8) | memória (8) | resumo do grupo (opcional);
+ * SUPER_CANDIDATE: prioridade (4);
+ * SNAPSHOT_GLOBAL: timestamp em ms (8) | tamanho do id (2) | id UTF-8;
+ * SYNC_REQUEST: id de correlação (8, zero quando só anuncia o relógio e não espera resposta);
+ * SYNC_RESPONSE: id de correlação da solicitação (8) | relógio físico do líder em ms (8).
+ * A decodificação lê direto do corpo do envelope, sem cópias nem parsing de texto.
+ */
+public final class MensagemIntergrupo {
+    private static final int TAMANHO_SOLICITACAO = 8;
+    private static final int TAMANHO_STATUS = 24;
+    private static final int TAMANHO_CANDIDATURA = 4;
+    private static final int TAMANHO_DESCOBERTA = 6;
+    private static final int TAMANHO_SINCRONIZACAO = 16;
+
+    private final TipoMensagem tipo;
+    private final int remetente;
+    private final String grupo;
+    private final long relogio;
+    private final long epoca;
+    private final byte[] contextoCausal;
+
+    // Campos específicos de cada tipo (zero/null nos demais)
+    private final int portaCanal;
+    private final int membros;
+    private final long idCorrelacao;
+    private final double usoCpu;
+    private final double usoMemoria;
+    private final ResumoRecursos resumo;
+    private final int prioridade;
+    private final long timestamp;
+    private final String idSnapshot;
+
+    private MensagemIntergrupo(TipoMensagem tipo, int remetente, String grupo, long relogio, long epoca,
+                               int portaCanal, int membros, long idCorrelacao, double usoCpu, double usoMemoria, ResumoRecursos resumo, int prioridade, long timestamp, String idSnapshot,
+                               byte[] contextoCausal) {
+        this.tipo = tipo;
+        this.remetente = remetente;
+        this.grupo = grupo;
+        this.relogio = relogio;
+        this.epoca = epoca;
+        this.portaCanal = portaCanal;
+        this.membros = membros;
+        this.idCorrelacao = idCorrelacao;
+        this.usoCpu = usoCpu;
+        this.usoMemoria = usoMemoria;
+        this.resumo = resumo;
+        this.prioridade = prioridade;
+        this.timestamp = timestamp;
+        this.idSnapshot = idSnapshot;
+        this.contextoCausal = contextoCausal;
+    }
+
+    // ---- Montagem do corpo para envio ----
+
+    public static byte[] corpoDescoberta(int portaCanal, int membros) {
+        return ByteBuffer.allocate(TAMANHO_DESCOBERTA).putInt(portaCanal).putShort((short) membros).array();
+    }
+
+    public static byte[] corpoSolicitacaoStatus(long idCorrelacao) {
+        return ByteBuffer.allocate(TAMANHO_SOLICITACAO).putLong(idCorrelacao).array();
+    }
+
+    /**
+     * @param resumo resumo dos recursos do grupo montado pelo líder, ou null se ainda não houver
+     */
+    public static byte[] corpoStatus(long idCorrelacao, double usoCpu, double usoMemoria, ResumoRecursos resumo) {
+        byte[] resumoSerializado = resumo == null ? new byte[0] : resumo.serializar();
+        return ByteBuffer.allocate(TAMANHO_STATUS + resumoSerializado.length)
+                .putLong(idCorrelacao).putDouble(usoCpu).putDouble(usoMemoria).put(resumoSerializado).array();
+    }
+
+    public static byte[] corpoCandidatura(int prioridade) {
+        return ByteBuffer.allocate(TAMANHO_CANDIDATURA).putInt(prioridade).array();
+    }
+
+    public static byte[] corpoSolicitacaoSincronizacao(long idCorrelacao) {
+        return ByteBuffer.allocate(TAMANHO_SOLICITACAO).putLong(idCorrelacao).array();
+    }
+
+    public static byte[] corpoSincronizacao(long idCorrelacao, long relogioFisico) {
+        return ByteBuffer.allocate(TAMANHO_SINCRONIZACAO).putLong(idCorrelacao).putLong(relogioFisico).array();
+    }
+
+    public static byte[] corpoSnapshot(String idSnapshot, long timestamp) {
+        byte[] id = idSnapshot.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(10 + id.length).putLong(timestamp).putShort((short) id.length).put(id).array();
+    }
+
+    /**
+     * Interpreta o corpo de um envelope intergrupos conforme o tipo do cabeçalho
+     * @throws IllegalArgumentException se o tipo não for intergrupos ou o corpo estiver truncado
+     */
+    public static MensagemIntergrupo decodificar(EnvelopeMulticast envelope) {
+        return decodificar(envelope.getTipo(), envelope.getRemetente(), envelope.getGrupo(),
+                envelope.getRelogio(), envelope.getEpoca(), envelope.getCorpo(), envelope.getContextoCausal());
+    }
+
+    /**
+     * Interpreta um corpo recebido fora de envelope (canal entre líderes)
+     * @param contextoCausal contexto do rastreio causal, ou null
+     * @throws IllegalArgumentException se o tipo não for intergrupos ou o corpo estiver truncado
+     */
+    public static MensagemIntergrupo decodificar(TipoMensagem tipo, int remetente, String grupo,
+                                                 long relogio, long epoca, byte[] dados, byte[] contextoCausal) {
+        ByteBuffer corpo = ByteBuffer.wrap(dados);
+        int portaCanal = 0;
+        int membros = 0;
+        long idCorrelacao = 0;
+        double usoCpu = 0;
+        double usoMemoria = 0;
+        ResumoRecursos resumo = null;
+        int prioridade = 0;
+        long timestamp = 0;
+        String idSnapshot = null;
+
+        try {
+            switch (tipo) {
+                case PING_INTER:
+                case PONG_INTER:
+                    // Emissores sem canal entre líderes mandam o corpo vazio; os antigos, sem o tamanho do grupo
+                    portaCanal = corpo.remaining() >= 4 ? corpo.getInt() : 0;
+                    membros = corpo.remaining() >= 2 ? corpo.getShort() & 0xFFFF : 0;
+                    break;
+                case STATUS_REQUEST:
+                    // Solicitações sem id não esperam correlação
+                    idCorrelacao = corpo.remaining() >= TAMANHO_SOLICITACAO ? corpo.getLong() : 0;
+                    break;
+                case STATUS_RESPONSE:
+                    idCorrelacao = corpo.getLong();
+                    usoCpu = corpo.getDouble();
+                    usoMemoria = corpo.getDouble();
+                    // Líderes que ainda não coletaram o grupo respondem sem resumo
+                    resumo = corpo.hasRemaining() ? ResumoRecursos.ler(corpo) : null;
+                    break;
+                case SUPER_CANDIDATE:
+                    prioridade = corpo.getInt();
+                    break;
+                case SNAPSHOT_GLOBAL:
+                    timestamp = corpo.getLong();
+                    int tamanhoId = corpo.getShort() & 0xFFFF;
+                    if (tamanhoId > corpo.remaining()) {
+                        throw new BufferUnderflowException();
+                    }
+                    idSnapshot = new String(corpo.array(), corpo.position(), tamanhoId, StandardCharsets.UTF_8);
+                    break;
+                case SYNC_REQUEST:
+                    idCorrelacao = corpo.getLong();
+                    break;
+                case SYNC_RESPONSE:
+                    idCorrelacao = corpo.getLong();
+                    timestamp = corpo.getLong();
+                    break;
+                default:
+                    throw new IllegalArgumentException("tipo não é intergrupos: " + tipo);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("corpo de " + tipo + " truncado (" + dados.length + " bytes)");
+        }
+
+        return new MensagemIntergrupo(tipo, remetente, grupo, relogio, epoca, portaCanal, membros, idCorrelacao, usoCpu, usoMemoria, resumo, prioridade, timestamp, idSnapshot,
+                contextoCausal);
+    }
+
+    // Getters
+    public TipoMensagem getTipo() { return tipo; }
+    public int getRemetente() { return remetente; }
+    public String getGrupo() { return grupo; }
+    public long getRelogio() { return relogio; }
+    public long getEpoca() { return epoca; }
+    public int getPortaCanal() { return portaCanal; }
+    public int getMembros() { return membros; }
+    public long getIdCorrelacao() { return idCorrelacao; }
+    public double getUsoCpu() { return usoCpu; }
+    public double getUsoMemoria() { return usoMemoria; }
+    public ResumoRecursos getResumo() { return resumo; }
+    public int getPrioridade() { return prioridade; }
+    public long getTimestamp() { return timestamp; }
+    public String getIdSnapshot() { return idSnapshot; }
+    public byte[] getContextoCausal() { return contextoCausal; }
+
+    @Override
+    public String toString() {
+        String horario = RelogioHibrido.formatar(relogio);
+        switch (tipo) {
+            case STATUS_RESPONSE:
+                return String.format("%s de P%d-%s (relógio=%s, cpu=%.2f, memória=%.2f)",
+                        tipo, remetente, grupo, horario, usoCpu, usoMemoria);
+            case SUPER_CANDIDATE:
+                return String.format("%s de P%d-%s (relógio=%s, prioridade=%d)",
+                        tipo, remetente, grupo, horario, prioridade);
+            case SNAPSHOT_GLOBAL:
+                return String.format("%s de P%d-%s (id=%s, relógio=%s)", tipo, remetente, grupo, idSnapshot, horario);
+            default:
+                return String.format("%s de P%d-%s (relógio=%s)", tipo, remetente, grupo, horario);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package monitoramento.intergrupo;
+
+import monitoramento.comum.ResumoRecursos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro dos grupos do sistema, alimentado pela descoberta intergrupos
+ * (PING/PONG) e pelas respostas de status. Cada grupo recebe um índice denso
+ * na primeira vez em que aparece e o seu estado fica em arrays primitivos
+ * indexados por ele, sem um objeto por grupo: o supercoordenador percorre
+ * dezenas de grupos a cada ciclo sem alocar nem seguir referências.
+ * O grupo local ocupa sempre o índice 0.
+ */
+public class RegistroGrupos {
+    public static final int INDICE_LOCAL = 0;
+    // Sem contato nesse intervalo, o grupo é considerado inativo; três pings de folga,
+    // senão um grupo sairia da contagem entre dois pings
+    public static final long JANELA_ATIVIDADE_MS = 3 * ComunicacaoIntergrupos.INTERVALO_PING_SEGUNDOS * 1000;
+    private static final int CAPACIDADE_INICIAL = 8;
+
+    private final Map<String, Integer> indices = new HashMap<>();
+    private int quantidade = 0;
+
+    // Estado por grupo, indexado pelo índice do grupo (protegido por this)
+    private String[] nomes = new String[CAPACIDADE_INICIAL];
+    private int[] lideres = new int[CAPACIDADE_INICIAL];
+    private long[] epocas = new long[CAPACIDADE_INICIAL];
+    private int[] membros = new int[CAPACIDADE_INICIAL];
+    private long[] ultimoContato = new long[CAPACIDADE_INICIAL];
+    private long[] ultimaResposta = new long[CAPACIDADE_INICIAL];
+    private boolean[] semResposta = new boolean[CAPACIDADE_INICIAL];
+    private double[] usoCpu = new double[CAPACIDADE_INICIAL];
+    private double[] usoMemoria = new double[CAPACIDADE_INICIAL];
+    // Resumo de todos os nós do grupo enviado pelo líder (imutável depois de publicado)
+    private ResumoRecursos[] resumos = new ResumoRecursos[CAPACIDADE_INICIAL];
+
+    public RegistroGrupos(String grupoLocal) {
+        indice(grupoLocal);
+    }
+
+    /**
+     * Índice do grupo, registrando-o se ainda não for conhecido
+     */
+    private int indice(String grupo) {
+        Integer indice = indices.get(grupo);
+        if (indice != null) return indice;
+
+        if (quantidade == nomes.length) {
+            crescer(quantidade * 2);
+        }
+        int novo = quantidade++;
+        nomes[novo] = grupo;
+        lideres[novo] = -1;
+        indices.put(grupo, novo);
+        if (novo != INDICE_LOCAL) {
+            System.out.printf("[REGISTRO GRUPOS] Grupo %s registrado (índice %d, %d grupos)%n", grupo, novo, quantidade);
+        }
+        return novo;
+    }
+
+    private void crescer(int capacidade) {
+        nomes = Arrays.copyOf(nomes, capacidade);
+        lideres = Arrays.copyOf(lideres, capacidade);
+        epocas = Arrays.copyOf(epocas, capacidade);
+        membros = Arrays.copyOf(membros, capacidade);
+        ultimoContato = Arrays.copyOf(ultimoContato, capacidade);
+        ultimaResposta = Arrays.copyOf(ultimaResposta, capacidade);
+        semResposta = Arrays.copyOf(semResposta, capacidade);
+        usoCpu = Arrays.copyOf(usoCpu, capacidade);
+        usoMemoria = Arrays.copyOf(usoMemoria, capacidade);
+        resumos = Arrays.copyOf(resumos, capacidade);
+    }
+
+    /**
+     * Registra uma mensagem do líder de um grupo; líderes de época anterior não substituem o atual
+     * @return o índice do grupo
+     */
+    public synchronized int registrarContato(String grupo, int idLider, long epoca, long instante) {
+        int i = indice(grupo);
+        if (epoca >= epocas[i]) {
+            lideres[i] = idLider;
+            epocas[i] = epoca;
+        }
+        ultimoContato[i] = Math.max(ultimoContato[i], instante);
+        return i;
+    }
+
+    /**
+     * Registra o número de nós anunciado pelo grupo na descoberta (zero se não anunciado)
+     */
+    public synchronized void registrarMembros(String grupo, int quantidadeMembros) {
+        if (quantidadeMembros > 0) {
+            membros[indice(grupo)] = quantidadeMembros;
+        }
+    }
+
+    /**
+     * @param resumo resumo dos nós do grupo; null mantém o último recebido
+     */
+    public synchronized void registrarStatus(String grupo, double cpu, double memoria, ResumoRecursos resumo,
+                                             long instante) {
+        int i = indice(grupo);
+        usoCpu[i] = cpu;
+        usoMemoria[i] = memoria;
+        if (resumo != null) {
+            resumos[i] = resumo;
+        }
+        ultimaResposta[i] = instante;
+        ultimoContato[i] = Math.max(ultimoContato[i], instante);
+        semResposta[i] = false;
+    }
+
+    /**
+     * Marca que o grupo não respondeu à última solicitação de status no prazo.
+     * Só uma nova resposta de status o devolve a ativo.
+     */
+    public synchronized void registrarSemResposta(String grupo) {
+        semResposta[indice(grupo)] = true;
+    }
+
+    /**
+     * O grupo local está sempre ativo; os remotos, se tiveram contato recente e não deixaram de responder
+     */
+    public synchronized boolean isAtivo(int i, long agora) {
+        return i == INDICE_LOCAL || (!semResposta[i] && agora - ultimoContato[i] < JANELA_ATIVIDADE_MS);
+    }
+
+    /**
+     * Indica se o nó é, pelo último contato, o líder de algum grupo remoto ativo
+     */
+    public synchronized boolean isLiderRemotoAtivo(int idLider, long agora) {
+        for (int i = 1; i < quantidade; i++) {
+            if (lideres[i] == idLider && isAtivo(i, agora)) return true;
+        }
+        return false;
+    }
+
+    public synchronized int contarAtivos(long agora) {
+        int ativos = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (isAtivo(i, agora)) ativos++;
+        }
+        return ativos;
+    }
+
+    /**
+     * Total de nós dos grupos ativos (grupos que não anunciaram o tamanho contam como um nó)
+     */
+    public synchronized int getTotalMembros(long agora) {
+        int total = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (isAtivo(i, agora)) total += Math.max(1, membros[i]);
+        }
+        return total;
+    }
+
+    /**
+     * Visão global dos recursos: combina o resumo de cada grupo ativo.
+     * O custo cresce com o número de grupos, não com o de nós.
+     */
+    public synchronized ResumoRecursos combinarResumos(long agora) {
+        ResumoRecursos global = new ResumoRecursos();
+        for (int i = 0; i < quantidade; i++) {
+            if (isAtivo(i, agora)) {
+                global.combinar(resumos[i]);
+            }
+        }
+        return global;
+    }
+
+    /**
+     * Nomes dos grupos remotos já descobertos, na ordem de registro
+     */
+    public synchronized List<String> getGruposRemotos() {
+        List<String> grupos = new ArrayList<>(quantidade - 1);
+        for (int i = 1; i < quantidade; i++) {
+            grupos.add(nomes[i]);
+        }
+        return grupos;
+    }
+
+    /**
+     * Índice do grupo, ou -1 se ainda não foi descoberto
+     */
+    public synchronized int getIndice(String grupo) {
+        return indices.getOrDefault(grupo, -1);
+    }
+
+    // Getters por índice
+    public synchronized int getQuantidade() { return quantidade; }
+    public synchronized String getNome(int i) { return nomes[i]; }
+    public synchronized int getLider(int i) { return lideres[i]; }
+    public synchronized long getEpoca(int i) { return epocas[i]; }
+    public synchronized int getMembros(int i) { return membros[i]; }
+    public synchronized long getUltimoContato(int i) { return ultimoContato[i]; }
+    public synchronized long getUltimaResposta(int i) { return ultimaResposta[i]; }
+    public synchronized double getUsoCpu(int i) { return usoCpu[i]; }
+    public synchronized double getUsoMemoria(int i) { return usoMemoria[i]; }
+    public synchronized ResumoRecursos getResumo(int i) { return resumos[i]; }
+}
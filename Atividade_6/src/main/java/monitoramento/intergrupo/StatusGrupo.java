@@ -0,0 +1,51 @@
+package monitoramento.intergrupo;
+
+import monitoramento.comum.RelogioHibrido;
+import monitoramento.comum.ResumoRecursos;
+
+/**
+ * Status de um grupo remoto, vindo de um STATUS_RESPONSE do seu líder
+ */
+public final class StatusGrupo {
+    private final int idLider;
+    private final String grupo;
+    private final long relogio;
+    private final long epoca;
+    private final double usoCpu;
+    private final double usoMemoria;
+    // Resumo de todos os nós do grupo, pré-agregado pelo líder (null se ele ainda não coletou)
+    private final ResumoRecursos resumo;
+    private final long recebidoEm;
+    // Tempo de ida e volta da solicitação; -1 se a resposta não foi pedida por este nó
+    private final long rttNanos;
+
+    StatusGrupo(MensagemIntergrupo resposta, long rttNanos) {
+        this.idLider = resposta.getRemetente();
+        this.grupo = resposta.getGrupo();
+        this.relogio = resposta.getRelogio();
+        this.epoca = resposta.getEpoca();
+        this.usoCpu = resposta.getUsoCpu();
+        this.usoMemoria = resposta.getUsoMemoria();
+        this.resumo = resposta.getResumo();
+        this.recebidoEm = System.currentTimeMillis();
+        this.rttNanos = rttNanos;
+    }
+
+    // Getters
+    public int getIdLider() { return idLider; }
+    public String getGrupo() { return grupo; }
+    public long getRelogio() { return relogio; }
+    public long getEpoca() { return epoca; }
+    public double getUsoCpu() { return usoCpu; }
+    public double getUsoMemoria() { return usoMemoria; }
+    public ResumoRecursos getResumo() { return resumo; }
+    public long getRecebidoEm() { return recebidoEm; }
+    public long getRttNanos() { return rttNanos; }
+
+    @Override
+    public String toString() {
+        return String.format("relogio=%s,cpu=%.2f,memoria=%.2f%s%s", RelogioHibrido.formatar(relogio), usoCpu, usoMemoria,
+                resumo == null ? "" : ",nos=" + resumo.getNos(),
+                rttNanos < 0 ? "" : String.format(",rtt=%.1fms", rttNanos / 1e6));
+    }
+}
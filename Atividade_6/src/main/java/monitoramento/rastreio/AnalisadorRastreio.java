@@ -0,0 +1,316 @@
+package monitoramento.rastreio;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Analisa offline os arquivos gravados pelo {@link RastreadorCausal} e reporta:
+ * - contadores próprios que não avançam de um em um (arquivo corrompido ou processo reiniciado);
+ * - recebimentos sem o envio correspondente ou que não sucedem causalmente o envio;
+ * - entregas fora da ordem causal: um processo entregou m2 antes de m1, com envio(m1) → envio(m2);
+ * - cortes de snapshot inconsistentes: o estado de Pj já inclui um evento de Pi posterior
+ *   ao ponto em que Pi capturou seu próprio estado.
+ * Capturas de snapshot de processos diferentes dentro da janela formam um corte; um processo
+ * que captura de novo inicia o corte seguinte.
+ * Uso: java monitoramento.rastreio.AnalisadorRastreio <diretório> [janelaSnapshotMs]
+ * Sai com código 1 se houver violações.
+ */
+public class AnalisadorRastreio {
+    private static final long JANELA_SNAPSHOT_PADRAO_MS = 30000;
+    // Recebimentos anteriores comparados com cada entrega na verificação de ordem causal
+    private static final int JANELA_ENTREGAS = 256;
+    // Exemplos impressos por tipo de violação
+    private static final int EXEMPLOS_POR_TIPO = 10;
+
+    private static class Evento {
+        int processo;
+        int tipo;
+        long instante;
+        RelogioVetorial vetor;
+        String rotulo;
+        int remetente = -1;
+        long contadorRemetente;
+
+        long contador() {
+            return vetor.get(processo);
+        }
+
+        String descrever() {
+            return String.format("P%d#%d %s \"%s\"", processo, contador(), nomeTipo(tipo), rotulo);
+        }
+    }
+
+    private final Map<Integer, List<Evento>> eventosPorProcesso = new TreeMap<>();
+    // Envios indexados por processo e contador próprio no envio
+    private final Map<Long, Evento> envios = new HashMap<>();
+    private final Map<String, List<String>> violacoes = new LinkedHashMap<>();
+    private int recebimentosSemRemetenteRastreado;
+    private int cortesVerificados;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Uso: java monitoramento.rastreio.AnalisadorRastreio <diretório> [janelaSnapshotMs]");
+            System.exit(2);
+        }
+        long janelaSnapshot = args.length > 1 ? Long.parseLong(args[1]) : JANELA_SNAPSHOT_PADRAO_MS;
+
+        AnalisadorRastreio analisador = new AnalisadorRastreio();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(Paths.get(args[0]), "P*.bin")) {
+            for (Path arquivo : arquivos) {
+                analisador.carregar(arquivo);
+            }
+        }
+        int total = analisador.analisar(janelaSnapshot);
+        System.exit(total == 0 ? 0 : 1);
+    }
+
+    /**
+     * Lê um arquivo de rastreio; um registro truncado no fim (processo encerrado no meio
+     * da gravação) é descartado
+     */
+    public void carregar(Path arquivo) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+            byte[] magia = new byte[RastreadorCausal.MAGIA.length];
+            entrada.readFully(magia);
+            if (!Arrays.equals(magia, RastreadorCausal.MAGIA)) {
+                throw new IOException(arquivo + " não é um arquivo de rastreio");
+            }
+            int versao = entrada.readUnsignedByte();
+            if (versao != RastreadorCausal.VERSAO) {
+                throw new IOException(arquivo + ": versão de rastreio desconhecida " + versao);
+            }
+            int processo = (int) RelogioVetorial.lerVarint(entrada);
+
+            List<Evento> eventos = new ArrayList<>();
+            List<String> rotulos = new ArrayList<>();
+            RelogioVetorial vetor = new RelogioVetorial();
+            long instante = 0;
+            while (true) {
+                int tipo = entrada.read();
+                if (tipo < 0) break;
+                try {
+                    Evento evento = new Evento();
+                    evento.processo = processo;
+                    evento.tipo = tipo;
+                    instante += RelogioVetorial.lerVarint(entrada);
+                    evento.instante = instante;
+                    vetor.aplicarDiferenca(entrada);
+                    evento.vetor = vetor.copia();
+
+                    int indice = (int) RelogioVetorial.lerVarint(entrada);
+                    if (indice == 0) {
+                        byte[] texto = new byte[(int) RelogioVetorial.lerVarint(entrada)];
+                        entrada.readFully(texto);
+                        rotulos.add(new String(texto, StandardCharsets.UTF_8));
+                        indice = rotulos.size();
+                    }
+                    evento.rotulo = rotulos.get(indice - 1);
+
+                    if (tipo == RastreadorCausal.RECEBIMENTO) {
+                        evento.remetente = (int) RelogioVetorial.lerVarint(entrada);
+                        evento.contadorRemetente = RelogioVetorial.lerVarint(entrada);
+                    }
+                    eventos.add(evento);
+                } catch (EOFException e) {
+                    System.out.printf("[ANALISADOR] %s: último registro truncado, descartado%n", arquivo.getFileName());
+                    break;
+                }
+            }
+
+            eventosPorProcesso.put(processo, eventos);
+            for (Evento evento : eventos) {
+                if (evento.tipo == RastreadorCausal.ENVIO) {
+                    envios.put(chave(processo, evento.contador()), evento);
+                }
+            }
+            System.out.printf("[ANALISADOR] P%d: %d eventos em %s%n", processo, eventos.size(), arquivo.getFileName());
+        }
+    }
+
+    /**
+     * Executa todas as verificações e imprime o relatório
+     * @return total de violações
+     */
+    public int analisar(long janelaSnapshotMs) {
+        verificarMonotonicidade();
+        verificarRecebimentos();
+        verificarOrdemCausal();
+        verificarCortes(janelaSnapshotMs);
+        return imprimirRelatorio();
+    }
+
+    private void verificarMonotonicidade() {
+        for (List<Evento> eventos : eventosPorProcesso.values()) {
+            long anterior = 0;
+            for (Evento evento : eventos) {
+                if (evento.contador() != anterior + 1) {
+                    violacao("Contador próprio fora de sequência",
+                            String.format("%s: esperado #%d", evento.descrever(), anterior + 1));
+                }
+                anterior = evento.contador();
+            }
+        }
+    }
+
+    private void verificarRecebimentos() {
+        for (List<Evento> eventos : eventosPorProcesso.values()) {
+            for (Evento recebimento : eventos) {
+                if (recebimento.tipo != RastreadorCausal.RECEBIMENTO) continue;
+                if (!eventosPorProcesso.containsKey(recebimento.remetente)) {
+                    recebimentosSemRemetenteRastreado++;
+                    continue;
+                }
+                Evento envio = envios.get(chave(recebimento.remetente, recebimento.contadorRemetente));
+                if (envio == null) {
+                    violacao("Recebimento sem envio correspondente",
+                            String.format("%s: P%d não registrou envio #%d",
+                                    recebimento.descrever(), recebimento.remetente, recebimento.contadorRemetente));
+                } else if (!envio.vetor.antecede(recebimento.vetor)) {
+                    violacao("Recebimento não sucede o envio",
+                            String.format("%s %s não antecede %s %s",
+                                    envio.descrever(), envio.vetor, recebimento.descrever(), recebimento.vetor));
+                }
+            }
+        }
+    }
+
+    private void verificarOrdemCausal() {
+        for (List<Evento> eventos : eventosPorProcesso.values()) {
+            List<Evento> entregues = new ArrayList<>();
+            for (Evento recebimento : eventos) {
+                if (recebimento.tipo != RastreadorCausal.RECEBIMENTO) continue;
+                Evento envio = envios.get(chave(recebimento.remetente, recebimento.contadorRemetente));
+                if (envio == null) continue;
+
+                // Algum envio já entregue sucede causalmente este?
+                for (int i = Math.max(0, entregues.size() - JANELA_ENTREGAS); i < entregues.size(); i++) {
+                    Evento anterior = entregues.get(i);
+                    if (envio.vetor.antecede(anterior.vetor)) {
+                        violacao("Entrega fora da ordem causal",
+                                String.format("P%d entregou %s antes de %s, que o antecede",
+                                        recebimento.processo, anterior.descrever(), envio.descrever()));
+                        break;
+                    }
+                }
+                entregues.add(envio);
+            }
+        }
+    }
+
+    private void verificarCortes(long janelaMs) {
+        List<Evento> capturas = new ArrayList<>();
+        for (List<Evento> eventos : eventosPorProcesso.values()) {
+            for (Evento evento : eventos) {
+                if (evento.tipo == RastreadorCausal.SNAPSHOT) capturas.add(evento);
+            }
+        }
+        capturas.sort(Comparator.comparingLong(evento -> evento.instante));
+
+        Map<Integer, Evento> corte = new TreeMap<>();
+        long inicioCorte = 0;
+        for (Evento captura : capturas) {
+            if (!corte.isEmpty() && (corte.containsKey(captura.processo)
+                    || captura.instante - inicioCorte > janelaMs)) {
+                verificarCorte(corte);
+                corte.clear();
+            }
+            if (corte.isEmpty()) inicioCorte = captura.instante;
+            corte.put(captura.processo, captura);
+        }
+        if (!corte.isEmpty()) verificarCorte(corte);
+    }
+
+    /**
+     * Corte consistente: para todo par, Vj[i] <= Vi[i] (nenhum estado inclui
+     * eventos de outro processo posteriores à captura dele)
+     */
+    private void verificarCorte(Map<Integer, Evento> corte) {
+        if (corte.size() < 2) return;
+        cortesVerificados++;
+        for (Evento capturaJ : corte.values()) {
+            for (Evento capturaI : corte.values()) {
+                int i = capturaI.processo;
+                if (i == capturaJ.processo) continue;
+                long visto = capturaJ.vetor.get(i);
+                if (visto > capturaI.contador()) {
+                    violacao("Corte de snapshot inconsistente",
+                            String.format("corte #%d: P%d capturou em #%d, mas o estado de P%d já viu P%d#%d%s",
+                                    cortesVerificados, i, capturaI.contador(), capturaJ.processo, i, visto,
+                                    mensagemCulpada(capturaJ, i, capturaI.contador())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Primeira mensagem de Pi, enviada após a captura de Pi, recebida por Pj antes da própria captura
+     */
+    private String mensagemCulpada(Evento capturaJ, int i, long capturaI) {
+        for (Evento evento : eventosPorProcesso.get(capturaJ.processo)) {
+            if (evento.contador() >= capturaJ.contador()) break;
+            if (evento.tipo == RastreadorCausal.RECEBIMENTO && evento.remetente == i
+                    && evento.contadorRemetente > capturaI) {
+                return String.format(" (mensagem \"%s\" P%d#%d → %s)",
+                        evento.rotulo, i, evento.contadorRemetente, evento.descrever());
+            }
+        }
+        return " (por mensagem indireta)";
+    }
+
+    private void violacao(String tipo, String descricao) {
+        violacoes.computeIfAbsent(tipo, t -> new ArrayList<>()).add(descricao);
+    }
+
+    private int imprimirRelatorio() {
+        int eventos = eventosPorProcesso.values().stream().mapToInt(List::size).sum();
+        int total = violacoes.values().stream().mapToInt(List::size).sum();
+
+        System.out.println("\n========== ANÁLISE DE RASTREIO CAUSAL ==========");
+        System.out.printf("Processos: %d | Eventos: %d | Envios: %d | Cortes de snapshot: %d%n",
+                eventosPorProcesso.size(), eventos, envios.size(), cortesVerificados);
+        if (recebimentosSemRemetenteRastreado > 0) {
+            System.out.printf("Recebimentos de processos sem arquivo de rastreio (não verificados): %d%n",
+                    recebimentosSemRemetenteRastreado);
+        }
+        if (total == 0) {
+            System.out.println("Nenhuma violação causal encontrada.");
+        }
+        violacoes.forEach((tipo, descricoes) -> {
+            System.out.printf("%n%s: %d%n", tipo, descricoes.size());
+            descricoes.stream().limit(EXEMPLOS_POR_TIPO).forEach(d -> System.out.println("  - " + d));
+            if (descricoes.size() > EXEMPLOS_POR_TIPO) {
+                System.out.printf("  ... e mais %d%n", descricoes.size() - EXEMPLOS_POR_TIPO);
+            }
+        });
+        System.out.println("=================================================");
+        return total;
+    }
+
+    private static long chave(int processo, long contador) {
+        return ((long) processo << 40) | contador;
+    }
+
+    private static String nomeTipo(int tipo) {
+        switch (tipo) {
+            case RastreadorCausal.ENVIO: return "envio";
+            case RastreadorCausal.RECEBIMENTO: return "recebimento";
+            case RastreadorCausal.SNAPSHOT: return "snapshot";
+            default: return "evento";
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package monitoramento.rastreio;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rastreio causal opcional com relógios vetoriais. Ligado só quando a JVM sobe com
+ * {@code -Drastreio.diretorio=<dir>}: cada processo grava seus eventos em
+ * {@code <dir>/P<id>.bin} e anexa o vetor às mensagens que envia. Desligado, todos
+ * os métodos retornam de imediato (a flag é final e estática, o JIT elimina o resto)
+ * e as mensagens saem sem contexto. Os arquivos são analisados offline por
+ * {@link AnalisadorRastreio}.
+ *
+ * Arquivo: magia "RVC" | versão (1) | processo (varint), seguido de registros:
+ * tipo (1) | ms desde o registro anterior | diferença do vetor ({@link RelogioVetorial#escreverDiferenca})
+ * | rótulo (índice na tabela, ou 0 + texto novo) | em recebimentos, remetente e contador dele no envio.
+ * Inteiros em varint.
+ */
+public class RastreadorCausal {
+    public static final String PROPRIEDADE_DIRETORIO = "rastreio.diretorio";
+
+    static final byte[] MAGIA = {'R', 'V', 'C'};
+    static final int VERSAO = 1;
+
+    // Tipos de registro
+    static final int ENVIO = 1;
+    static final int RECEBIMENTO = 2;
+    static final int EVENTO = 3;
+    static final int SNAPSHOT = 4;
+
+    private static final String DIRETORIO = System.getProperty(PROPRIEDADE_DIRETORIO);
+    private static final boolean ATIVO = DIRETORIO != null && !DIRETORIO.isEmpty();
+
+    private static final RastreadorCausal DESATIVADO = new RastreadorCausal(-1, null);
+    private static final Map<Integer, RastreadorCausal> RASTREADORES = new ConcurrentHashMap<>();
+
+    static {
+        if (ATIVO) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    RASTREADORES.values().forEach(RastreadorCausal::fechar), "rastreio-causal"));
+        }
+    }
+
+    private final int processo;
+    private final DataOutputStream saida;
+    private final RelogioVetorial vetor = new RelogioVetorial();
+    private final RelogioVetorial gravado = new RelogioVetorial();
+    private final Map<String, Integer> rotulos = new HashMap<>();
+    private long ultimoInstante;
+    private boolean falhou;
+
+    private RastreadorCausal(int processo, DataOutputStream saida) {
+        this.processo = processo;
+        this.saida = saida;
+    }
+
+    /**
+     * Rastreador do processo (o mesmo para todos os componentes dele), ou um
+     * rastreador inerte se o modo estiver desligado
+     */
+    public static RastreadorCausal para(int processo) {
+        if (!ATIVO) return DESATIVADO;
+        return RASTREADORES.computeIfAbsent(processo, RastreadorCausal::abrir);
+    }
+
+    public static boolean isModoAtivo() {
+        return ATIVO;
+    }
+
+    private static RastreadorCausal abrir(int processo) {
+        try {
+            Path diretorio = Paths.get(DIRETORIO);
+            Files.createDirectories(diretorio);
+            Path arquivo = diretorio.resolve("P" + processo + ".bin");
+            DataOutputStream saida = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(arquivo.toFile())));
+            saida.write(MAGIA);
+            saida.writeByte(VERSAO);
+            RelogioVetorial.escreverVarint(saida, processo);
+            System.out.printf("[RASTREIO P%d] Gravando eventos causais em %s%n", processo, arquivo);
+            return new RastreadorCausal(processo, saida);
+        } catch (IOException e) {
+            System.err.printf("[RASTREIO P%d] Não foi possível abrir o arquivo de rastreio: %s%n",
+                    processo, e.getMessage());
+            return DESATIVADO;
+        }
+    }
+
+    public boolean isAtivo() {
+        return saida != null;
+    }
+
+    /**
+     * Envio de mensagem
+     * @return contexto a anexar à mensagem (remetente + vetor), ou null se desligado
+     */
+    public byte[] registrarEnvio(String rotulo) {
+        if (saida == null) return null;
+        synchronized (this) {
+            vetor.incrementar(processo);
+            gravar(ENVIO, rotulo, -1, 0);
+            return codificarContexto();
+        }
+    }
+
+    /**
+     * Recebimento de mensagem com o contexto anexado pelo remetente; mensagens sem
+     * contexto (remetente com o rastreio desligado) são ignoradas
+     */
+    public void registrarRecebimento(String rotulo, byte[] contexto) {
+        if (saida == null || contexto == null) return;
+        int remetente;
+        RelogioVetorial remoto;
+        try {
+            DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(contexto));
+            remetente = (int) RelogioVetorial.lerVarint(entrada);
+            remoto = RelogioVetorial.ler(entrada, entrada.available());
+        } catch (IOException e) {
+            System.err.printf("[RASTREIO P%d] Contexto causal inválido em %s%n", processo, rotulo);
+            return;
+        }
+        synchronized (this) {
+            vetor.combinar(remoto);
+            vetor.incrementar(processo);
+            gravar(RECEBIMENTO, rotulo, remetente, remoto.get(remetente));
+        }
+    }
+
+    /**
+     * Evento local relevante (ex.: posse de um líder)
+     */
+    public void registrarEvento(String rotulo) {
+        registrarLocal(EVENTO, rotulo);
+    }
+
+    /**
+     * Captura do estado local de um snapshot: o vetor gravado é a fronteira do corte deste processo
+     */
+    public void registrarSnapshot(String rotulo) {
+        registrarLocal(SNAPSHOT, rotulo);
+    }
+
+    private void registrarLocal(int tipo, String rotulo) {
+        if (saida == null) return;
+        synchronized (this) {
+            vetor.incrementar(processo);
+            gravar(tipo, rotulo, -1, 0);
+        }
+    }
+
+    private byte[] codificarContexto() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+            DataOutputStream contexto = new DataOutputStream(bytes);
+            RelogioVetorial.escreverVarint(contexto, processo);
+            vetor.escrever(contexto);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // impossível em memória
+        }
+    }
+
+    private void gravar(int tipo, String rotulo, int remetente, long contadorRemetente) {
+        if (falhou) return;
+        try {
+            long agora = System.currentTimeMillis();
+            saida.writeByte(tipo);
+            RelogioVetorial.escreverVarint(saida, ultimoInstante == 0 ? agora : Math.max(0, agora - ultimoInstante));
+            ultimoInstante = Math.max(ultimoInstante, agora);
+            vetor.escreverDiferenca(saida, gravado);
+            gravado.combinar(vetor);
+
+            Integer indice = rotulos.get(rotulo);
+            if (indice != null) {
+                RelogioVetorial.escreverVarint(saida, indice + 1);
+            } else {
+                rotulos.put(rotulo, rotulos.size());
+                byte[] texto = rotulo.getBytes(StandardCharsets.UTF_8);
+                RelogioVetorial.escreverVarint(saida, 0);
+                RelogioVetorial.escreverVarint(saida, texto.length);
+                saida.write(texto);
+            }
+
+            if (tipo == RECEBIMENTO) {
+                RelogioVetorial.escreverVarint(saida, remetente);
+                RelogioVetorial.escreverVarint(saida, contadorRemetente);
+            }
+        } catch (IOException e) {
+            falhou = true;
+            System.err.printf("[RASTREIO P%d] Falha ao gravar rastreio, registro interrompido: %s%n",
+                    processo, e.getMessage());
+        }
+    }
+
+    /**
+     * Descarrega o buffer no arquivo (os registros ficam legíveis pelo analisador)
+     */
+    public synchronized void descarregar() {
+        if (saida == null || falhou) return;
+        try {
+            saida.flush();
+        } catch (IOException e) {
+            falhou = true;
+        }
+    }
+
+    private synchronized void fechar() {
+        if (saida == null || falhou) return;
+        falhou = true; // registros posteriores ao encerramento são descartados
+        try {
+            saida.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Vetor atual do processo (cópia), para relatórios
+     */
+    public synchronized RelogioVetorial getVetor() {
+        return vetor.copia();
+    }
+}
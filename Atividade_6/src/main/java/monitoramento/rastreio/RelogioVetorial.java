@@ -0,0 +1,207 @@
+package monitoramento.rastreio;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Relógio vetorial esparso: só os processos com contador diferente de zero
+ * ocupam espaço, em arrays ordenados pelo id do processo.
+ * Codificação: quantidade de entradas | por entrada: id menos o id anterior | contador,
+ * tudo em varint; um vetor com poucos processos cabe em poucos bytes.
+ * Não é seguro para escrita concorrente.
+ */
+public class RelogioVetorial {
+    private int[] ids;
+    private long[] contadores;
+    private int tamanho;
+
+    public RelogioVetorial() {
+        this(4);
+    }
+
+    private RelogioVetorial(int capacidade) {
+        ids = new int[capacidade];
+        contadores = new long[capacidade];
+    }
+
+    public long get(int processo) {
+        int i = Arrays.binarySearch(ids, 0, tamanho, processo);
+        return i >= 0 ? contadores[i] : 0;
+    }
+
+    /**
+     * Evento do processo: avança o contador dele
+     * @return o novo valor do contador
+     */
+    public long incrementar(int processo) {
+        int i = posicao(processo);
+        return ++contadores[i];
+    }
+
+    private void definir(int processo, long contador) {
+        contadores[posicao(processo)] = contador;
+    }
+
+    /**
+     * Índice da entrada do processo, inserindo-a (com zero) se ainda não existir
+     */
+    private int posicao(int processo) {
+        int i = Arrays.binarySearch(ids, 0, tamanho, processo);
+        if (i >= 0) return i;
+        i = -i - 1;
+        if (tamanho == ids.length) {
+            ids = Arrays.copyOf(ids, tamanho * 2);
+            contadores = Arrays.copyOf(contadores, tamanho * 2);
+        }
+        System.arraycopy(ids, i, ids, i + 1, tamanho - i);
+        System.arraycopy(contadores, i, contadores, i + 1, tamanho - i);
+        ids[i] = processo;
+        contadores[i] = 0;
+        tamanho++;
+        return i;
+    }
+
+    /**
+     * Máximo componente a componente com outro vetor (o outro não é alterado)
+     */
+    public void combinar(RelogioVetorial outro) {
+        for (int j = 0; j < outro.tamanho; j++) {
+            if (outro.contadores[j] > get(outro.ids[j])) {
+                definir(outro.ids[j], outro.contadores[j]);
+            }
+        }
+    }
+
+    /**
+     * Todos os componentes menores ou iguais aos do outro vetor
+     */
+    public boolean menorOuIgual(RelogioVetorial outro) {
+        for (int i = 0; i < tamanho; i++) {
+            if (contadores[i] > outro.get(ids[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Aconteceu-antes: menor ou igual em tudo e diferente em algum componente
+     */
+    public boolean antecede(RelogioVetorial outro) {
+        return menorOuIgual(outro) && !outro.menorOuIgual(this);
+    }
+
+    public RelogioVetorial copia() {
+        RelogioVetorial copia = new RelogioVetorial(Math.max(1, tamanho));
+        System.arraycopy(ids, 0, copia.ids, 0, tamanho);
+        System.arraycopy(contadores, 0, copia.contadores, 0, tamanho);
+        copia.tamanho = tamanho;
+        return copia;
+    }
+
+    public int getTamanho() { return tamanho; }
+
+    // ---- Codificação ----
+
+    public void escrever(DataOutput saida) throws IOException {
+        escreverVarint(saida, tamanho);
+        int anterior = 0;
+        for (int i = 0; i < tamanho; i++) {
+            escreverVarint(saida, ids[i] - anterior);
+            escreverVarint(saida, contadores[i]);
+            anterior = ids[i];
+        }
+    }
+
+    /**
+     * Lê um vetor vindo de outro processo, validando a codificação
+     * @param bytesDisponiveis bytes que restam na entrada; cada entrada ocupa ao menos 2,
+     *                         o que limita a quantidade antes de alocar os arrays
+     * @throws IOException se a codificação é inválida
+     */
+    public static RelogioVetorial ler(DataInput entrada, int bytesDisponiveis) throws IOException {
+        long entradas = lerVarint(entrada);
+        if (entradas < 0 || entradas > (bytesDisponiveis - 1) / 2) {
+            throw new IOException("quantidade de entradas inválida: " + entradas);
+        }
+        RelogioVetorial vetor = new RelogioVetorial(Math.max(1, (int) entradas));
+        long id = 0;
+        for (int i = 0; i < entradas; i++) {
+            long diferenca = lerVarint(entrada);
+            // Ids estritamente crescentes (só o primeiro pode repetir o zero inicial)
+            if (diferenca < 0 || (diferenca == 0 && i > 0) || id + diferenca > Integer.MAX_VALUE) {
+                throw new IOException("id inválido na entrada " + i);
+            }
+            id += diferenca;
+            long contador = lerVarint(entrada);
+            if (contador < 0) {
+                throw new IOException("contador inválido na entrada " + i);
+            }
+            vetor.ids[i] = (int) id;
+            vetor.contadores[i] = contador;
+        }
+        vetor.tamanho = (int) entradas;
+        return vetor;
+    }
+
+    /**
+     * Só as entradas que mudaram desde o vetor anterior do mesmo processo, com o acréscimo
+     * de cada uma (os contadores de um processo nunca diminuem)
+     */
+    public void escreverDiferenca(DataOutput saida, RelogioVetorial anterior) throws IOException {
+        int mudancas = 0;
+        for (int i = 0; i < tamanho; i++) {
+            if (contadores[i] != anterior.get(ids[i])) mudancas++;
+        }
+        escreverVarint(saida, mudancas);
+        int idAnterior = 0;
+        for (int i = 0; i < tamanho; i++) {
+            long acrescimo = contadores[i] - anterior.get(ids[i]);
+            if (acrescimo != 0) {
+                escreverVarint(saida, ids[i] - idAnterior);
+                escreverVarint(saida, acrescimo);
+                idAnterior = ids[i];
+            }
+        }
+    }
+
+    /**
+     * Aplica a este vetor uma diferença gravada por {@link #escreverDiferenca}
+     */
+    public void aplicarDiferenca(DataInput entrada) throws IOException {
+        int mudancas = (int) lerVarint(entrada);
+        int id = 0;
+        for (int i = 0; i < mudancas; i++) {
+            id += (int) lerVarint(entrada);
+            definir(id, get(id) + lerVarint(entrada));
+        }
+    }
+
+    static void escreverVarint(DataOutput saida, long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            saida.writeByte((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        saida.writeByte((int) valor);
+    }
+
+    static long lerVarint(DataInput entrada) throws IOException {
+        long valor = 0;
+        for (int deslocamento = 0; deslocamento < 64; deslocamento += 7) {
+            int b = entrada.readUnsignedByte();
+            valor |= (long) (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) return valor;
+        }
+        throw new IOException("varint longo demais");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder("[");
+        for (int i = 0; i < tamanho; i++) {
+            if (i > 0) texto.append(' ');
+            texto.append('P').append(ids[i]).append('=').append(contadores[i]);
+        }
+        return texto.append(']').toString();
+    }
+}